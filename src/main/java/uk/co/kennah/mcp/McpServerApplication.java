@@ -6,15 +6,29 @@ import org.slf4j.LoggerFactory;
 import org.springframework.ai.support.ToolCallbacks;
 import org.springframework.ai.tool.ToolCallback;
 import java.util.List;
+import org.springframework.boot.LazyInitializationExcludeFilter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import io.modelcontextprotocol.server.McpServerFeatures.SyncResourceSpecification;
+import io.modelcontextprotocol.server.McpSyncServer;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
 import reactor.core.publisher.Hooks;
+import uk.co.kennah.mcp.aitools.LimitedToolCallback;
+import uk.co.kennah.mcp.aitools.RaceResources;
 import uk.co.kennah.mcp.aitools.RacesInfo;
+import uk.co.kennah.mcp.aitools.TracingToolCallback;
+import uk.co.kennah.mcp.limit.AdmissionControl;
+import uk.co.kennah.mcp.snapshot.NextDayCardStager;
+import uk.co.kennah.mcp.snapshot.RaceSnapshotService;
 
 @SpringBootApplication
 @EnableCaching
+@EnableScheduling
+@ImportRuntimeHints(McpServerRuntimeHints.class)
 public class McpServerApplication {
 
 	private static final Logger logger = LoggerFactory.getLogger(McpServerApplication.class);
@@ -63,9 +77,31 @@ public class McpServerApplication {
 		return "An application supplying horse racing information.";
 	}
 
+	/**
+	 * Each tool call is traced, then admitted, so calls turned away by the
+	 * rate limits still show up in the traces.
+	 */
+	@Bean
+	public List<ToolCallback> toolCallbacks(RacesInfo info, AdmissionControl admission) {
+		return TracingToolCallback.wrap(LimitedToolCallback.wrap(admission, ToolCallbacks.from(info))
+				.toArray(ToolCallback[]::new));
+	}
+
+	@Bean
+	public List<SyncResourceSpecification> resourceSpecifications(RaceResources resources) {
+		return resources.specifications();
+	}
+
+	/**
+	 * With lazy initialisation on (the stdio profile), nothing would ask for
+	 * the MCP server, the data refresh or the tracer until too late. These must
+	 * start with the application so the transport is listening, the data is
+	 * warm and the first calls are traced.
+	 */
 	@Bean
-	public List<ToolCallback> toolCallbacks(RacesInfo info) {
-		return List.of(ToolCallbacks.from(info));
+	static LazyInitializationExcludeFilter eagerMcpBeans() {
+		return LazyInitializationExcludeFilter.forBeanTypes(McpSyncServer.class, RaceSnapshotService.class,
+				NextDayCardStager.class, SdkTracerProvider.class);
 	}
 
 }
@@ -0,0 +1,43 @@
+package uk.co.kennah.mcp;
+
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+import uk.co.kennah.mcp.aitools.RacesInfo;
+import uk.co.kennah.mcp.log.WebSocketLogAppender;
+
+/**
+ * Reflection and resource hints for the GraalVM native image (mvn -Pnative package).
+ * Spring's AOT processing covers the beans themselves; these are the pieces
+ * that are looked up reflectively at run time.
+ */
+public class McpServerRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        // ToolCallbacks.from(racesInfo) scans the @Tool methods and their parameter names to build the tool schemas.
+        hints.reflection().registerType(RacesInfo.class,
+                MemberCategory.INTROSPECT_DECLARED_METHODS, MemberCategory.INVOKE_DECLARED_METHODS);
+
+        // Logback creates the appender from logback-spring.xml and calls its setters by name.
+        hints.reflection().registerType(WebSocketLogAppender.class,
+                MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS, MemberCategory.INVOKE_PUBLIC_METHODS);
+
+        // The GCS JSON API client binds object metadata onto these models by field reflection.
+        for (String model : new String[] {
+                "com.google.api.services.storage.model.StorageObject",
+                "com.google.api.services.storage.model.StorageObject$Owner",
+                "com.google.api.services.storage.model.StorageObject$CustomerEncryption" }) {
+            hints.reflection().registerTypeIfPresent(classLoader, model,
+                    MemberCategory.DECLARED_FIELDS, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+
+        hints.resources()
+                .registerPattern("application.yml")
+                .registerPattern("application.properties")
+                .registerPattern("logback-spring.xml")
+                .registerPattern("static/*");
+    }
+}
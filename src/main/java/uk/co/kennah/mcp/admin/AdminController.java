@@ -0,0 +1,110 @@
+package uk.co.kennah.mcp.admin;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import uk.co.kennah.mcp.limit.AdmissionControl;
+import uk.co.kennah.mcp.limit.LimitStats;
+
+/**
+ * Operator endpoints for race-day incidents. When {@code admin.token} is set
+ * every call must send it in the {@value #TOKEN_HEADER} header. Without one
+ * only the read-only endpoints answer: a reload or cache clear forces a full
+ * re-read of the card, which nobody who merely reaches the port should start.
+ */
+@RestController
+@Profile("!stdio")
+@RequestMapping("/admin")
+public class AdminController {
+
+    public static final String TOKEN_HEADER = "X-Admin-Token";
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
+
+    @Autowired
+    private RaceDataAdmin admin;
+
+    @Autowired
+    private AdmissionControl admission;
+
+    @Value("${admin.token:}")
+    private String token;
+
+    @GetMapping("/status")
+    public AdminStatus status(@RequestHeader(value = TOKEN_HEADER, required = false) String given) {
+        authorise(given);
+        return admin.status();
+    }
+
+    @GetMapping("/limits")
+    public LimitStats limits(@RequestHeader(value = TOKEN_HEADER, required = false) String given) {
+        authorise(given);
+        return admission.getStats();
+    }
+
+    @PostMapping("/reload")
+    public ResponseEntity<Map<String, Object>> reload(@RequestHeader(value = TOKEN_HEADER, required = false) String given) {
+        authoriseChange(given);
+        logger.info("Admin request to reload the race data");
+        boolean started = admin.reload();
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(result(started,
+                started ? "Reload started, see /admin/status for the outcome."
+                        : "A reload is already running, see /admin/status for the outcome."));
+    }
+
+    @PostMapping("/cache/clear")
+    public ResponseEntity<Map<String, Object>> clear(@RequestParam(required = false) String name,
+            @RequestHeader(value = TOKEN_HEADER, required = false) String given) {
+        authoriseChange(given);
+        logger.info("Admin request to clear the {} cache", name == null ? "all" : name);
+        try {
+            List<String> cleared = admin.clear(name);
+            Map<String, Object> body = result(true, "Cleared " + String.join(", ", cleared) + " and started a reload.");
+            body.put("cleared", cleared);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(result(false, e.getMessage()));
+        }
+    }
+
+    private void authoriseChange(String given) {
+        if (token.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Set admin.token to reload or clear the cache");
+        }
+        authorise(given);
+    }
+
+    private void authorise(String given) {
+        if (token.isBlank()) {
+            return;
+        }
+        if (given == null || !MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8), given.getBytes(StandardCharsets.UTF_8))) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing or wrong " + TOKEN_HEADER);
+        }
+    }
+
+    private static Map<String, Object> result(boolean accepted, String message) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("accepted", accepted);
+        body.put("message", message);
+        return body;
+    }
+}
@@ -0,0 +1,47 @@
+package uk.co.kennah.mcp.admin;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.availability.ReadinessState;
+
+import uk.co.kennah.mcp.cache.StatsCache;
+import uk.co.kennah.mcp.gcp.FeedStatus;
+import uk.co.kennah.mcp.gcp.LoadState;
+import uk.co.kennah.mcp.gcp.LoadStatus;
+import uk.co.kennah.mcp.log.StartupWarmUp;
+
+/**
+ * What the server holds and how it got there, as reported by {@code GET /admin/status}.
+ */
+public record AdminStatus(LocalDate cardDate, LoadState loadState, ReadinessState readiness,
+        StartupWarmUp.Report warmUp, Snapshot snapshot, LoadStatus lastLoad,
+        LoadStatus lastLoadError, List<FeedStatus> feeds, Staging staging, Map<String, StatsCache.Stats> caches, Heap heap, Reload reload) {
+
+    /**
+     * The live snapshot and what is in it.
+     */
+    public record Snapshot(long version, Instant loadedAt, int races, int runners, int formLines, int nonRunners) {
+    }
+
+    /**
+     * The next day's card, when object names are dated.
+     */
+    public record Staging(LocalDate stagedDate, String lastError) {
+    }
+
+    /**
+     * Estimated retained bytes, see {@code HeapEstimate}. A cached card that is
+     * the same tree as the snapshot is only counted once, under {@code card}.
+     */
+    public record Heap(long card, long otherCachedCards, long runnerColumns, long stagedCard, long total) {
+    }
+
+    /**
+     * The last reload asked for through the admin endpoint.
+     */
+    public record Reload(boolean running, Instant lastRequested, Instant lastFinished, String lastError) {
+    }
+}
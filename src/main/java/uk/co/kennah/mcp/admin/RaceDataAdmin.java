@@ -0,0 +1,181 @@
+package uk.co.kennah.mcp.admin;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.cache.Cache;
+import org.springframework.stereotype.Component;
+
+import com.google.gson.JsonElement;
+
+import jakarta.annotation.PreDestroy;
+import uk.co.kennah.mcp.cache.StatsCache;
+import uk.co.kennah.mcp.cache.StatsCacheManager;
+import uk.co.kennah.mcp.gcp.GCSHorseReader;
+import uk.co.kennah.mcp.gcp.LoadStatus;
+import uk.co.kennah.mcp.log.StartupWarmUp;
+import uk.co.kennah.mcp.query.RunnerStore;
+import uk.co.kennah.mcp.snapshot.CompactCard;
+import uk.co.kennah.mcp.snapshot.NextDayCardStager;
+import uk.co.kennah.mcp.snapshot.RaceSnapshot;
+import uk.co.kennah.mcp.snapshot.RaceSnapshotService;
+import uk.co.kennah.mcp.utils.HeapEstimate;
+
+/**
+ * Reports what the caches and the snapshot hold, and reloads or clears them
+ * on request. Both actions leave the current card serving until its
+ * replacement is ready: a reload swaps the cache entry and snapshot in one
+ * step, and after a clear concurrent requests wait for a single read.
+ */
+@Component
+public class RaceDataAdmin {
+
+    private static final Logger logger = LoggerFactory.getLogger(RaceDataAdmin.class);
+
+    @Autowired
+    private GCSHorseReader gcsReader;
+
+    @Autowired
+    private RaceSnapshotService snapshotService;
+
+    @Autowired
+    private RunnerStore runnerStore;
+
+    @Autowired
+    private NextDayCardStager stager;
+
+    @Autowired
+    private StatsCacheManager cacheManager;
+
+    @Autowired
+    private ApplicationAvailability availability;
+
+    @Autowired
+    private StartupWarmUp warmUp;
+
+    private final ExecutorService reloads = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "admin-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean reloading = new AtomicBoolean();
+    private volatile Instant lastReloadRequested;
+    private volatile Instant lastReloadFinished;
+    private volatile String lastReloadError;
+
+    public AdminStatus status() {
+        RaceSnapshot snapshot = snapshotService.getCurrent();
+        int runners = 0;
+        int formLines = 0;
+        for (JsonElement race : snapshot.getRaces()) {
+            if (race.isJsonObject() && race.getAsJsonObject().has("horses") && race.getAsJsonObject().get("horses").isJsonArray()) {
+                for (JsonElement horse : race.getAsJsonObject().getAsJsonArray("horses")) {
+                    runners++;
+                    if (horse.isJsonObject() && horse.getAsJsonObject().has("past") && horse.getAsJsonObject().get("past").isJsonArray()) {
+                        formLines += horse.getAsJsonObject().getAsJsonArray("past").size();
+                    }
+                }
+            }
+        }
+
+        Map<String, StatsCache.Stats> caches = new LinkedHashMap<>();
+        cacheManager.getCaches().forEach((name, cache) -> caches.put(name, cache.getStats()));
+
+        return new AdminStatus(gcsReader.getCardDate(), gcsReader.getLoadState(),
+                availability.getReadinessState(), warmUp.getReport(),
+                new AdminStatus.Snapshot(snapshot.getVersion(), snapshot.getLoadedAt(), snapshot.getRaces().size(),
+                        runners, formLines, snapshot.getNonRunners().size()),
+                gcsReader.getLastLoad(), gcsReader.getLastLoadError(), gcsReader.getFeedStatus(),
+                new AdminStatus.Staging(stager.getStagedDate(), stager.getLastStagingError()),
+                caches, heap(snapshot),
+                new AdminStatus.Reload(reloading.get(), lastReloadRequested, lastReloadFinished, lastReloadError));
+    }
+
+    private AdminStatus.Heap heap(RaceSnapshot snapshot) {
+        long card = HeapEstimate.of(snapshot.getRaces());
+        // The cached card is normally the very tree the snapshot holds; only count copies that differ.
+        Set<Object> counted = Collections.newSetFromMap(new IdentityHashMap<>());
+        counted.add(snapshot.getRaces());
+        long otherCached = 0;
+        for (StatsCache cache : cacheManager.getCaches().values()) {
+            if (cache.getNativeCache() instanceof Map<?, ?> entries) {
+                for (Object value : entries.values()) {
+                    if (value instanceof JsonElement element && counted.add(element)) {
+                        otherCached += HeapEstimate.of(element);
+                    }
+                }
+            }
+        }
+        long columns = runnerStore.getColumns().estimatedBytes();
+        CompactCard staged = stager.getStagedCard();
+        long stagedCard = staged != null ? staged.estimatedBytes() : 0;
+        return new AdminStatus.Heap(card, otherCached, columns, stagedCard, card + otherCached + columns + stagedCard);
+    }
+
+    /**
+     * Re-reads the live card in the background. The current card keeps
+     * serving until the new one has been read and merged.
+     * @return false if a reload was already running, in which case no new one is started.
+     */
+    public boolean reload() {
+        if (!reloading.compareAndSet(false, true)) {
+            return false;
+        }
+        lastReloadRequested = Instant.now();
+        reloads.execute(() -> {
+            try {
+                logger.info("Admin reload of the race data started.");
+                snapshotService.refresh();
+                LoadStatus load = gcsReader.getLastLoad();
+                lastReloadError = load != null ? load.error() : null;
+            } catch (RuntimeException e) {
+                logger.error("Admin reload of the race data failed", e);
+                lastReloadError = e.toString();
+            } finally {
+                lastReloadFinished = Instant.now();
+                reloading.set(false);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Empties a cache, or all of them, then reloads so the next request does
+     * not have to. Requests arriving before the reload finishes share one read.
+     * @param name The cache to clear, or null for all.
+     * @return The names of the caches cleared.
+     * @throws IllegalArgumentException If there is no cache with that name.
+     */
+    public List<String> clear(String name) {
+        List<String> names = name == null ? new ArrayList<>(cacheManager.getCacheNames()) : List.of(name);
+        // Check first: the in-memory manager would otherwise create an empty cache for any name.
+        if (!cacheManager.getCacheNames().containsAll(names)) {
+            throw new IllegalArgumentException("No cache named '" + name + "'");
+        }
+        for (String cacheName : names) {
+            Cache cache = cacheManager.getCache(cacheName);
+            cache.clear();
+            logger.info("Admin cleared the '{}' cache.", cacheName);
+        }
+        reload();
+        return names;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reloads.shutdownNow();
+    }
+}
@@ -0,0 +1,82 @@
+package uk.co.kennah.mcp.aitools;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.mcp.McpToolUtils;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import uk.co.kennah.mcp.limit.AdmissionControl;
+
+/**
+ * Runs each tool call past {@link AdmissionControl} first. A call that is
+ * turned away throws, which the MCP server sends back as an error result
+ * carrying the message, so the agent sees why and when to retry.
+ * <p>
+ * Callers are told apart by MCP session, see {@link McpSessionKeys}, so every
+ * agent has its own limits even when many run the same client software.
+ */
+public class LimitedToolCallback implements ToolCallback {
+
+    /** The client name used when the call did not come through an MCP session. */
+    static final String UNKNOWN_CLIENT = "mcp";
+
+    private final ToolCallback delegate;
+    private final AdmissionControl admission;
+    private final McpSessionKeys sessions;
+
+    LimitedToolCallback(ToolCallback delegate, AdmissionControl admission, McpSessionKeys sessions) {
+        this.delegate = delegate;
+        this.admission = admission;
+        this.sessions = sessions;
+    }
+
+    /**
+     * @return The callbacks, each wrapped so its calls are admitted first.
+     */
+    public static List<ToolCallback> wrap(AdmissionControl admission, ToolCallback... callbacks) {
+        McpSessionKeys sessions = new McpSessionKeys();
+        return Arrays.stream(callbacks)
+                .<ToolCallback>map(callback -> new LimitedToolCallback(callback, admission, sessions)).toList();
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return admitted(UNKNOWN_CLIENT, () -> delegate.call(toolInput));
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        return admitted(client(toolContext), () -> delegate.call(toolInput, toolContext));
+    }
+
+    private String admitted(String client, Supplier<String> call) {
+        try (AdmissionControl.Permit permit = admission.admit(client, delegate.getToolDefinition().name())) {
+            return call.get();
+        }
+    }
+
+    String client(ToolContext toolContext) {
+        if (toolContext == null) {
+            return UNKNOWN_CLIENT;
+        }
+        return McpToolUtils.getMcpExchange(toolContext)
+                .map(exchange -> exchange.getClientInfo())
+                .map(sessions::keyFor)
+                .orElse(UNKNOWN_CLIENT);
+    }
+}
@@ -0,0 +1,69 @@
+package uk.co.kennah.mcp.aitools;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.modelcontextprotocol.spec.McpSchema;
+
+/**
+ * Tells MCP sessions apart for admission control. The MCP server hands tools
+ * a fresh exchange per call and does not expose the session id, but the
+ * client info in it is the object read from that session's initialize
+ * request, one per session for as long as the session lives. Keys are given
+ * out by the identity of that object, not its value, so two agents running
+ * the same client software get their own limits. A key is the client name
+ * with a session number, such as "claude-ai#12", so it still reads well in
+ * logs and rejections, and is forgotten once the session has gone.
+ */
+class McpSessionKeys {
+
+    private final Map<Key, String> keys = new ConcurrentHashMap<>();
+    private final ReferenceQueue<McpSchema.Implementation> gone = new ReferenceQueue<>();
+    private final AtomicLong sessions = new AtomicLong();
+
+    /**
+     * @return The key for the session the client info belongs to.
+     */
+    String keyFor(McpSchema.Implementation clientInfo) {
+        for (Object key; (key = gone.poll()) != null; ) {
+            keys.remove(key);
+        }
+        String name = clientInfo.name() == null || clientInfo.name().isBlank() ? LimitedToolCallback.UNKNOWN_CLIENT
+                : clientInfo.name();
+        return keys.computeIfAbsent(new Key(clientInfo, gone), key -> name + "#" + sessions.incrementAndGet());
+    }
+
+    int size() {
+        return keys.size();
+    }
+
+    /**
+     * A weak reference compared by the identity of what it refers to.
+     */
+    private static final class Key extends WeakReference<McpSchema.Implementation> {
+
+        private final int hash;
+
+        Key(McpSchema.Implementation clientInfo, ReferenceQueue<McpSchema.Implementation> queue) {
+            super(clientInfo, queue);
+            this.hash = System.identityHashCode(clientInfo);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            Object referent = get();
+            return other instanceof Key key && referent != null && referent == key.get();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package uk.co.kennah.mcp.aitools;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import io.modelcontextprotocol.server.McpServerFeatures.SyncResourceSpecification;
+import io.modelcontextprotocol.server.McpSyncServer;
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpServerTransportProvider;
+import uk.co.kennah.mcp.snapshot.RaceKey;
+import uk.co.kennah.mcp.snapshot.RaceSnapshot;
+import uk.co.kennah.mcp.snapshot.RaceSnapshotChangedEvent;
+import uk.co.kennah.mcp.snapshot.RaceSnapshotDiff;
+import uk.co.kennah.mcp.snapshot.RaceSnapshotService;
+
+/**
+ * Exposes the race snapshot as versioned MCP resources, so agents can wait for
+ * a change notification instead of polling get_odds and get_non_runners.
+ * <ul>
+ * <li>{@code races://snapshot} lists every race with its resource URI and the version it last changed in.</li>
+ * <li>{@code races://non-runners} is the day's non-runner list.</li>
+ * <li>{@code races://race/{place}/{time}} is a single race with its runners and prices.</li>
+ * </ul>
+ * A resources/updated notification is only sent for the resources a refresh
+ * actually changed.
+ */
+@Component
+public class RaceResources implements ApplicationListener<RaceSnapshotChangedEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(RaceResources.class);
+
+    public static final String SNAPSHOT_URI = "races://snapshot";
+    public static final String NON_RUNNERS_URI = "races://non-runners";
+    private static final String RACE_URI_PREFIX = "races://race/";
+    private static final String RESOURCES_UPDATED = "notifications/resources/updated";
+    private static final String JSON = "application/json";
+
+    @Autowired
+    private RaceSnapshotService snapshotService;
+
+    @Autowired
+    private ObjectProvider<McpSyncServer> mcpServer;
+
+    @Autowired
+    private ObjectProvider<McpServerTransportProvider> transportProvider;
+
+    private final Set<String> registeredRaceUris = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The resources that exist for the whole life of the server. Per-race
+     * resources come and go with the card and are registered on refresh.
+     */
+    public List<SyncResourceSpecification> specifications() {
+        return List.of(
+                new SyncResourceSpecification(
+                        new McpSchema.Resource(SNAPSHOT_URI, "Race snapshot",
+                                "Every race on today's card with its resource URI and the snapshot version it last changed in.",
+                                JSON, null),
+                        (exchange, request) -> read(SNAPSHOT_URI, snapshotIndex(snapshotService.getCurrent()))),
+                new SyncResourceSpecification(
+                        new McpSchema.Resource(NON_RUNNERS_URI, "Non-runners",
+                                "All of today's non-runners.", JSON, null),
+                        (exchange, request) -> read(NON_RUNNERS_URI, nonRunners(snapshotService.getCurrent()))));
+    }
+
+    @Override
+    public void onApplicationEvent(RaceSnapshotChangedEvent event) {
+        McpSyncServer server = mcpServer.getIfAvailable();
+        if (server == null) {
+            return;
+        }
+        RaceSnapshotDiff diff = event.getDiff();
+        diff.removedRaces().forEach(key -> {
+            String uri = raceUri(key);
+            if (registeredRaceUris.remove(uri)) {
+                safely(() -> server.removeResource(uri), uri);
+            }
+        });
+        diff.addedRaces().forEach(key -> {
+            String uri = raceUri(key);
+            if (registeredRaceUris.add(uri)) {
+                safely(() -> server.addResource(raceSpecification(key)), uri);
+            }
+        });
+
+        diff.changedRaces().forEach(key -> notifyUpdated(raceUri(key)));
+        if (diff.nonRunnersChanged()) {
+            notifyUpdated(NON_RUNNERS_URI);
+        }
+        notifyUpdated(SNAPSHOT_URI);
+    }
+
+    public static String raceUri(RaceKey key) {
+        return RACE_URI_PREFIX + encode(key.place()) + "/" + encode(key.time());
+    }
+
+    private SyncResourceSpecification raceSpecification(RaceKey key) {
+        String uri = raceUri(key);
+        return new SyncResourceSpecification(
+                new McpSchema.Resource(uri, "The " + key, "Runners and latest prices for the " + key + ".", JSON, null),
+                (exchange, request) -> read(uri, race(snapshotService.getCurrent(), key)));
+    }
+
+    private void notifyUpdated(String uri) {
+        McpServerTransportProvider provider = transportProvider.getIfAvailable();
+        if (provider == null) {
+            return;
+        }
+        provider.notifyClients(RESOURCES_UPDATED, Map.of("uri", uri))
+                .doOnError(e -> logger.warn("Could not notify clients that {} changed: {}", uri, e.getMessage()))
+                .onErrorComplete()
+                .subscribe();
+    }
+
+    private static void safely(Runnable action, String uri) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            logger.warn("Could not update MCP resource {}: {}", uri, e.getMessage());
+        }
+    }
+
+    private static McpSchema.ReadResourceResult read(String uri, JsonObject body) {
+        return new McpSchema.ReadResourceResult(List.of(new McpSchema.TextResourceContents(uri, JSON, body.toString())));
+    }
+
+    private static JsonObject snapshotIndex(RaceSnapshot snapshot) {
+        JsonArray races = new JsonArray();
+        snapshot.getRacesByKey().keySet().forEach(key -> {
+            JsonObject race = new JsonObject();
+            race.addProperty("uri", raceUri(key));
+            race.addProperty("time", key.time());
+            race.addProperty("place", key.place());
+            race.addProperty("version", snapshot.getRaceVersion(key));
+            races.add(race);
+        });
+        JsonObject body = versioned(snapshot);
+        body.addProperty("loadedAt", snapshot.getLoadedAt().toString());
+        body.add("races", races);
+        return body;
+    }
+
+    private static JsonObject nonRunners(RaceSnapshot snapshot) {
+        JsonArray nonRunners = new JsonArray();
+        snapshot.getNonRunners().forEach(nonRunners::add);
+        JsonObject body = versioned(snapshot);
+        body.add("nonRunners", nonRunners);
+        return body;
+    }
+
+    private static JsonObject race(RaceSnapshot snapshot, RaceKey key) {
+        JsonObject body = new JsonObject();
+        body.addProperty("version", snapshot.getRaceVersion(key));
+        JsonObject race = snapshot.getRacesByKey().get(key);
+        if (race != null) {
+            body.add("race", race);
+        }
+        return body;
+    }
+
+    private static JsonObject versioned(RaceSnapshot snapshot) {
+        JsonObject body = new JsonObject();
+        body.addProperty("version", snapshot.getVersion());
+        return body;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+}
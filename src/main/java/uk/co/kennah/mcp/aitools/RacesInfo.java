@@ -1,8 +1,9 @@
 package uk.co.kennah.mcp.aitools;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,8 +11,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import uk.co.kennah.mcp.gcp.GCSHorseReader;
+import uk.co.kennah.mcp.query.RunnerStore;
+import uk.co.kennah.mcp.rating.RatingStrategies;
+import uk.co.kennah.mcp.rating.RatingStrategy;
 import uk.co.kennah.mcp.utils.Util;
 import org.springframework.ai.tool.annotation.Tool;
+import org.springframework.ai.tool.annotation.ToolParam;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -19,9 +24,16 @@ public class RacesInfo {
 
     private static final Logger logger = LoggerFactory.getLogger(RacesInfo.class);
 
+    private static final String RACE_FILTER_HELP = "Filters combine race attributes with and, or, not and brackets: "
+            + "handicap, maiden, novice, stakes, hurdle, chase, class:N, country:xx (such as country:uk) "
+            + "and place:meeting (lower case, hyphens for spaces, such as place:newton-abbot).";
+
     @Autowired
     private GCSHorseReader gcsReader;
 
+    @Autowired
+    private RunnerStore runnerStore;
+
     private JsonArray getCachedRaceData() {
         return Util.getCachedRaceData(gcsReader);
     }
@@ -44,8 +56,7 @@ public class RacesInfo {
     @Tool(name = "get_nap_of_the_day", description = "Find the best bet of the day across all races, based on the highest average rating over the last 3 runs.")
     public String getNapOfTheDay() {
         logger.info("AI tool call for Nap of the Day");
-        return Util.findNap(gcsReader,
-                race -> true, // No filter, include all races
+        return runnerStore.nap(null,
                 "The nap of the day is %s in the %s at %s, with a recent average rating of %.2f.",
                 "Could not determine a nap of the day from the available data.");
     }
@@ -53,11 +64,7 @@ public class RacesInfo {
     @Tool(name = "get_handicap_nap_of_the_day", description = "Find the best bet of the day from handicap races only, based on the highest average rating over the last 3 runs.")
     public String getHandicapNapOfTheDay() {
         logger.info("AI tool call for Handicap Nap of the Day");
-        Predicate<JsonObject> handicapFilter = race -> race.has("detail")
-                && race.get("detail").getAsString().toLowerCase().contains("handicap");
-
-        return Util.findNap(gcsReader,
-                handicapFilter,
+        return runnerStore.nap("handicap",
                 "The handicap nap of the day is %s in the %s at %s, with a recent average rating of %.2f.",
                 "Could not determine a nap of the day from today's handicap races.");
     }
@@ -65,18 +72,43 @@ public class RacesInfo {
     @Tool(name = "get_uk_handicap_nap_of_the_day", description = "Find the best bet of the day from UK handicap races only, based on the highest average rating over the last 3 runs.")
     public String getUkHandicapNapOfTheDay() {
         logger.info("AI tool call for UK Handicap Nap of the Day");
-        Predicate<JsonObject> ukHandicapFilter = race -> {
-            boolean isHandicap = race.has("detail") && race.get("detail").getAsString().toLowerCase().contains("handicap");
-            boolean isUk = race.has("country") && "UK".equalsIgnoreCase(race.get("country").getAsString());
-            return isHandicap && isUk;
-        };
-
-        return Util.findNap(gcsReader,
-                ukHandicapFilter,
+        return runnerStore.nap("handicap and country:uk",
                 "The UK handicap nap of the day is %s in the %s at %s, with a recent average rating of %.2f.",
                 "Could not determine a nap of the day from today's UK handicap races.");
     }
 
+    @Tool(name = "get_nap_of_the_day_for", description = "Find the best bet of the day from the races matching a filter, based on the highest average rating over the last 3 runs. "
+            + RACE_FILTER_HELP)
+    public String getNapOfTheDayFor(@ToolParam(description = "Race filter, for example \"chase and country:ire and not class:1\"") String races) {
+        logger.info("AI tool call for Nap of the Day in races matching '{}'", races);
+        return runnerStore.nap(races,
+                "The nap of the day in those races is %s in the %s at %s, with a recent average rating of %.2f.",
+                "Could not determine a nap of the day from the races matching '" + races + "'.");
+    }
+
+    @Tool(name = "get_leaderboard", description = "Rank the runners in the races matching a filter by their average rating over the last 3 runs, best first. "
+            + RACE_FILTER_HELP)
+    public String getLeaderboard(
+            @ToolParam(required = false, description = "Race filter, blank for every race") String races,
+            @ToolParam(required = false, description = "How many runners to list, default 20, at most 100") Integer limit) {
+        logger.info("AI tool call for the leaderboard of races matching '{}'", races);
+        return runnerStore.leaderboard(races, limit);
+    }
+
+    @Tool(name = "get_similar_runners", description = "Find the runners across today's card whose form is most like a given horse's, "
+            + "comparing their latest three ratings, trend, peak, consistency and days since last run. Nearest first.")
+    public String getSimilarRunners(@ToolParam(description = "The horse to compare with") String horseName,
+            @ToolParam(required = false, description = "How many runners to list, default 20, at most 100") Integer limit) {
+        logger.info("AI tool call for runners in similar form to {}", horseName);
+        return runnerStore.similar(horseName, limit);
+    }
+
+    @Tool(name = "get_races_matching", description = "List today's races matching a filter, by time and meeting. " + RACE_FILTER_HELP)
+    public String getRacesMatching(@ToolParam(description = "Race filter, for example \"place:newton-abbot and hurdle\"") String races) {
+        logger.info("AI tool call for races matching '{}'", races);
+        return runnerStore.races(races);
+    }
+
     @Tool(name = "get_top_rated", description = "Get the horse with the best average rating over last 3 runs for a particular race, identified by its time and place.")
     public String getTopRated(String time, String place) {
         logger.info("AI tool call for top rated (last 3 runs) horse in the {} at {}", time, place);
@@ -137,6 +169,28 @@ public class RacesInfo {
         return Util.findRaceWinPercentagesFromAll(time, place, gcsReader);
     }
 
+    @Tool(name = "get_race_win_percentages", description = "Calculates the win percentage for each horse in a race under several rating strategies at once, "
+            + "instead of calling the get_race_win_percentages_from_* tools one by one. Strategies: last_one (latest run), last_three (average of the last 3 runs), "
+            + "best_ever (best run), all (average of all runs), recency_weighted (all runs, recent ones counting most).")
+    public String getRaceWinPercentages(String time, String place,
+            @ToolParam(required = false, description = "Comma separated strategies to include, in order, default all; runners are ordered by the first") String strategies) {
+        logger.info("AI tool call for race win percentages by strategy in the {} at {}", time, place);
+        List<RatingStrategy> selected = new ArrayList<>();
+        if (strategies == null || strategies.isBlank()) {
+            selected.addAll(RatingStrategies.ALL);
+        } else {
+            for (String id : strategies.split(",")) {
+                Optional<RatingStrategy> strategy = RatingStrategies.byId(id);
+                if (strategy.isEmpty()) {
+                    return "Error: Unknown rating strategy '" + id.trim() + "'. Known strategies: "
+                            + RatingStrategies.ALL.stream().map(RatingStrategy::id).collect(Collectors.joining(", "));
+                }
+                selected.add(strategy.get());
+            }
+        }
+        return Util.findRaceWinPercentages(time, place, gcsReader, selected);
+    }
+
     @Tool(name = "get_all_runners", description = "Get all the runners for a particular race, identified by its time and place.")
     public String getAllRunners(String time, String place) {
         logger.info("AI tool call for all runners in the {} at {}", time, place);
@@ -256,4 +310,19 @@ public class RacesInfo {
         }
         return "Form for " + horseName + ": " + formDetails;
     }
+
+    @Tool(name = "query_runners", description = "Answer ad hoc questions about today's runners in one call: filter, sort, limit and aggregate. "
+            + "Numeric fields: time (HH:MM), odds (decimal), last3 (average of last 3 ratings), average, best (best ever rating), last (last rating), "
+            + "recent (rating of the latest dated run), runs, form(n) (average of last n ratings). Text fields: name, place, country, race. "
+            + "Flags: handicap, maiden, novice, stakes, hurdle, chase, nr, runner. "
+            + "Example: where \"country = UK and handicap and time > 15:00 and last3 > 80\", sort \"best desc\", limit 10.")
+    public String queryRunners(
+            @ToolParam(required = false, description = "Condition with and, or, not, brackets and = != < <= > >= ~ (text contains); text values with spaces go in quotes") String where,
+            @ToolParam(required = false, description = "Comma separated sort keys, each a numeric field optionally followed by asc or desc") String sort,
+            @ToolParam(required = false, description = "Maximum rows or groups to return, default 20, at most 100") Integer limit,
+            @ToolParam(required = false, description = "Comma separated count, avg(field), min(field), max(field), sum(field) instead of listing runners") String aggregate,
+            @ToolParam(required = false, description = "place, country or race to aggregate per group") String groupBy) {
+        logger.info("AI tool call to query runners where '{}' sorted by '{}'", where, sort);
+        return runnerStore.query(where, sort, limit, aggregate, groupBy);
+    }
 }
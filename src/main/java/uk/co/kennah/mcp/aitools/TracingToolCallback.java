@@ -0,0 +1,86 @@
+package uk.co.kennah.mcp.aitools;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.slf4j.MDC;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+
+import io.opentelemetry.api.trace.SpanKind;
+import uk.co.kennah.mcp.jfr.ToolCallEvent;
+import uk.co.kennah.mcp.trace.Spans;
+import uk.co.kennah.mcp.trace.TraceSpan;
+
+/**
+ * Runs each tool call inside its own span, with the tool name in the logging
+ * MDC, so every line logged while answering it can be attributed to the tool
+ * and matched to its trace. Each call is also a {@link ToolCallEvent} for
+ * Flight Recorder.
+ */
+public class TracingToolCallback implements ToolCallback {
+
+    /** The MDC key holding the name of the tool being called. */
+    public static final String MDC_KEY = "tool";
+
+    private final ToolCallback delegate;
+
+    public TracingToolCallback(ToolCallback delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return The callbacks, each wrapped so its calls are traced.
+     */
+    public static List<ToolCallback> wrap(ToolCallback... callbacks) {
+        return Arrays.stream(callbacks).<ToolCallback>map(TracingToolCallback::new).toList();
+    }
+
+    @Override
+    public ToolDefinition getToolDefinition() {
+        return delegate.getToolDefinition();
+    }
+
+    @Override
+    public ToolMetadata getToolMetadata() {
+        return delegate.getToolMetadata();
+    }
+
+    @Override
+    public String call(String toolInput) {
+        return traced(toolInput, () -> delegate.call(toolInput));
+    }
+
+    @Override
+    public String call(String toolInput, ToolContext toolContext) {
+        return traced(toolInput, () -> delegate.call(toolInput, toolContext));
+    }
+
+    private String traced(String toolInput, Supplier<String> call) {
+        String name = delegate.getToolDefinition().name();
+        ToolCallEvent event = new ToolCallEvent();
+        event.begin();
+        try (MDC.MDCCloseable tool = MDC.putCloseable(MDC_KEY, name);
+                TraceSpan span = Spans.startCall("tool " + name, SpanKind.SERVER).setAttribute("mcp.tool", name)) {
+            try {
+                String result = call.get();
+                event.resultSize = result != null ? result.length() : 0;
+                return result;
+            } catch (RuntimeException e) {
+                span.recordException(e);
+                event.error = e.getMessage();
+                throw e;
+            }
+        } finally {
+            if (event.shouldCommit()) {
+                event.tool = name;
+                event.arguments = toolInput != null && toolInput.length() > ToolCallEvent.MAX_ARGUMENTS
+                        ? toolInput.substring(0, ToolCallEvent.MAX_ARGUMENTS) : toolInput;
+                event.commit();
+            }
+        }
+    }
+}
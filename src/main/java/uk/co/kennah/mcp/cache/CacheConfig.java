@@ -0,0 +1,18 @@
+package uk.co.kennah.mcp.cache;
+
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The same in-memory caches Spring Boot would set up by default, with hit and
+ * miss counting on top.
+ */
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    public StatsCacheManager cacheManager() {
+        return new StatsCacheManager(new ConcurrentMapCacheManager());
+    }
+}
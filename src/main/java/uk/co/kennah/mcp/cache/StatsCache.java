@@ -0,0 +1,166 @@
+package uk.co.kennah.mcp.cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.cache.Cache;
+
+import uk.co.kennah.mcp.jfr.CacheAccessEvent;
+
+/**
+ * Counts hits, misses and writes on a cache and passes everything else
+ * through. The counters are cheap enough to leave on under full traffic.
+ * Each lookup is also a {@link CacheAccessEvent} for Flight Recorder.
+ */
+public class StatsCache implements Cache {
+
+    private final Cache delegate;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * A point-in-time copy of the counters.
+     */
+    public record Stats(long hits, long misses, double hitRatio, long puts, long evictions) {
+    }
+
+    public StatsCache(Cache delegate) {
+        this.delegate = delegate;
+    }
+
+    public Stats getStats() {
+        long hit = hits.sum();
+        long miss = misses.sum();
+        return new Stats(hit, miss, hit + miss == 0 ? 0 : (double) hit / (hit + miss), puts.sum(), evictions.sum());
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        CacheAccessEvent event = begin();
+        ValueWrapper value = delegate.get(key);
+        counted(event, value != null);
+        return value;
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        CacheAccessEvent event = begin();
+        T value = delegate.get(key, type);
+        counted(event, value != null);
+        return value;
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        CacheAccessEvent event = begin();
+        boolean[] loaded = new boolean[1];
+        T value = delegate.get(key, () -> {
+            loaded[0] = true;
+            return valueLoader.call();
+        });
+        if (loaded[0]) {
+            puts.increment();
+        }
+        counted(event, !loaded[0]);
+        return value;
+    }
+
+    @Override
+    public CompletableFuture<?> retrieve(Object key) {
+        CacheAccessEvent event = begin();
+        CompletableFuture<?> value = delegate.retrieve(key);
+        counted(event, completed(value));
+        return value;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+        CacheAccessEvent event = begin();
+        boolean[] loaded = new boolean[1];
+        CompletableFuture<T> value = delegate.retrieve(key, () -> {
+            loaded[0] = true;
+            return valueLoader.get();
+        });
+        counted(event, !loaded[0] && completed(value));
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        puts.increment();
+        delegate.put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = delegate.putIfAbsent(key, value);
+        if (existing == null) {
+            puts.increment();
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        evictions.increment();
+        delegate.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean evicted = delegate.evictIfPresent(key);
+        if (evicted) {
+            evictions.increment();
+        }
+        return evicted;
+    }
+
+    @Override
+    public void clear() {
+        evictions.increment();
+        delegate.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        evictions.increment();
+        return delegate.invalidate();
+    }
+
+    private static CacheAccessEvent begin() {
+        CacheAccessEvent event = new CacheAccessEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * A future still loading, or one that failed, has nothing to serve yet,
+     * so only one that completed normally counts as a hit.
+     */
+    private static boolean completed(CompletableFuture<?> value) {
+        return value != null && value.isDone() && !value.isCompletedExceptionally();
+    }
+
+    private void counted(CacheAccessEvent event, boolean hit) {
+        (hit ? hits : misses).increment();
+        if (event.shouldCommit()) {
+            event.cache = delegate.getName();
+            event.hit = hit;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package uk.co.kennah.mcp.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+/**
+ * Wraps every cache of another manager in a {@link StatsCache}, so the admin
+ * status can report hits and misses per cache.
+ */
+public class StatsCacheManager implements CacheManager {
+
+    private final CacheManager delegate;
+    private final Map<String, StatsCache> caches = new ConcurrentHashMap<>();
+
+    public StatsCacheManager(CacheManager delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        StatsCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache created = delegate.getCache(name);
+        return created == null ? null : caches.computeIfAbsent(name, n -> new StatsCache(created));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+    /**
+     * @return The caches in use so far, by name.
+     */
+    public Map<String, StatsCache> getCaches() {
+        return Map.copyOf(caches);
+    }
+}
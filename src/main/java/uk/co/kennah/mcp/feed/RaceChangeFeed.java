@@ -0,0 +1,96 @@
+package uk.co.kennah.mcp.feed;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Profile;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import uk.co.kennah.mcp.query.RaceAttributes;
+import uk.co.kennah.mcp.snapshot.RaceChanges;
+import uk.co.kennah.mcp.snapshot.RaceKey;
+import uk.co.kennah.mcp.snapshot.RaceSnapshot;
+import uk.co.kennah.mcp.snapshot.RaceSnapshotChangedEvent;
+import uk.co.kennah.mcp.snapshot.RaceSnapshotDiff;
+
+/**
+ * Pushes what changed in each new snapshot to STOMP subscribers, so
+ * dashboards can follow prices and withdrawals instead of polling
+ * {@code /get-odds} and {@code /get-non-runners}. Only the deltas are sent:
+ * <ul>
+ * <li>{@value #SNAPSHOT_TOPIC}: every new version, with the races added, changed and removed</li>
+ * <li>{@value #ODDS_TOPIC}/{meeting}: price moves at one meeting, see {@link #meeting(String)}</li>
+ * <li>{@value #NON_RUNNERS_TOPIC}: runners withdrawn, reinstated or taken off a race</li>
+ * </ul>
+ * A dashboard reads the starting state over REST, then applies the deltas.
+ * The first load and races new to the card only appear on the snapshot
+ * topic, since there is nothing to diff them against.
+ */
+@Component
+@Profile("!stdio")
+public class RaceChangeFeed implements ApplicationListener<RaceSnapshotChangedEvent> {
+
+    public static final String SNAPSHOT_TOPIC = "/topic/races/snapshot";
+    public static final String ODDS_TOPIC = "/topic/races/odds";
+    public static final String NON_RUNNERS_TOPIC = "/topic/races/non-runners";
+
+    private static final Logger logger = LoggerFactory.getLogger(RaceChangeFeed.class);
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    public record SnapshotUpdate(long version, long previousVersion, Instant loadedAt, List<RaceKey> added,
+            List<RaceKey> changed, List<RaceKey> removed) {
+    }
+
+    public record OddsUpdate(long version, String place, List<RaceChanges.OddsChange> changes) {
+    }
+
+    public record NonRunnerUpdate(long version, List<String> withdrawn, List<String> reinstated,
+            List<String> removed) {
+    }
+
+    @Override
+    public void onApplicationEvent(RaceSnapshotChangedEvent event) {
+        RaceSnapshot previous = event.getPrevious();
+        RaceSnapshot current = event.getCurrent();
+        RaceSnapshotDiff diff = event.getDiff();
+        long version = current.getVersion();
+        send(SNAPSHOT_TOPIC, new SnapshotUpdate(version, previous.getVersion(), current.getLoadedAt(),
+                List.copyOf(diff.addedRaces()), List.copyOf(diff.changedRaces()), List.copyOf(diff.removedRaces())));
+        if (previous.getVersion() == 0) {
+            return;
+        }
+        RaceChanges changes = RaceChanges.between(previous, current, diff);
+        changes.oddsByPlace().forEach((place, moves) ->
+                send(ODDS_TOPIC + "/" + meeting(place), new OddsUpdate(version, place, moves)));
+        if (!changes.newNonRunners().isEmpty() || !changes.reinstated().isEmpty()
+                || !changes.removedRunners().isEmpty()) {
+            send(NON_RUNNERS_TOPIC, new NonRunnerUpdate(version, changes.newNonRunners(), changes.reinstated(),
+                    changes.removedRunners()));
+        }
+    }
+
+    /**
+     * @return The meeting's part of its odds topic: lower case, with each run
+     * of other characters turned into a hyphen ("Newton Abbot" is newton-abbot).
+     */
+    public static String meeting(String place) {
+        return RaceAttributes.slug(place);
+    }
+
+    private void send(String destination, Object payload) {
+        try {
+            messagingTemplate.convertAndSend(destination, payload);
+        } catch (MessagingException e) {
+            // A dashboard missing one delta can re-read over REST; the refresh must not fail over it.
+            logger.warn("Could not publish to {}: {}", destination, e.getMessage());
+        }
+    }
+}
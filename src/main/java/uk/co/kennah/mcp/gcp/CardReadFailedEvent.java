@@ -0,0 +1,21 @@
+package uk.co.kennah.mcp.gcp;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published when a read of the live card through the cache failed, so a
+ * retry can be scheduled without waiting for the next refresh.
+ */
+public class CardReadFailedEvent extends ApplicationEvent {
+
+    private final LoadState state;
+
+    public CardReadFailedEvent(Object source, LoadState state) {
+        super(source);
+        this.state = state;
+    }
+
+    public LoadState getState() {
+        return state;
+    }
+}
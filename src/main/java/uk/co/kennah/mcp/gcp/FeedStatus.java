@@ -0,0 +1,21 @@
+package uk.co.kennah.mcp.gcp;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * The last read of one feed, for the admin status.
+ * @param feed The feed's name.
+ * @param kind Whether it holds races or odds.
+ * @param priority 0 is the highest, see {@link RaceFeed#priority()}.
+ * @param object The object last read.
+ * @param cardDate The day last read.
+ * @param finishedAt When the last read finished.
+ * @param millis How long it took.
+ * @param generation The generation read, or 0 if the read failed.
+ * @param lastSuccess When the feed was last read successfully, or null if it never has been.
+ * @param error Why the last read failed, or null if it succeeded.
+ */
+public record FeedStatus(String feed, RaceFeed.Kind kind, int priority, String object, LocalDate cardDate,
+        Instant finishedAt, long millis, long generation, Instant lastSuccess, String error) {
+}
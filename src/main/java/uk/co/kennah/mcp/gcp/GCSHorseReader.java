@@ -1,29 +1,66 @@
 package uk.co.kennah.mcp.gcp;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.springframework.stereotype.Component;
 
-import com.google.cloud.storage.Blob;
-import com.google.cloud.storage.BlobId;
-import com.google.cloud.storage.Storage;
-import com.google.cloud.storage.StorageException;
 import com.google.gson.*;
 
+import io.opentelemetry.context.Context;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import uk.co.kennah.mcp.jfr.JsonParseEvent;
+import uk.co.kennah.mcp.jfr.ObjectFetchEvent;
+import uk.co.kennah.mcp.jfr.OddsMergeEvent;
+import uk.co.kennah.mcp.snapshot.CompactCard;
+import uk.co.kennah.mcp.snapshot.SnapshotArtifact;
+import uk.co.kennah.mcp.snapshot.SnapshotArtifactReader;
+import uk.co.kennah.mcp.source.Compression;
+import uk.co.kennah.mcp.source.CountingInputStream;
+import uk.co.kennah.mcp.source.RaceDataSource;
+import uk.co.kennah.mcp.source.RaceObject;
+import uk.co.kennah.mcp.trace.Spans;
+import uk.co.kennah.mcp.trace.TraceSpan;
+
 @Component
 public class GCSHorseReader {
 
     private static final Logger logger = LoggerFactory.getLogger(GCSHorseReader.class);
-
-    @Value("${gcs.bucket.name}")
-    private String bucket;
+    private static final String DATE_PLACEHOLDER = "{date}";
 
     @Value("${gcs.file.name}")
     private String file;
@@ -31,68 +68,646 @@ public class GCSHorseReader {
     @Value("${gcs.oddsfile.name}")
     private String oddsFile;
 
+    @Value("${feeds.races:}")
+    private String extraRaceFeeds;
+
+    @Value("${feeds.odds:}")
+    private String extraOddsFeeds;
+
+    @Value("${feeds.odds-priority:}")
+    private String oddsPriority;
+
+    @Value("${feeds.timeout-ms:20000}")
+    private long feedTimeoutMillis;
+
+    @Value("${gcs.file.date-format:yyyy-MM-dd}")
+    private String dateFormat;
+
+    @Value("${gcs.rollover.zone:Europe/London}")
+    private String zone;
+
+    @Value("${race.compact:true}")
+    private boolean compact;
+
+    @Value("${gcs.refresh.retry-initial:2000}")
+    private long retryInitial;
+
+    @Value("${gcs.refresh.retry-max:60000}")
+    private long retryMax;
+
+    @Autowired
+    private RaceDataSource dataSource;
+
     @Autowired
-    private Storage storage;
+    private ObjectProvider<SnapshotArtifactReader> artifactReader;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private volatile LocalDate cardDate;
+    private volatile LoadStatus lastLoad;
+    private volatile LoadStatus lastLoadError;
+    private volatile LoadState loadState = LoadState.LOADING;
+    private volatile GoodCard lastGood;
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private volatile List<RaceFeed> raceFeeds;
+    private volatile List<RaceFeed> oddsFeeds;
+    private final Map<String, FeedStatus> feedStatus = new ConcurrentHashMap<>();
+    // The last good read of each feed for the live day, by feed key, used while that feed is failing or slow.
+    private final Map<String, Fetched> lastFetched = new ConcurrentHashMap<>();
+    // Reads still running, by feed key and day, so a retry joins a slow read instead of starting another.
+    private final Map<String, CompletableFuture<Fetched>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger feedThreads = new AtomicInteger();
+    private final ExecutorService feedReads = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "feed-read-" + feedThreads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
 
-    @Cacheable("raceData")
+    // The last card that was read successfully, kept to serve while a failed read is retried.
+    private record GoodCard(LocalDate date, JsonElement races, Instant loadedAt) {}
+
+    // One feed's content for a day. The JSON is null when the read failed; error says why. A read can be
+    // shared by loads running at the same time, so its JSON is only ever read, never changed.
+    private record Fetched(RaceFeed feed, LocalDate date, String object, JsonElement json, long generation,
+            Instant readAt, String error) {}
+
+    @PostConstruct
+    void checkFeeds() {
+        // Fail at start-up rather than on the first read if the feed lists are malformed.
+        getFeeds(RaceFeed.Kind.RACES);
+        getFeeds(RaceFeed.Kind.ODDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        feedReads.shutdownNow();
+    }
+
+    /**
+     * Reads the live card into the cache when it is not there yet. Concurrent
+     * misses, e.g. straight after the cache is cleared, wait for a single read.
+     * What a failed read returns is cached like a good card, so the failure is
+     * published for a retry to be scheduled, see {@link CardReadFailedEvent}.
+     * @return The merged race data, or an error object if it could not be read.
+     */
+    @Cacheable(value = "raceData", sync = true)
     public JsonElement readFileFromGCSAsJson() {
         logger.info("Reading all of today's horse racing data to cache.");
-        try {
-            BlobId blobId = BlobId.of(bucket, file);
-            Blob blob = storage.get(blobId);
-            if (blob == null || !blob.exists()) {
-                logger.error("File '{}' not found in GCS bucket '{}'", file, bucket);
-                return JsonParser.parseString("{\"error\": \"File not found in bucket '" + bucket + "'\"}");
+        JsonElement races = loadLiveCard();
+        LoadState state = loadState;
+        if (state.retryAt() != null) {
+            eventPublisher.publishEvent(new CardReadFailedEvent(this, state));
+        }
+        return races;
+    }
+
+    /**
+     * Re-reads the race and odds files and replaces the cached race data, so
+     * readers pick up the new odds without waiting for a restart. If the read
+     * fails the card already served for the day stays in the cache, see
+     * {@link #getLoadState()}.
+     * @return The freshly merged race data.
+     */
+    @CachePut("raceData")
+    public JsonElement reloadFileFromGCSAsJson() {
+        logger.info("Refreshing today's horse racing data in the cache.");
+        return loadLiveCard();
+    }
+
+    /**
+     * Reads and merges the card for another day without touching the cache,
+     * so it can be checked and held ready before it goes live.
+     * @param date The day whose card should be read.
+     * @param generations Filled in with the generation of each object read, by name.
+     * @return The merged race data, or an error object if it could not be read.
+     */
+    public JsonElement readCardForDate(LocalDate date, Map<String, Long> generations) {
+        logger.info("Reading the horse racing data for {}.", date);
+        return loadRaces(date, generations);
+    }
+
+    /**
+     * Looks up each feed's object for a day without reading it, so a card read
+     * earlier can be checked for replaced objects.
+     * @param date The day whose objects should be looked up.
+     * @return The generation of each object that exists, by name.
+     * @throws IOException If the source could not be reached.
+     */
+    public Map<String, Long> findGenerations(LocalDate date) throws IOException {
+        Map<String, Long> generations = new LinkedHashMap<>();
+        for (RaceFeed.Kind kind : RaceFeed.Kind.values()) {
+            for (RaceFeed feed : getFeeds(kind)) {
+                String name = objectName(feed.template(), date);
+                Optional<RaceObject> object = dataSource.find(name);
+                if (object.isPresent()) {
+                    generations.put(name, object.get().generation());
+                }
+            }
+        }
+        return generations;
+    }
+
+    /**
+     * Makes an already loaded card the live one. The cache entry and the card
+     * date switch together, so no request sees a mix of two days.
+     * @param date The day the card is for.
+     * @param races The card read earlier by {@link #readCardForDate(LocalDate)}.
+     * @return The races now held in the cache.
+     */
+    @CachePut(value = "raceData", key = "T(org.springframework.cache.interceptor.SimpleKey).EMPTY")
+    public JsonElement rollOverTo(LocalDate date, JsonElement races) {
+        logger.info("Rolling the live race card over to {}.", date);
+        this.cardDate = date;
+        succeeded(date, races);
+        return races;
+    }
+
+    /**
+     * Puts back the races the snapshot already holds after a reload found
+     * nothing new, so the cache and the snapshot share one tree instead of
+     * each keeping its own copy of the same card.
+     * @param races The races of the current snapshot.
+     * @return The same races, now held in the cache.
+     */
+    @CachePut(value = "raceData", key = "T(org.springframework.cache.interceptor.SimpleKey).EMPTY")
+    public JsonElement keepCached(JsonElement races) {
+        GoodCard good = lastGood;
+        if (good != null) {
+            lastGood = new GoodCard(good.date(), races, good.loadedAt());
+        }
+        return races;
+    }
+
+    /**
+     * Sets the live card date without a preloaded card, for when nothing was
+     * staged. The next reload reads the new day's objects.
+     * @param date The day that is now live.
+     */
+    public void setCardDate(LocalDate date) {
+        this.cardDate = date;
+    }
+
+    /**
+     * @return The day whose card is live. It is fixed on first use and only
+     * moves on at the configured rollover, not at midnight by itself.
+     */
+    public LocalDate getCardDate() {
+        LocalDate date = cardDate;
+        if (date == null) {
+            date = LocalDate.now(getZone());
+            cardDate = date;
+        }
+        return date;
+    }
+
+    public ZoneId getZone() {
+        return ZoneId.of(zone);
+    }
+
+    /**
+     * @return True when the object names change with the date, which is what
+     * makes it possible to read tomorrow's card ahead of time.
+     */
+    public boolean isDateTemplated() {
+        return file.contains(DATE_PLACEHOLDER);
+    }
+
+    /**
+     * Resolves a configured object name such as {@code races-{date}.json} for a given day.
+     */
+    public String objectName(String template, LocalDate date) {
+        return template.replace(DATE_PLACEHOLDER, date.format(DateTimeFormatter.ofPattern(dateFormat)));
+    }
+
+    public String racesObjectName(LocalDate date) {
+        return objectName(file, date);
+    }
+
+    public String oddsObjectName(LocalDate date) {
+        return objectName(oddsFile, date);
+    }
+
+    /**
+     * @return The race or odds feeds read on every refresh, highest priority first.
+     */
+    public List<RaceFeed> getFeeds(RaceFeed.Kind kind) {
+        if (kind == RaceFeed.Kind.RACES) {
+            List<RaceFeed> feeds = raceFeeds;
+            if (feeds == null) {
+                feeds = RaceFeed.parse(kind, file, extraRaceFeeds, null);
+                raceFeeds = feeds;
+            }
+            return feeds;
+        }
+        List<RaceFeed> feeds = oddsFeeds;
+        if (feeds == null) {
+            feeds = RaceFeed.parse(kind, oddsFile, extraOddsFeeds, oddsPriority);
+            oddsFeeds = feeds;
+        }
+        return feeds;
+    }
+
+    /**
+     * @return The last read of each feed that has been read, races first, by priority.
+     */
+    public List<FeedStatus> getFeedStatus() {
+        List<FeedStatus> statuses = new ArrayList<>();
+        for (RaceFeed.Kind kind : RaceFeed.Kind.values()) {
+            for (RaceFeed feed : getFeeds(kind)) {
+                FeedStatus status = feedStatus.get(feed.key());
+                if (status != null) {
+                    statuses.add(status);
+                }
             }
-            byte[] content = blob.getContent();
-            JsonElement races = JsonParser.parseString(new String(content, StandardCharsets.UTF_8));
-            JsonElement odds = readOddsFileFromGCSAsJson();
+        }
+        return statuses;
+    }
+
+    /**
+     * @return The outcome of the last read of the live card, or null before the first.
+     */
+    public LoadStatus getLastLoad() {
+        return lastLoad;
+    }
+
+    /**
+     * @return The last read of the live card that failed, or null if none has.
+     */
+    public LoadStatus getLastLoadError() {
+        return lastLoadError;
+    }
 
-            races = updateRacesWithNewOdds(races, odds);
+    /**
+     * @return Whether the card being served is current, and when to retry if it is not.
+     */
+    public LoadState getLoadState() {
+        return loadState;
+    }
+
+    /**
+     * The wait before retrying after {@code failures} failed reads in a row:
+     * doubling from {@code initial} up to {@code max}, then jittered to
+     * between half and all of that, so a fleet that failed together does
+     * not retry together.
+     * @param random A number from 0 (inclusive) to 1 (exclusive).
+     */
+    static long retryDelayMillis(int failures, long initial, long max, double random) {
+        long delay = Math.min(max, initial << Math.min(Math.max(failures - 1, 0), 30));
+        return delay / 2 + (long) (random * (delay - delay / 2));
+    }
 
+    private JsonElement loadLiveCard() {
+        LocalDate date = getCardDate();
+        Map<String, Long> generations = new LinkedHashMap<>();
+        long start = System.nanoTime();
+        JsonElement races = compact(loadRaces(date, generations));
+        String error = races.isJsonObject() && races.getAsJsonObject().has("error")
+                ? races.getAsJsonObject().get("error").getAsString()
+                : null;
+        LoadStatus status = new LoadStatus(date, Instant.now(), (System.nanoTime() - start) / 1_000_000,
+                Map.copyOf(generations), error);
+        lastLoad = status;
+        if (error == null) {
+            succeeded(date, races);
             return races;
-        } catch (StorageException e) {
-            logger.error("Error reading from GCS", e);
-            return JsonParser.parseString("{\"error\": \"Error reading from GCS: " + e.getMessage() + "\"}");
         }
+        lastLoadError = status;
+        int failed = failures.incrementAndGet();
+        long delay = retryDelayMillis(failed, retryInitial, retryMax, ThreadLocalRandom.current().nextDouble());
+        Instant retryAt = status.finishedAt().plusMillis(delay);
+        GoodCard good = lastGood;
+        if (good != null && good.date().equals(date)) {
+            // Stale while revalidating: a failed read never replaces a good card for the same day.
+            loadState = new LoadState(LoadState.Phase.STALE, good.loadedAt(), failed, retryAt);
+            logger.warn("Reading the card failed {} time(s) in a row, still serving the one read at {}. Retrying in {} ms.",
+                    failed, good.loadedAt(), delay);
+            return good.races();
+        }
+        loadState = new LoadState(LoadState.Phase.FAILED, null, failed, retryAt);
+        logger.warn("Reading the card for {} failed {} time(s) in a row. Retrying in {} ms.", date, failed, delay);
+        return races;
+    }
+
+    private void succeeded(LocalDate date, JsonElement races) {
+        Instant now = Instant.now();
+        lastGood = new GoodCard(date, races, now);
+        failures.set(0);
+        loadState = new LoadState(LoadState.Phase.READY, now, 0, null);
+    }
+
+    private JsonElement loadRaces(LocalDate date, Map<String, Long> generations) {
+        try (TraceSpan span = Spans.start("load").setAttribute("card.date", date.toString())) {
+            SnapshotArtifactReader reader = artifactReader.getIfAvailable();
+            if (reader != null) {
+                // A reader replica takes the card the builder already merged.
+                String name = objectName(reader.getArtifactName(), date);
+                try (TraceSpan artifact = Spans.start("artifact").setAttribute("object", name)) {
+                    try {
+                        SnapshotArtifact loaded = reader.load(name, date);
+                        generations.put(racesObjectName(date), loaded.racesGeneration());
+                        generations.put(oddsObjectName(date), loaded.oddsGeneration());
+                        return loaded.races();
+                    } catch (IOException e) {
+                        artifact.recordException(e);
+                        logger.error("Error reading snapshot artifact '{}'", name, e);
+                        return error(e.getMessage());
+                    }
+                }
+            }
+            Map<RaceFeed, Fetched> fetched = fetchAll(date, generations);
+            List<Fetched> races = new ArrayList<>();
+            List<Fetched> odds = new ArrayList<>();
+            for (Fetched feed : fetched.values()) {
+                if (feed.json() != null) {
+                    (feed.feed().kind() == RaceFeed.Kind.RACES ? races : odds).add(feed);
+                }
+            }
+            if (races.isEmpty()) {
+                return error(fetched.get(getFeeds(RaceFeed.Kind.RACES).get(0)).error());
+            }
+            logger.info("Updating horse racing data with latest odds.");
+            return Spans.call("merge", () -> updateRacesWithNewOdds(mergeRaces(races), odds));
+        }
+    }
+
+    /**
+     * Starts a read of every feed at once and waits up to {@code feeds.timeout-ms}
+     * for them all (0 waits as long as they take). A feed that fails or is
+     * still running by then is served from its last good read for the same
+     * day, if there is one, so one slow or broken feed never holds the others
+     * back. A read left running carries on and is used by the next refresh.
+     * @return Each feed's content, in priority order, races first.
+     */
+    private Map<RaceFeed, Fetched> fetchAll(LocalDate date, Map<String, Long> generations) {
+        Map<RaceFeed, CompletableFuture<Fetched>> pending = new LinkedHashMap<>();
+        for (RaceFeed.Kind kind : RaceFeed.Kind.values()) {
+            for (RaceFeed feed : getFeeds(kind)) {
+                pending.put(feed, fetch(feed, date));
+            }
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(feedTimeoutMillis);
+        Map<RaceFeed, Fetched> results = new LinkedHashMap<>();
+        for (Map.Entry<RaceFeed, CompletableFuture<Fetched>> entry : pending.entrySet()) {
+            RaceFeed feed = entry.getKey();
+            Fetched result;
+            try {
+                result = feedTimeoutMillis > 0
+                        ? entry.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)
+                        : entry.getValue().get();
+            } catch (TimeoutException e) {
+                result = failed(feed, date, "Reading feed '" + feed.name() + "' took longer than " + feedTimeoutMillis + " ms");
+            } catch (ExecutionException e) {
+                result = failed(feed, date, "Error reading feed '" + feed.name() + "': " + e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result = failed(feed, date, "Interrupted reading feed '" + feed.name() + "'");
+            }
+            if (result.error() != null) {
+                result = fallBack(result);
+            } else if (feed.kind() == RaceFeed.Kind.RACES) {
+                // Loads running together share one read, so each merges the odds into its own copy.
+                result = new Fetched(result.feed(), result.date(), result.object(), result.json().deepCopy(),
+                        result.generation(), result.readAt(), null);
+            }
+            if (result.json() != null) {
+                generations.put(result.object(), result.generation());
+            }
+            results.put(feed, result);
+        }
+        return results;
+    }
+
+    private CompletableFuture<Fetched> fetch(RaceFeed feed, LocalDate date) {
+        String key = feed.key() + "@" + date;
+        CompletableFuture<Fetched> read = new CompletableFuture<>();
+        CompletableFuture<Fetched> running = inFlight.putIfAbsent(key, read);
+        if (running != null) {
+            return running;
+        }
+        try {
+            feedReads.execute(Context.current().wrap(() -> {
+                Fetched result = null;
+                RuntimeException failure = null;
+                try {
+                    result = read(feed, date);
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+                // Done before completing, so whoever sees the result and refreshes again starts a new read.
+                inFlight.remove(key, read);
+                if (failure == null) {
+                    read.complete(result);
+                } else {
+                    read.completeExceptionally(failure);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, read);
+            read.completeExceptionally(e);
+        }
+        return read;
+    }
+
+    private Fetched read(RaceFeed feed, LocalDate date) {
+        String object = objectName(feed.template(), date);
+        Map<String, Long> generations = new HashMap<>();
+        long start = System.nanoTime();
+        JsonElement json = readJson(object, generations);
+        String error = json.isJsonObject() && json.getAsJsonObject().has("error")
+                ? json.getAsJsonObject().get("error").getAsString()
+                : null;
+        Instant now = Instant.now();
+        Fetched result = new Fetched(feed, date, object, error == null ? json : null,
+                generations.getOrDefault(object, 0L), now, error);
+        FeedStatus previous = feedStatus.get(feed.key());
+        feedStatus.put(feed.key(), new FeedStatus(feed.name(), feed.kind(), feed.priority(), object, date, now,
+                (System.nanoTime() - start) / 1_000_000, result.generation(),
+                error == null ? now : previous != null ? previous.lastSuccess() : null, error));
+        if (error == null && date.equals(getCardDate()) && keepsCopy(feed)) {
+            // Races are kept compacted and copied before each merge, as the merge writes the odds into them.
+            JsonElement copy = feed.kind() == RaceFeed.Kind.RACES ? compactCopy(json) : json;
+            lastFetched.put(feed.key(), new Fetched(feed, date, object, copy, result.generation(), now, null));
+        }
+        return result;
+    }
+
+    /**
+     * A lone race feed needs no copy of its own: the last good card already
+     * stands in for it while it fails.
+     */
+    private boolean keepsCopy(RaceFeed feed) {
+        return feed.kind() == RaceFeed.Kind.ODDS || getFeeds(RaceFeed.Kind.RACES).size() > 1;
+    }
+
+    private Fetched fallBack(Fetched failed) {
+        Fetched good = lastFetched.get(failed.feed().key());
+        if (good == null || !good.date().equals(failed.date())) {
+            logger.warn("{}, leaving it out of this refresh.", failed.error());
+            return failed;
+        }
+        logger.warn("{}, using its read from {}.", failed.error(), good.readAt());
+        JsonElement json = failed.feed().kind() == RaceFeed.Kind.RACES ? good.json().deepCopy() : good.json();
+        return new Fetched(good.feed(), good.date(), good.object(), json, good.generation(), good.readAt(), null);
+    }
+
+    private static Fetched failed(RaceFeed feed, LocalDate date, String error) {
+        return new Fetched(feed, date, null, null, 0, null, error);
     }
 
-    private JsonElement readOddsFileFromGCSAsJson() {
-        logger.info("Updating horse racing data with latest odds.");
+    private static JsonElement compactCopy(JsonElement races) {
+        if (!races.isJsonArray()) {
+            return races.deepCopy();
+        }
         try {
-            BlobId blobId = BlobId.of(bucket, oddsFile);
-            Blob blob = storage.get(blobId);
-            if (blob == null || !blob.exists()) {
-                logger.error("File '{}' not found in GCS bucket '{}'", oddsFile, bucket);
-                return JsonParser.parseString("{\"error\": \"File not found in bucket '" + bucket + "'\"}");
+            return CompactCard.encode(races.getAsJsonArray()).toJson();
+        } catch (IllegalArgumentException e) {
+            return races.deepCopy();
+        }
+    }
+
+    /**
+     * Puts the races from every race feed into one card, in priority order.
+     * A race listed by more than one feed (same time and place) is taken from
+     * the feed with the higher priority. With more than one race feed, each
+     * race is marked with the feed it came from.
+     */
+    private JsonElement mergeRaces(List<Fetched> feeds) {
+        if (getFeeds(RaceFeed.Kind.RACES).size() == 1) {
+            return feeds.get(0).json();
+        }
+        JsonArray merged = new JsonArray();
+        Set<String> seen = new HashSet<>();
+        for (Fetched feed : feeds) {
+            if (!feed.json().isJsonArray()) {
+                continue;
+            }
+            for (JsonElement element : feed.json().getAsJsonArray()) {
+                if (!element.isJsonObject()) {
+                    continue;
+                }
+                JsonObject race = element.getAsJsonObject();
+                String key = (race.has("time") ? race.get("time").getAsString() : "") + "|"
+                        + (race.has("place") ? race.get("place").getAsString() : "");
+                if (seen.add(key)) {
+                    race.addProperty("feed", feed.feed().name());
+                    merged.add(race);
+                } else {
+                    logger.debug("Dropping the {} from feed '{}', a feed with a higher priority lists it.", key,
+                            feed.feed().name());
+                }
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Rebuilds a merged card through {@link CompactCard} so that every key and
+     * repeated value is held once, rather than once per race, runner and past
+     * run as Gson parses it.
+     */
+    private JsonElement compact(JsonElement races) {
+        if (!compact || !races.isJsonArray()) {
+            return races;
+        }
+        try (TraceSpan span = Spans.start("compact")) {
+            CompactCard card = CompactCard.encode(races.getAsJsonArray());
+            span.setAttribute("strings", card.distinctStrings());
+            return card.toJson();
+        } catch (IllegalArgumentException e) {
+            logger.warn("Keeping the race data as parsed, it could not be compacted: {}", e.getMessage());
+            return races;
+        }
+    }
+
+    private JsonElement readJson(String name, Map<String, Long> generations) {
+        ObjectFetchEvent fetch = new ObjectFetchEvent();
+        fetch.begin();
+        fetch.source = dataSource.describe();
+        fetch.object = name;
+        try (TraceSpan span = Spans.start("read").setAttribute("object", name)) {
+            try {
+                Optional<RaceObject> object = dataSource.find(name);
+                if (object.isEmpty()) {
+                    logger.error("File '{}' not found in {}", name, dataSource.describe());
+                    span.setError("not found");
+                    fetch.error = "not found";
+                    return error("File not found in " + dataSource.describe());
+                }
+                fetch.found = true;
+                fetch.generation = object.get().generation();
+                generations.put(name, object.get().generation());
+                Compression compression = object.get().compression();
+                fetch.compression = compression.name();
+                span.setAttribute("compression", compression.name());
+                // Gson reads the stream as it parses, so this span covers the download (and decoding) as well.
+                JsonParseEvent parseEvent = new JsonParseEvent();
+                parseEvent.begin();
+                CountingInputStream counted = new CountingInputStream(object.get().openStream());
+                CountingInputStream decoded = null;
+                try (TraceSpan parse = Spans.start("parse")) {
+                    decoded = new CountingInputStream(compression.decode(counted));
+                    try (Reader reader = new InputStreamReader(decoded, StandardCharsets.UTF_8)) {
+                        return JsonParser.parseReader(reader);
+                    }
+                } finally {
+                    if (decoded == null) {
+                        counted.close();
+                    }
+                    fetch.bytes = counted.getCount();
+                    parseEvent.object = name;
+                    parseEvent.bytes = decoded != null ? decoded.getCount() : 0;
+                    parseEvent.commit();
+                }
+            } catch (IOException | JsonParseException e) {
+                span.recordException(e);
+                fetch.error = e.toString();
+                logger.error("Error reading '{}' from {}", name, dataSource.describe(), e);
+                return error("Error reading from " + dataSource.describe() + ": " + e.getMessage());
+            } finally {
+                fetch.commit();
             }
-            byte[] content = blob.getContent();
-            return JsonParser.parseString(new String(content, StandardCharsets.UTF_8));
-        } catch (StorageException e) {
-            logger.error("Error reading from GCS", e);
-            return JsonParser.parseString("{\"error\": \"Error reading from GCS: " + e.getMessage() + "\"}");
         }
     }
 
-    private JsonElement updateRacesWithNewOdds(JsonElement races, JsonElement odds) {
+    private static JsonElement error(String message) {
+        JsonObject error = new JsonObject();
+        error.addProperty("error", message);
+        return error;
+    }
+
+    private JsonElement updateRacesWithNewOdds(JsonElement races, List<Fetched> odds) {
+        OddsMergeEvent merge = new OddsMergeEvent();
+        merge.begin();
         // here we need to update the odds attribute on each horse in each of the races
-        // the odds are listed in the JsonElement "odds"
-        // Check if we have a valid array of races and a valid array for odds
-        if (races.isJsonArray() && odds.isJsonArray()) {
-            // Create a map of horse names to their odds for efficient lookup
-            Map<String, JsonElement> oddsMap = new HashMap<>();
-            for (JsonElement oddsElement : odds.getAsJsonArray()) {
-                if (oddsElement.isJsonObject()) {
-                    JsonObject oddsObject = oddsElement.getAsJsonObject();
-                    if (oddsObject.has("name") && oddsObject.get("name").isJsonPrimitive()) {
-                        String horseName = oddsObject.get("name").getAsString();
-                        // If odds are missing, it's a non-runner (NR).
-                        JsonElement oddsValue = oddsObject.has("odds")
-                                ? oddsObject.get("odds")
-                                : new JsonPrimitive("NR");
-                        oddsMap.put(horseName, oddsValue);
+        // the odds are listed by each odds feed, highest priority first
+        boolean provenance = getFeeds(RaceFeed.Kind.ODDS).size() > 1;
+        if (races.isJsonArray()) {
+            // Create a map of horse names to their odds for efficient lookup, one per feed
+            List<Map<String, JsonElement>> oddsMaps = new ArrayList<>();
+            List<String> feedNames = new ArrayList<>();
+            for (Fetched feed : odds) {
+                if (!feed.json().isJsonArray()) {
+                    continue;
+                }
+                Map<String, JsonElement> oddsMap = new HashMap<>();
+                for (JsonElement oddsElement : feed.json().getAsJsonArray()) {
+                    if (oddsElement.isJsonObject()) {
+                        JsonObject oddsObject = oddsElement.getAsJsonObject();
+                        if (oddsObject.has("name") && oddsObject.get("name").isJsonPrimitive()) {
+                            String horseName = oddsObject.get("name").getAsString();
+                            // If odds are missing, it's a non-runner (NR).
+                            JsonElement oddsValue = oddsObject.has("odds")
+                                    ? oddsObject.get("odds")
+                                    : new JsonPrimitive("NR");
+                            oddsMap.put(horseName, oddsValue);
+                        }
                     }
                 }
+                oddsMaps.add(oddsMap);
+                feedNames.add(feed.feed().name());
+                merge.oddsEntries += oddsMap.size();
             }
 
             JsonArray racesArray = races.getAsJsonArray();
@@ -111,13 +726,21 @@ public class GCSHorseReader {
                                 // Get the horse's name to use as a key for the odds lookup
                                 if (horseObject.has("name") && horseObject.get("name").isJsonPrimitive()) {
                                     String horseName = horseObject.get("name").getAsString();
-                                    // Find the odds for this horse and add it to the horse object
-                                    if (oddsMap.containsKey(horseName)) {
-                                        horseObject.add("odds", oddsMap.get(horseName));
-                                    } else if (oddsMap.containsKey(horseName.replace("'", ""))) {
-                                        horseObject.add("odds", oddsMap.get(horseName.replace("'", "")));
-                                    } else if (oddsMap.containsKey(horseName.toUpperCase())) {
-                                        horseObject.add("odds", oddsMap.get(horseName.toUpperCase()));
+                                    merge.runners++;
+                                    // Find the odds for this horse in the first feed that prices it
+                                    JsonElement price = null;
+                                    int feed = 0;
+                                    for (; feed < oddsMaps.size() && price == null; feed++) {
+                                        price = lookUp(oddsMaps.get(feed), horseName);
+                                    }
+                                    if (price != null) {
+                                        horseObject.add("odds", price);
+                                        if (provenance) {
+                                            horseObject.addProperty("oddsFeed", feedNames.get(feed - 1));
+                                        }
+                                        merge.matched++;
+                                    } else {
+                                        merge.unmatched++;
                                     }
                                 }
                             }
@@ -126,7 +749,22 @@ public class GCSHorseReader {
                 }
             }
         }
+        merge.commit();
         return races;
     }
 
+    /**
+     * Odds files name runners as-is, without apostrophes or in upper case.
+     */
+    private static JsonElement lookUp(Map<String, JsonElement> oddsMap, String horseName) {
+        JsonElement price = oddsMap.get(horseName);
+        if (price == null) {
+            price = oddsMap.get(horseName.replace("'", ""));
+        }
+        if (price == null) {
+            price = oddsMap.get(horseName.toUpperCase());
+        }
+        return price;
+    }
+
 }
@@ -0,0 +1,26 @@
+package uk.co.kennah.mcp.gcp;
+
+import java.time.Instant;
+
+/**
+ * Where the live card stands after the most recent read.
+ * @param phase Whether the card being served is current.
+ * @param lastSuccess When the card being served was read, or null if none has been.
+ * @param failures How many reads in a row have failed.
+ * @param retryAt When the failed read should be tried again, or null after a success.
+ */
+public record LoadState(Phase phase, Instant lastSuccess, int failures, Instant retryAt) {
+
+    public static final LoadState LOADING = new LoadState(Phase.LOADING, null, 0, null);
+
+    public enum Phase {
+        /** Nothing has been read yet. */
+        LOADING,
+        /** The last read succeeded. */
+        READY,
+        /** The last read failed and the previous card for the same day is served until a retry succeeds. */
+        STALE,
+        /** No card for the day could be read. The error is served until the retry. */
+        FAILED
+    }
+}
@@ -0,0 +1,17 @@
+package uk.co.kennah.mcp.gcp;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * The outcome of one read of the live card, for the admin status.
+ * @param cardDate The day that was read.
+ * @param finishedAt When the read finished.
+ * @param millis How long it took.
+ * @param generations The generation of each object read, by object name.
+ * @param error Why the read failed, or null if it succeeded.
+ */
+public record LoadStatus(LocalDate cardDate, Instant finishedAt, long millis, Map<String, Long> generations,
+        String error) {
+}
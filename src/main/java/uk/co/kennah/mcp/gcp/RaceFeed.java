@@ -0,0 +1,78 @@
+package uk.co.kennah.mcp.gcp;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * One race or odds object read on every refresh. The configured
+ * {@code gcs.file.name} and {@code gcs.oddsfile.name} are the feeds named
+ * {@value #MAIN}; {@code feeds.races} and {@code feeds.odds} add more.
+ * @param name A short name, shown as where a race or price came from.
+ * @param kind Whether the object holds races or odds.
+ * @param template The object name, optionally with a {date} placeholder.
+ * @param priority 0 is the highest. Where two feeds list the same race or
+ * price the same runner, the feed with the higher priority wins.
+ */
+public record RaceFeed(String name, Kind kind, String template, int priority) {
+
+    public static final String MAIN = "main";
+
+    public enum Kind { RACES, ODDS }
+
+    public String key() {
+        return kind.name().toLowerCase(Locale.ROOT) + ":" + name;
+    }
+
+    /**
+     * Builds one kind of feed list from the configuration.
+     * @param main The object name of the main feed.
+     * @param extra Comma separated name=object pairs, or blank for none.
+     * @param priority Comma separated feed names, highest priority first, or
+     * blank to keep the main feed first and the others in the order listed.
+     * @throws IllegalArgumentException If an entry is malformed or a name is used twice.
+     */
+    static List<RaceFeed> parse(Kind kind, String main, String extra, String priority) {
+        Map<String, String> objects = new LinkedHashMap<>();
+        objects.put(MAIN, main);
+        for (String entry : split(extra)) {
+            int equals = entry.indexOf('=');
+            if (equals <= 0 || equals == entry.length() - 1) {
+                throw new IllegalArgumentException("Feed '" + entry + "' should be name=object");
+            }
+            String name = entry.substring(0, equals).trim();
+            if (objects.putIfAbsent(name, entry.substring(equals + 1).trim()) != null) {
+                throw new IllegalArgumentException("Feed name '" + name + "' is used twice");
+            }
+        }
+        List<String> order = new ArrayList<>();
+        for (String name : split(priority)) {
+            if (!objects.containsKey(name)) {
+                throw new IllegalArgumentException("Feed '" + name + "' in the priority list is not configured");
+            }
+            if (!order.contains(name)) {
+                order.add(name);
+            }
+        }
+        objects.keySet().stream().filter(name -> !order.contains(name)).forEach(order::add);
+        List<RaceFeed> feeds = new ArrayList<>();
+        for (String name : order) {
+            feeds.add(new RaceFeed(name, kind, objects.get(name), feeds.size()));
+        }
+        return List.copyOf(feeds);
+    }
+
+    private static List<String> split(String list) {
+        List<String> parts = new ArrayList<>();
+        if (list != null) {
+            for (String part : list.split(",")) {
+                if (!part.isBlank()) {
+                    parts.add(part.trim());
+                }
+            }
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,259 @@
+package uk.co.kennah.mcp.http;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Caps the number of MCP sessions open against the shared server. Every GET on
+ * the SSE endpoint opens a session that stays open (without a timeout) until
+ * the client goes away, so the slot is only given back when the async request
+ * completes, errors or times out. Over the overall limit a new session gets a
+ * 503, over the per-client limit a 429, both with a Retry-After. Clients are
+ * counted by address, which behind a proxy is taken from X-Forwarded-For (see
+ * {@code server.forward-headers-strategy}).
+ * <p>
+ * A client that vanishes without closing its connection is only noticed when
+ * something is written to it, so open streams are sent an SSE comment every
+ * {@code mcp.http.keep-alive} milliseconds; a failed write ends the session.
+ */
+@Component
+@ConditionalOnProperty(name = "spring.ai.mcp.server.stdio", havingValue = "false")
+public class McpSessionLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(McpSessionLimitFilter.class);
+
+    private static final byte[] KEEP_ALIVE = ":keep-alive\n\n".getBytes(StandardCharsets.UTF_8);
+
+    @Value("${spring.ai.mcp.server.sse-endpoint:/sse}")
+    private String sseEndpoint;
+
+    @Value("${mcp.http.max-sessions:200}")
+    private int maxSessions;
+
+    @Value("${mcp.http.max-sessions-per-client:20}")
+    private int maxSessionsPerClient;
+
+    @Value("${mcp.http.retry-after:5}")
+    private int retryAfterSeconds;
+
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final Map<String, AtomicInteger> sessionsByClient = new ConcurrentHashMap<>();
+    private final Set<Session> openSessions = ConcurrentHashMap.newKeySet();
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod()) || !sseEndpoint.equals(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String client = request.getRemoteAddr();
+        if (activeSessions.incrementAndGet() > maxSessions) {
+            activeSessions.decrementAndGet();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, "MCP session limit of " + maxSessions + " reached", client);
+            return;
+        }
+        AtomicInteger clientSessions = sessionsByClient.computeIfAbsent(client, key -> new AtomicInteger());
+        if (clientSessions.incrementAndGet() > maxSessionsPerClient) {
+            release(client);
+            reject(response, HttpStatus.TOO_MANY_REQUESTS,
+                    "MCP session limit of " + maxSessionsPerClient + " per client reached", client);
+            return;
+        }
+        logger.info("MCP session opened for {} ({} active)", client, activeSessions.get());
+
+        Session session = new Session(client, response);
+        boolean held = false;
+        try {
+            chain.doFilter(request, session);
+            if (request.isAsyncStarted()) {
+                session.asyncContext = request.getAsyncContext();
+                session.asyncContext.addListener(session);
+                openSessions.add(session);
+                held = true;
+            }
+        }
+        finally {
+            if (!held) {
+                session.close();
+            }
+        }
+    }
+
+    /**
+     * Writes an SSE comment to every open stream. Clients ignore it, and a
+     * write to a dead connection fails, which completes the async request and
+     * with it the MCP session.
+     */
+    @Scheduled(fixedDelayString = "${mcp.http.keep-alive:30000}")
+    public void keepAlive() {
+        for (Session session : openSessions) {
+            // A response committed through its writer has no stream of ours to write the comment to.
+            LockingOutputStream stream = session.stream;
+            if (stream == null || !session.isCommitted()) {
+                continue;
+            }
+            try {
+                stream.writeAndFlush(KEEP_ALIVE);
+            }
+            catch (IOException | RuntimeException ex) {
+                logger.info("MCP session for {} is gone: {}", session.client, ex.getMessage());
+                try {
+                    session.asyncContext.complete();
+                }
+                catch (IllegalStateException alreadyDone) {
+                    // The container has already finished the request.
+                }
+                session.close();
+            }
+        }
+    }
+
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    public Map<String, Integer> getSessionsByClient() {
+        Map<String, Integer> counts = new ConcurrentHashMap<>();
+        sessionsByClient.forEach((client, count) -> counts.put(client, count.get()));
+        return counts;
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String message, String client)
+            throws IOException {
+        logger.warn("{}, refusing {}", message, client);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.sendError(status.value(), message);
+    }
+
+    private void release(String client) {
+        activeSessions.decrementAndGet();
+        sessionsByClient.computeIfPresent(client, (key, count) -> count.decrementAndGet() <= 0 ? null : count);
+    }
+
+    /**
+     * One SSE stream. Wraps the response so the transport's events and the
+     * keep-alive comments are written under the same lock and never interleave,
+     * and gives the slot back exactly once, however the stream ends.
+     */
+    private class Session extends HttpServletResponseWrapper implements AsyncListener {
+
+        private final String client;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile AsyncContext asyncContext;
+        private volatile LockingOutputStream stream;
+
+        Session(String client, HttpServletResponse response) {
+            super(response);
+            this.client = client;
+        }
+
+        @Override
+        public synchronized ServletOutputStream getOutputStream() throws IOException {
+            if (stream == null) {
+                stream = new LockingOutputStream(super.getOutputStream());
+            }
+            return stream;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // The listener stays registered across any re-dispatch of the same request.
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void close() {
+            if (released.compareAndSet(false, true)) {
+                openSessions.remove(this);
+                release(client);
+                logger.info("MCP session closed for {} ({} active)", client, activeSessions.get());
+            }
+        }
+    }
+
+    private static class LockingOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+
+        LockingOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        synchronized void writeAndFlush(byte[] bytes) throws IOException {
+            delegate.write(bytes);
+            delegate.flush();
+        }
+
+        @Override
+        public synchronized void write(int b) throws IOException {
+            delegate.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package uk.co.kennah.mcp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A cache lookup. For a miss that loads the value, the duration is the load.
+ */
+@Name("uk.co.kennah.mcp.CacheAccess")
+@Label("Cache Access")
+@Category({ "Pluckier", "Cache" })
+public class CacheAccessEvent extends Event {
+
+    @Label("Cache")
+    public String cache;
+
+    @Label("Hit")
+    public boolean hit;
+}
@@ -0,0 +1,25 @@
+package uk.co.kennah.mcp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Gson parsing one race or odds file into a tree.
+ */
+@Name("uk.co.kennah.mcp.JsonParse")
+@Label("JSON Parse")
+@Category({ "Pluckier", "Race Data" })
+public class JsonParseEvent extends Event {
+
+    @Label("Object")
+    public String object;
+
+    @Label("Bytes")
+    @Description("JSON bytes parsed, after decoding a compressed file")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,46 @@
+package uk.co.kennah.mcp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One race or odds file read from the race data source, from looking it up to
+ * the last byte parsed. The content is streamed into the parser, so this
+ * covers the download and the parse together; {@link JsonParseEvent} is the
+ * parse on its own.
+ */
+@Name("uk.co.kennah.mcp.ObjectFetch")
+@Label("Race Data Fetch")
+@Category({ "Pluckier", "Race Data" })
+@Description("A race or odds file read from the race data source")
+public class ObjectFetchEvent extends Event {
+
+    @Label("Source")
+    @Description("Where the file was read from, such as the GCS bucket")
+    public String source;
+
+    @Label("Object")
+    public String object;
+
+    @Label("Generation")
+    public long generation;
+
+    @Label("Bytes")
+    @Description("Bytes read from the source, compressed if the file is stored compressed")
+    @DataAmount
+    public long bytes;
+
+    @Label("Compression")
+    @Description("NONE, GZIP or ZSTD")
+    public String compression;
+
+    @Label("Found")
+    public boolean found;
+
+    @Label("Error")
+    public String error;
+}
@@ -0,0 +1,28 @@
+package uk.co.kennah.mcp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The latest odds merged into the card. Unmatched runners kept whatever odds
+ * the card already had.
+ */
+@Name("uk.co.kennah.mcp.OddsMerge")
+@Label("Odds Merge")
+@Category({ "Pluckier", "Race Data" })
+public class OddsMergeEvent extends Event {
+
+    @Label("Odds Entries")
+    public int oddsEntries;
+
+    @Label("Runners")
+    public int runners;
+
+    @Label("Matched")
+    public int matched;
+
+    @Label("Unmatched")
+    public int unmatched;
+}
@@ -0,0 +1,32 @@
+package uk.co.kennah.mcp.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One MCP tool call, including any time spent waiting to be admitted.
+ */
+@Name("uk.co.kennah.mcp.ToolCall")
+@Label("Tool Call")
+@Category({ "Pluckier", "Tools" })
+public class ToolCallEvent extends Event {
+
+    /** Longer arguments are cut to this many characters. */
+    public static final int MAX_ARGUMENTS = 256;
+
+    @Label("Tool")
+    public String tool;
+
+    @Label("Arguments")
+    public String arguments;
+
+    @Label("Result Size")
+    @Description("Characters in the text returned")
+    public long resultSize;
+
+    @Label("Error")
+    public String error;
+}
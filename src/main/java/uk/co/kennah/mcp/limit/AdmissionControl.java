@@ -0,0 +1,160 @@
+package uk.co.kennah.mcp.limit;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Decides whether a tool call or REST request may run, so one client looping
+ * over an expensive tool cannot hold up everyone else. Each client has a
+ * token bucket for all its calls and one per tool, and the calls being
+ * answered at once are capped, with a short queue in front. Anything over a
+ * limit is turned away straight away with a hint of when to try again, rather
+ * than left to queue and push up everyone's response times.
+ */
+@Component
+public class AdmissionControl {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControl.class);
+
+    @Value("${limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${limit.client.rate:20}")
+    private double clientRate;
+
+    @Value("${limit.client.burst:40}")
+    private int clientBurst;
+
+    @Value("${limit.tool.rate:5}")
+    private double toolRate;
+
+    @Value("${limit.tool.burst:10}")
+    private int toolBurst;
+
+    @Value("${limit.max-concurrent:32}")
+    private int maxConcurrent;
+
+    @Value("${limit.max-queued:64}")
+    private int maxQueued;
+
+    @Value("${limit.queue-wait-ms:200}")
+    private long queueWaitMillis;
+
+    private ConcurrencyLimiter limiter;
+    private final Map<String, TokenBucket> clients = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> tools = new ConcurrentHashMap<>();
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final Map<Rejection, LongAdder> rejected = new EnumMap<>(Rejection.class);
+    private final Map<String, LongAdder> rejectedByTool = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        limiter = new ConcurrencyLimiter(maxConcurrent, maxQueued, queueWaitMillis);
+        for (Rejection reason : Rejection.values()) {
+            rejected.put(reason, new LongAdder());
+        }
+    }
+
+    /**
+     * Lets a call in, or turns it away.
+     * @param client Who is calling: the remote address over REST, the session over MCP.
+     * @param tool The tool name or REST path.
+     * @return A permit to close once the call has been answered.
+     * @throws AdmissionRejectedException If the call is over a limit.
+     */
+    public Permit admit(String client, String tool) {
+        if (!enabled) {
+            return Permit.NONE;
+        }
+        long now = System.nanoTime();
+        TokenBucket clientBucket = clients.computeIfAbsent(client, key -> new TokenBucket(clientRate, clientBurst, now));
+        long wait = clientBucket.tryAcquire(now);
+        if (wait > 0) {
+            throw reject(Rejection.CLIENT_RATE, client, tool, TimeUnit.NANOSECONDS.toMillis(wait),
+                    "Rate limit: " + client + " is over " + clientRate + " calls a second.");
+        }
+        TokenBucket toolBucket = tools.computeIfAbsent(client + ' ' + tool, key -> new TokenBucket(toolRate, toolBurst, now));
+        wait = toolBucket.tryAcquire(now);
+        if (wait > 0) {
+            clientBucket.refund();
+            throw reject(Rejection.TOOL_RATE, client, tool, TimeUnit.NANOSECONDS.toMillis(wait),
+                    "Rate limit: " + client + " is over " + toolRate + " calls a second to " + tool + ".");
+        }
+        Rejection full = limiter.acquire();
+        if (full != null) {
+            clientBucket.refund();
+            toolBucket.refund();
+            throw reject(full, client, tool, queueWaitMillis,
+                    "The server is busy with " + maxConcurrent + " calls, try again shortly.");
+        }
+        admitted.increment();
+        queueWaitNanos.add(System.nanoTime() - now);
+        return new Permit(limiter);
+    }
+
+    /**
+     * Forgets the buckets of clients that have gone quiet. A bucket that has
+     * refilled is the same as a new one, so nothing is lost.
+     */
+    @Scheduled(fixedDelayString = "${limit.evict-interval:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        clients.values().removeIf(bucket -> bucket.isFull(now));
+        tools.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    public LimitStats getStats() {
+        Map<Rejection, Long> byReason = new EnumMap<>(Rejection.class);
+        rejected.forEach((reason, count) -> byReason.put(reason, count.sum()));
+        Map<String, Long> byTool = new TreeMap<>();
+        rejectedByTool.forEach((tool, count) -> byTool.put(tool, count.sum()));
+        long calls = admitted.sum();
+        double averageWait = calls == 0 ? 0 : queueWaitNanos.sum() / 1_000_000.0 / calls;
+        return new LimitStats(enabled, calls, byReason, byTool, limiter.getInFlight(), limiter.getQueued(),
+                limiter.getMaxConcurrent(), limiter.getMaxQueued(), averageWait, clients.size(), tools.size());
+    }
+
+    private AdmissionRejectedException reject(Rejection reason, String client, String tool, long retryAfterMillis,
+            String message) {
+        rejected.get(reason).increment();
+        rejectedByTool.computeIfAbsent(tool, key -> new LongAdder()).increment();
+        logger.debug("Turned away {} from {}: {}", client, tool, reason);
+        return new AdmissionRejectedException(reason, retryAfterMillis, message);
+    }
+
+    /**
+     * A slot held while a call is answered. Closing it more than once is harmless.
+     */
+    public static class Permit implements AutoCloseable {
+
+        static final Permit NONE = new Permit(null);
+
+        private ConcurrencyLimiter limiter;
+
+        Permit(ConcurrencyLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (limiter != null) {
+                limiter.release();
+                limiter = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package uk.co.kennah.mcp.limit;
+
+/**
+ * Thrown by {@link AdmissionControl} when a call is turned away. The message
+ * is meant for the caller: over REST it is the body of the 429, over MCP the
+ * text of the error result.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final Rejection reason;
+    private final long retryAfterMillis;
+
+    public AdmissionRejectedException(Rejection reason, long retryAfterMillis, String message) {
+        super(message);
+        this.reason = reason;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public Rejection getReason() {
+        return reason;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    /**
+     * @return The wait in whole seconds, rounded up, for a Retry-After header.
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (retryAfterMillis + 999) / 1000);
+    }
+}
@@ -0,0 +1,73 @@
+package uk.co.kennah.mcp.limit;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the calls being answered at once. A call that finds every slot taken
+ * waits in a short queue, first come first served; when the queue is full, or
+ * no slot frees up within the wait, it is turned away at once instead of
+ * piling up behind the others.
+ */
+public final class ConcurrencyLimiter {
+
+    private final Semaphore slots;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long maxWaitNanos;
+    private final AtomicInteger queued = new AtomicInteger();
+
+    public ConcurrencyLimiter(int maxConcurrent, int maxQueued, long maxWaitMillis) {
+        this.slots = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    }
+
+    /**
+     * Takes a slot, waiting for one if the queue has room. Every null return
+     * must be matched by a {@link #release()}.
+     * @return null if a slot was taken, otherwise why the call was turned away.
+     */
+    public Rejection acquire() {
+        try {
+            // A timed try honours the queue order; the untimed one would let a newcomer jump it.
+            if (slots.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                return null;
+            }
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                return Rejection.QUEUE_FULL;
+            }
+            try {
+                return slots.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS) ? null : Rejection.QUEUE_TIMEOUT;
+            } finally {
+                queued.decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Rejection.QUEUE_TIMEOUT;
+        }
+    }
+
+    public void release() {
+        slots.release();
+    }
+
+    public int getInFlight() {
+        return maxConcurrent - slots.availablePermits();
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+}
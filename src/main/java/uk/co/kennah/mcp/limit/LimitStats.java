@@ -0,0 +1,12 @@
+package uk.co.kennah.mcp.limit;
+
+import java.util.Map;
+
+/**
+ * The admission counters since start-up, as reported by {@code GET /admin/limits}.
+ * {@code rejectedByTool} counts every reason, keyed by tool name or REST path.
+ */
+public record LimitStats(boolean enabled, long admitted, Map<Rejection, Long> rejected,
+        Map<String, Long> rejectedByTool, int inFlight, int queued, int maxConcurrent, int maxQueued,
+        double averageQueueWaitMillis, int clientBuckets, int toolBuckets) {
+}
@@ -0,0 +1,15 @@
+package uk.co.kennah.mcp.limit;
+
+/**
+ * Why {@link AdmissionControl} turned a call away.
+ */
+public enum Rejection {
+    /** The client has used up its calls across all tools. */
+    CLIENT_RATE,
+    /** The client has used up its calls to this one tool. */
+    TOOL_RATE,
+    /** Every slot was busy and the wait queue was full. */
+    QUEUE_FULL,
+    /** Every slot stayed busy for the whole of the queue wait. */
+    QUEUE_TIMEOUT
+}
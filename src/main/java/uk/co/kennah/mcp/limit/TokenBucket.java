@@ -0,0 +1,59 @@
+package uk.co.kennah.mcp.limit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket kept as a single theoretical arrival time (the generic cell
+ * rate algorithm), so taking a token is one compare-and-set with no lock and
+ * no refill thread. The bucket allows {@code burst} calls at once and refills
+ * at {@code ratePerSecond}.
+ */
+public final class TokenBucket {
+
+    private final long interval;
+    private final long tolerance;
+    // When the bucket will be full again, in System.nanoTime terms. Earlier than now means it already is.
+    private final AtomicLong theoreticalArrival;
+
+    public TokenBucket(double ratePerSecond, int burst, long now) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("A token bucket needs a positive rate and a burst of at least 1");
+        }
+        this.interval = Math.max(1, (long) (1_000_000_000L / ratePerSecond));
+        this.tolerance = interval * burst;
+        this.theoreticalArrival = new AtomicLong(now);
+    }
+
+    /**
+     * Takes a token if there is one.
+     * @param now The current System.nanoTime.
+     * @return 0 if a token was taken, otherwise the nanoseconds until one will be free.
+     */
+    public long tryAcquire(long now) {
+        while (true) {
+            long arrival = theoreticalArrival.get();
+            long next = Math.max(arrival, now) + interval;
+            long wait = next - now - tolerance;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Gives back a token taken by {@link #tryAcquire}, when the call was turned away by another limit.
+     */
+    public void refund() {
+        theoreticalArrival.addAndGet(-interval);
+    }
+
+    /**
+     * @return true if the bucket has refilled completely, so forgetting it changes nothing.
+     */
+    public boolean isFull(long now) {
+        return theoreticalArrival.get() <= now;
+    }
+}
@@ -0,0 +1,63 @@
+package uk.co.kennah.mcp.log;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import uk.co.kennah.mcp.aitools.TracingToolCallback;
+
+/**
+ * What one log viewer wants to see, taken from the headers of its STOMP
+ * SUBSCRIBE frame:
+ * <ul>
+ * <li>{@code level} - the minimum level, e.g. WARN</li>
+ * <li>{@code logger} - comma separated logger name prefixes, e.g. uk.co.kennah,org.springframework.ai</li>
+ * <li>{@code tool} - comma separated tool names, only lines logged while answering those tools</li>
+ * </ul>
+ * A missing or blank header does not filter.
+ */
+public record LogFilter(Level level, List<String> loggers, List<String> tools) {
+
+    public static final LogFilter ALL = new LogFilter(Level.TRACE, List.of(), List.of());
+
+    /**
+     * @param headers The native STOMP headers of the subscription, may be null.
+     * @return The filter they describe.
+     */
+    public static LogFilter from(Map<String, List<String>> headers) {
+        if (headers == null) {
+            return ALL;
+        }
+        return new LogFilter(Level.toLevel(first(headers, "level"), Level.TRACE), split(first(headers, "logger")),
+                split(first(headers, "tool")));
+    }
+
+    /**
+     * Only looks at fields the event already carries, so it is cheap enough to
+     * run for every subscriber before anything is encoded.
+     * @return true if the event should be sent to this subscriber.
+     */
+    public boolean accepts(ILoggingEvent event) {
+        if (!event.getLevel().isGreaterOrEqual(level)) {
+            return false;
+        }
+        if (!loggers.isEmpty() && loggers.stream().noneMatch(event.getLoggerName()::startsWith)) {
+            return false;
+        }
+        return tools.isEmpty() || tools.contains(event.getMDCPropertyMap().get(TracingToolCallback.MDC_KEY));
+    }
+
+    private static String first(Map<String, List<String>> headers, String name) {
+        List<String> values = headers.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    private static List<String> split(String value) {
+        if (value == null || value.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(value.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+}
@@ -4,39 +4,57 @@ import ch.qos.logback.classic.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Profile;
 import org.springframework.context.ApplicationListener;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.AbstractSubProtocolEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
 
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 
 @Component
-@Profile("!test")
-public class LogSubscriptionListener implements ApplicationListener<SessionSubscribeEvent> {
+@Profile("!test & !stdio")
+public class LogSubscriptionListener implements ApplicationListener<AbstractSubProtocolEvent> {
 
-    private final SimpMessagingTemplate messagingTemplate;
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
 
-    public LogSubscriptionListener(SimpMessagingTemplate messagingTemplate) {
-        this.messagingTemplate = messagingTemplate;
+    @Override
+    public void onApplicationEvent(AbstractSubProtocolEvent event) {
+        WebSocketLogAppender appender = appender();
+        if (appender == null) {
+            return;
+        }
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(event.getMessage());
+        String sessionId = headers.getSessionId();
+
+        if (event instanceof SessionSubscribeEvent && WebSocketLogAppender.DESTINATION.equals(headers.getDestination())) {
+            // Send this client the history that matches its filter, then a "welcome" message, to it alone.
+            LogFilter filter = LogFilter.from(headers.toNativeHeaderMap());
+            appender.subscribe(sessionId, headers.getSubscriptionId(), filter);
+            appender.sendTo(sessionId, String.format("%s --- Connected to log stream %s ---%n",
+                    LocalTime.now().format(TIME_FORMATTER), describe(filter)));
+        } else if (event instanceof SessionUnsubscribeEvent) {
+            appender.unsubscribe(sessionId, headers.getSubscriptionId());
+        } else if (event instanceof SessionDisconnectEvent) {
+            appender.unsubscribe(sessionId, null);
+        }
     }
 
-    @Override
-    public void onApplicationEvent(SessionSubscribeEvent event) {
-        String destination = (String) event.getMessage().getHeaders().get("simpDestination");
-
-        if ("/topic/logs".equals(destination)) {
-            // A client has just subscribed. First, tell the appender to flush any cached startup logs.
-            Logger root = (Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
-            WebSocketLogAppender appender = (WebSocketLogAppender) root.getAppender("WEBSOCKET");
-            if (appender != null) {
-                appender.onClientSubscribed();
-            }
-
-            // Now, send a dedicated "welcome" message directly to the newly connected client.
-            String welcomeMessage = String.format("%s --- Connected to log stream ---", LocalTime.now().format(TIME_FORMATTER));
-            messagingTemplate.convertAndSend("/topic/logs", welcomeMessage);
+    private static WebSocketLogAppender appender() {
+        Logger root = (Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
+        return (WebSocketLogAppender) root.getAppender("WEBSOCKET");
+    }
+
+    private static String describe(LogFilter filter) {
+        StringBuilder text = new StringBuilder("(level ").append(filter.level());
+        if (!filter.loggers().isEmpty()) {
+            text.append(", loggers ").append(String.join(",", filter.loggers()));
+        }
+        if (!filter.tools().isEmpty()) {
+            text.append(", tools ").append(String.join(",", filter.tools()));
         }
+        return text.append(')').toString();
     }
-}
\ No newline at end of file
+}
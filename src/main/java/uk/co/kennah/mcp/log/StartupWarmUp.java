@@ -0,0 +1,159 @@
+package uk.co.kennah.mcp.log;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.ai.support.ToolCallbacks;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import uk.co.kennah.mcp.aitools.RacesInfo;
+import uk.co.kennah.mcp.gcp.GCSHorseReader;
+import uk.co.kennah.mcp.trace.Spans;
+import uk.co.kennah.mcp.utils.Util;
+
+/**
+ * Calls every tool over and over once the application is up, so the first
+ * real calls find the card loaded and the stream pipelines and Gson already
+ * compiled instead of running interpreted. Each round picks another race and
+ * runner from the card, to take the branches real questions take.
+ * <p>
+ * Off unless {@code warmup.enabled} is set. It runs before the application is
+ * reported ready: Spring Boot only moves readiness to ACCEPTING_TRAFFIC once
+ * every ApplicationReadyEvent listener has returned. The calls go straight to
+ * the tools, past the rate limits, and are neither traced nor logged, see
+ * {@link WarmUpLogFilter}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class StartupWarmUp implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupWarmUp.class);
+
+    @Autowired
+    private RacesInfo racesInfo;
+
+    @Autowired
+    private GCSHorseReader gcsReader;
+
+    @Value("${warmup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${warmup.duration-ms:10000}")
+    private long durationMillis;
+
+    @Value("${warmup.max-rounds:500}")
+    private int maxRounds;
+
+    private volatile Report report;
+
+    /**
+     * How the warm-up went, as reported by {@code GET /admin/status}.
+     */
+    public record Report(int rounds, int calls, int errors, long millis, Instant finishedAt) {
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (!enabled) {
+            return;
+        }
+        logger.info("Warming up the tools for up to {} ms before reporting ready.", durationMillis);
+        Spans.untraced(this::warmUp);
+        logger.info("Warm-up finished: {} rounds, {} tool calls, {} errors in {} ms.",
+                report.rounds(), report.calls(), report.errors(), report.millis());
+    }
+
+    private void warmUp() {
+        Instant start = Instant.now();
+        long deadline = System.nanoTime() + Duration.ofMillis(durationMillis).toNanos();
+        ToolCallback[] tools = ToolCallbacks.from(racesInfo);
+        int rounds = 0;
+        int calls = 0;
+        int errors = 0;
+        JsonArray races = Util.getCachedRaceData(gcsReader);
+        if (races == null || races.isEmpty()) {
+            logger.warn("No race data to warm up against, skipping the warm-up.");
+        } else {
+            while (rounds < maxRounds && System.nanoTime() < deadline) {
+                JsonObject input = input(races, rounds);
+                for (ToolCallback tool : tools) {
+                    // Every tool logs each call, which would bury the log in thousands of warm-up lines.
+                    try (MDC.MDCCloseable warmUp = MDC.putCloseable(WarmUpLogFilter.MDC_KEY, "true")) {
+                        tool.call(arguments(tool, input));
+                    } catch (RuntimeException e) {
+                        errors++;
+                        logger.debug("Warm-up call to {} failed", tool.getToolDefinition().name(), e);
+                    }
+                    calls++;
+                }
+                rounds++;
+            }
+        }
+        report = new Report(rounds, calls, errors, Duration.between(start, Instant.now()).toMillis(), Instant.now());
+    }
+
+    /**
+     * Every argument any tool might take, filled from the race and runner for this round.
+     */
+    private static JsonObject input(JsonArray races, int round) {
+        JsonObject input = new JsonObject();
+        JsonObject race = races.get(round % races.size()).getAsJsonObject();
+        copy(race, "time", input, "time");
+        copy(race, "place", input, "place");
+        if (race.has("horses") && race.get("horses").isJsonArray() && !race.getAsJsonArray("horses").isEmpty()) {
+            JsonArray horses = race.getAsJsonArray("horses");
+            JsonElement horse = horses.get(round / races.size() % horses.size());
+            if (horse.isJsonObject()) {
+                copy(horse.getAsJsonObject(), "name", input, "horseName");
+            }
+        }
+        input.addProperty("where", round % 2 == 0 ? "runner" : "handicap and last3 > 50");
+        input.addProperty("sort", "best desc");
+        input.addProperty("limit", 10);
+        return input;
+    }
+
+    /**
+     * @return The JSON input for a tool, holding only the arguments in its schema.
+     */
+    private static String arguments(ToolCallback tool, JsonObject input) {
+        JsonObject schema = JsonParser.parseString(tool.getToolDefinition().inputSchema()).getAsJsonObject();
+        JsonObject arguments = new JsonObject();
+        if (schema.has("properties")) {
+            for (String name : schema.getAsJsonObject("properties").keySet()) {
+                if (input.has(name)) {
+                    arguments.add(name, input.get(name));
+                }
+            }
+        }
+        return arguments.toString();
+    }
+
+    private static void copy(JsonObject from, String key, JsonObject to, String name) {
+        if (from.has(key) && from.get(key).isJsonPrimitive()) {
+            to.add(name, from.get(key));
+        }
+    }
+
+    /**
+     * @return How the last warm-up went, or null if there has not been one.
+     */
+    public Report getReport() {
+        return report;
+    }
+}
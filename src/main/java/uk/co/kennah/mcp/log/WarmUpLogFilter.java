@@ -0,0 +1,28 @@
+package uk.co.kennah.mcp.log;
+
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+
+/**
+ * Keeps the start-up warm-up's tool calls out of the log. Only the thread
+ * making a warm-up call carries the {@value #MDC_KEY} MDC entry, so a real
+ * call logged by the same logger at the same time still gets through.
+ * Warnings and errors from warm-up calls are kept.
+ */
+public class WarmUpLogFilter extends TurboFilter {
+
+    public static final String MDC_KEY = "warmup";
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level != null && !level.isGreaterOrEqual(Level.WARN) && MDC.get(MDC_KEY) != null) {
+            return FilterReply.DENY;
+        }
+        return FilterReply.NEUTRAL;
+    }
+}
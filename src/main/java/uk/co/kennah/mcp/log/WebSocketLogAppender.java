@@ -3,19 +3,37 @@ package uk.co.kennah.mcp.log;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.AppenderBase;
 import ch.qos.logback.core.encoder.Encoder;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 
 import java.nio.charset.StandardCharsets;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Streams log lines to the viewers of logs.html. Each viewer subscribes to
+ * {@value #DESTINATION} with its own {@link LogFilter} and only receives the
+ * lines that pass it, sent to its session alone. The most recent lines are
+ * kept so a new viewer is sent the history on subscribing, without it being
+ * repeated to anyone already watching.
+ */
 public class WebSocketLogAppender extends AppenderBase<ILoggingEvent> {
 
+    /** The user destination viewers subscribe to. */
+    public static final String DESTINATION = "/user/queue/logs";
+
     private Encoder<ILoggingEvent> encoder;
-    // Non-static fields for instance-based safety in Spring
-    private final Queue<byte[]> eventCache = new ConcurrentLinkedQueue<>();
+    private int replaySize = 500;
+    // Only touched while holding the appender's lock, which doAppend already takes.
+    private final Deque<ILoggingEvent> replay = new ArrayDeque<>();
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
     private volatile SimpMessagingTemplate messagingTemplate;
-    private volatile boolean clientSubscribed = false;
+
+    private record Subscriber(String subscriptionId, LogFilter filter) {
+    }
 
     /**
      * Allows the Spring-managed initializer to provide the template once the
@@ -24,16 +42,59 @@ public class WebSocketLogAppender extends AppenderBase<ILoggingEvent> {
      */
     public void setMessagingTemplate(SimpMessagingTemplate template) {
         this.messagingTemplate = template;
-        // Don't flush here; wait for a client to subscribe.
     }
 
     /**
-     * Called by a listener when a client subscribes to the log topic. This
-     * triggers the cache to be flushed and enables direct logging.
+     * Called by a listener when a session subscribes to the log stream. Sends
+     * the buffered lines that pass its filter to that session only, then adds
+     * it to the live stream.
+     */
+    public synchronized void subscribe(String sessionId, String subscriptionId, LogFilter filter) {
+        StringBuilder history = new StringBuilder();
+        for (ILoggingEvent event : replay) {
+            if (filter.accepts(event)) {
+                history.append(encode(event));
+            }
+        }
+        if (!history.isEmpty()) {
+            sendTo(sessionId, history.toString());
+        }
+        subscribers.put(sessionId, new Subscriber(subscriptionId, filter));
+    }
+
+    /**
+     * Stops streaming to a session, on unsubscribe (when the subscription id
+     * matches) or on disconnect (when it is null).
+     */
+    public void unsubscribe(String sessionId, String subscriptionId) {
+        if (subscriptionId == null) {
+            subscribers.remove(sessionId);
+        } else {
+            subscribers.computeIfPresent(sessionId,
+                    (id, subscriber) -> subscriptionId.equals(subscriber.subscriptionId()) ? null : subscriber);
+        }
+    }
+
+    /**
+     * @return The number of sessions currently receiving the stream.
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Sends text to one session's log stream.
      */
-    public void onClientSubscribed() {
-        this.clientSubscribed = true;
-        flushCache();
+    public void sendTo(String sessionId, String text) {
+        SimpMessagingTemplate template = this.messagingTemplate;
+        if (template != null) {
+            SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            headers.setSessionId(sessionId);
+            headers.setLeaveMutable(true);
+            // The receiving client (logs.html) expects a string.
+            template.convertAndSendToUser(sessionId, DESTINATION.substring("/user".length()), text,
+                    headers.getMessageHeaders());
+        }
     }
 
     @Override
@@ -42,34 +103,42 @@ public class WebSocketLogAppender extends AppenderBase<ILoggingEvent> {
             return;
         }
 
-        byte[] encodedEvent = this.encoder.encode(eventObject);
-        // Cache events until both the template is ready AND a client has subscribed.
-        if (clientSubscribed && this.messagingTemplate != null) {
-            // If we are live, ensure the cache is flushed first to maintain order
-            if (!eventCache.isEmpty()) {
-                flushCache();
-            }
-            sendMessage(encodedEvent);
-        } else {
-            eventCache.add(encodedEvent);
+        // The event outlives this call in the replay buffer, so fix its message and MDC now.
+        eventObject.prepareForDeferredProcessing();
+        if (replay.size() >= replaySize) {
+            replay.pollFirst();
+        }
+        if (replaySize > 0) {
+            replay.addLast(eventObject);
         }
-    }
 
-    private void flushCache() {
-        byte[] eventBytes;
-        while ((eventBytes = eventCache.poll()) != null) {
-            sendMessage(eventBytes);
-       }
+        if (this.messagingTemplate == null || subscribers.isEmpty()) {
+            return;
+        }
+        // Filter first, then encode at most once however many viewers want the line.
+        String text = null;
+        for (Map.Entry<String, Subscriber> entry : subscribers.entrySet()) {
+            if (entry.getValue().filter().accepts(eventObject)) {
+                if (text == null) {
+                    text = encode(eventObject);
+                }
+                sendTo(entry.getKey(), text);
+            }
+        }
     }
 
-    private void sendMessage(byte[] encodedEvent) {
-        if (this.messagingTemplate != null) {
-            // The receiving client (logs.html) expects a string.
-            this.messagingTemplate.convertAndSend("/topic/logs", new String(encodedEvent, StandardCharsets.UTF_8));
-        }
+    private String encode(ILoggingEvent event) {
+        return new String(this.encoder.encode(event), StandardCharsets.UTF_8);
     }
 
     public void setEncoder(Encoder<ILoggingEvent> encoder) {
         this.encoder = encoder;
     }
+
+    /**
+     * @param replaySize How many recent lines to keep for new viewers, set from logback-spring.xml.
+     */
+    public void setReplaySize(int replaySize) {
+        this.replaySize = Math.max(0, replaySize);
+    }
 }
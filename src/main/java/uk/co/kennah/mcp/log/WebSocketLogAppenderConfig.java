@@ -9,7 +9,7 @@ import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Component;
 
 @Component
-@Profile("!test")
+@Profile("!test & !stdio")
 public class WebSocketLogAppenderConfig implements ApplicationListener<ContextRefreshedEvent> {
 
     private final SimpMessagingTemplate messagingTemplate;
@@ -0,0 +1,234 @@
+package uk.co.kennah.mcp.query;
+
+import java.util.Arrays;
+
+import uk.co.kennah.mcp.utils.HeapEstimate;
+
+/**
+ * Each rated runner's form reduced to a short vector of figures, for finding
+ * the runners whose rating trajectories look most alike. The figures are:
+ * <ol>
+ * <li>the latest three ratings, in form order, with gaps filled by the runner's average;</li>
+ * <li>the trend, in rating points per run, positive when improving, from up to the latest six ratings;</li>
+ * <li>the peak, the best rating ever;</li>
+ * <li>the consistency, as the standard deviation of every rating;</li>
+ * <li>the days since the last run, counted back from the latest run by any runner on the card.</li>
+ * </ol>
+ * The vectors are worked out once per snapshot and held in one array, row
+ * after row, each figure scaled by its spread across the card so no single
+ * figure dominates the distance. With a few thousand runners and
+ * {@value #DIMENSIONS} figures, an exact scan of that array that gives up on
+ * a candidate as soon as it is further than the current k-th nearest answers
+ * in well under a millisecond, faster than a tree index at this size.
+ */
+public final class FormVectors {
+
+    static final int DIMENSIONS = 7;
+
+    private static final int TREND_RUNS = 6;
+
+    // Indexes of the figures in a vector
+    private static final int TREND = 3;
+    private static final int PEAK = 4;
+    private static final int SPREAD = 5;
+    private static final int DAYS = 6;
+
+    /** The column row of each vector. */
+    final int[] rows;
+
+    /** The vector slot of each column row, or -1 if it has no rated runs. */
+    final int[] slots;
+
+    /** The scaled vectors, {@value #DIMENSIONS} figures per slot. */
+    final float[] vectors;
+
+    /** The same figures unscaled, for showing. */
+    final float[] figures;
+
+    private FormVectors(int[] rows, int[] slots, float[] figures, float[] vectors) {
+        this.rows = rows;
+        this.slots = slots;
+        this.figures = figures;
+        this.vectors = vectors;
+    }
+
+    static FormVectors from(RunnerColumns columns) {
+        int[] slots = new int[columns.size];
+        Arrays.fill(slots, -1);
+        int[] rows = new int[columns.size];
+        int count = 0;
+        int latestOnCard = RunnerColumns.MISSING;
+        for (int row = 0; row < columns.size; row++) {
+            if (columns.runs[row] > 0) {
+                slots[row] = count;
+                rows[count++] = row;
+            }
+            for (int i = columns.formOffsets[row]; i < columns.formOffsets[row + 1]; i++) {
+                latestOnCard = Math.max(latestOnCard, columns.formDates[i]);
+            }
+        }
+        rows = Arrays.copyOf(rows, count);
+
+        float[] figures = new float[count * DIMENSIONS];
+        int[] ratings = new int[16];
+        double knownDays = 0;
+        int dated = 0;
+        for (int slot = 0; slot < count; slot++) {
+            int row = rows[slot];
+            int rated = 0;
+            int latestDate = RunnerColumns.MISSING;
+            for (int i = columns.formOffsets[row]; i < columns.formOffsets[row + 1]; i++) {
+                if (columns.formRatings[i] != RunnerColumns.MISSING) {
+                    if (rated == ratings.length) {
+                        ratings = Arrays.copyOf(ratings, rated * 2);
+                    }
+                    ratings[rated++] = columns.formRatings[i];
+                }
+                latestDate = Math.max(latestDate, columns.formDates[i]);
+            }
+            int at = slot * DIMENSIONS;
+            double mean = columns.average[row];
+            for (int i = 0; i < 3; i++) {
+                figures[at + i] = (float) (i < rated ? ratings[i] : mean);
+            }
+            figures[at + TREND] = (float) trend(ratings, Math.min(rated, TREND_RUNS));
+            figures[at + PEAK] = (float) columns.best[row];
+            double squares = 0;
+            for (int i = 0; i < rated; i++) {
+                squares += (ratings[i] - mean) * (ratings[i] - mean);
+            }
+            figures[at + SPREAD] = (float) Math.sqrt(squares / rated);
+            if (latestDate != RunnerColumns.MISSING) {
+                figures[at + DAYS] = latestOnCard - latestDate;
+                knownDays += figures[at + DAYS];
+                dated++;
+            } else {
+                figures[at + DAYS] = Float.NaN;
+            }
+        }
+        // An undated runner is put at the card's average layoff, so the missing figure counts for nothing.
+        float averageDays = dated > 0 ? (float) (knownDays / dated) : 0;
+        for (int slot = 0; slot < count; slot++) {
+            if (Float.isNaN(figures[slot * DIMENSIONS + DAYS])) {
+                figures[slot * DIMENSIONS + DAYS] = averageDays;
+            }
+        }
+        return new FormVectors(rows, slots, figures, scale(figures, count));
+    }
+
+    public int size() {
+        return rows.length;
+    }
+
+    /**
+     * Finds the runners nearest a runner, by Euclidean distance between the
+     * scaled vectors.
+     * @param slot The runner's vector slot.
+     * @param k How many to find.
+     * @param skip Column rows to leave out, such as non-runners, or null.
+     * @return The slots found, nearest first; a slot's distance is {@link #distance(int, int)}.
+     */
+    int[] nearest(int slot, int k, boolean[] skip) {
+        int[] found = new int[k];
+        float[] distances = new float[k];
+        int size = 0;
+        int from = slot * DIMENSIONS;
+        for (int other = 0; other < rows.length; other++) {
+            if (other == slot || skip != null && skip[rows[other]]) {
+                continue;
+            }
+            float worst = size == k ? distances[k - 1] : Float.MAX_VALUE;
+            int at = other * DIMENSIONS;
+            float sum = 0;
+            for (int d = 0; d < DIMENSIONS && sum < worst; d++) {
+                float difference = vectors[from + d] - vectors[at + d];
+                sum += difference * difference;
+            }
+            if (sum >= worst) {
+                continue;
+            }
+            // Insertion into the short sorted list; ties keep card order.
+            int i = size < k ? size++ : k - 1;
+            while (i > 0 && distances[i - 1] > sum) {
+                distances[i] = distances[i - 1];
+                found[i] = found[i - 1];
+                i--;
+            }
+            distances[i] = sum;
+            found[i] = other;
+        }
+        return Arrays.copyOf(found, size);
+    }
+
+    float distance(int slot, int other) {
+        float sum = 0;
+        for (int d = 0; d < DIMENSIONS; d++) {
+            float difference = vectors[slot * DIMENSIONS + d] - vectors[other * DIMENSIONS + d];
+            sum += difference * difference;
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    /**
+     * @return The unscaled figures of a slot, such as "ratings 100, 98, 99; trend +1.0 a run; ...".
+     */
+    String describe(int slot) {
+        int at = slot * DIMENSIONS;
+        return String.format("ratings %s, %s, %s; trend %+.1f a run; peak %.0f; spread %.1f; %.0f days since last run",
+                rating(figures[at]), rating(figures[at + 1]), rating(figures[at + 2]), figures[at + TREND],
+                figures[at + PEAK], figures[at + SPREAD], figures[at + DAYS]);
+    }
+
+    long estimatedBytes() {
+        return HeapEstimate.array(rows.length, Integer.BYTES) + HeapEstimate.array(slots.length, Integer.BYTES)
+                + 2L * HeapEstimate.array(figures.length, Float.BYTES);
+    }
+
+    private static String rating(float value) {
+        return value == Math.rint(value) ? String.valueOf((int) value) : String.format("%.1f", value);
+    }
+
+    /**
+     * @return The least squares slope of the first {@code count} ratings, newest first, turned round so that rising form is positive.
+     */
+    private static double trend(int[] ratings, int count) {
+        if (count < 2) {
+            return 0;
+        }
+        double meanX = (count - 1) / 2.0;
+        double meanY = 0;
+        for (int i = 0; i < count; i++) {
+            meanY += ratings[i];
+        }
+        meanY /= count;
+        double covariance = 0;
+        double variance = 0;
+        for (int i = 0; i < count; i++) {
+            covariance += (i - meanX) * (ratings[i] - meanY);
+            variance += (i - meanX) * (i - meanX);
+        }
+        return covariance == 0 ? 0 : -covariance / variance;
+    }
+
+    private static float[] scale(float[] figures, int count) {
+        float[] vectors = new float[figures.length];
+        for (int d = 0; d < DIMENSIONS; d++) {
+            double mean = 0;
+            for (int slot = 0; slot < count; slot++) {
+                mean += figures[slot * DIMENSIONS + d];
+            }
+            mean /= Math.max(count, 1);
+            double squares = 0;
+            for (int slot = 0; slot < count; slot++) {
+                double difference = figures[slot * DIMENSIONS + d] - mean;
+                squares += difference * difference;
+            }
+            double spread = Math.sqrt(squares / Math.max(count, 1));
+            double factor = spread > 0 ? 1 / spread : 1;
+            for (int slot = 0; slot < count; slot++) {
+                vectors[slot * DIMENSIONS + d] = (float) ((figures[slot * DIMENSIONS + d] - mean) * factor);
+            }
+        }
+        return vectors;
+    }
+}
@@ -0,0 +1,375 @@
+package uk.co.kennah.mcp.query;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Compiles the small query language into lambdas over {@link RunnerColumns}.
+ * There is nothing to evaluate at query time but array reads and comparisons:
+ * field names resolve to the column arrays, meeting and country names to their
+ * dictionary codes, and race types to bit masks, once, before the scan.
+ * <pre>
+ * condition  := or
+ * or         := and ("or" and)*
+ * and        := not ("and" not)*
+ * not        := "not" not | "(" condition ")" | flag | text-field op text | value op value
+ * op         := = | != | &lt; | &lt;= | &gt; | &gt;= | ~ (contains, text only)
+ * value      := number | HH:MM | numeric-field | form(n)
+ * </pre>
+ * Anything else is rejected with an {@link IllegalArgumentException}; the
+ * language has no way to call code or touch anything but the columns.
+ */
+final class QueryParser {
+
+    static final int MAX_LENGTH = 500;
+    private static final int MAX_DEPTH = 32;
+    private static final int MAX_FORM = 20;
+
+    static final List<String> NUMERIC_FIELDS = List.of("time", "odds", "last3", "average", "best", "last", "recent", "runs");
+    static final List<String> TEXT_FIELDS = List.of("name", "place", "country", "race");
+    static final List<String> FLAG_FIELDS = List.of("handicap", "maiden", "novice", "stakes", "hurdle", "chase", "nr", "runner");
+
+    @FunctionalInterface
+    interface RowPredicate {
+        boolean test(int row);
+    }
+
+    @FunctionalInterface
+    interface RowValue {
+        double get(int row);
+    }
+
+    private enum Type { WORD, NUMBER, TIME, TEXT, OP, OPEN, CLOSE, END }
+
+    private record Token(Type type, String text, int position) {}
+
+    private final RunnerColumns columns;
+    private final List<Token> tokens;
+    private final Set<String> referencedFields = new LinkedHashSet<>();
+    private int next;
+    private int depth;
+
+    QueryParser(String text, RunnerColumns columns) {
+        if (text.length() > MAX_LENGTH) {
+            throw new IllegalArgumentException("Query is longer than " + MAX_LENGTH + " characters");
+        }
+        this.columns = columns;
+        this.tokens = tokenize(text);
+    }
+
+    /**
+     * @return The numeric fields named so far, in order, so results can show them.
+     */
+    Set<String> getReferencedFields() {
+        return referencedFields;
+    }
+
+    RowPredicate parseCondition() {
+        RowPredicate condition = or();
+        expect(Type.END, "end of condition");
+        return condition;
+    }
+
+    /**
+     * Parses a single value such as {@code best} or {@code form(5)}, optionally
+     * followed by one trailing word that the caller reads with {@link #trailingWord()}.
+     */
+    RowValue parseValue() {
+        return value();
+    }
+
+    /**
+     * @return The lower-cased word after a value (e.g. "desc"), or null at the end.
+     */
+    String trailingWord() {
+        Token token = peek();
+        if (token.type() == Type.END) {
+            return null;
+        }
+        if (token.type() != Type.WORD) {
+            throw error(token, "a word");
+        }
+        next++;
+        expect(Type.END, "end of expression");
+        return token.text().toLowerCase(Locale.ROOT);
+    }
+
+    void expectEnd() {
+        expect(Type.END, "end of expression");
+    }
+
+    private RowPredicate or() {
+        RowPredicate left = and();
+        while (keyword("or")) {
+            RowPredicate a = left;
+            RowPredicate b = and();
+            left = row -> a.test(row) || b.test(row);
+        }
+        return left;
+    }
+
+    private RowPredicate and() {
+        RowPredicate left = not();
+        while (keyword("and")) {
+            RowPredicate a = left;
+            RowPredicate b = not();
+            left = row -> a.test(row) && b.test(row);
+        }
+        return left;
+    }
+
+    private RowPredicate not() {
+        if (++depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Query is nested too deeply");
+        }
+        try {
+            if (keyword("not")) {
+                RowPredicate inner = not();
+                return row -> !inner.test(row);
+            }
+            if (peek().type() == Type.OPEN) {
+                next++;
+                RowPredicate inner = or();
+                expect(Type.CLOSE, "')'");
+                return inner;
+            }
+            return comparison();
+        } finally {
+            depth--;
+        }
+    }
+
+    private RowPredicate comparison() {
+        Token token = peek();
+        String word = token.type() == Type.WORD ? token.text().toLowerCase(Locale.ROOT) : null;
+        if (word != null && FLAG_FIELDS.contains(word) && peek(1).type() != Type.OP) {
+            next++;
+            return flag(word);
+        }
+        if (word != null && TEXT_FIELDS.contains(word)) {
+            next++;
+            Token op = expect(Type.OP, "=, != or ~");
+            Token literal = peek();
+            if (literal.type() == Type.END || literal.type() == Type.OPEN || literal.type() == Type.CLOSE
+                    || literal.type() == Type.OP) {
+                throw error(literal, "a value to compare " + word + " with");
+            }
+            next++;
+            return text(word, op, literal.text());
+        }
+        RowValue left = value();
+        Token op = expect(Type.OP, "a comparison");
+        RowValue right = value();
+        return switch (op.text()) {
+            case "=" -> row -> left.get(row) == right.get(row);
+            case "!=" -> row -> {
+                double a = left.get(row);
+                double b = right.get(row);
+                return a == a && b == b && a != b;
+            };
+            case "<" -> row -> left.get(row) < right.get(row);
+            case "<=" -> row -> left.get(row) <= right.get(row);
+            case ">" -> row -> left.get(row) > right.get(row);
+            case ">=" -> row -> left.get(row) >= right.get(row);
+            default -> throw error(op, "a numeric comparison");
+        };
+    }
+
+    private RowPredicate flag(String word) {
+        boolean[] nonRunners = columns.nonRunners;
+        int[] types = columns.types;
+        return switch (word) {
+            case "nr" -> row -> nonRunners[row];
+            case "runner" -> row -> !nonRunners[row];
+            default -> {
+                int mask = RunnerColumns.typeFlag(word);
+                yield row -> (types[row] & mask) != 0;
+            }
+        };
+    }
+
+    private RowPredicate text(String field, Token op, String literal) {
+        String wanted = literal.toLowerCase(Locale.ROOT);
+        boolean contains = op.text().equals("~");
+        boolean negate = op.text().equals("!=");
+        if (!contains && !negate && !op.text().equals("=")) {
+            throw error(op, "=, != or ~ for " + field);
+        }
+        RowPredicate match;
+        switch (field) {
+            case "place", "country" -> {
+                // Work out once which dictionary codes match, then compare codes per row.
+                String[] dictionary = field.equals("place") ? columns.placeNames : columns.countryNames;
+                int[] codes = field.equals("place") ? columns.places : columns.countries;
+                boolean[] matches = new boolean[dictionary.length];
+                for (int code = 0; code < dictionary.length; code++) {
+                    String value = dictionary[code].toLowerCase(Locale.ROOT);
+                    matches[code] = contains ? value.contains(wanted) : value.equals(wanted);
+                }
+                match = row -> matches[codes[row]];
+            }
+            case "race" -> {
+                String[] labels = columns.raceLabels;
+                boolean[] matches = new boolean[labels.length];
+                for (int race = 0; race < labels.length; race++) {
+                    String value = labels[race].toLowerCase(Locale.ROOT);
+                    matches[race] = contains ? value.contains(wanted) : value.equals(wanted);
+                }
+                int[] races = columns.races;
+                match = row -> matches[races[row]];
+            }
+            default -> {
+                String[] names = columns.names;
+                match = contains
+                        ? row -> names[row].toLowerCase(Locale.ROOT).contains(wanted)
+                        : row -> names[row].equalsIgnoreCase(literal);
+            }
+        }
+        RowPredicate result = match;
+        return negate ? row -> !result.test(row) : result;
+    }
+
+    private RowValue value() {
+        Token token = peek();
+        next++;
+        switch (token.type()) {
+            case NUMBER: {
+                double constant = Double.parseDouble(token.text());
+                return row -> constant;
+            }
+            case TIME: {
+                String[] parts = token.text().split(":");
+                double constant = Integer.parseInt(parts[0]) * 60 + Integer.parseInt(parts[1]);
+                return row -> constant;
+            }
+            case WORD:
+                return field(token);
+            default:
+                throw error(token, "a number, a time or a numeric field");
+        }
+    }
+
+    private RowValue field(Token token) {
+        String word = token.text().toLowerCase(Locale.ROOT);
+        if (word.equals("form")) {
+            expect(Type.OPEN, "'(' after form");
+            Token count = expect(Type.NUMBER, "the number of runs for form(n)");
+            expect(Type.CLOSE, "')'");
+            int runs = (int) Double.parseDouble(count.text());
+            if (runs < 1 || runs > MAX_FORM) {
+                throw error(count, "a number of runs from 1 to " + MAX_FORM);
+            }
+            referencedFields.add("form(" + runs + ")");
+            RunnerColumns c = columns;
+            return row -> c.averageOfFirst(row, runs);
+        }
+        double[] column = columns.numeric(word);
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown field '" + token.text() + "' at position " + token.position()
+                    + ". Numeric fields: " + String.join(", ", NUMERIC_FIELDS) + ", form(n). Text fields: "
+                    + String.join(", ", TEXT_FIELDS) + ". Flags: " + String.join(", ", FLAG_FIELDS));
+        }
+        if (!word.equals("time")) {
+            referencedFields.add(word);
+        }
+        return row -> column[row];
+    }
+
+    private boolean keyword(String word) {
+        Token token = peek();
+        if (token.type() == Type.WORD && token.text().equalsIgnoreCase(word)) {
+            next++;
+            return true;
+        }
+        return false;
+    }
+
+    private Token peek() {
+        return tokens.get(next);
+    }
+
+    private Token peek(int ahead) {
+        return tokens.get(Math.min(next + ahead, tokens.size() - 1));
+    }
+
+    private Token expect(Type type, String what) {
+        Token token = peek();
+        if (token.type() != type) {
+            throw error(token, what);
+        }
+        next++;
+        return token;
+    }
+
+    private static IllegalArgumentException error(Token token, String expected) {
+        String found = token.type() == Type.END ? "the end" : "'" + token.text() + "'";
+        return new IllegalArgumentException("Expected " + expected + " but found " + found + " at position "
+                + token.position());
+    }
+
+    private static List<Token> tokenize(String text) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            int start = i;
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(') {
+                tokens.add(new Token(Type.OPEN, "(", start));
+                i++;
+            } else if (c == ')') {
+                tokens.add(new Token(Type.CLOSE, ")", start));
+                i++;
+            } else if (c == '\'' || c == '"') {
+                int end = text.indexOf(c, i + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unterminated quote at position " + start);
+                }
+                tokens.add(new Token(Type.TEXT, text.substring(i + 1, end), start));
+                i = end + 1;
+            } else if (c == '=' || c == '~') {
+                tokens.add(new Token(Type.OP, String.valueOf(c), start));
+                i++;
+            } else if (c == '!' || c == '<' || c == '>') {
+                boolean twoCharacters = text.startsWith("<>", i) || text.startsWith("=", i + 1);
+                String op = text.startsWith("<>", i) ? "!=" : twoCharacters ? c + "=" : String.valueOf(c);
+                if (op.equals("!")) {
+                    throw new IllegalArgumentException("Expected != at position " + start);
+                }
+                tokens.add(new Token(Type.OP, op, start));
+                i += twoCharacters ? 2 : 1;
+            } else if (Character.isDigit(c) || c == '.') {
+                while (i < text.length() && (Character.isDigit(text.charAt(i)) || text.charAt(i) == '.')) {
+                    i++;
+                }
+                if (i < text.length() - 2 && text.charAt(i) == ':' && Character.isDigit(text.charAt(i + 1))
+                        && Character.isDigit(text.charAt(i + 2))) {
+                    i += 3;
+                    tokens.add(new Token(Type.TIME, text.substring(start, i), start));
+                } else {
+                    String number = text.substring(start, i);
+                    try {
+                        Double.parseDouble(number);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Bad number '" + number + "' at position " + start);
+                    }
+                    tokens.add(new Token(Type.NUMBER, number, start));
+                }
+            } else if (Character.isLetter(c)) {
+                while (i < text.length() && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '_'
+                        || text.charAt(i) == '\'')) {
+                    i++;
+                }
+                tokens.add(new Token(Type.WORD, text.substring(start, i), start));
+            } else {
+                throw new IllegalArgumentException("Unexpected character '" + c + "' at position " + start);
+            }
+        }
+        tokens.add(new Token(Type.END, "", text.length()));
+        return tokens;
+    }
+}
@@ -0,0 +1,248 @@
+package uk.co.kennah.mcp.query;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Each race's attributes, worked out once when the columns are built and
+ * held as one bitmap of races per attribute, so "UK handicaps" or "class 4
+ * chases at Newton Abbot" is a couple of {@link BitSet} ANDs instead of a
+ * scan over every race's detail. The attributes are:
+ * <ul>
+ * <li>the race types found in the detail: handicap, maiden, novice, stakes, hurdle, chase</li>
+ * <li>{@code class:N} from "(CLASS N)" in the detail</li>
+ * <li>{@code country:xx}, such as {@code country:uk}</li>
+ * <li>{@code place:slug}, the meeting in lower case with hyphens, such as {@code place:newton-abbot}</li>
+ * </ul>
+ * {@link #select(String)} combines them with and, or, not and brackets.
+ */
+public final class RaceAttributes {
+
+    static final int MAX_LENGTH = 500;
+    private static final int MAX_DEPTH = 32;
+
+    private static final Pattern RACE_CLASS = Pattern.compile("\\bclass\\s*(\\d+)");
+
+    private final int raceCount;
+    private final Map<String, BitSet> bitmaps;
+
+    private RaceAttributes(int raceCount, Map<String, BitSet> bitmaps) {
+        this.raceCount = raceCount;
+        this.bitmaps = bitmaps;
+    }
+
+    public int raceCount() {
+        return raceCount;
+    }
+
+    /**
+     * @return Every attribute seen on today's card with how many races carry it, in name order.
+     */
+    public Map<String, Integer> counts() {
+        Map<String, Integer> counts = new TreeMap<>();
+        bitmaps.forEach((attribute, races) -> counts.put(attribute, races.cardinality()));
+        return counts;
+    }
+
+    /**
+     * Resolves a filter such as {@code handicap and country:uk and not (class:1 or class:2)}
+     * to the races it matches. A blank filter matches every race, and a
+     * meeting, country or class not on today's card matches none.
+     * @return The matching race indexes, a new set the caller may change.
+     * @throws IllegalArgumentException If the filter does not parse.
+     */
+    public BitSet select(String filter) {
+        if (filter == null || filter.isBlank()) {
+            return all();
+        }
+        if (filter.length() > MAX_LENGTH) {
+            throw new IllegalArgumentException("Filter is longer than " + MAX_LENGTH + " characters");
+        }
+        return new Parser(filter).parse();
+    }
+
+    private BitSet all() {
+        BitSet all = new BitSet(raceCount);
+        all.set(0, raceCount);
+        return all;
+    }
+
+    private BitSet attribute(String name, int position) {
+        BitSet races = bitmaps.get(name);
+        if (races != null) {
+            return (BitSet) races.clone();
+        }
+        int colon = name.indexOf(':');
+        String kind = colon > 0 ? name.substring(0, colon) : name;
+        if (colon > 0 && colon < name.length() - 1
+                && (kind.equals("class") || kind.equals("country") || kind.equals("place"))) {
+            return new BitSet();
+        }
+        if (RunnerColumns.typeFlag(name) != 0) {
+            return new BitSet();
+        }
+        throw new IllegalArgumentException("Unknown race attribute '" + name + "' at position " + position
+                + ". Use handicap, maiden, novice, stakes, hurdle, chase, class:N, country:xx or place:meeting-name");
+    }
+
+    /**
+     * @return A meeting's name as used in {@code place:} attributes: lower
+     * case, with each run of other characters turned into a hyphen.
+     */
+    public static String slug(String place) {
+        return place.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-").replaceAll("^-|-$", "");
+    }
+
+    static final class Builder {
+
+        private int raceCount;
+        private final Map<String, BitSet> bitmaps = new TreeMap<>();
+
+        /**
+         * Classifies the next race.
+         * @return The race types as the bit mask kept in the runner type column.
+         */
+        int add(String place, String country, String detail, String[] typeWords) {
+            int race = raceCount++;
+            mark("place:" + slug(place), race);
+            if (!country.isBlank()) {
+                mark("country:" + country.trim().toLowerCase(Locale.ROOT), race);
+            }
+            int types = 0;
+            if (detail != null) {
+                String text = detail.toLowerCase(Locale.ROOT);
+                for (int i = 0; i < typeWords.length; i++) {
+                    if (text.contains(typeWords[i])) {
+                        mark(typeWords[i], race);
+                        types |= 1 << i;
+                    }
+                }
+                Matcher raceClass = RACE_CLASS.matcher(text);
+                if (raceClass.find()) {
+                    mark("class:" + Integer.parseInt(raceClass.group(1)), race);
+                }
+            }
+            return types;
+        }
+
+        private void mark(String attribute, int race) {
+            bitmaps.computeIfAbsent(attribute, key -> new BitSet()).set(race);
+        }
+
+        RaceAttributes build() {
+            return new RaceAttributes(raceCount, bitmaps);
+        }
+    }
+
+    /**
+     * filter := or; or := and ("or" and)*; and := not ("and" not)*;
+     * not := "not" not | "(" or ")" | attribute
+     */
+    private final class Parser {
+
+        private final List<String> tokens = new ArrayList<>();
+        private final List<Integer> positions = new ArrayList<>();
+        private int next;
+        private int depth;
+
+        Parser(String text) {
+            int i = 0;
+            while (i < text.length()) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '(' || c == ')') {
+                    add(String.valueOf(c), i++);
+                } else if (Character.isLetterOrDigit(c)) {
+                    int start = i;
+                    while (i < text.length() && (Character.isLetterOrDigit(text.charAt(i))
+                            || text.charAt(i) == ':' || text.charAt(i) == '-' || text.charAt(i) == '_')) {
+                        i++;
+                    }
+                    add(text.substring(start, i).toLowerCase(Locale.ROOT), start);
+                } else {
+                    throw new IllegalArgumentException("Unexpected character '" + c + "' at position " + i);
+                }
+            }
+            add("", text.length());
+        }
+
+        private void add(String token, int position) {
+            tokens.add(token);
+            positions.add(position);
+        }
+
+        BitSet parse() {
+            BitSet races = or();
+            expect("", "end of filter");
+            return races;
+        }
+
+        private BitSet or() {
+            BitSet races = and();
+            while (accept("or")) {
+                races.or(and());
+            }
+            return races;
+        }
+
+        private BitSet and() {
+            BitSet races = not();
+            while (accept("and")) {
+                races.and(not());
+            }
+            return races;
+        }
+
+        private BitSet not() {
+            if (++depth > MAX_DEPTH) {
+                throw new IllegalArgumentException("Filter is nested too deeply");
+            }
+            try {
+                if (accept("not")) {
+                    BitSet races = all();
+                    races.andNot(not());
+                    return races;
+                }
+                if (accept("(")) {
+                    BitSet races = or();
+                    expect(")", "')'");
+                    return races;
+                }
+                String token = tokens.get(next);
+                if (token.isEmpty() || token.equals(")") || token.equals("and") || token.equals("or")) {
+                    throw error("a race attribute");
+                }
+                return attribute(token, positions.get(next++));
+            } finally {
+                depth--;
+            }
+        }
+
+        private boolean accept(String token) {
+            if (tokens.get(next).equals(token)) {
+                next++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String token, String what) {
+            if (!accept(token)) {
+                throw error(what);
+            }
+        }
+
+        private IllegalArgumentException error(String expected) {
+            String found = tokens.get(next).isEmpty() ? "the end" : "'" + tokens.get(next) + "'";
+            return new IllegalArgumentException("Expected " + expected + " but found " + found + " at position "
+                    + positions.get(next));
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package uk.co.kennah.mcp.query;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import uk.co.kennah.mcp.utils.HeapEstimate;
+
+/**
+ * The day's runners held column by column in primitive arrays, one slot per
+ * runner, so a query is a plain loop over a few arrays instead of a walk over
+ * the JSON tree. Race attributes are copied onto every runner and strings that
+ * repeat (meeting, country) are held as dictionary codes.
+ * <p>
+ * Each runner's form is kept in file order in {@link #formRatings} and
+ * {@link #formDates}, from {@code formOffsets[row]} up to
+ * {@code formOffsets[row + 1]}. The common figures derived from it are worked
+ * out once here with the same rules as {@code Util}: "last 3" is the first
+ * three entries of the form, "recent" the rating of the latest dated run.
+ * Missing numbers are {@code NaN}.
+ * <p>
+ * A race's runners are the rows from {@code raceOffsets[race]} up to
+ * {@code raceOffsets[race + 1]}, and its attributes are indexed in
+ * {@link #getAttributes()} for filtering whole races at a time. Each rated
+ * runner's form is also reduced to a vector in {@link #getFormVectors()} for
+ * finding runners in similar form.
+ */
+public final class RunnerColumns {
+
+    public static final RunnerColumns EMPTY = new Builder(0).build(0);
+
+    static final int MISSING = Integer.MIN_VALUE;
+
+    // Race types found in the race detail, one bit each in the types column.
+    private static final String[] TYPE_WORDS = { "handicap", "maiden", "novice", "stakes", "hurdle", "chase" };
+
+    final long version;
+    final int size;
+
+    // Runner columns
+    final String[] names;
+    final int[] races;
+    final boolean[] nonRunners;
+    final double[] odds;
+    final double[] last3;
+    final double[] average;
+    final double[] best;
+    final double[] last;
+    final double[] recent;
+    final double[] runs;
+
+    // Race attributes, repeated per runner
+    final double[] times;
+    final int[] places;
+    final int[] countries;
+    final int[] types;
+
+    // Form history
+    final int[] formOffsets;
+    final int[] formRatings;
+    final int[] formDates;
+
+    // Per race and dictionaries
+    final String[] raceLabels;
+    final int[] raceOffsets;
+    final RaceAttributes attributes;
+    final String[] placeNames;
+    final String[] countryNames;
+
+    final FormVectors formVectors;
+
+    private RunnerColumns(Builder builder, long version) {
+        this.version = version;
+        this.size = builder.size;
+        this.names = builder.names.toArray(String[]::new);
+        this.races = trim(builder.races, size);
+        this.nonRunners = Arrays.copyOf(builder.nonRunners, size);
+        this.odds = trim(builder.odds, size);
+        this.last3 = trim(builder.last3, size);
+        this.average = trim(builder.average, size);
+        this.best = trim(builder.best, size);
+        this.last = trim(builder.last, size);
+        this.recent = trim(builder.recent, size);
+        this.runs = trim(builder.runs, size);
+        this.times = trim(builder.times, size);
+        this.places = trim(builder.places, size);
+        this.countries = trim(builder.countries, size);
+        this.types = trim(builder.types, size);
+        this.formOffsets = trim(builder.formOffsets, size + 1);
+        this.formRatings = trim(builder.formRatings, builder.formSize);
+        this.formDates = trim(builder.formDates, builder.formSize);
+        this.raceLabels = builder.raceLabels.toArray(String[]::new);
+        this.raceOffsets = trim(builder.raceOffsets, raceLabels.length + 1);
+        this.attributes = builder.attributes.build();
+        this.placeNames = builder.placeCodes.keySet().toArray(String[]::new);
+        this.countryNames = builder.countryCodes.keySet().toArray(String[]::new);
+        this.formVectors = FormVectors.from(this);
+    }
+
+    /**
+     * Lays the merged race data out in columns.
+     * @param version The snapshot version the data belongs to.
+     * @param races The races with their runners and odds.
+     */
+    public static RunnerColumns from(long version, JsonArray races) {
+        Builder builder = new Builder(races.size() * 12);
+        for (JsonElement element : races) {
+            if (!element.isJsonObject()) {
+                continue;
+            }
+            JsonObject race = element.getAsJsonObject();
+            if (!race.has("time") || !race.has("place") || !race.has("horses") || !race.get("horses").isJsonArray()) {
+                continue;
+            }
+            builder.addRace(race);
+        }
+        return builder.build(version);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public RaceAttributes getAttributes() {
+        return attributes;
+    }
+
+    public FormVectors getFormVectors() {
+        return formVectors;
+    }
+
+    /**
+     * @return The estimated bytes held by the columns, see {@link HeapEstimate}.
+     */
+    public long estimatedBytes() {
+        return HeapEstimate.of(names) + HeapEstimate.of(raceLabels) + HeapEstimate.of(placeNames)
+                + HeapEstimate.of(countryNames)
+                + HeapEstimate.array(size, 1)
+                + 8L * HeapEstimate.array(size, Double.BYTES)
+                + 4L * HeapEstimate.array(size, Integer.BYTES)
+                + HeapEstimate.array(formOffsets.length, Integer.BYTES)
+                + HeapEstimate.array(raceOffsets.length, Integer.BYTES)
+                + 2L * HeapEstimate.array(formRatings.length, Integer.BYTES)
+                + formVectors.estimatedBytes();
+    }
+
+    /**
+     * @return The column for a numeric field name, or null if there is no such field.
+     */
+    double[] numeric(String field) {
+        return switch (field) {
+            case "time" -> times;
+            case "odds" -> odds;
+            case "last3" -> last3;
+            case "average", "avg" -> average;
+            case "best" -> best;
+            case "last" -> last;
+            case "recent" -> recent;
+            case "runs" -> runs;
+            default -> null;
+        };
+    }
+
+    /**
+     * Average of the ratings among the first {@code count} entries of a
+     * runner's form, the general case of "last 3".
+     */
+    double averageOfFirst(int row, int count) {
+        return averageOf(formRatings, formOffsets[row], Math.min(formOffsets[row] + count, formOffsets[row + 1]));
+    }
+
+    private static double averageOf(int[] ratings, int from, int to) {
+        int sum = 0;
+        int rated = 0;
+        for (int i = from; i < to; i++) {
+            if (ratings[i] != MISSING) {
+                sum += ratings[i];
+                rated++;
+            }
+        }
+        return rated > 0 ? (double) sum / rated : Double.NaN;
+    }
+
+    static int typeFlag(String word) {
+        for (int i = 0; i < TYPE_WORDS.length; i++) {
+            if (TYPE_WORDS[i].equals(word)) {
+                return 1 << i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return Decimal odds for a fractional price such as 9/2 or evens, or NaN.
+     */
+    static double decimalOdds(String price) {
+        String text = price.trim().toLowerCase(Locale.ROOT);
+        if (text.equals("evens") || text.equals("evs")) {
+            return 2.0;
+        }
+        try {
+            int slash = text.indexOf('/');
+            if (slash > 0) {
+                return Double.parseDouble(text.substring(0, slash)) / Double.parseDouble(text.substring(slash + 1)) + 1;
+            }
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static double[] trim(double[] column, int length) {
+        return column.length == length ? column : Arrays.copyOf(column, length);
+    }
+
+    private static int[] trim(int[] column, int length) {
+        return column.length == length ? column : Arrays.copyOf(column, length);
+    }
+
+    private static final class Builder {
+
+        private int size;
+        private int formSize;
+        private final List<String> names = new ArrayList<>();
+        private int[] races;
+        private boolean[] nonRunners;
+        private double[] odds;
+        private double[] last3;
+        private double[] average;
+        private double[] best;
+        private double[] last;
+        private double[] recent;
+        private double[] runs;
+        private double[] times;
+        private int[] places;
+        private int[] countries;
+        private int[] types;
+        private int[] formOffsets;
+        private int[] formRatings;
+        private int[] formDates;
+        private final List<String> raceLabels = new ArrayList<>();
+        private int[] raceOffsets = new int[17];
+        private final RaceAttributes.Builder attributes = new RaceAttributes.Builder();
+        private final Map<String, Integer> placeCodes = new LinkedHashMap<>();
+        private final Map<String, Integer> countryCodes = new LinkedHashMap<>();
+
+        Builder(int capacity) {
+            int runners = Math.max(capacity, 16);
+            races = new int[runners];
+            nonRunners = new boolean[runners];
+            odds = new double[runners];
+            last3 = new double[runners];
+            average = new double[runners];
+            best = new double[runners];
+            last = new double[runners];
+            recent = new double[runners];
+            runs = new double[runners];
+            times = new double[runners];
+            places = new int[runners];
+            countries = new int[runners];
+            types = new int[runners];
+            formOffsets = new int[runners + 1];
+            formRatings = new int[runners * 4];
+            formDates = new int[runners * 4];
+        }
+
+        void addRace(JsonObject race) {
+            String time = race.get("time").getAsString();
+            String place = race.get("place").getAsString();
+            int raceIndex = raceLabels.size();
+            raceLabels.add(time + " " + place);
+            if (raceIndex + 1 >= raceOffsets.length) {
+                raceOffsets = Arrays.copyOf(raceOffsets, raceOffsets.length * 2);
+            }
+            raceOffsets[raceIndex] = size;
+            double minutes = minutes(time);
+            int placeCode = placeCodes.computeIfAbsent(place, key -> placeCodes.size());
+            String country = race.has("country") && race.get("country").isJsonPrimitive()
+                    ? race.get("country").getAsString() : "";
+            int countryCode = countryCodes.computeIfAbsent(country, key -> countryCodes.size());
+            String detail = race.has("detail") && race.get("detail").isJsonPrimitive()
+                    ? race.get("detail").getAsString() : null;
+            int type = attributes.add(place, country, detail, TYPE_WORDS);
+            for (JsonElement element : race.getAsJsonArray("horses")) {
+                if (!element.isJsonObject() || !element.getAsJsonObject().has("name")) {
+                    continue;
+                }
+                JsonObject horse = element.getAsJsonObject();
+                ensureRunnerCapacity();
+                int row = size++;
+                names.add(horse.get("name").getAsString());
+                races[row] = raceIndex;
+                times[row] = minutes;
+                places[row] = placeCode;
+                countries[row] = countryCode;
+                types[row] = type;
+                JsonElement price = horse.get("odds");
+                boolean priced = price != null && !price.isJsonNull() && price.isJsonPrimitive();
+                nonRunners[row] = priced && "NR".equalsIgnoreCase(price.getAsString());
+                odds[row] = priced && !nonRunners[row] ? decimalOdds(price.getAsString()) : Double.NaN;
+                addForm(row, horse);
+            }
+        }
+
+        private void addForm(int row, JsonObject horse) {
+            formOffsets[row] = formSize;
+            if (horse.has("past") && horse.get("past").isJsonArray()) {
+                for (JsonElement element : horse.getAsJsonArray("past")) {
+                    if (!element.isJsonObject()) {
+                        continue;
+                    }
+                    JsonObject form = element.getAsJsonObject();
+                    ensureFormCapacity();
+                    formRatings[formSize] = rating(form);
+                    formDates[formSize] = date(form);
+                    formSize++;
+                }
+            }
+            formOffsets[row + 1] = formSize;
+
+            int sum = 0;
+            int rated = 0;
+            int max = MISSING;
+            int latestDate = MISSING;
+            int latestRating = MISSING;
+            for (int i = formOffsets[row]; i < formSize; i++) {
+                int rating = formRatings[i];
+                if (formDates[i] != MISSING && (latestDate == MISSING || formDates[i] > latestDate)) {
+                    latestDate = formDates[i];
+                    latestRating = rating;
+                }
+                if (rating != MISSING) {
+                    sum += rating;
+                    rated++;
+                    max = Math.max(max, rating);
+                }
+            }
+            average[row] = rated > 0 ? (double) sum / rated : Double.NaN;
+            best[row] = max != MISSING ? max : Double.NaN;
+            recent[row] = latestRating != MISSING ? latestRating : Double.NaN;
+            runs[row] = rated;
+            last3[row] = averageOf(formRatings, formOffsets[row], Math.min(formOffsets[row] + 3, formSize));
+            last[row] = averageOf(formRatings, formOffsets[row], Math.min(formOffsets[row] + 1, formSize));
+        }
+
+        private static int rating(JsonObject form) {
+            JsonElement rating = form.get("name");
+            if (rating == null || !rating.isJsonPrimitive() || !rating.getAsJsonPrimitive().isNumber()) {
+                return MISSING;
+            }
+            return rating.getAsInt();
+        }
+
+        private static int date(JsonObject form) {
+            JsonElement date = form.get("date");
+            if (date == null || !date.isJsonPrimitive()) {
+                return MISSING;
+            }
+            // dd/MM/yyyy, read directly as the same few formats repeat tens of thousands of times a day.
+            String text = date.getAsString();
+            if (text.length() != 10 || text.charAt(2) != '/' || text.charAt(5) != '/') {
+                return MISSING;
+            }
+            try {
+                return (int) LocalDate.of(Integer.parseInt(text, 6, 10, 10), Integer.parseInt(text, 3, 5, 10),
+                        Integer.parseInt(text, 0, 2, 10)).toEpochDay();
+            } catch (NumberFormatException | DateTimeException e) {
+                return MISSING;
+            }
+        }
+
+        private static double minutes(String time) {
+            int colon = time.indexOf(':');
+            try {
+                return colon > 0
+                        ? Integer.parseInt(time.substring(0, colon).trim()) * 60 + Integer.parseInt(time.substring(colon + 1).trim())
+                        : Double.NaN;
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+
+        private void ensureRunnerCapacity() {
+            if (size < races.length) {
+                return;
+            }
+            int capacity = races.length * 2;
+            races = Arrays.copyOf(races, capacity);
+            nonRunners = Arrays.copyOf(nonRunners, capacity);
+            odds = Arrays.copyOf(odds, capacity);
+            last3 = Arrays.copyOf(last3, capacity);
+            average = Arrays.copyOf(average, capacity);
+            best = Arrays.copyOf(best, capacity);
+            last = Arrays.copyOf(last, capacity);
+            recent = Arrays.copyOf(recent, capacity);
+            runs = Arrays.copyOf(runs, capacity);
+            times = Arrays.copyOf(times, capacity);
+            places = Arrays.copyOf(places, capacity);
+            countries = Arrays.copyOf(countries, capacity);
+            types = Arrays.copyOf(types, capacity);
+            formOffsets = Arrays.copyOf(formOffsets, capacity + 1);
+        }
+
+        private void ensureFormCapacity() {
+            if (formSize < formRatings.length) {
+                return;
+            }
+            formRatings = Arrays.copyOf(formRatings, formRatings.length * 2);
+            formDates = Arrays.copyOf(formDates, formDates.length * 2);
+        }
+
+        RunnerColumns build(long version) {
+            formOffsets[size] = formSize;
+            raceOffsets[raceLabels.size()] = size;
+            return new RunnerColumns(this, version);
+        }
+    }
+}
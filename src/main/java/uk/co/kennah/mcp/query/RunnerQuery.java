@@ -0,0 +1,378 @@
+package uk.co.kennah.mcp.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import uk.co.kennah.mcp.query.QueryParser.RowPredicate;
+import uk.co.kennah.mcp.query.QueryParser.RowValue;
+
+/**
+ * One compiled runner query: a filter, sort keys, a limit and optional
+ * aggregates, all bound to the arrays of a single {@link RunnerColumns}.
+ * Running it is one pass over the filter into a selection of row numbers,
+ * then either a primitive sort of that selection or an aggregate over it.
+ */
+public final class RunnerQuery {
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    private static final List<String> GROUPS = List.of("place", "country", "race");
+    private static final List<String> DEFAULT_FIELDS = List.of("last3", "best", "odds");
+
+    private record SortKey(RowValue value, boolean descending) {}
+
+    private enum Function { COUNT, AVG, MIN, MAX, SUM }
+
+    private record Aggregate(Function function, RowValue value, String label) {}
+
+    private final RunnerColumns columns;
+    private final RowPredicate filter;
+    private final List<SortKey> sortKeys = new ArrayList<>();
+    private final List<Aggregate> aggregates = new ArrayList<>();
+    private final Set<String> shownFields = new LinkedHashSet<>();
+    private final String groupBy;
+    private final int limit;
+
+    /**
+     * Compiles a query against one set of columns.
+     * @param columns The columns to run over.
+     * @param where A condition such as {@code country = UK and handicap and time > 15:00 and last3 > 80}, or blank for all runners.
+     * @param sort Comma separated sort keys such as {@code best desc, odds}, or blank for card order.
+     * @param limit The most rows (or groups) to return, up to {@link #MAX_LIMIT}.
+     * @param aggregate Comma separated {@code count}, {@code avg(x)}, {@code min(x)}, {@code max(x)} or {@code sum(x)}, or blank to list runners.
+     * @param groupBy place, country or race to aggregate per group, or blank.
+     * @throws IllegalArgumentException If any part does not parse.
+     */
+    public RunnerQuery(RunnerColumns columns, String where, String sort, Integer limit, String aggregate,
+            String groupBy) {
+        this.columns = columns;
+        if (isBlank(where)) {
+            this.filter = row -> true;
+        } else {
+            QueryParser parser = new QueryParser(where, columns);
+            this.filter = parser.parseCondition();
+            shownFields.addAll(parser.getReferencedFields());
+        }
+        if (!isBlank(sort)) {
+            for (String part : split(sort)) {
+                QueryParser parser = new QueryParser(part, columns);
+                RowValue value = parser.parseValue();
+                String direction = parser.trailingWord();
+                if (direction != null && !direction.equals("asc") && !direction.equals("desc")) {
+                    throw new IllegalArgumentException("Sort direction must be asc or desc, not '" + direction + "'");
+                }
+                sortKeys.add(new SortKey(value, "desc".equals(direction)));
+                shownFields.addAll(parser.getReferencedFields());
+            }
+        }
+        if (!isBlank(aggregate)) {
+            for (String part : split(aggregate)) {
+                aggregates.add(aggregate(part.trim()));
+            }
+        }
+        this.groupBy = isBlank(groupBy) ? null : groupBy.trim().toLowerCase(Locale.ROOT);
+        if (this.groupBy != null) {
+            if (!GROUPS.contains(this.groupBy)) {
+                throw new IllegalArgumentException("groupBy must be one of " + String.join(", ", GROUPS));
+            }
+            if (aggregates.isEmpty()) {
+                aggregates.add(new Aggregate(Function.COUNT, null, "count"));
+            }
+        }
+        int requested = limit == null || limit <= 0 ? DEFAULT_LIMIT : limit;
+        this.limit = Math.min(requested, MAX_LIMIT);
+        if (shownFields.isEmpty()) {
+            shownFields.addAll(DEFAULT_FIELDS);
+        }
+    }
+
+    /**
+     * @return The answer as text, ending with how many runners were scanned and how long it took.
+     */
+    public String run() {
+        long start = System.nanoTime();
+        int[] selected = new int[columns.size];
+        int matched = 0;
+        for (int row = 0; row < columns.size; row++) {
+            if (filter.test(row)) {
+                selected[matched++] = row;
+            }
+        }
+        StringBuilder out = new StringBuilder();
+        if (aggregates.isEmpty()) {
+            int[] order = sort(selected, matched);
+            int shown = Math.min(matched, limit);
+            out.append(matched).append(matched == 1 ? " runner matches" : " runners match");
+            if (shown < matched) {
+                out.append(", showing the first ").append(shown);
+            }
+            out.append(':');
+            for (int i = 0; i < shown; i++) {
+                appendRunner(out, order[i]);
+            }
+        } else {
+            aggregateInto(out, selected, matched);
+        }
+        long micros = (System.nanoTime() - start) / 1_000;
+        out.append("\n(scanned ").append(columns.size).append(" runners in ").append(micros).append(" microseconds)");
+        return out.toString();
+    }
+
+    private int[] sort(int[] selected, int count) {
+        int[] rows = Arrays.copyOf(selected, count);
+        if (sortKeys.isEmpty() || count < 2) {
+            return rows;
+        }
+        // Read every key once into a flat array, then sort positions by those keys.
+        double[][] keys = new double[sortKeys.size()][count];
+        boolean[] descending = new boolean[sortKeys.size()];
+        for (int k = 0; k < sortKeys.size(); k++) {
+            RowValue value = sortKeys.get(k).value();
+            descending[k] = sortKeys.get(k).descending();
+            for (int i = 0; i < count; i++) {
+                keys[k][i] = value.get(rows[i]);
+            }
+        }
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = i;
+        }
+        mergeSort(positions, new int[count], 0, count, keys, descending);
+        int[] ordered = new int[count];
+        for (int i = 0; i < count; i++) {
+            ordered[i] = rows[positions[i]];
+        }
+        return ordered;
+    }
+
+    private static void mergeSort(int[] positions, int[] scratch, int from, int to, double[][] keys,
+            boolean[] descending) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(positions, scratch, from, middle, keys, descending);
+        mergeSort(positions, scratch, middle, to, keys, descending);
+        int left = from;
+        int right = middle;
+        int out = from;
+        while (left < middle && right < to) {
+            scratch[out++] = compare(positions[right], positions[left], keys, descending) < 0
+                    ? positions[right++] : positions[left++];
+        }
+        while (left < middle) {
+            scratch[out++] = positions[left++];
+        }
+        while (right < to) {
+            scratch[out++] = positions[right++];
+        }
+        System.arraycopy(scratch, from, positions, from, to - from);
+    }
+
+    /** Missing values sort last whichever the direction. */
+    private static int compare(int a, int b, double[][] keys, boolean[] descending) {
+        for (int k = 0; k < keys.length; k++) {
+            double x = keys[k][a];
+            double y = keys[k][b];
+            boolean xMissing = Double.isNaN(x);
+            boolean yMissing = Double.isNaN(y);
+            if (xMissing || yMissing) {
+                if (xMissing != yMissing) {
+                    return xMissing ? 1 : -1;
+                }
+                continue;
+            }
+            int result = Double.compare(x, y);
+            if (result != 0) {
+                return descending[k] ? -result : result;
+            }
+        }
+        return 0;
+    }
+
+    private void aggregateInto(StringBuilder out, int[] selected, int count) {
+        String[] labels;
+        int[] groupOf;
+        if (groupBy == null) {
+            labels = new String[] { "All matching runners" };
+            groupOf = null;
+        } else {
+            switch (groupBy) {
+                case "place" -> {
+                    labels = columns.placeNames;
+                    groupOf = columns.places;
+                }
+                case "country" -> {
+                    labels = columns.countryNames;
+                    groupOf = columns.countries;
+                }
+                default -> {
+                    labels = columns.raceLabels;
+                    groupOf = columns.races;
+                }
+            }
+        }
+        int groups = labels.length;
+        int width = aggregates.size();
+        long[] counts = new long[groups * width];
+        double[] results = new double[groups * width];
+        for (int g = 0; g < groups; g++) {
+            for (int a = 0; a < width; a++) {
+                results[g * width + a] = initial(aggregates.get(a).function());
+            }
+        }
+        long[] groupSizes = new long[groups];
+        for (int i = 0; i < count; i++) {
+            int row = selected[i];
+            int group = groupOf == null ? 0 : groupOf[row];
+            groupSizes[group]++;
+            for (int a = 0; a < width; a++) {
+                Aggregate aggregate = aggregates.get(a);
+                if (aggregate.value() == null) {
+                    continue;
+                }
+                double value = aggregate.value().get(row);
+                if (Double.isNaN(value)) {
+                    continue;
+                }
+                int slot = group * width + a;
+                counts[slot]++;
+                results[slot] = switch (aggregate.function()) {
+                    case MIN -> Math.min(results[slot], value);
+                    case MAX -> Math.max(results[slot], value);
+                    default -> results[slot] + value;
+                };
+            }
+        }
+        for (int g = 0; g < groups; g++) {
+            for (int a = 0; a < width; a++) {
+                int slot = g * width + a;
+                Function function = aggregates.get(a).function();
+                if (function == Function.COUNT) {
+                    results[slot] = groupSizes[g];
+                } else if (counts[slot] == 0) {
+                    results[slot] = Double.NaN;
+                } else if (function == Function.AVG) {
+                    results[slot] /= counts[slot];
+                }
+            }
+        }
+
+        // Groups with matches, ordered by the first aggregate, highest first.
+        Integer[] order = new Integer[groups];
+        int present = 0;
+        for (int g = 0; g < groups; g++) {
+            if (groupOf == null || groupSizes[g] > 0) {
+                order[present++] = g;
+            }
+        }
+        Integer[] ranked = Arrays.copyOf(order, present);
+        Arrays.sort(ranked, (a, b) -> {
+            double x = results[a * width];
+            double y = results[b * width];
+            return Double.isNaN(x) ? (Double.isNaN(y) ? 0 : 1) : Double.isNaN(y) ? -1 : Double.compare(y, x);
+        });
+        out.append(count).append(count == 1 ? " runner matches" : " runners match");
+        if (groupBy != null) {
+            out.append(" in ").append(present).append(present == 1 ? " group" : " groups");
+        }
+        out.append(':');
+        int shown = Math.min(present, limit);
+        for (int i = 0; i < shown; i++) {
+            int g = ranked[i];
+            out.append('\n').append(labels[g]).append(':');
+            for (int a = 0; a < width; a++) {
+                out.append(a == 0 ? " " : ", ").append(aggregates.get(a).label()).append('=')
+                        .append(format(results[g * width + a]));
+            }
+        }
+    }
+
+    private static double initial(Function function) {
+        return switch (function) {
+            case MIN -> Double.POSITIVE_INFINITY;
+            case MAX -> Double.NEGATIVE_INFINITY;
+            default -> 0;
+        };
+    }
+
+    private Aggregate aggregate(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        if (lower.equals("count")) {
+            return new Aggregate(Function.COUNT, null, "count");
+        }
+        int open = text.indexOf('(');
+        String function = open > 0 ? lower.substring(0, open).trim() : "";
+        if (!List.of("avg", "min", "max", "sum").contains(function) || !text.endsWith(")")) {
+            throw new IllegalArgumentException("Unknown aggregate '" + text
+                    + "'. Use count, avg(field), min(field), max(field) or sum(field)");
+        }
+        QueryParser parser = new QueryParser(text.substring(open + 1, text.length() - 1), columns);
+        RowValue value = parser.parseValue();
+        parser.expectEnd();
+        return new Aggregate(Function.valueOf(function.toUpperCase(Locale.ROOT)), value,
+                function + "(" + text.substring(open + 1, text.length() - 1).trim() + ")");
+    }
+
+    private void appendRunner(StringBuilder out, int row) {
+        out.append('\n').append(columns.names[row]).append(" (").append(columns.raceLabels[columns.races[row]]);
+        if (columns.nonRunners[row]) {
+            out.append(", NR");
+        }
+        out.append("):");
+        boolean first = true;
+        for (String field : shownFields) {
+            out.append(first ? " " : ", ").append(field).append('=').append(format(value(field, row)));
+            first = false;
+        }
+    }
+
+    private double value(String field, int row) {
+        if (field.startsWith("form(")) {
+            return columns.averageOfFirst(row, Integer.parseInt(field.substring(5, field.length() - 1)));
+        }
+        return columns.numeric(field)[row];
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "-";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e9) {
+            return String.valueOf((long) value);
+        }
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    /** Splits on commas that are not inside brackets. */
+    private static List<String> split(String text) {
+        List<String> parts = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                parts.add(text.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(text.substring(start));
+        if (parts.stream().anyMatch(RunnerQuery::isBlank)) {
+            throw new IllegalArgumentException("Empty entry in '" + text + "'");
+        }
+        return parts;
+    }
+
+    private static boolean isBlank(String text) {
+        return text == null || text.isBlank();
+    }
+}
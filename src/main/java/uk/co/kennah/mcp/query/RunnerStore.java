@@ -0,0 +1,236 @@
+package uk.co.kennah.mcp.query;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.StringJoiner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import uk.co.kennah.mcp.snapshot.RaceSnapshot;
+import uk.co.kennah.mcp.snapshot.RaceSnapshotChangedEvent;
+import uk.co.kennah.mcp.snapshot.RaceSnapshotService;
+import uk.co.kennah.mcp.trace.Spans;
+
+/**
+ * Keeps the columnar copy of the runners in step with the race snapshot. The
+ * columns are rebuilt when the snapshot changes, not per query.
+ */
+@Component
+public class RunnerStore implements ApplicationListener<RaceSnapshotChangedEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(RunnerStore.class);
+
+    @Autowired
+    private RaceSnapshotService snapshotService;
+
+    private volatile RunnerColumns columns = RunnerColumns.EMPTY;
+
+    @Override
+    public void onApplicationEvent(RaceSnapshotChangedEvent event) {
+        rebuild(event.getCurrent());
+    }
+
+    /**
+     * @return The columns for the current snapshot.
+     */
+    public RunnerColumns getColumns() {
+        RaceSnapshot snapshot = snapshotService.getCurrent();
+        RunnerColumns current = columns;
+        return current.getVersion() == snapshot.getVersion() ? current : rebuild(snapshot);
+    }
+
+    /**
+     * Compiles and runs an ad hoc query, see {@link RunnerQuery}.
+     * @return The answer, or a message starting with "Error:" if the query is invalid.
+     */
+    public String query(String where, String sort, Integer limit, String aggregate, String groupBy) {
+        RunnerColumns current = getColumns();
+        if (current.getVersion() == 0) {
+            return "Error: Race data is not available yet.";
+        }
+        try {
+            RunnerQuery query = new RunnerQuery(current, where, sort, limit, aggregate, groupBy);
+            return Spans.call("compute", query::run);
+        } catch (IllegalArgumentException e) {
+            return "Error: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Finds the runner with the best average over its last 3 runs in the races
+     * a filter selects, see {@link RaceAttributes#select(String)}. The first
+     * runner on the card wins a tie.
+     * @param successMessage The format for the answer, given the runner, time, place and average.
+     * @param failureMessage What to say when no runner in those races has a rating.
+     * @return The answer, or a message starting with "Error:" if the filter is invalid.
+     */
+    public String nap(String filter, String successMessage, String failureMessage) {
+        RunnerColumns current = getColumns();
+        if (current.getVersion() == 0) {
+            return "Error: Race data is not available yet.";
+        }
+        try {
+            BitSet races = current.getAttributes().select(filter);
+            return Spans.call("compute", () -> {
+                int best = -1;
+                for (int race = races.nextSetBit(0); race >= 0; race = races.nextSetBit(race + 1)) {
+                    for (int row = current.raceOffsets[race]; row < current.raceOffsets[race + 1]; row++) {
+                        if (!current.nonRunners[row] && current.last3[row] == current.last3[row]
+                                && (best < 0 || current.last3[row] > current.last3[best])) {
+                            best = row;
+                        }
+                    }
+                }
+                if (best < 0) {
+                    return failureMessage;
+                }
+                String label = current.raceLabels[current.races[best]];
+                int space = label.indexOf(' ');
+                return String.format(successMessage, current.names[best], label.substring(0, space),
+                        label.substring(space + 1), current.last3[best]);
+            });
+        } catch (IllegalArgumentException e) {
+            return "Error: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Ranks the runners in the races a filter selects by their average over
+     * their last 3 runs, best first, in card order on a tie.
+     * @return The table, or a message starting with "Error:" if the filter is invalid.
+     */
+    public String leaderboard(String filter, Integer limit) {
+        RunnerColumns current = getColumns();
+        if (current.getVersion() == 0) {
+            return "Error: Race data is not available yet.";
+        }
+        int size = limit == null ? RunnerQuery.DEFAULT_LIMIT : limit;
+        if (size < 1 || size > RunnerQuery.MAX_LIMIT) {
+            return "Error: Limit must be between 1 and " + RunnerQuery.MAX_LIMIT;
+        }
+        try {
+            BitSet races = current.getAttributes().select(filter);
+            return Spans.call("compute", () -> {
+                List<Integer> rows = new ArrayList<>();
+                for (int race = races.nextSetBit(0); race >= 0; race = races.nextSetBit(race + 1)) {
+                    for (int row = current.raceOffsets[race]; row < current.raceOffsets[race + 1]; row++) {
+                        if (!current.nonRunners[row] && current.last3[row] == current.last3[row]) {
+                            rows.add(row);
+                        }
+                    }
+                }
+                if (rows.isEmpty()) {
+                    return "No rated runners in " + describe(filter) + ".";
+                }
+                rows.sort((a, b) -> Double.compare(current.last3[b], current.last3[a]));
+                StringBuilder table = new StringBuilder("Top rated runners in ").append(describe(filter))
+                        .append(", by average of the last 3 runs:");
+                for (int i = 0; i < Math.min(size, rows.size()); i++) {
+                    int row = rows.get(i);
+                    table.append(String.format("%n%d. %s in the %s, %.2f", i + 1, current.names[row],
+                            current.raceLabels[current.races[row]], current.last3[row]));
+                }
+                return table.toString();
+            });
+        } catch (IllegalArgumentException e) {
+            return "Error: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Lists the races a filter selects, in card order.
+     * @return The races, or a message starting with "Error:" if the filter is invalid.
+     */
+    public String races(String filter) {
+        RunnerColumns current = getColumns();
+        if (current.getVersion() == 0) {
+            return "Error: Race data is not available yet.";
+        }
+        try {
+            BitSet races = current.getAttributes().select(filter);
+            if (races.isEmpty()) {
+                return filter == null || filter.isBlank() ? "There are no races on today's card."
+                        : "None of today's races match '" + filter.trim() + "'.";
+            }
+            StringJoiner list = new StringJoiner(", ",
+                    races.cardinality() + " of " + current.getAttributes().raceCount() + " races: ", "");
+            races.stream().forEach(race -> list.add(current.raceLabels[race]));
+            return list.toString();
+        } catch (IllegalArgumentException e) {
+            return "Error: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Finds the runners across the card whose form is most like a runner's,
+     * see {@link FormVectors}. Non-runners are left out.
+     * @param horseName The runner to compare with, ignoring case.
+     * @return The runners nearest first, or a message starting with "Error:" if the limit is invalid.
+     */
+    public String similar(String horseName, Integer limit) {
+        RunnerColumns current = getColumns();
+        if (current.getVersion() == 0) {
+            return "Error: Race data is not available yet.";
+        }
+        int size = limit == null ? RunnerQuery.DEFAULT_LIMIT : limit;
+        if (size < 1 || size > RunnerQuery.MAX_LIMIT) {
+            return "Error: Limit must be between 1 and " + RunnerQuery.MAX_LIMIT;
+        }
+        int row = find(current, horseName);
+        if (row < 0) {
+            return "Could not find horse " + horseName + " in today's races.";
+        }
+        FormVectors vectors = current.getFormVectors();
+        int slot = vectors.slots[row];
+        if (slot < 0) {
+            return "No rated past runs to compare for " + current.names[row] + ".";
+        }
+        return Spans.call("compute", () -> {
+            int[] nearest = vectors.nearest(slot, size, current.nonRunners);
+            if (nearest.length == 0) {
+                return "No other rated runners to compare with " + current.names[row] + ".";
+            }
+            StringBuilder table = new StringBuilder("Runners in similar form to ").append(current.names[row])
+                    .append(" in the ").append(current.raceLabels[current.races[row]])
+                    .append(" (").append(vectors.describe(slot)).append("):");
+            for (int i = 0; i < nearest.length; i++) {
+                int other = vectors.rows[nearest[i]];
+                table.append(String.format("%n%d. %s in the %s, distance %.2f (%s)", i + 1, current.names[other],
+                        current.raceLabels[current.races[other]], vectors.distance(slot, nearest[i]),
+                        vectors.describe(nearest[i])));
+            }
+            return table.toString();
+        });
+    }
+
+    private static int find(RunnerColumns columns, String horseName) {
+        for (int row = 0; row < columns.size && horseName != null; row++) {
+            if (columns.names[row].equalsIgnoreCase(horseName.trim())) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    private static String describe(String filter) {
+        return filter == null || filter.isBlank() ? "all races" : "races matching '" + filter.trim() + "'";
+    }
+
+    private synchronized RunnerColumns rebuild(RaceSnapshot snapshot) {
+        RunnerColumns current = columns;
+        if (current.getVersion() == snapshot.getVersion()) {
+            return current;
+        }
+        long start = System.nanoTime();
+        RunnerColumns rebuilt = RunnerColumns.from(snapshot.getVersion(), snapshot.getRaces());
+        columns = rebuilt;
+        logger.info("Built runner columns for snapshot version {}: {} runners in {} ms", snapshot.getVersion(),
+                rebuilt.size(), (System.nanoTime() - start) / 1_000_000);
+        return rebuilt;
+    }
+}
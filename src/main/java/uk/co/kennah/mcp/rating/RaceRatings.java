@@ -0,0 +1,32 @@
+package uk.co.kennah.mcp.rating;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * The ratings of every runner in a race under a set of strategies, as worked
+ * out by {@link RatingEvaluator}. {@code ratings[runner][strategy]} follows the
+ * order of {@link #runners()} and {@link #strategies()}.
+ */
+public record RaceRatings(List<RatingStrategy> strategies, List<String> runners, int[][] ratings) {
+
+    /**
+     * @return The sum of all runners' ratings under a strategy, the pool the win percentages are shares of.
+     */
+    public long total(int strategy) {
+        return Arrays.stream(ratings).mapToLong(row -> row[strategy]).sum();
+    }
+
+    /**
+     * @return Runner indexes from the highest rating to the lowest under a
+     * strategy, keeping card order between equal ratings.
+     */
+    public int[] ranked(int strategy) {
+        return IntStream.range(0, runners.size()).boxed()
+                .sorted(Comparator.comparingInt((Integer runner) -> ratings[runner][strategy]).reversed())
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+}
@@ -0,0 +1,77 @@
+package uk.co.kennah.mcp.rating;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import uk.co.kennah.mcp.utils.Util;
+
+/**
+ * Works out several rating strategies for a race in one pass: each runner's
+ * form is read once, and every rating found is handed to all the strategies
+ * together.
+ */
+public final class RatingEvaluator {
+
+    private RatingEvaluator() {
+    }
+
+    /**
+     * @param race The race, with its runners and their form.
+     * @param strategies The strategies to work out, in the order they should appear.
+     * @return A rating per strategy for every runner in the race. Non-runners are left out.
+     */
+    public static RaceRatings evaluate(JsonObject race, List<RatingStrategy> strategies) {
+        List<String> runners = new ArrayList<>();
+        List<int[]> rows = new ArrayList<>();
+        if (race.has("horses") && race.get("horses").isJsonArray()) {
+            RatingStrategy.Accumulator[] accumulators = new RatingStrategy.Accumulator[strategies.size()];
+            for (JsonElement element : race.getAsJsonArray("horses")) {
+                if (!element.isJsonObject() || !element.getAsJsonObject().has("name")) {
+                    continue;
+                }
+                JsonObject horse = element.getAsJsonObject();
+                if (!Util.isRunner(horse)) {
+                    continue;
+                }
+                for (int s = 0; s < accumulators.length; s++) {
+                    accumulators[s] = strategies.get(s).start();
+                }
+                if (horse.has("past") && horse.get("past").isJsonArray()) {
+                    int position = 0;
+                    for (JsonElement form : horse.getAsJsonArray("past")) {
+                        int rating = rating(form);
+                        for (RatingStrategy.Accumulator accumulator : accumulators) {
+                            accumulator.add(position, rating);
+                        }
+                        position++;
+                    }
+                }
+                int[] row = new int[accumulators.length];
+                for (int s = 0; s < accumulators.length; s++) {
+                    row[s] = accumulators[s].rating();
+                }
+                runners.add(horse.get("name").getAsString());
+                rows.add(row);
+            }
+        }
+        return new RaceRatings(List.copyOf(strategies), List.copyOf(runners), rows.toArray(int[][]::new));
+    }
+
+    private static int rating(JsonElement form) {
+        if (!form.isJsonObject()) {
+            return RatingStrategy.NO_RATING;
+        }
+        JsonElement rating = form.getAsJsonObject().get("name");
+        if (rating == null || !rating.isJsonPrimitive()) {
+            return RatingStrategy.NO_RATING;
+        }
+        try {
+            return rating.getAsInt();
+        } catch (NumberFormatException e) {
+            return RatingStrategy.NO_RATING;
+        }
+    }
+}
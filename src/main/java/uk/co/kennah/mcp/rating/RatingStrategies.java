@@ -0,0 +1,89 @@
+package uk.co.kennah.mcp.rating;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The rating strategies the server knows. A new one only needs an entry in
+ * {@link #ALL}: the evaluator and the combined tool pick it up with no extra
+ * scan of the form.
+ */
+public final class RatingStrategies {
+
+    public static final RatingStrategy LAST_ONE = averageOfFirst("last_one", "latest run", 1);
+
+    public static final RatingStrategy LAST_THREE = averageOfFirst("last_three", "last 3 runs", 3);
+
+    public static final RatingStrategy BEST_EVER = RatingStrategy.of("best_ever", "best run",
+            () -> new RatingStrategy.Accumulator() {
+                private int best = RatingStrategy.NO_RATING;
+
+                @Override
+                public void add(int position, int rating) {
+                    best = Math.max(best, rating);
+                }
+
+                @Override
+                public int rating() {
+                    return best == RatingStrategy.NO_RATING ? 0 : best;
+                }
+            });
+
+    public static final RatingStrategy ALL_RUNS = averageOfFirst("all", "all runs", Integer.MAX_VALUE);
+
+    // Each run counts 0.7 times as much as the one before it in the form.
+    public static final RatingStrategy RECENCY_WEIGHTED = RatingStrategy.of("recency_weighted",
+            "recent runs weighted", () -> new RatingStrategy.Accumulator() {
+                private double weight = 1;
+                private double sum;
+                private double weights;
+
+                @Override
+                public void add(int position, int rating) {
+                    if (rating != RatingStrategy.NO_RATING) {
+                        sum += weight * rating;
+                        weights += weight;
+                    }
+                    weight *= 0.7;
+                }
+
+                @Override
+                public int rating() {
+                    return weights > 0 ? (int) (sum / weights) : 0;
+                }
+            });
+
+    public static final List<RatingStrategy> ALL = List.of(LAST_ONE, LAST_THREE, BEST_EVER, ALL_RUNS, RECENCY_WEIGHTED);
+
+    private RatingStrategies() {
+    }
+
+    public static Optional<RatingStrategy> byId(String id) {
+        return ALL.stream().filter(strategy -> strategy.id().equalsIgnoreCase(id.trim())).findFirst();
+    }
+
+    /**
+     * The average rating of the first {@code runs} entries in the form,
+     * truncated to a whole number. Entries without a rating are skipped but
+     * still count towards {@code runs}.
+     */
+    private static RatingStrategy averageOfFirst(String id, String description, int runs) {
+        return RatingStrategy.of(id, description, () -> new RatingStrategy.Accumulator() {
+            private long sum;
+            private int rated;
+
+            @Override
+            public void add(int position, int rating) {
+                if (position < runs && rating != RatingStrategy.NO_RATING) {
+                    sum += rating;
+                    rated++;
+                }
+            }
+
+            @Override
+            public int rating() {
+                return rated > 0 ? (int) ((double) sum / rated) : 0;
+            }
+        });
+    }
+}
@@ -0,0 +1,56 @@
+package uk.co.kennah.mcp.rating;
+
+import java.util.function.Supplier;
+
+/**
+ * A way of turning a runner's form into one rating, used to share out the win
+ * percentages in a race. A strategy never walks the form itself: it is shown
+ * each past run once, in file order, through an {@link Accumulator}. That lets
+ * {@link RatingEvaluator} work out any number of strategies in one pass.
+ */
+public interface RatingStrategy {
+
+    int NO_RATING = Integer.MIN_VALUE;
+
+    /**
+     * @return The short name used to ask for the strategy, e.g. {@code last_three}.
+     */
+    String id();
+
+    /**
+     * @return How the strategy is named in answers, e.g. "last 3 runs".
+     */
+    String description();
+
+    /**
+     * @return A fresh accumulator for one runner.
+     */
+    Accumulator start();
+
+    /**
+     * Collects one runner's rating for a strategy.
+     */
+    interface Accumulator {
+
+        /**
+         * @param position The index of the run in the form, 0 for the first.
+         * @param rating The rating for that run, or {@link #NO_RATING} if it has none.
+         */
+        void add(int position, int rating);
+
+        /**
+         * @return The runner's rating, 0 if the form gives it none.
+         */
+        int rating();
+    }
+
+    static RatingStrategy of(String id, String description, Supplier<Accumulator> start) {
+        record Named(String id, String description, Supplier<Accumulator> accumulators) implements RatingStrategy {
+            @Override
+            public Accumulator start() {
+                return accumulators.get();
+            }
+        }
+        return new Named(id, description, start);
+    }
+}
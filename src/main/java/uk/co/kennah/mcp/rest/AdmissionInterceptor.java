@@ -0,0 +1,61 @@
+package uk.co.kennah.mcp.rest;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import uk.co.kennah.mcp.limit.AdmissionControl;
+import uk.co.kennah.mcp.limit.AdmissionRejectedException;
+import uk.co.kennah.mcp.limit.Rejection;
+
+/**
+ * Runs the race endpoints past {@link AdmissionControl}, keyed by the
+ * caller's address and the path. Behind a proxy the address is the one in
+ * X-Forwarded-For (see {@code server.forward-headers-strategy}). A request over a rate limit gets a 429, one
+ * arriving while the server is full a 503, both with a Retry-After. The slot
+ * is given back once the response is complete.
+ */
+@Component
+@Profile("!stdio")
+public class AdmissionInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT = AdmissionInterceptor.class.getName() + ".permit";
+
+    @Autowired
+    private AdmissionControl admission;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        if (!(handler instanceof HandlerMethod method) || method.getBeanType() != RacesInfoController.class) {
+            return true;
+        }
+        try {
+            request.setAttribute(PERMIT, admission.admit(request.getRemoteAddr(), request.getServletPath()));
+            return true;
+        } catch (AdmissionRejectedException e) {
+            boolean busy = e.getReason() == Rejection.QUEUE_FULL || e.getReason() == Rejection.QUEUE_TIMEOUT;
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+            response.sendError(busy ? HttpStatus.SERVICE_UNAVAILABLE.value() : HttpStatus.TOO_MANY_REQUESTS.value(),
+                    e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        if (request.getAttribute(PERMIT) instanceof AdmissionControl.Permit permit) {
+            permit.close();
+            request.removeAttribute(PERMIT);
+        }
+    }
+}
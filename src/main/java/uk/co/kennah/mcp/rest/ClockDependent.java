@@ -0,0 +1,18 @@
+package uk.co.kennah.mcp.rest;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a race endpoint whose answer depends on the time of day as well as
+ * the card, such as the next race, so {@link SnapshotETagInterceptor} never
+ * answers it with a 304.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ClockDependent {
+}
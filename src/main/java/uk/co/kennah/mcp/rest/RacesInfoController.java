@@ -3,6 +3,7 @@ package uk.co.kennah.mcp.rest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -10,6 +11,7 @@ import org.springframework.web.bind.annotation.RestController;
 import uk.co.kennah.mcp.aitools.RacesInfo;
 
 @RestController
+@Profile("!stdio")
 public class RacesInfoController {
 
     private static final Logger logger = LoggerFactory.getLogger(RacesInfoController.class);
@@ -89,6 +91,13 @@ public class RacesInfoController {
         return racesInfo.getRaceWinPercentagesFromAll(time, place);
     }
 
+    @GetMapping("/race-win-percentages")
+    public String getRaceWinPercentages(@RequestParam String time, @RequestParam String place,
+            @RequestParam(required = false) String strategies) {
+        logger.info("REST request for race win percentages by strategy in the {} at {}", time, place);
+        return racesInfo.getRaceWinPercentages(time, place, strategies);
+    }
+
     @GetMapping("/all-runners") //works
     public String getAllRunners(@RequestParam String time, @RequestParam String place) {
         logger.info("REST request for all runners in the {} at {}", time, place);
@@ -114,6 +123,7 @@ public class RacesInfoController {
     }
 
     @GetMapping("/next-race")
+    @ClockDependent
     public String getNextRace() {
         logger.info("REST request for the next race");
         return racesInfo.getNextRace();
@@ -142,4 +152,37 @@ public class RacesInfoController {
         logger.info("REST request received for Nap of the Day UK handicap races only");
         return racesInfo.getUkHandicapNapOfTheDay();
     }
-}
\ No newline at end of file
+
+    @GetMapping("/nap-of-the-day-for")
+    public String getNapOfTheDayFor(@RequestParam String races) {
+        logger.info("REST request received for Nap of the Day in races matching '{}'", races);
+        return racesInfo.getNapOfTheDayFor(races);
+    }
+
+    @GetMapping("/leaderboard")
+    public String getLeaderboard(@RequestParam(required = false) String races,
+            @RequestParam(required = false) Integer limit) {
+        logger.info("REST request for the leaderboard of races matching '{}'", races);
+        return racesInfo.getLeaderboard(races, limit);
+    }
+
+    @GetMapping("/similar-runners")
+    public String getSimilarRunners(@RequestParam String horseName, @RequestParam(required = false) Integer limit) {
+        logger.info("REST request for runners in similar form to {}", horseName);
+        return racesInfo.getSimilarRunners(horseName, limit);
+    }
+
+    @GetMapping("/races-matching")
+    public String getRacesMatching(@RequestParam String races) {
+        logger.info("REST request for races matching '{}'", races);
+        return racesInfo.getRacesMatching(races);
+    }
+
+    @GetMapping("/query-runners")
+    public String queryRunners(@RequestParam(required = false) String where, @RequestParam(required = false) String sort,
+            @RequestParam(required = false) Integer limit, @RequestParam(required = false) String aggregate,
+            @RequestParam(required = false) String groupBy) {
+        logger.info("REST request to query runners where '{}' sorted by '{}'", where, sort);
+        return racesInfo.queryRunners(where, sort, limit, aggregate, groupBy);
+    }
+}
@@ -0,0 +1,115 @@
+package uk.co.kennah.mcp.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import uk.co.kennah.mcp.snapshot.RaceSnapshot;
+import uk.co.kennah.mcp.snapshot.RaceSnapshotService;
+
+/**
+ * Answers conditional GETs on the race endpoints from the snapshot alone.
+ * The ETag is a digest of the card being served plus a digest of the path
+ * and request parameters, so a matching If-None-Match (or If-Modified-Since)
+ * gets a 304 before any of the Util computations run. Being taken from the
+ * card rather than the snapshot version, which starts again at 1 on every
+ * start-up, it names the same answer after a restart and on every replica.
+ * Endpoints marked {@link ClockDependent} are never validated.
+ */
+@Component
+@Profile("!stdio")
+public class SnapshotETagInterceptor implements HandlerInterceptor {
+
+    private static final Gson GSON = new Gson();
+
+    @Autowired
+    private RaceSnapshotService snapshotService;
+
+    @Value("${rest.cache.max-age:10}")
+    private long maxAgeSeconds;
+
+    // The digest of the last card validated against, worked out once per snapshot.
+    private volatile CardDigest cardDigest;
+
+    private record CardDigest(RaceSnapshot snapshot, String digest) {}
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod method) || method.getBeanType() != RacesInfoController.class
+                || method.hasMethodAnnotation(ClockDependent.class)) {
+            return true;
+        }
+        RaceSnapshot snapshot = snapshotService.getCurrent();
+        if (snapshot.getVersion() == 0) {
+            // Nothing loaded yet, so there is no card to validate against.
+            return true;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic().mustRevalidate().getHeaderValue());
+        String etag = etag(digest(snapshot), request);
+        return !new ServletWebRequest(request, response)
+                .checkNotModified(etag, snapshot.getLoadedAt().toEpochMilli());
+    }
+
+    private String digest(RaceSnapshot snapshot) {
+        CardDigest last = cardDigest;
+        if (last == null || last.snapshot() != snapshot) {
+            last = new CardDigest(snapshot, digest(snapshot.getRaces()));
+            cardDigest = last;
+        }
+        return last.digest();
+    }
+
+    /**
+     * @return The MD5 of the card as JSON, written straight into the digest
+     * rather than built up as one string.
+     */
+    static String digest(JsonElement races) {
+        try {
+            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            try (Writer writer = new OutputStreamWriter(new DigestOutputStream(OutputStream.nullOutputStream(), md5),
+                    StandardCharsets.UTF_8)) {
+                GSON.toJson(races, writer);
+            }
+            return HexFormat.of().formatHex(md5.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String etag(String cardDigest, HttpServletRequest request) {
+        StringBuilder key = new StringBuilder(request.getRequestURI());
+        Map<String, String[]> parameters = new TreeMap<>(request.getParameterMap());
+        parameters.forEach((name, values) -> key.append('&').append(name).append('=').append(String.join(",", values)));
+        String digest = DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8));
+        return "\"" + cardDigest.substring(0, 16) + "-" + digest.substring(0, 16) + "\"";
+    }
+}
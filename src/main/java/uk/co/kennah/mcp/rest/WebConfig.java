@@ -0,0 +1,27 @@
+package uk.co.kennah.mcp.rest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@Profile("!stdio")
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private SnapshotETagInterceptor snapshotETagInterceptor;
+
+    @Autowired
+    private AdmissionInterceptor admissionInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // The admin status changes with every request it counts, so it is never validated against the card.
+        // Race endpoints that depend on the clock are marked @ClockDependent and skipped by the interceptor.
+        registry.addInterceptor(snapshotETagInterceptor).excludePathPatterns("/admin/**");
+        // After the ETag check, so a 304 answered from the version alone costs the client nothing.
+        registry.addInterceptor(admissionInterceptor);
+    }
+}
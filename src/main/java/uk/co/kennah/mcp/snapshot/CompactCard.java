@@ -0,0 +1,404 @@
+package uk.co.kennah.mcp.snapshot;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import uk.co.kennah.mcp.utils.HeapEstimate;
+
+/**
+ * A merged race card held as dictionary codes and packed primitive arrays
+ * rather than a Gson tree. Every distinct string on the card (meeting, country,
+ * race detail, time, form date, horse name, price) is stored once in a shared
+ * table and referred to by its index. Each runner's form is a slice of two int
+ * arrays, from {@code formOffsets[runner]} up to {@code formOffsets[runner + 1]}.
+ * <p>
+ * Members the layout has no column for, and values of an unexpected type such
+ * as a rating of 96.5, are kept as they were in a side map, so {@link #toJson()}
+ * gives back a card equal to the one encoded. The order of each object's
+ * members is kept too, as a code into a table of the distinct key orders on
+ * the card, so tools and endpoints list the members as the source did. The
+ * tree it builds shares one instance of every key and repeated value.
+ */
+public final class CompactCard {
+
+    static final int ABSENT = -1;
+    static final int NULL = -2;
+    static final int NO_RATING = Integer.MIN_VALUE;
+
+    private final String[] strings;
+
+    // The distinct key orders of the card's objects, each object refers to one
+    private final String[][] shapes;
+
+    // Per race
+    private final int[] times;
+    private final int[] places;
+    private final int[] details;
+    private final int[] countries;
+    private final int[] raceShapes;
+    private final BitSet withHorses;
+    private final int[] runnerOffsets;
+
+    // Per runner
+    private final int[] names;
+    private final int[] odds;
+    private final int[] runnerShapes;
+    private final BitSet withForm;
+    private final int[] formOffsets;
+
+    // Per past run
+    private final int[] formDates;
+    private final int[] formRatings;
+    private final int[] formShapes;
+
+    // Members that did not fit a column, by race, runner or past run index
+    private final Map<Integer, JsonObject> raceRest;
+    private final Map<Integer, JsonObject> runnerRest;
+    private final Map<Integer, JsonObject> formRest;
+
+    private CompactCard(Encoder encoder) {
+        this.strings = encoder.strings.keySet().toArray(String[]::new);
+        this.shapes = encoder.shapes.keySet().stream().map(keys -> keys.toArray(String[]::new))
+                .toArray(String[][]::new);
+        this.raceShapes = encoder.raceShapes.toArray();
+        this.runnerShapes = encoder.runnerShapes.toArray();
+        this.formShapes = encoder.formShapes.toArray();
+        this.times = encoder.times.toArray();
+        this.places = encoder.places.toArray();
+        this.details = encoder.details.toArray();
+        this.countries = encoder.countries.toArray();
+        this.withHorses = encoder.withHorses;
+        this.runnerOffsets = encoder.runnerOffsets.toArray();
+        this.names = encoder.names.toArray();
+        this.odds = encoder.odds.toArray();
+        this.withForm = encoder.withForm;
+        this.formOffsets = encoder.formOffsets.toArray();
+        this.formDates = encoder.formDates.toArray();
+        this.formRatings = encoder.formRatings.toArray();
+        this.raceRest = encoder.raceRest;
+        this.runnerRest = encoder.runnerRest;
+        this.formRest = encoder.formRest;
+    }
+
+    /**
+     * Encodes a merged card. The card is only read, never changed.
+     * @throws IllegalArgumentException If an entry is not a race object.
+     */
+    public static CompactCard encode(JsonArray races) {
+        Encoder encoder = new Encoder();
+        for (int i = 0; i < races.size(); i++) {
+            JsonElement race = races.get(i);
+            if (!race.isJsonObject()) {
+                throw new IllegalArgumentException("entry " + i + " is not a race");
+            }
+            encoder.addRace(race.getAsJsonObject());
+        }
+        encoder.runnerOffsets.add(encoder.names.size());
+        encoder.formOffsets.add(encoder.formDates.size());
+        return new CompactCard(encoder);
+    }
+
+    /**
+     * Builds the card back as a Gson tree, with every object's members in
+     * their original order. Keys and repeated values are single shared
+     * instances, which is safe because Gson primitives cannot be changed.
+     */
+    public JsonArray toJson() {
+        JsonPrimitive[] values = new JsonPrimitive[strings.length];
+        Map<Integer, JsonPrimitive> ratings = new HashMap<>();
+        JsonArray races = new JsonArray(times.length);
+        for (int race = 0; race < times.length; race++) {
+            JsonObject raceObject = new JsonObject();
+            JsonObject rest = raceRest.get(race);
+            for (String key : shapes[raceShapes[race]]) {
+                JsonElement value = switch (key) {
+                    case "time" -> string(times[race], values);
+                    case "place" -> string(places[race], values);
+                    case "detail" -> string(details[race], values);
+                    case "country" -> string(countries[race], values);
+                    case "horses" -> withHorses.get(race) ? horses(race, values, ratings) : null;
+                    default -> null;
+                };
+                raceObject.add(key, value != null ? value : rest.get(key).deepCopy());
+            }
+            races.add(raceObject);
+        }
+        return races;
+    }
+
+    private JsonArray horses(int race, JsonPrimitive[] values, Map<Integer, JsonPrimitive> ratings) {
+        JsonArray horses = new JsonArray(runnerOffsets[race + 1] - runnerOffsets[race]);
+        for (int runner = runnerOffsets[race]; runner < runnerOffsets[race + 1]; runner++) {
+            JsonObject horse = new JsonObject();
+            JsonObject rest = runnerRest.get(runner);
+            for (String key : shapes[runnerShapes[runner]]) {
+                JsonElement value = switch (key) {
+                    case "name" -> string(names[runner], values);
+                    case "odds" -> odds[runner] == NULL ? JsonNull.INSTANCE : string(odds[runner], values);
+                    case "past" -> withForm.get(runner) ? past(runner, values, ratings) : null;
+                    default -> null;
+                };
+                horse.add(key, value != null ? value : rest.get(key).deepCopy());
+            }
+            horses.add(horse);
+        }
+        return horses;
+    }
+
+    private JsonArray past(int runner, JsonPrimitive[] values, Map<Integer, JsonPrimitive> ratings) {
+        JsonArray past = new JsonArray(formOffsets[runner + 1] - formOffsets[runner]);
+        for (int run = formOffsets[runner]; run < formOffsets[runner + 1]; run++) {
+            JsonObject form = new JsonObject();
+            JsonObject rest = formRest.get(run);
+            for (String key : shapes[formShapes[run]]) {
+                JsonElement value = switch (key) {
+                    case "date" -> string(formDates[run], values);
+                    case "name" -> formRatings[run] != NO_RATING
+                            ? ratings.computeIfAbsent(formRatings[run], rating -> new JsonPrimitive(rating)) : null;
+                    default -> null;
+                };
+                form.add(key, value != null ? value : rest.get(key).deepCopy());
+            }
+            past.add(form);
+        }
+        return past;
+    }
+
+    /**
+     * @return The shared value for a string code, or null if the member was not a string.
+     */
+    private JsonPrimitive string(int code, JsonPrimitive[] values) {
+        if (code < 0) {
+            return null;
+        }
+        JsonPrimitive value = values[code];
+        if (value == null) {
+            value = new JsonPrimitive(strings[code]);
+            values[code] = value;
+        }
+        return value;
+    }
+
+    public int races() {
+        return times.length;
+    }
+
+    public int runners() {
+        return names.length;
+    }
+
+    public int formLines() {
+        return formDates.length;
+    }
+
+    public int distinctStrings() {
+        return strings.length;
+    }
+
+    /**
+     * @return The estimated bytes held, see {@link HeapEstimate}.
+     */
+    public long estimatedBytes() {
+        long bytes = HeapEstimate.of(strings)
+                + 5L * HeapEstimate.array(times.length, Integer.BYTES)
+                + HeapEstimate.array(runnerOffsets.length, Integer.BYTES)
+                + 3L * HeapEstimate.array(names.length, Integer.BYTES)
+                + HeapEstimate.array(formOffsets.length, Integer.BYTES)
+                + 3L * HeapEstimate.array(formDates.length, Integer.BYTES)
+                + HeapEstimate.array((withHorses.size() + withForm.size()) / 8, 1);
+        for (String[] keys : shapes) {
+            bytes += HeapEstimate.of(keys);
+        }
+        for (Map<Integer, JsonObject> rest : List.of(raceRest, runnerRest, formRest)) {
+            for (JsonObject members : rest.values()) {
+                bytes += HeapEstimate.of(members);
+            }
+        }
+        return bytes;
+    }
+
+    private static final class Encoder {
+
+        // Insertion ordered, so a string's code is its position in the table.
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private final Map<List<String>, Integer> shapes = new LinkedHashMap<>();
+        private final IntColumn raceShapes = new IntColumn();
+        private final IntColumn runnerShapes = new IntColumn();
+        private final IntColumn formShapes = new IntColumn();
+        private final IntColumn times = new IntColumn();
+        private final IntColumn places = new IntColumn();
+        private final IntColumn details = new IntColumn();
+        private final IntColumn countries = new IntColumn();
+        private final BitSet withHorses = new BitSet();
+        private final IntColumn runnerOffsets = new IntColumn();
+        private final IntColumn names = new IntColumn();
+        private final IntColumn odds = new IntColumn();
+        private final BitSet withForm = new BitSet();
+        private final IntColumn formOffsets = new IntColumn();
+        private final IntColumn formDates = new IntColumn();
+        private final IntColumn formRatings = new IntColumn();
+        private final Map<Integer, JsonObject> raceRest = new HashMap<>();
+        private final Map<Integer, JsonObject> runnerRest = new HashMap<>();
+        private final Map<Integer, JsonObject> formRest = new HashMap<>();
+
+        void addRace(JsonObject race) {
+            int index = times.size();
+            int time = ABSENT;
+            int place = ABSENT;
+            int detail = ABSENT;
+            int country = ABSENT;
+            JsonObject rest = new JsonObject();
+            runnerOffsets.add(names.size());
+            for (Map.Entry<String, JsonElement> member : race.entrySet()) {
+                JsonElement value = member.getValue();
+                switch (member.getKey()) {
+                    case "time" -> time = string(member, rest);
+                    case "place" -> place = string(member, rest);
+                    case "detail" -> detail = string(member, rest);
+                    case "country" -> country = string(member, rest);
+                    case "horses" -> {
+                        if (allObjects(value)) {
+                            withHorses.set(index);
+                            value.getAsJsonArray().forEach(horse -> addRunner(horse.getAsJsonObject()));
+                        } else {
+                            rest.add(member.getKey(), value);
+                        }
+                    }
+                    default -> rest.add(member.getKey(), value);
+                }
+            }
+            times.add(time);
+            places.add(place);
+            details.add(detail);
+            countries.add(country);
+            raceShapes.add(shape(race));
+            keep(raceRest, index, rest);
+        }
+
+        private void addRunner(JsonObject horse) {
+            int index = names.size();
+            int name = ABSENT;
+            int price = ABSENT;
+            JsonObject rest = new JsonObject();
+            formOffsets.add(formDates.size());
+            for (Map.Entry<String, JsonElement> member : horse.entrySet()) {
+                JsonElement value = member.getValue();
+                switch (member.getKey()) {
+                    case "name" -> name = string(member, rest);
+                    case "odds" -> price = value.isJsonNull() ? NULL : string(member, rest);
+                    case "past" -> {
+                        if (allObjects(value)) {
+                            withForm.set(index);
+                            value.getAsJsonArray().forEach(form -> addForm(form.getAsJsonObject()));
+                        } else {
+                            rest.add(member.getKey(), value);
+                        }
+                    }
+                    default -> rest.add(member.getKey(), value);
+                }
+            }
+            names.add(name);
+            odds.add(price);
+            runnerShapes.add(shape(horse));
+            keep(runnerRest, index, rest);
+        }
+
+        private void addForm(JsonObject form) {
+            int index = formDates.size();
+            int date = ABSENT;
+            int rating = NO_RATING;
+            JsonObject rest = new JsonObject();
+            for (Map.Entry<String, JsonElement> member : form.entrySet()) {
+                switch (member.getKey()) {
+                    case "date" -> date = string(member, rest);
+                    case "name" -> rating = rating(member, rest);
+                    default -> rest.add(member.getKey(), member.getValue());
+                }
+            }
+            formDates.add(date);
+            formRatings.add(rating);
+            formShapes.add(shape(form));
+            keep(formRest, index, rest);
+        }
+
+        private int shape(JsonObject object) {
+            return shapes.computeIfAbsent(List.copyOf(object.keySet()), keys -> shapes.size());
+        }
+
+        private int string(Map.Entry<String, JsonElement> member, JsonObject rest) {
+            JsonElement value = member.getValue();
+            if (value.isJsonPrimitive() && value.getAsJsonPrimitive().isString()) {
+                return strings.computeIfAbsent(value.getAsString(), key -> strings.size());
+            }
+            rest.add(member.getKey(), value);
+            return ABSENT;
+        }
+
+        private static int rating(Map.Entry<String, JsonElement> member, JsonObject rest) {
+            JsonElement value = member.getValue();
+            if (value.isJsonPrimitive() && value.getAsJsonPrimitive().isNumber()) {
+                // Only plain integers fit the column; 96.5 or 096 keep their exact text in the rest.
+                String text = value.getAsString();
+                try {
+                    int rating = Integer.parseInt(text);
+                    if (rating != NO_RATING && Integer.toString(rating).equals(text)) {
+                        return rating;
+                    }
+                } catch (NumberFormatException e) {
+                    // Falls through to the rest.
+                }
+            }
+            rest.add(member.getKey(), value);
+            return NO_RATING;
+        }
+
+        private static boolean allObjects(JsonElement value) {
+            if (!value.isJsonArray()) {
+                return false;
+            }
+            for (JsonElement element : value.getAsJsonArray()) {
+                if (!element.isJsonObject()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static void keep(Map<Integer, JsonObject> rests, int index, JsonObject rest) {
+            if (!rest.isEmpty()) {
+                rests.put(index, rest);
+            }
+        }
+    }
+
+    private static final class IntColumn {
+
+        private int[] values = new int[64];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
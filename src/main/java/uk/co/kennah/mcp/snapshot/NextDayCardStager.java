@@ -0,0 +1,180 @@
+package uk.co.kennah.mcp.snapshot;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import uk.co.kennah.mcp.gcp.GCSHorseReader;
+
+/**
+ * Loads tomorrow's card during the quiet evening window and promotes it at
+ * the rollover instant, so the first calls of the morning hit a warm model.
+ * This only applies when {@code gcs.file.name} contains a {@code {date}}
+ * placeholder; with a fixed name such as todays.txt the normal refresh picks
+ * up the overwritten blob instead.
+ */
+@Component
+public class NextDayCardStager {
+
+    private static final Logger logger = LoggerFactory.getLogger(NextDayCardStager.class);
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+    // How long before midnight a rollover may run and still move the card on.
+    static final Duration EARLY_ROLLOVER = Duration.ofHours(1);
+
+    @Autowired
+    private GCSHorseReader gcsReader;
+
+    @Autowired
+    private RaceSnapshotService snapshotService;
+
+    private volatile StagedCard staged;
+    private volatile String lastStagingError;
+
+    // Held compact: it can sit idle for hours next to the live card. The
+    // generations tell whether its objects have been replaced since.
+    private record StagedCard(LocalDate date, CompactCard card, Map<String, Long> generations) {}
+
+    /**
+     * Reads, merges and checks tomorrow's card. Runs several times through the
+     * evening so a late upload is still picked up, and a bad file is reported
+     * hours before it would go live. A staged card is read again only when one
+     * of its objects has been replaced.
+     */
+    @Scheduled(cron = "${gcs.prestage.cron:0 0 18-23 * * *}", zone = "${gcs.rollover.zone:Europe/London}")
+    public void stageNextDay() {
+        if (!gcsReader.isDateTemplated()) {
+            return;
+        }
+        LocalDate tomorrow = gcsReader.getCardDate().plusDays(1);
+        StagedCard current = staged;
+        if (current != null && current.date().equals(tomorrow)) {
+            try {
+                if (gcsReader.findGenerations(tomorrow).equals(current.generations())) {
+                    logger.debug("The card for {} is already staged.", tomorrow);
+                    return;
+                }
+            } catch (IOException e) {
+                logger.warn("Could not check the staged card for {}, keeping it: {}", tomorrow, e.getMessage());
+                return;
+            }
+            logger.info("The objects for {} were replaced after they were staged, staging them again.", tomorrow);
+        }
+        Map<String, Long> generations = new LinkedHashMap<>();
+        JsonElement races = gcsReader.readCardForDate(tomorrow, generations);
+        List<String> problems = validate(races);
+        if (!problems.isEmpty()) {
+            lastStagingError = "Card for " + tomorrow + " is not usable: " + String.join("; ", problems);
+            logger.error("The card for {} failed validation and was not staged: {}", tomorrow, String.join("; ", problems));
+            return;
+        }
+        staged = new StagedCard(tomorrow, CompactCard.encode(races.getAsJsonArray()), Map.copyOf(generations));
+        lastStagingError = null;
+        logger.info("Staged the card for {} with {} races, ready for the rollover.", tomorrow, races.getAsJsonArray().size());
+    }
+
+    /**
+     * Makes the day after the live card's live. If its card was staged it is
+     * swapped in whole, otherwise the date moves on and the card is read cold.
+     * The day is taken from the live card rather than the clock, so a
+     * rollover that fires a little before midnight still promotes the staged
+     * card; one more than {@link #EARLY_ROLLOVER} before the day starts does
+     * nothing, so running it twice never skips a day.
+     */
+    @Scheduled(cron = "${gcs.rollover.cron:0 0 0 * * *}", zone = "${gcs.rollover.zone:Europe/London}")
+    public void rollOver() {
+        if (!gcsReader.isDateTemplated()) {
+            return;
+        }
+        LocalDate next = gcsReader.getCardDate().plusDays(1);
+        ZoneId zone = gcsReader.getZone();
+        if (ZonedDateTime.now(zone).plus(EARLY_ROLLOVER).isBefore(next.atStartOfDay(zone))) {
+            logger.warn("Not rolling over to {} yet, the card for {} is still live.", next, next.minusDays(1));
+            return;
+        }
+        StagedCard current = staged;
+        if (current != null && current.date().equals(next)) {
+            snapshotService.promote(next, current.card().toJson());
+        } else {
+            logger.warn("No valid card was staged for {}, reading it now.", next);
+            gcsReader.setCardDate(next);
+            snapshotService.refresh();
+        }
+        staged = null;
+    }
+
+    public LocalDate getStagedDate() {
+        StagedCard current = staged;
+        return current != null ? current.date() : null;
+    }
+
+    /**
+     * @return The card held ready for the rollover, or null if none is staged.
+     */
+    public CompactCard getStagedCard() {
+        StagedCard current = staged;
+        return current != null ? current.card() : null;
+    }
+
+    public String getLastStagingError() {
+        return lastStagingError;
+    }
+
+    static List<String> validate(JsonElement card) {
+        List<String> problems = new ArrayList<>();
+        if (card == null || !card.isJsonArray()) {
+            problems.add(card != null && card.isJsonObject() && card.getAsJsonObject().has("error")
+                    ? card.getAsJsonObject().get("error").getAsString()
+                    : "the card is not a list of races");
+            return problems;
+        }
+        if (card.getAsJsonArray().isEmpty()) {
+            problems.add("the card has no races");
+        }
+        int index = 0;
+        for (JsonElement element : card.getAsJsonArray()) {
+            if (!element.isJsonObject()) {
+                problems.add("entry " + index + " is not a race");
+            } else {
+                JsonObject race = element.getAsJsonObject();
+                if (!race.has("time") || !race.has("place")) {
+                    problems.add("entry " + index + " has no time or place");
+                } else if (!isTime(race.get("time").getAsString())) {
+                    problems.add("the race at " + race.get("place").getAsString() + " has an invalid time '"
+                            + race.get("time").getAsString() + "'");
+                }
+                if (!race.has("horses") || !race.get("horses").isJsonArray()) {
+                    problems.add("entry " + index + " has no runners");
+                }
+            }
+            index++;
+        }
+        return problems;
+    }
+
+    private static boolean isTime(String time) {
+        try {
+            LocalTime.parse(time, TIME_FORMATTER);
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package uk.co.kennah.mcp.snapshot;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * What moved between two snapshots, runner by runner, for clients that keep
+ * their own copy of the card and only want the deltas. Only races that
+ * changed are compared; races that were added or removed are left to
+ * {@link RaceSnapshotDiff}, since a client has to read those whole anyway.
+ * @param oddsByPlace Price changes per meeting, in card order.
+ * @param newNonRunners Runners withdrawn since the previous snapshot.
+ * @param reinstated Runners no longer listed as non-runners.
+ * @param removedRunners Runners taken off a race that is still on the card,
+ * as "14:05 at Ascot: Name" like the non-runners.
+ */
+public record RaceChanges(Map<String, List<OddsChange>> oddsByPlace, List<String> newNonRunners,
+        List<String> reinstated, List<String> removedRunners) {
+
+    /**
+     * One runner's price moving. {@code from} or {@code to} is null when the
+     * runner had no price or is new to the race, and "NR" for a non-runner.
+     */
+    public record OddsChange(String time, String name, String from, String to) {
+    }
+
+    public static RaceChanges between(RaceSnapshot previous, RaceSnapshot current, RaceSnapshotDiff diff) {
+        Map<String, List<OddsChange>> oddsByPlace = new LinkedHashMap<>();
+        List<String> removed = new ArrayList<>();
+        for (RaceKey key : diff.changedRaces()) {
+            JsonObject before = previous.getRacesByKey().get(key);
+            JsonObject after = current.getRacesByKey().get(key);
+            if (before == null || after == null) {
+                continue;
+            }
+            Map<String, String> oldOdds = odds(before);
+            Map<String, String> newOdds = odds(after);
+            newOdds.forEach((name, price) -> {
+                if (!oldOdds.containsKey(name) || !Objects.equals(oldOdds.get(name), price)) {
+                    oddsByPlace.computeIfAbsent(key.place(), place -> new ArrayList<>())
+                            .add(new OddsChange(key.time(), name, oldOdds.get(name), price));
+                }
+            });
+            oldOdds.keySet().stream().filter(name -> !newOdds.containsKey(name))
+                    .forEach(name -> removed.add(key + ": " + name));
+        }
+
+        Set<String> before = new LinkedHashSet<>(previous.getNonRunners());
+        Set<String> after = new LinkedHashSet<>(current.getNonRunners());
+        List<String> withdrawn = after.stream().filter(name -> !before.contains(name)).toList();
+        // A non-runner taken off the card, alone or with its whole race, has gone, not come back.
+        Set<String> removedRaces = new HashSet<>();
+        diff.removedRaces().forEach(key -> removedRaces.add(key + ": "));
+        List<String> reinstated = before.stream()
+                .filter(name -> !after.contains(name) && !removed.contains(name)
+                        && removedRaces.stream().noneMatch(name::startsWith))
+                .toList();
+        return new RaceChanges(oddsByPlace, withdrawn, reinstated, List.copyOf(removed));
+    }
+
+    public boolean isEmpty() {
+        return oddsByPlace.isEmpty() && newNonRunners.isEmpty() && reinstated.isEmpty() && removedRunners.isEmpty();
+    }
+
+    /**
+     * @return Each runner's price by name, in card order, null where it has none.
+     */
+    private static Map<String, String> odds(JsonObject race) {
+        Map<String, String> odds = new LinkedHashMap<>();
+        if (race.has("horses") && race.get("horses").isJsonArray()) {
+            for (JsonElement horse : race.getAsJsonArray("horses")) {
+                if (horse.isJsonObject() && horse.getAsJsonObject().has("name")) {
+                    JsonElement price = horse.getAsJsonObject().get("odds");
+                    odds.put(horse.getAsJsonObject().get("name").getAsString(),
+                            price == null || price.isJsonNull() ? null
+                                    : price.isJsonPrimitive() ? price.getAsString() : price.toString());
+                }
+            }
+        }
+        return odds;
+    }
+}
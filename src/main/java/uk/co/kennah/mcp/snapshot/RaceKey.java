@@ -0,0 +1,23 @@
+package uk.co.kennah.mcp.snapshot;
+
+import java.util.Optional;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Identifies a race within a day's card by its off time and meeting place.
+ */
+public record RaceKey(String time, String place) {
+
+    public static Optional<RaceKey> of(JsonObject race) {
+        if (!race.has("time") || !race.has("place")) {
+            return Optional.empty();
+        }
+        return Optional.of(new RaceKey(race.get("time").getAsString(), race.get("place").getAsString()));
+    }
+
+    @Override
+    public String toString() {
+        return time + " at " + place;
+    }
+}
@@ -0,0 +1,97 @@
+package uk.co.kennah.mcp.snapshot;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import uk.co.kennah.mcp.utils.Util;
+
+/**
+ * An immutable view of one load of the race data. The version only moves on
+ * when a refresh actually changes something, and every race remembers the
+ * version in which it last changed so clients can re-read just those races.
+ */
+public final class RaceSnapshot {
+
+    public static final RaceSnapshot EMPTY = new RaceSnapshot(0, Instant.EPOCH, new JsonArray(),
+            Collections.emptyMap(), Collections.emptyMap(), Collections.emptyList());
+
+    private final long version;
+    private final Instant loadedAt;
+    private final JsonArray races;
+    private final Map<RaceKey, JsonObject> racesByKey;
+    private final Map<RaceKey, Long> raceVersions;
+    private final List<String> nonRunners;
+
+    private RaceSnapshot(long version, Instant loadedAt, JsonArray races, Map<RaceKey, JsonObject> racesByKey,
+            Map<RaceKey, Long> raceVersions, List<String> nonRunners) {
+        this.version = version;
+        this.loadedAt = loadedAt;
+        this.races = races;
+        this.racesByKey = racesByKey;
+        this.raceVersions = raceVersions;
+        this.nonRunners = nonRunners;
+    }
+
+    /**
+     * Builds the snapshot that follows {@code previous} for newly loaded race data.
+     * @param previous The snapshot currently being served.
+     * @param races The freshly loaded and odds-merged races.
+     * @param diff The changes between {@code previous} and {@code races}.
+     * @return The next snapshot, or {@code previous} itself if nothing changed.
+     */
+    static RaceSnapshot next(RaceSnapshot previous, JsonArray races, RaceSnapshotDiff diff) {
+        if (diff.isEmpty()) {
+            return previous;
+        }
+        long version = previous.version + 1;
+        Map<RaceKey, JsonObject> byKey = index(races);
+        Map<RaceKey, Long> raceVersions = new HashMap<>();
+        byKey.keySet().forEach(key -> raceVersions.put(key,
+                diff.touches(key) ? version : previous.raceVersions.getOrDefault(key, version)));
+        return new RaceSnapshot(version, Instant.now(), races, Collections.unmodifiableMap(byKey),
+                Collections.unmodifiableMap(raceVersions), List.copyOf(Util.getNonRunnerList(races)));
+    }
+
+    static Map<RaceKey, JsonObject> index(JsonArray races) {
+        Map<RaceKey, JsonObject> byKey = new LinkedHashMap<>();
+        for (JsonElement element : races) {
+            if (element.isJsonObject()) {
+                JsonObject race = element.getAsJsonObject();
+                RaceKey.of(race).ifPresent(key -> byKey.putIfAbsent(key, race));
+            }
+        }
+        return byKey;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+
+    public JsonArray getRaces() {
+        return races;
+    }
+
+    public Map<RaceKey, JsonObject> getRacesByKey() {
+        return racesByKey;
+    }
+
+    public long getRaceVersion(RaceKey key) {
+        return raceVersions.getOrDefault(key, 0L);
+    }
+
+    public List<String> getNonRunners() {
+        return nonRunners;
+    }
+}
@@ -0,0 +1,32 @@
+package uk.co.kennah.mcp.snapshot;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published after a refresh produced a new snapshot version.
+ */
+public class RaceSnapshotChangedEvent extends ApplicationEvent {
+
+    private final RaceSnapshot previous;
+    private final RaceSnapshot current;
+    private final RaceSnapshotDiff diff;
+
+    public RaceSnapshotChangedEvent(Object source, RaceSnapshot previous, RaceSnapshot current, RaceSnapshotDiff diff) {
+        super(source);
+        this.previous = previous;
+        this.current = current;
+        this.diff = diff;
+    }
+
+    public RaceSnapshot getPrevious() {
+        return previous;
+    }
+
+    public RaceSnapshot getCurrent() {
+        return current;
+    }
+
+    public RaceSnapshotDiff getDiff() {
+        return diff;
+    }
+}
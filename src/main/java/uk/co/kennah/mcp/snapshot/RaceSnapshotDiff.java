@@ -0,0 +1,54 @@
+package uk.co.kennah.mcp.snapshot;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import uk.co.kennah.mcp.utils.Util;
+
+/**
+ * The differences between two consecutive loads of the race data. A race
+ * counts as changed when any of its content differs, which covers price
+ * moves, new non-runners and runner list changes.
+ */
+public record RaceSnapshotDiff(Set<RaceKey> addedRaces, Set<RaceKey> changedRaces, Set<RaceKey> removedRaces,
+        boolean nonRunnersChanged) {
+
+    public static RaceSnapshotDiff between(RaceSnapshot previous, JsonArray races) {
+        Map<RaceKey, JsonObject> before = previous.getRacesByKey();
+        Map<RaceKey, JsonObject> after = RaceSnapshot.index(races);
+
+        Set<RaceKey> added = new LinkedHashSet<>();
+        Set<RaceKey> changed = new LinkedHashSet<>();
+        after.forEach((key, race) -> {
+            JsonObject old = before.get(key);
+            if (old == null) {
+                added.add(key);
+            } else if (!Objects.equals(old, race)) {
+                changed.add(key);
+            }
+        });
+        Set<RaceKey> removed = new LinkedHashSet<>(before.keySet());
+        removed.removeAll(after.keySet());
+
+        List<String> nonRunners = Util.getNonRunnerList(races);
+        boolean nonRunnersChanged = !nonRunners.equals(previous.getNonRunners());
+
+        return new RaceSnapshotDiff(Collections.unmodifiableSet(added), Collections.unmodifiableSet(changed),
+                Collections.unmodifiableSet(removed), nonRunnersChanged);
+    }
+
+    public boolean isEmpty() {
+        return addedRaces.isEmpty() && changedRaces.isEmpty() && removedRaces.isEmpty() && !nonRunnersChanged;
+    }
+
+    public boolean touches(RaceKey key) {
+        return addedRaces.contains(key) || changedRaces.contains(key);
+    }
+}
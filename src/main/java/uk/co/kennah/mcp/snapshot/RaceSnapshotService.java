@@ -0,0 +1,139 @@
+package uk.co.kennah.mcp.snapshot;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.google.gson.JsonElement;
+
+import io.opentelemetry.api.trace.SpanKind;
+import jakarta.annotation.PreDestroy;
+import uk.co.kennah.mcp.gcp.CardReadFailedEvent;
+import uk.co.kennah.mcp.gcp.GCSHorseReader;
+import uk.co.kennah.mcp.gcp.LoadState;
+import uk.co.kennah.mcp.trace.Spans;
+import uk.co.kennah.mcp.trace.TraceSpan;
+
+/**
+ * Periodically reloads the race data and keeps track of the snapshot version.
+ * Listeners are only told about a refresh when it changed something. A failed
+ * read is retried on its own, sooner than the next scheduled refresh, with the
+ * backoff the reader works out; at most one retry is ever pending. That goes
+ * for a failed cold read through the cache too, not only for a refresh.
+ */
+@Component
+public class RaceSnapshotService implements ApplicationListener<CardReadFailedEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(RaceSnapshotService.class);
+
+    @Autowired
+    private GCSHorseReader gcsReader;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private volatile RaceSnapshot current = RaceSnapshot.EMPTY;
+
+    private final ScheduledExecutorService retries = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "card-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> retry;
+
+    public RaceSnapshot getCurrent() {
+        return current;
+    }
+
+    @Scheduled(initialDelayString = "${gcs.refresh.initial-delay:0}", fixedDelayString = "${gcs.refresh.interval:60000}")
+    public synchronized void refresh() {
+        try (TraceSpan span = Spans.startCall("refresh", SpanKind.INTERNAL)) {
+            apply(gcsReader.reloadFileFromGCSAsJson());
+            scheduleRetry(span);
+        }
+    }
+
+    /**
+     * Switches the live card to a day that was loaded ahead of time. The
+     * cache, the card date and the snapshot all move in one step.
+     * @param date The day the staged card is for.
+     * @param stagedRaces The card loaded and validated earlier.
+     */
+    public synchronized void promote(LocalDate date, JsonElement stagedRaces) {
+        apply(gcsReader.rollOverTo(date, stagedRaces));
+    }
+
+    @Override
+    public void onApplicationEvent(CardReadFailedEvent event) {
+        // Scheduled from the retry thread: the failed read still holds the cache
+        // entry, which a refresh holding this service's lock may be waiting on.
+        retries.execute(this::retryFailedRead);
+    }
+
+    private synchronized void retryFailedRead() {
+        try (TraceSpan span = Spans.startCall("retry", SpanKind.INTERNAL)) {
+            scheduleRetry(span);
+        }
+    }
+
+    private void scheduleRetry(TraceSpan span) {
+        LoadState state = gcsReader.getLoadState();
+        if (state.retryAt() == null) {
+            if (retry != null) {
+                retry.cancel(false);
+                retry = null;
+            }
+            return;
+        }
+        span.setAttribute("load.state", state.phase().name());
+        if (retry != null && !retry.isDone()) {
+            return;
+        }
+        long delay = Math.max(0, Duration.between(Instant.now(), state.retryAt()).toMillis());
+        retry = retries.schedule(this::retry, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void retry() {
+        // This retry is running, so the refresh may schedule the next one.
+        retry = null;
+        refresh();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retries.shutdownNow();
+    }
+
+    private void apply(JsonElement data) {
+        if (data == null || !data.isJsonArray()) {
+            logger.warn("Skipping snapshot refresh, race data is not available or in the expected format.");
+            return;
+        }
+        RaceSnapshot previous = current;
+        RaceSnapshotDiff diff = RaceSnapshotDiff.between(previous, data.getAsJsonArray());
+        if (diff.isEmpty()) {
+            logger.debug("Race data unchanged at snapshot version {}", previous.getVersion());
+            if (data != previous.getRaces() && previous.getVersion() > 0) {
+                gcsReader.keepCached(previous.getRaces());
+            }
+            return;
+        }
+        current = RaceSnapshot.next(previous, data.getAsJsonArray(), diff);
+        logger.info("Race snapshot moved to version {}: {} added, {} changed, {} removed races, non-runners changed: {}",
+                current.getVersion(), diff.addedRaces().size(), diff.changedRaces().size(),
+                diff.removedRaces().size(), diff.nonRunnersChanged());
+        eventPublisher.publishEvent(new RaceSnapshotChangedEvent(this, previous, current, diff));
+    }
+}
@@ -0,0 +1,259 @@
+package uk.co.kennah.mcp.snapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import uk.co.kennah.mcp.utils.Util;
+
+/**
+ * The prebuilt binary form of a merged race card, written once by the builder
+ * and mapped by every reader instead of parsing and merging the JSON files.
+ * <p>
+ * Layout, big-endian:
+ * <pre>
+ * header   magic "PLKS", int format, long builtAt (epoch ms), long cardDate (epoch day),
+ *          long racesGeneration, long oddsGeneration, int payloadLength, int payloadCrc32c
+ * payload  int keyCount, keys (int length + UTF-8) - every object member name once
+ *          the races as a tagged tree, object members referring to the keys by index
+ *          int raceCount, int runnerCount, int nonRunnerCount, non-runner names
+ * </pre>
+ * Strings keep their text and numbers their value, as a {@link BigDecimal}, so
+ * a decoded card is equal to the one that was encoded.
+ * <p>
+ * The query indexes (runner columns, race attribute bitmaps, form vectors)
+ * are not part of the artifact. Each is one linear pass over the decoded card
+ * when the snapshot changes, small next to the parse and merge the artifact
+ * saves, and keeping them out means a change to an index's in-memory layout
+ * does not need a new artifact format.
+ */
+public record SnapshotArtifact(Instant builtAt, LocalDate cardDate, long racesGeneration, long oddsGeneration,
+        JsonArray races, int raceCount, int runnerCount, List<String> nonRunners) {
+
+    public static final int FORMAT = 1;
+
+    private static final int MAGIC = 0x504C4B53; // "PLKS"
+    private static final int HEADER_LENGTH = 4 + 4 + 8 + 8 + 8 + 8 + 4 + 4;
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte NUMBER = 3;
+    private static final byte STRING = 4;
+    private static final byte ARRAY = 5;
+    private static final byte OBJECT = 6;
+
+    /**
+     * Builds the artifact for a merged card, working out the aggregates once.
+     */
+    public static SnapshotArtifact of(LocalDate cardDate, long racesGeneration, long oddsGeneration, JsonArray races) {
+        int runners = 0;
+        for (JsonElement race : races) {
+            if (race.isJsonObject() && race.getAsJsonObject().has("horses")
+                    && race.getAsJsonObject().get("horses").isJsonArray()) {
+                runners += race.getAsJsonObject().getAsJsonArray("horses").size();
+            }
+        }
+        return new SnapshotArtifact(Instant.now(), cardDate, racesGeneration, oddsGeneration, races, races.size(),
+                runners, List.copyOf(Util.getNonRunnerList(races)));
+    }
+
+    public byte[] encode() {
+        try {
+            Map<String, Integer> keys = new LinkedHashMap<>();
+            collectKeys(races, keys);
+            ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+            DataOutputStream payload = new DataOutputStream(payloadBytes);
+            payload.writeInt(keys.size());
+            for (String key : keys.keySet()) {
+                writeString(payload, key);
+            }
+            writeElement(payload, races, keys);
+            payload.writeInt(raceCount);
+            payload.writeInt(runnerCount);
+            payload.writeInt(nonRunners.size());
+            for (String name : nonRunners) {
+                writeString(payload, name);
+            }
+            payload.flush();
+            byte[] body = payloadBytes.toByteArray();
+
+            CRC32C crc = new CRC32C();
+            crc.update(body);
+            ByteBuffer out = ByteBuffer.allocate(HEADER_LENGTH + body.length);
+            out.putInt(MAGIC).putInt(FORMAT).putLong(builtAt.toEpochMilli()).putLong(cardDate.toEpochDay())
+                    .putLong(racesGeneration).putLong(oddsGeneration).putInt(body.length).putInt((int) crc.getValue())
+                    .put(body);
+            return out.array();
+        } catch (IOException e) {
+            // Only written to memory.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Reads an artifact, checking the format and the checksum before decoding.
+     * @param buffer The artifact, typically a read-only mapping of the file.
+     * @throws IOException If it is not an artifact, is of another format or is corrupt.
+     */
+    public static SnapshotArtifact decode(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.remaining() < HEADER_LENGTH || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a race snapshot artifact");
+            }
+            int format = buffer.getInt();
+            if (format != FORMAT) {
+                throw new IOException("Unsupported snapshot artifact format " + format + ", expected " + FORMAT);
+            }
+            Instant builtAt = Instant.ofEpochMilli(buffer.getLong());
+            LocalDate cardDate = LocalDate.ofEpochDay(buffer.getLong());
+            long racesGeneration = buffer.getLong();
+            long oddsGeneration = buffer.getLong();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length != buffer.remaining()) {
+                throw new IOException("Snapshot artifact is truncated: " + buffer.remaining() + " of " + length + " bytes");
+            }
+            ByteBuffer payload = buffer.slice();
+            CRC32C crc = new CRC32C();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Snapshot artifact checksum mismatch");
+            }
+
+            String[] keys = new String[payload.getInt()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = readString(payload);
+            }
+            JsonElement races = readElement(payload, keys);
+            if (!races.isJsonArray()) {
+                throw new IOException("Snapshot artifact does not hold a race array");
+            }
+            int raceCount = payload.getInt();
+            int runnerCount = payload.getInt();
+            int nonRunnerCount = payload.getInt();
+            List<String> nonRunners = new ArrayList<>(nonRunnerCount);
+            for (int i = 0; i < nonRunnerCount; i++) {
+                nonRunners.add(readString(payload));
+            }
+            return new SnapshotArtifact(builtAt, cardDate, racesGeneration, oddsGeneration, races.getAsJsonArray(),
+                    raceCount, runnerCount, List.copyOf(nonRunners));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Snapshot artifact is malformed: " + e, e);
+        }
+    }
+
+    private static void collectKeys(JsonElement element, Map<String, Integer> keys) {
+        if (element.isJsonArray()) {
+            element.getAsJsonArray().forEach(child -> collectKeys(child, keys));
+        } else if (element.isJsonObject()) {
+            for (Map.Entry<String, JsonElement> member : element.getAsJsonObject().entrySet()) {
+                keys.putIfAbsent(member.getKey(), keys.size());
+                collectKeys(member.getValue(), keys);
+            }
+        }
+    }
+
+    private static void writeElement(DataOutputStream out, JsonElement element, Map<String, Integer> keys)
+            throws IOException {
+        if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            out.writeByte(ARRAY);
+            out.writeInt(array.size());
+            for (JsonElement child : array) {
+                writeElement(out, child, keys);
+            }
+        } else if (element.isJsonObject()) {
+            JsonObject object = element.getAsJsonObject();
+            out.writeByte(OBJECT);
+            out.writeInt(object.size());
+            for (Map.Entry<String, JsonElement> member : object.entrySet()) {
+                out.writeInt(keys.get(member.getKey()));
+                writeElement(out, member.getValue(), keys);
+            }
+        } else if (element.isJsonNull()) {
+            out.writeByte(NULL);
+        } else {
+            JsonPrimitive primitive = element.getAsJsonPrimitive();
+            if (primitive.isBoolean()) {
+                out.writeByte(primitive.getAsBoolean() ? TRUE : FALSE);
+            } else if (primitive.isNumber()) {
+                out.writeByte(NUMBER);
+                writeString(out, primitive.getAsString());
+            } else {
+                out.writeByte(STRING);
+                writeString(out, primitive.getAsString());
+            }
+        }
+    }
+
+    private static JsonElement readElement(ByteBuffer in, String[] keys) throws IOException {
+        byte tag = in.get();
+        switch (tag) {
+            case NULL:
+                return JsonNull.INSTANCE;
+            case TRUE:
+                return new JsonPrimitive(true);
+            case FALSE:
+                return new JsonPrimitive(false);
+            case NUMBER:
+                return new JsonPrimitive(new BigDecimal(readString(in)));
+            case STRING:
+                return new JsonPrimitive(readString(in));
+            case ARRAY: {
+                int size = in.getInt();
+                JsonArray array = new JsonArray(size);
+                for (int i = 0; i < size; i++) {
+                    array.add(readElement(in, keys));
+                }
+                return array;
+            }
+            case OBJECT: {
+                int size = in.getInt();
+                JsonObject object = new JsonObject();
+                for (int i = 0; i < size; i++) {
+                    String key = keys[in.getInt()];
+                    object.add(key, readElement(in, keys));
+                }
+                return object;
+            }
+            default:
+                throw new IOException("Unknown element tag " + tag + " in snapshot artifact");
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (in.hasArray()) {
+            String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,65 @@
+package uk.co.kennah.mcp.snapshot;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import uk.co.kennah.mcp.gcp.GCSHorseReader;
+import uk.co.kennah.mcp.source.RaceDataSource;
+import uk.co.kennah.mcp.source.RaceObject;
+
+/**
+ * The builder role ({@code race.snapshot.role=builder}). Every time the merged
+ * card changes it is encoded once as a {@link SnapshotArtifact} and written
+ * back next to the race files, for the reader replicas to pick up.
+ */
+@Component
+@ConditionalOnProperty(name = "race.snapshot.role", havingValue = "builder")
+public class SnapshotArtifactPublisher implements ApplicationListener<RaceSnapshotChangedEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotArtifactPublisher.class);
+
+    @Value("${race.snapshot.artifact:races-{date}.snapshot}")
+    private String artifactName;
+
+    @Autowired
+    private GCSHorseReader gcsReader;
+
+    @Autowired
+    private RaceDataSource dataSource;
+
+    @Override
+    public void onApplicationEvent(RaceSnapshotChangedEvent event) {
+        publish(event.getCurrent());
+    }
+
+    /**
+     * Encodes and writes the artifact for a snapshot. A failed write is logged
+     * and retried on the next change; readers keep serving the previous artifact.
+     */
+    public void publish(RaceSnapshot snapshot) {
+        LocalDate date = gcsReader.getCardDate();
+        String name = gcsReader.objectName(artifactName, date);
+        try {
+            SnapshotArtifact artifact = SnapshotArtifact.of(date, generation(gcsReader.racesObjectName(date)),
+                    generation(gcsReader.oddsObjectName(date)), snapshot.getRaces());
+            byte[] content = artifact.encode();
+            dataSource.write(name, content);
+            logger.info("Published snapshot artifact '{}' to {}: {} races, {} runners, {} bytes", name,
+                    dataSource.describe(), artifact.raceCount(), artifact.runnerCount(), content.length);
+        } catch (IOException e) {
+            logger.error("Could not publish snapshot artifact '{}' to {}", name, dataSource.describe(), e);
+        }
+    }
+
+    private long generation(String name) throws IOException {
+        return dataSource.find(name).map(RaceObject::generation).orElse(0L);
+    }
+}
@@ -0,0 +1,72 @@
+package uk.co.kennah.mcp.snapshot;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import uk.co.kennah.mcp.source.RaceDataSource;
+import uk.co.kennah.mcp.source.RaceObject;
+
+/**
+ * The reader role ({@code race.snapshot.role=reader}). Instead of parsing the
+ * race and odds files and merging them, a replica maps the artifact the
+ * builder published and decodes it. When the artifact has not been replaced
+ * since the last load, the previous card is returned without reading anything.
+ */
+@Component
+@ConditionalOnProperty(name = "race.snapshot.role", havingValue = "reader")
+public class SnapshotArtifactReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotArtifactReader.class);
+
+    @Value("${race.snapshot.artifact:races-{date}.snapshot}")
+    private String artifactName;
+
+    @Autowired
+    private RaceDataSource dataSource;
+
+    private volatile Loaded last;
+
+    private record Loaded(String name, long generation, SnapshotArtifact artifact) {}
+
+    /**
+     * @param name The artifact object name for the day, with any {@code {date}} already resolved.
+     * @param date The card date the artifact must be for.
+     * @return The artifact for that day.
+     * @throws IOException If it is missing, for another day, or fails its checks.
+     */
+    public SnapshotArtifact load(String name, LocalDate date) throws IOException {
+        Optional<RaceObject> object = dataSource.find(name);
+        if (object.isEmpty()) {
+            throw new IOException("Snapshot artifact '" + name + "' not found in " + dataSource.describe());
+        }
+        Loaded previous = last;
+        SnapshotArtifact artifact;
+        if (previous != null && previous.name().equals(name) && previous.generation() == object.get().generation()) {
+            logger.debug("Snapshot artifact '{}' is unchanged at generation {}", name, previous.generation());
+            artifact = previous.artifact();
+        } else {
+            long start = System.nanoTime();
+            artifact = SnapshotArtifact.decode(object.get().map());
+            last = new Loaded(name, object.get().generation(), artifact);
+            logger.info("Loaded snapshot artifact '{}' built at {}: {} races, {} runners in {} ms", name,
+                    artifact.builtAt(), artifact.raceCount(), artifact.runnerCount(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+        if (!artifact.cardDate().equals(date)) {
+            throw new IOException("Snapshot artifact '" + name + "' is for " + artifact.cardDate() + ", not " + date);
+        }
+        return artifact;
+    }
+
+    public String getArtifactName() {
+        return artifactName;
+    }
+}
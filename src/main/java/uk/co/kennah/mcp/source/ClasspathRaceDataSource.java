@@ -0,0 +1,62 @@
+package uk.co.kennah.mcp.source;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads the race files from the classpath, so tests can run the real read,
+ * parse and odds merge against fixtures without GCS.
+ */
+@Component
+@ConditionalOnProperty(name = "race.source.type", havingValue = "classpath")
+public class ClasspathRaceDataSource implements RaceDataSource {
+
+    @Value("${race.source.classpath.location:races/}")
+    private String location;
+
+    @Override
+    public Optional<RaceObject> find(String name) throws IOException {
+        ClassPathResource resource = new ClassPathResource(location + name);
+        if (!resource.exists()) {
+            return Optional.empty();
+        }
+        return Optional.of(new ClasspathObject(name, resource));
+    }
+
+    @Override
+    public String describe() {
+        return "classpath location '" + location + "'";
+    }
+
+    private record ClasspathObject(String name, ClassPathResource resource) implements RaceObject {
+
+        @Override
+        public long size() {
+            try {
+                return resource.contentLength();
+            } catch (IOException e) {
+                return -1;
+            }
+        }
+
+        @Override
+        public long generation() {
+            try {
+                return resource.lastModified();
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            return resource.getInputStream();
+        }
+    }
+}
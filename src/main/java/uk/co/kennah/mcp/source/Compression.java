@@ -0,0 +1,63 @@
+package uk.co.kennah.mcp.source;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+import com.github.luben.zstd.ZstdInputStreamNoFinalizer;
+
+/**
+ * How a race or odds object is stored. The card's form history repeats the
+ * same keys, dates and ratings thousands of times, so it compresses several
+ * times over. Compressed objects are decoded as a stream on the way into the
+ * parser; neither the compressed nor the decoded bytes are held in full.
+ */
+public enum Compression {
+
+    NONE,
+    GZIP,
+    ZSTD;
+
+    // gzip's own default is 512 bytes, far too small for reading a card.
+    private static final int GZIP_BUFFER = 64 * 1024;
+
+    /**
+     * Works out how an object is stored, from its content encoding if the
+     * source has one, otherwise from its extension (.gz or .zst).
+     * @param name The object name.
+     * @param contentEncoding The stored Content-Encoding, or null if there is none.
+     */
+    public static Compression of(String name, String contentEncoding) {
+        if (contentEncoding != null && !contentEncoding.isBlank()) {
+            switch (contentEncoding.trim().toLowerCase(Locale.ROOT)) {
+                case "gzip", "x-gzip":
+                    return GZIP;
+                case "zstd":
+                    return ZSTD;
+                default:
+                    break;
+            }
+        }
+        String lower = name.toLowerCase(Locale.ROOT);
+        if (lower.endsWith(".gz") || lower.endsWith(".gzip")) {
+            return GZIP;
+        }
+        if (lower.endsWith(".zst") || lower.endsWith(".zstd")) {
+            return ZSTD;
+        }
+        return NONE;
+    }
+
+    /**
+     * Wraps a stream of the stored bytes in one that reads them decoded.
+     * Closing the returned stream closes the one given.
+     */
+    public InputStream decode(InputStream stored) throws IOException {
+        return switch (this) {
+            case NONE -> stored;
+            case GZIP -> new GZIPInputStream(stored, GZIP_BUFFER);
+            case ZSTD -> new ZstdInputStreamNoFinalizer(stored);
+        };
+    }
+}
@@ -0,0 +1,164 @@
+package uk.co.kennah.mcp.source;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import com.google.cloud.ReadChannel;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.StorageException;
+
+/**
+ * Reads the race files from the GCS bucket. This is the default source.
+ * <p>
+ * With {@code gcs.download.ranged} set, objects of {@code gcs.download.min-size}
+ * bytes or more are read as concurrent byte ranges, see {@link RangedDownload}.
+ */
+@Component
+@ConditionalOnProperty(name = "race.source.type", havingValue = "gcs", matchIfMissing = true)
+public class GcsRaceDataSource implements RaceDataSource {
+
+    @Value("${gcs.bucket.name}")
+    private String bucket;
+
+    @Value("${gcs.download.ranged:false}")
+    private boolean ranged;
+
+    @Value("${gcs.download.min-size:16777216}")
+    private long rangedMinSize;
+
+    @Value("${gcs.download.chunk-size:8388608}")
+    private int chunkSize;
+
+    @Value("${gcs.download.parallelism:4}")
+    private int parallelism;
+
+    @Value("${gcs.download.max-direct-bytes:268435456}")
+    private long maxDirectBytes;
+
+    @Autowired
+    private Storage storage;
+
+    private RangedDownload rangedDownload;
+
+    @PostConstruct
+    void init() {
+        if (ranged) {
+            rangedDownload = new RangedDownload(chunkSize, parallelism, maxDirectBytes);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (rangedDownload != null) {
+            rangedDownload.shutdown();
+        }
+    }
+
+    @Override
+    public Optional<RaceObject> find(String name) throws IOException {
+        try {
+            Blob blob = storage.get(BlobId.of(bucket, name));
+            if (blob == null || !blob.exists()) {
+                return Optional.empty();
+            }
+            return Optional.of(new GcsObject(blob, rangedDownload != null && blob.getSize() != null
+                    && blob.getSize() >= rangedMinSize ? rangedDownload : null));
+        } catch (StorageException e) {
+            throw new IOException("Error reading from GCS: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void write(String name, byte[] content) throws IOException {
+        try {
+            storage.create(BlobInfo.newBuilder(BlobId.of(bucket, name)).setContentType("application/octet-stream").build(),
+                    content);
+        } catch (StorageException e) {
+            throw new IOException("Error writing to GCS: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String describe() {
+        return "GCS bucket '" + bucket + "'";
+    }
+
+    /**
+     * @param ranges How to read the whole object in ranges, or null to stream it.
+     */
+    private record GcsObject(Blob blob, RangedDownload ranges) implements RaceObject {
+
+        @Override
+        public String name() {
+            return blob.getName();
+        }
+
+        @Override
+        public long size() {
+            return blob.getSize() != null ? blob.getSize() : -1;
+        }
+
+        @Override
+        public long generation() {
+            return blob.getGeneration() != null ? blob.getGeneration() : 0;
+        }
+
+        @Override
+        public String contentEncoding() {
+            return blob.getContentEncoding();
+        }
+
+        @Override
+        public String crc32c() {
+            return blob.getCrc32c();
+        }
+
+        @Override
+        public InputStream openStream() throws IOException {
+            if (ranges != null) {
+                return new ByteBufferInputStream(ranges.download(this));
+            }
+            try {
+                // Stream the blob rather than pulling the whole content into a byte array first. Ask for
+                // the bytes as stored, so a gzip-encoded blob crosses the network compressed and is decoded here.
+                return Channels.newInputStream(blob.reader(Blob.BlobSourceOption.shouldReturnRawInputStream(true)));
+            } catch (StorageException e) {
+                throw new IOException("Error reading from GCS: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public ByteBuffer map() throws IOException {
+            return ranges != null ? ranges.download(this) : RaceObject.super.map();
+        }
+
+        @Override
+        public ReadableByteChannel openRange(long offset, long length) throws IOException {
+            try {
+                // Each range only matches the generation that was looked up. If the object is replaced meanwhile the
+                // range fails with 412 (404 without object versioning) rather than mixing bytes of two generations.
+                ReadChannel channel = blob.reader(Blob.BlobSourceOption.shouldReturnRawInputStream(true),
+                        Blob.BlobSourceOption.generationMatch());
+                channel.seek(offset);
+                return channel.limit(offset + length);
+            } catch (StorageException e) {
+                throw new IOException("Error reading from GCS: " + e.getMessage(), e);
+            }
+        }
+    }
+}
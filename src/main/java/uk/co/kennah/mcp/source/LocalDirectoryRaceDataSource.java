@@ -0,0 +1,85 @@
+package uk.co.kennah.mcp.source;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reads the race files from a local directory, for replicas that sync the
+ * bucket to disk and for offline and load testing. Files are memory-mapped,
+ * so loading does no network I/O and no extra copy into the Java heap.
+ */
+@Component
+@ConditionalOnProperty(name = "race.source.type", havingValue = "local")
+public class LocalDirectoryRaceDataSource implements RaceDataSource {
+
+    @Value("${race.source.local.directory}")
+    private String directory;
+
+    @Override
+    public Optional<RaceObject> find(String name) throws IOException {
+        Path root = Paths.get(directory).toAbsolutePath().normalize();
+        Path file = root.resolve(name).normalize();
+        if (!file.startsWith(root) || !Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        return Optional.of(new LocalFile(name, file, Files.size(file), Files.getLastModifiedTime(file).toMillis()));
+    }
+
+    /**
+     * Writes to a temporary file and moves it into place, so readers never
+     * see a partly written file and existing mappings keep the old content.
+     */
+    @Override
+    public void write(String name, byte[] content) throws IOException {
+        Path root = Paths.get(directory).toAbsolutePath().normalize();
+        Path file = root.resolve(name).normalize();
+        if (!file.startsWith(root)) {
+            throw new IOException("'" + name + "' is outside " + describe());
+        }
+        Path temp = file.resolveSibling("." + file.getFileName() + ".tmp");
+        try {
+            Files.write(temp, content);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public String describe() {
+        return "local directory '" + directory + "'";
+    }
+
+    private record LocalFile(String name, Path path, long size, long generation) implements RaceObject {
+
+        @Override
+        public InputStream openStream() throws IOException {
+            return new ByteBufferInputStream(map());
+        }
+
+        @Override
+        public ByteBuffer map() throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                // The mapping stays valid after the channel is closed.
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package uk.co.kennah.mcp.source;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Where the race and odds files are read from. Exactly one implementation is
+ * active, chosen with {@code race.source.type} (gcs, local or classpath).
+ */
+public interface RaceDataSource {
+
+    /**
+     * Looks up a race or odds file by name.
+     * @param name The object name, e.g. todays.txt.
+     * @return The object, or empty if it does not exist.
+     * @throws IOException If the source could not be reached.
+     */
+    Optional<RaceObject> find(String name) throws IOException;
+
+    /**
+     * Stores an object, replacing any existing one of the same name. Used by
+     * the snapshot builder to publish its artifact.
+     * @param name The object name.
+     * @param content The full content.
+     * @throws IOException If the write failed or the source is read-only.
+     */
+    default void write(String name, byte[] content) throws IOException {
+        throw new IOException(describe() + " is read-only");
+    }
+
+    /**
+     * @return A short description for log and error messages, e.g. "GCS bucket 'x'".
+     */
+    String describe();
+}
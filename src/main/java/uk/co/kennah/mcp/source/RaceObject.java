@@ -0,0 +1,80 @@
+package uk.co.kennah.mcp.source;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A single race or odds file as found in a {@link RaceDataSource}.
+ */
+public interface RaceObject {
+
+    String name();
+
+    /**
+     * @return The size in bytes, or -1 if the source does not know it.
+     */
+    long size();
+
+    /**
+     * @return A number that changes whenever the content is replaced, such as
+     * the GCS generation or the file's modification time.
+     */
+    long generation();
+
+    /**
+     * @return The stored Content-Encoding, such as gzip, or null if the source
+     * has none and only the extension tells how the object is stored.
+     */
+    default String contentEncoding() {
+        return null;
+    }
+
+    /**
+     * @return The CRC32C of the stored bytes as base64 of the four bytes
+     * big-endian, as GCS reports it, or null if the source has none.
+     */
+    default String crc32c() {
+        return null;
+    }
+
+    default Compression compression() {
+        return Compression.of(name(), contentEncoding());
+    }
+
+    /**
+     * Opens the content for reading, as stored: a compressed object is not
+     * decoded, see {@link #compression()}. The caller closes the stream.
+     */
+    InputStream openStream() throws IOException;
+
+    /**
+     * Reads the whole content into a buffer in one sequential pass. Sources
+     * backed by local files map them instead of copying.
+     */
+    default ByteBuffer map() throws IOException {
+        try (InputStream in = openStream()) {
+            return ByteBuffer.wrap(in.readAllBytes());
+        }
+    }
+
+    /**
+     * Opens part of the stored content, for {@link RangedDownload}. Sources
+     * that can fetch a range directly override this; by default the stream
+     * is opened and read up to the range.
+     * @param offset The first byte.
+     * @param length The most bytes the caller will read.
+     */
+    default ReadableByteChannel openRange(long offset, long length) throws IOException {
+        InputStream in = openStream();
+        try {
+            in.skipNBytes(offset);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return Channels.newChannel(in);
+    }
+}
@@ -0,0 +1,185 @@
+package uk.co.kennah.mcp.source;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Downloads a large object as several byte ranges at once instead of one
+ * sequential stream, which on a big card is bound by a single connection's
+ * throughput rather than the network's. The ranges are written straight into
+ * their place in one direct buffer, or above {@code maxDirectBytes} into a
+ * temporary file that is then mapped, and the whole content is checked
+ * against the object's CRC32C before anything is parsed.
+ */
+public class RangedDownload {
+
+    private static final Logger logger = LoggerFactory.getLogger(RangedDownload.class);
+
+    private static final int ATTEMPTS = 3;
+
+    private final int chunkSize;
+    private final long maxDirectBytes;
+    private final ExecutorService ranges;
+
+    /**
+     * @param chunkSize The bytes in each range.
+     * @param parallelism How many ranges are read at once.
+     * @param maxDirectBytes The largest object reassembled in a direct buffer; larger ones go to a temporary file.
+     */
+    public RangedDownload(int chunkSize, int parallelism, long maxDirectBytes) {
+        if (chunkSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("Chunk size and parallelism must be at least 1");
+        }
+        this.chunkSize = chunkSize;
+        this.maxDirectBytes = maxDirectBytes;
+        AtomicInteger threads = new AtomicInteger();
+        this.ranges = Executors.newFixedThreadPool(parallelism, task -> {
+            Thread thread = new Thread(task, "ranged-read-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Reads the whole object, range by range.
+     * @param object An object whose {@link RaceObject#size()} is known.
+     * @return The content, positioned at 0.
+     * @throws IOException If a range could not be read after retrying, or the
+     * content does not match the object's CRC32C.
+     */
+    public ByteBuffer download(RaceObject object) throws IOException {
+        long size = object.size();
+        if (size < 0) {
+            throw new IOException("The size of '" + object.name() + "' is not known, it cannot be read in ranges");
+        }
+        long start = System.nanoTime();
+        ByteBuffer content;
+        if (size <= Math.min(maxDirectBytes, Integer.MAX_VALUE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+            readRanges(object, size, (offset, length) -> {
+                ByteBuffer slice = buffer.duplicate().position((int) offset).limit((int) (offset + length)).slice();
+                fill(object, offset, slice);
+            });
+            content = buffer;
+        } else {
+            content = viaTempFile(object, size);
+        }
+        verify(object, content);
+        logger.info("Read '{}' ({} bytes) in {} ranges of up to {} bytes in {} ms", object.name(), size,
+                (size + chunkSize - 1) / chunkSize, chunkSize, (System.nanoTime() - start) / 1_000_000);
+        return content;
+    }
+
+    public void shutdown() {
+        ranges.shutdownNow();
+    }
+
+    @FunctionalInterface
+    private interface RangeReader {
+        void read(long offset, int length) throws IOException;
+    }
+
+    private void readRanges(RaceObject object, long size, RangeReader reader) throws IOException {
+        List<Future<?>> pending = new ArrayList<>();
+        for (long offset = 0; offset < size; offset += chunkSize) {
+            long from = offset;
+            int length = (int) Math.min(chunkSize, size - offset);
+            pending.add(ranges.submit(() -> {
+                for (int attempt = 1; ; attempt++) {
+                    try {
+                        reader.read(from, length);
+                        return null;
+                    } catch (IOException e) {
+                        if (attempt == ATTEMPTS) {
+                            throw e;
+                        }
+                        logger.warn("Reading bytes {} to {} of '{}' failed, retrying: {}", from, from + length,
+                                object.name(), e.getMessage());
+                    }
+                }
+            }));
+        }
+        try {
+            for (Future<?> range : pending) {
+                range.get();
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io
+                    : new IOException("Error reading '" + object.name() + "': " + e.getCause(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted reading '" + object.name() + "'", e);
+        } finally {
+            pending.forEach(range -> range.cancel(true));
+        }
+    }
+
+    private ByteBuffer viaTempFile(RaceObject object, long size) throws IOException {
+        Path temp = Files.createTempFile("race-", ".part");
+        try (FileChannel file = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE)) {
+            readRanges(object, size, (offset, length) -> {
+                ByteBuffer chunk = ByteBuffer.allocate(length);
+                fill(object, offset, chunk);
+                chunk.flip();
+                while (chunk.hasRemaining()) {
+                    file.write(chunk, offset + chunk.position());
+                }
+            });
+            // The mapping stays valid once the channel is closed and the file deleted.
+            return file.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void fill(RaceObject object, long offset, ByteBuffer into) throws IOException {
+        int length = into.remaining();
+        try (ReadableByteChannel channel = object.openRange(offset, length)) {
+            while (into.hasRemaining()) {
+                if (channel.read(into) < 0) {
+                    throw new IOException("'" + object.name() + "' ended " + into.remaining()
+                            + " bytes early in the range from " + offset);
+                }
+            }
+        }
+    }
+
+    private static void verify(RaceObject object, ByteBuffer content) throws IOException {
+        String expected = object.crc32c();
+        if (expected == null) {
+            logger.debug("'{}' has no CRC32C to check against", object.name());
+            return;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(content.duplicate());
+        String actual = encode(crc.getValue());
+        if (!actual.equals(expected)) {
+            throw new IOException("CRC32C of '" + object.name() + "' is " + actual + " but should be " + expected);
+        }
+    }
+
+    /**
+     * @return A CRC32C the way GCS reports it: base64 of the four bytes, big-endian.
+     */
+    public static String encode(long crc32c) {
+        return Base64.getEncoder().encodeToString(ByteBuffer.allocate(4).putInt((int) crc32c).array());
+    }
+}
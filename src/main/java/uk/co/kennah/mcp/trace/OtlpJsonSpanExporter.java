@@ -0,0 +1,200 @@
+package uk.co.kennah.mcp.trace;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+/**
+ * Exports spans in the OTLP/JSON encoding, either appended to a file as one
+ * export request per line (the format the OpenTelemetry Collector's
+ * otlpjsonfile receiver reads) or posted to an OTLP/HTTP endpoint such as a
+ * local Collector or Jaeger on port 4318.
+ */
+public class OtlpJsonSpanExporter implements SpanExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(OtlpJsonSpanExporter.class);
+
+    private final Path file;
+    private final URI endpoint;
+    private final HttpClient client;
+
+    private OtlpJsonSpanExporter(Path file, URI endpoint) {
+        this.file = file;
+        this.endpoint = endpoint;
+        this.client = endpoint == null ? null : HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    }
+
+    public static OtlpJsonSpanExporter toFile(Path file) {
+        return new OtlpJsonSpanExporter(file, null);
+    }
+
+    public static OtlpJsonSpanExporter toEndpoint(URI endpoint) {
+        return new OtlpJsonSpanExporter(null, endpoint);
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+        String request = encode(spans).toString();
+        if (file != null) {
+            return writeLine(request);
+        }
+        CompletableResultCode result = new CompletableResultCode();
+        HttpRequest post = HttpRequest.newBuilder(endpoint)
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(request))
+                .build();
+        client.sendAsync(post, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            if (error == null && response.statusCode() / 100 == 2) {
+                result.succeed();
+            } else {
+                logger.warn("Could not export {} spans to {}: {}", spans.size(), endpoint,
+                        error != null ? error.toString() : "HTTP " + response.statusCode());
+                result.fail();
+            }
+        });
+        return result;
+    }
+
+    private synchronized CompletableResultCode writeLine(String request) {
+        try {
+            Files.writeString(file, request + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            logger.warn("Could not write spans to {}: {}", file, e.toString());
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    /**
+     * @return An ExportTraceServiceRequest in the OTLP/JSON mapping, the spans
+     * grouped by resource and then by instrumentation scope.
+     */
+    static JsonObject encode(Collection<SpanData> spans) {
+        Map<Resource, Map<InstrumentationScopeInfo, List<SpanData>>> grouped = new LinkedHashMap<>();
+        for (SpanData span : spans) {
+            grouped.computeIfAbsent(span.getResource(), r -> new LinkedHashMap<>())
+                    .computeIfAbsent(span.getInstrumentationScopeInfo(), s -> new ArrayList<>())
+                    .add(span);
+        }
+        JsonArray resourceSpans = new JsonArray();
+        grouped.forEach((resource, byScope) -> {
+            JsonArray scopeSpans = new JsonArray();
+            byScope.forEach((scope, scopeData) -> {
+                JsonObject scopeJson = new JsonObject();
+                scopeJson.addProperty("name", scope.getName());
+                if (scope.getVersion() != null) {
+                    scopeJson.addProperty("version", scope.getVersion());
+                }
+                JsonArray spanArray = new JsonArray();
+                scopeData.forEach(span -> spanArray.add(encode(span)));
+                JsonObject entry = new JsonObject();
+                entry.add("scope", scopeJson);
+                entry.add("spans", spanArray);
+                scopeSpans.add(entry);
+            });
+            JsonObject resourceJson = new JsonObject();
+            resourceJson.add("attributes", attributes(resource.getAttributes()));
+            JsonObject entry = new JsonObject();
+            entry.add("resource", resourceJson);
+            entry.add("scopeSpans", scopeSpans);
+            resourceSpans.add(entry);
+        });
+        JsonObject request = new JsonObject();
+        request.add("resourceSpans", resourceSpans);
+        return request;
+    }
+
+    private static JsonObject encode(SpanData span) {
+        JsonObject json = new JsonObject();
+        json.addProperty("traceId", span.getTraceId());
+        json.addProperty("spanId", span.getSpanId());
+        if (span.getParentSpanContext().isValid()) {
+            json.addProperty("parentSpanId", span.getParentSpanId());
+        }
+        json.addProperty("name", span.getName());
+        // OTLP numbers the kinds from 1 in the same order: internal, server, client, producer, consumer.
+        json.addProperty("kind", span.getKind().ordinal() + 1);
+        json.addProperty("startTimeUnixNano", Long.toString(span.getStartEpochNanos()));
+        json.addProperty("endTimeUnixNano", Long.toString(span.getEndEpochNanos()));
+        json.add("attributes", attributes(span.getAttributes()));
+        if (!span.getEvents().isEmpty()) {
+            JsonArray events = new JsonArray();
+            for (EventData event : span.getEvents()) {
+                JsonObject eventJson = new JsonObject();
+                eventJson.addProperty("timeUnixNano", Long.toString(event.getEpochNanos()));
+                eventJson.addProperty("name", event.getName());
+                eventJson.add("attributes", attributes(event.getAttributes()));
+                events.add(eventJson);
+            }
+            json.add("events", events);
+        }
+        StatusCode code = span.getStatus().getStatusCode();
+        if (code != StatusCode.UNSET) {
+            JsonObject status = new JsonObject();
+            status.addProperty("code", code == StatusCode.OK ? 1 : 2);
+            if (!span.getStatus().getDescription().isEmpty()) {
+                status.addProperty("message", span.getStatus().getDescription());
+            }
+            json.add("status", status);
+        }
+        return json;
+    }
+
+    private static JsonArray attributes(Attributes attributes) {
+        JsonArray array = new JsonArray();
+        attributes.forEach((key, value) -> {
+            JsonObject typed = new JsonObject();
+            switch (key.getType()) {
+                case BOOLEAN -> typed.addProperty("boolValue", (Boolean) value);
+                // int64 values are strings in the OTLP/JSON mapping.
+                case LONG -> typed.addProperty("intValue", value.toString());
+                case DOUBLE -> typed.addProperty("doubleValue", (Double) value);
+                default -> typed.addProperty("stringValue", value.toString());
+            }
+            JsonObject attribute = new JsonObject();
+            attribute.addProperty("key", key.getKey());
+            attribute.add("value", typed);
+            array.add(attribute);
+        });
+        return array;
+    }
+}
@@ -0,0 +1,83 @@
+package uk.co.kennah.mcp.trace;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+/**
+ * Logs a one line breakdown of any call slower than the threshold, so the
+ * slow stage is visible in the log without an exporter or trace viewer:
+ * <pre>
+ * Slow call tool get_top_rated took 1840.2 ms [trace 4bf9...]: fetch 1838.9, load 1838.7, read 1203.1, parse 611.0, merge 20.4, lookup 0.3, compute 0.6
+ * </pre>
+ * Stages end before their call, so they are held per trace until it ends.
+ */
+class SlowCallLogger implements SpanProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowCallLogger.class);
+    // Traces whose call never ends (or that a crash cut short) must not pile up.
+    private static final int MAX_OPEN_TRACES = 1000;
+
+    private final long thresholdNanos;
+    private final Map<String, Queue<SpanData>> stages = new ConcurrentHashMap<>();
+
+    SlowCallLogger(long thresholdMillis) {
+        this.thresholdNanos = thresholdMillis * 1_000_000;
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return false;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        String traceId = span.getSpanContext().getTraceId();
+        if (span.getParentSpanContext().isValid()) {
+            if (stages.size() >= MAX_OPEN_TRACES && !stages.containsKey(traceId)) {
+                stages.clear();
+            }
+            stages.computeIfAbsent(traceId, id -> new ConcurrentLinkedQueue<>()).add(span.toSpanData());
+            return;
+        }
+        Queue<SpanData> children = stages.remove(traceId);
+        long duration = span.getLatencyNanos();
+        if (duration >= thresholdNanos) {
+            logger.warn("Slow call {} took {} ms [trace {}]: {}", span.getName(), millis(duration), traceId,
+                    children == null ? "no stages recorded" : breakdown(List.copyOf(children)));
+        }
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    private static String breakdown(List<SpanData> children) {
+        return children.stream()
+                .sorted(Comparator.comparingLong(SpanData::getStartEpochNanos))
+                .map(stage -> stage.getName() + " " + millis(stage.getEndEpochNanos() - stage.getStartEpochNanos()))
+                .collect(Collectors.joining(", "));
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,87 @@
+package uk.co.kennah.mcp.trace;
+
+import java.util.function.Supplier;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.trace.IdGenerator;
+
+/**
+ * Static entry point for spans, so {@code Util} and other static helpers can
+ * mark their stages without a tracer being passed in. Until
+ * {@link TracingConfig} installs the real tracer, spans are no-ops.
+ * <p>
+ * A span opened while another is current on the thread becomes its child:
+ * <pre>
+ * try (TraceSpan span = Spans.start("lookup")) {
+ *     ...
+ * }
+ * </pre>
+ */
+public final class Spans {
+
+    public static final String INSTRUMENTATION_NAME = "uk.co.kennah.mcp";
+
+    private static volatile Tracer tracer = OpenTelemetry.noop().getTracer(INSTRUMENTATION_NAME);
+
+    private Spans() {
+    }
+
+    static void install(Tracer installed) {
+        tracer = installed;
+    }
+
+    /**
+     * Opens a span for a stage of the current call.
+     */
+    public static TraceSpan start(String name) {
+        return new TraceSpan(tracer.spanBuilder(name).startSpan());
+    }
+
+    /**
+     * Opens the span for a whole call, a tool call, REST request or scheduled
+     * job. It only has a parent when the call arrives inside another, such as
+     * a tool call over HTTP. The trace id is in the MDC while any span is
+     * open, so the call's log lines can be matched to the trace.
+     */
+    public static TraceSpan startCall(String name, SpanKind kind) {
+        return new TraceSpan(tracer.spanBuilder(name).setSpanKind(kind).startSpan());
+    }
+
+    /**
+     * Runs work inside a span and returns its result.
+     */
+    public static <T> T call(String name, Supplier<T> work) {
+        try (TraceSpan span = start(name)) {
+            return work.get();
+        }
+    }
+
+    /**
+     * Runs work under a parent that is not sampled, so the spans it opens are
+     * neither recorded nor exported. For internal work, such as the start-up
+     * warm-up, that would otherwise bury the real calls.
+     */
+    public static void untraced(Runnable work) {
+        IdGenerator ids = IdGenerator.random();
+        Span parent = Span.wrap(SpanContext.create(ids.generateTraceId(), ids.generateSpanId(), TraceFlags.getDefault(),
+                TraceState.getDefault()));
+        try (Scope scope = parent.makeCurrent()) {
+            work.run();
+        }
+    }
+
+    /**
+     * @return The trace id of the current call, or null outside one.
+     */
+    public static String currentTraceId() {
+        var context = Span.current().getSpanContext();
+        return context.isValid() ? context.getTraceId() : null;
+    }
+}
@@ -0,0 +1,77 @@
+package uk.co.kennah.mcp.trace;
+
+import org.slf4j.MDC;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Scope;
+
+/**
+ * An open span that is current on this thread until it is closed. Closing
+ * ends the span and restores whatever was current before.
+ */
+public final class TraceSpan implements AutoCloseable {
+
+    /** The MDC key the logback patterns print. */
+    public static final String MDC_TRACE_ID = "traceId";
+
+    private final Span span;
+    private final Scope scope;
+    private final String previousTraceId;
+
+    TraceSpan(Span span) {
+        this.span = span;
+        this.scope = span.makeCurrent();
+        this.previousTraceId = MDC.get(MDC_TRACE_ID);
+        String traceId = span.getSpanContext().isValid() ? span.getSpanContext().getTraceId() : null;
+        if (traceId != null && !traceId.equals(previousTraceId)) {
+            MDC.put(MDC_TRACE_ID, traceId);
+        }
+    }
+
+    public TraceSpan setAttribute(String key, String value) {
+        if (value != null) {
+            span.setAttribute(key, value);
+        }
+        return this;
+    }
+
+    public TraceSpan setAttribute(String key, long value) {
+        span.setAttribute(key, value);
+        return this;
+    }
+
+    public TraceSpan setAttribute(String key, boolean value) {
+        span.setAttribute(key, value);
+        return this;
+    }
+
+    /**
+     * Marks the span as failed, for errors that are handled rather than thrown.
+     */
+    public TraceSpan setError(String message) {
+        span.setStatus(StatusCode.ERROR, message);
+        return this;
+    }
+
+    public TraceSpan recordException(Throwable e) {
+        span.recordException(e);
+        span.setStatus(StatusCode.ERROR, String.valueOf(e.getMessage()));
+        return this;
+    }
+
+    public String getTraceId() {
+        return span.getSpanContext().getTraceId();
+    }
+
+    @Override
+    public void close() {
+        span.end();
+        scope.close();
+        if (previousTraceId == null) {
+            MDC.remove(MDC_TRACE_ID);
+        } else {
+            MDC.put(MDC_TRACE_ID, previousTraceId);
+        }
+    }
+}
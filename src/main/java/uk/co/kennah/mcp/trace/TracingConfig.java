@@ -0,0 +1,73 @@
+package uk.co.kennah.mcp.trace;
+
+import java.net.URI;
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SdkTracerProviderBuilder;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+
+/**
+ * Sets up the tracer behind {@link Spans}. Every call is traced; where the
+ * spans go is set by {@code tracing.export}:
+ * <ul>
+ * <li>{@code none} - only the slow call breakdown in the log</li>
+ * <li>{@code file} - OTLP/JSON lines appended to {@code tracing.file}</li>
+ * <li>{@code otlp} - OTLP/HTTP JSON posted to {@code tracing.otlp.endpoint}</li>
+ * </ul>
+ */
+@Configuration
+public class TracingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(TracingConfig.class);
+
+    @Value("${tracing.export:none}")
+    private String export;
+
+    @Value("${tracing.file:traces.jsonl}")
+    private String file;
+
+    @Value("${tracing.otlp.endpoint:http://localhost:4318/v1/traces}")
+    private String endpoint;
+
+    @Value("${tracing.slow-call-ms:1000}")
+    private long slowCallMillis;
+
+    @Value("${tracing.service-name:pluckier-mcp}")
+    private String serviceName;
+
+    @Bean(destroyMethod = "shutdown")
+    public SdkTracerProvider tracerProvider() {
+        SdkTracerProviderBuilder builder = SdkTracerProvider.builder()
+                .setResource(Resource.getDefault().merge(
+                        Resource.create(Attributes.of(AttributeKey.stringKey("service.name"), serviceName))));
+        if (slowCallMillis > 0) {
+            builder.addSpanProcessor(new SlowCallLogger(slowCallMillis));
+        }
+        switch (export) {
+            case "file" -> {
+                logger.info("Exporting traces to {}", Path.of(file).toAbsolutePath());
+                builder.addSpanProcessor(BatchSpanProcessor.builder(OtlpJsonSpanExporter.toFile(Path.of(file))).build());
+            }
+            case "otlp" -> {
+                logger.info("Exporting traces to {}", endpoint);
+                builder.addSpanProcessor(BatchSpanProcessor.builder(OtlpJsonSpanExporter.toEndpoint(URI.create(endpoint))).build());
+            }
+            case "none" -> {
+            }
+            default -> logger.warn("Unknown tracing.export '{}', traces will not be exported", export);
+        }
+        SdkTracerProvider provider = builder.build();
+        Spans.install(provider.get(Spans.INSTRUMENTATION_NAME));
+        return provider;
+    }
+}
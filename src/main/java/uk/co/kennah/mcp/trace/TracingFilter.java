@@ -0,0 +1,57 @@
+package uk.co.kennah.mcp.trace;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import io.opentelemetry.api.trace.SpanKind;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Opens a span for each REST request (and MCP message over HTTP) and returns
+ * its trace id in the {@value #TRACE_HEADER} header, so a slow response can be
+ * looked up in the log or the trace viewer.
+ */
+@Component
+@Profile("!stdio")
+public class TracingFilter extends OncePerRequestFilter {
+
+    public static final String TRACE_HEADER = "X-Trace-Id";
+
+    @Value("${spring.ai.mcp.server.sse-endpoint:/sse}")
+    private String sseEndpoint;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        // The SSE stream and the log viewer's socket stay open for hours, and static files are not worth a trace.
+        return path.equals(sseEndpoint) || path.startsWith("/ws/") || path.equals("/") || path.contains(".");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        try (TraceSpan span = Spans.startCall(request.getMethod() + " " + path, SpanKind.SERVER)
+                .setAttribute("http.request.method", request.getMethod())
+                .setAttribute("url.path", path)) {
+            response.setHeader(TRACE_HEADER, span.getTraceId());
+            try {
+                chain.doFilter(request, response);
+            } catch (IOException | ServletException | RuntimeException e) {
+                span.recordException(e);
+                throw e;
+            }
+            span.setAttribute("http.response.status_code", response.getStatus());
+            if (response.getStatus() >= 500) {
+                span.setError("HTTP " + response.getStatus());
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package uk.co.kennah.mcp.utils;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Rough retained sizes of the data we hold, for the admin status. Assumes a
+ * 64-bit JVM with compressed references and compact strings, which is what we
+ * run on. Good for spotting a card that has doubled in size, not for exact
+ * accounting.
+ */
+public final class HeapEstimate {
+
+    private static final int HEADER = 12;
+    private static final int REF = 4;
+    private static final int ARRAY_HEADER = 16;
+
+    // Gson's JsonObject wraps a LinkedTreeMap, each member is a tree node with 7 references and 2 ints.
+    private static final int JSON_OBJECT = align(HEADER + REF) + align(HEADER + 4 * REF + 3 * 4);
+    private static final int JSON_OBJECT_MEMBER = align(HEADER + 7 * REF + 2 * 4);
+    // JsonArray wraps an ArrayList.
+    private static final int JSON_ARRAY = align(HEADER + REF) + align(HEADER + 2 * 4 + REF) + ARRAY_HEADER;
+    private static final int JSON_PRIMITIVE = align(HEADER + REF);
+    // Numbers parse to a LazilyParsedNumber holding the original text.
+    private static final int LAZY_NUMBER = align(HEADER + REF);
+
+    private HeapEstimate() {
+    }
+
+    /**
+     * @return The estimated bytes held by a JSON tree. Keys and primitives are
+     * counted once per instance, so a freshly parsed tree, where Gson gives
+     * every occurrence its own copy, costs more than one built with shared
+     * values such as {@code CompactCard.toJson()}.
+     */
+    public static long of(JsonElement root) {
+        long bytes = 0;
+        Set<Object> counted = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<JsonElement> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            JsonElement element = pending.pop();
+            if (element.isJsonObject()) {
+                bytes += JSON_OBJECT;
+                for (Map.Entry<String, JsonElement> member : element.getAsJsonObject().entrySet()) {
+                    bytes += JSON_OBJECT_MEMBER;
+                    if (counted.add(member.getKey())) {
+                        bytes += of(member.getKey());
+                    }
+                    pending.push(member.getValue());
+                }
+            } else if (element.isJsonArray()) {
+                // ArrayList grows by half, so on average a quarter of the slots are spare.
+                int size = element.getAsJsonArray().size();
+                bytes += JSON_ARRAY + align((long) REF * (size + size / 4));
+                element.getAsJsonArray().forEach(pending::push);
+            } else if (element.isJsonPrimitive() && counted.add(element)) {
+                JsonPrimitive primitive = element.getAsJsonPrimitive();
+                bytes += JSON_PRIMITIVE;
+                if (primitive.isString()) {
+                    bytes += of(primitive.getAsString());
+                } else if (primitive.isNumber()) {
+                    bytes += LAZY_NUMBER + of(primitive.getAsString());
+                }
+                // Booleans are the shared Boolean constants.
+            }
+            // JsonNull is a singleton.
+        }
+        return bytes;
+    }
+
+    /**
+     * @return The estimated bytes of a Latin-1 string and its backing array.
+     */
+    public static long of(String value) {
+        if (value == null) {
+            return 0;
+        }
+        return align(HEADER + REF + 4 + 2) + align(ARRAY_HEADER + (long) value.length());
+    }
+
+    /**
+     * @return The estimated bytes of a string array and the strings in it.
+     */
+    public static long of(String[] values) {
+        long bytes = array(values.length, REF);
+        for (String value : values) {
+            bytes += of(value);
+        }
+        return bytes;
+    }
+
+    /**
+     * @return The estimated bytes of a primitive array.
+     */
+    public static long array(int length, int elementBytes) {
+        return align(ARRAY_HEADER + (long) length * elementBytes);
+    }
+
+    private static int align(int bytes) {
+        return (bytes + 7) & ~7;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -10,24 +10,29 @@ import java.time.format.DateTimeFormatter;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.IntSummaryStatistics;
+import java.util.List;
 import java.util.Optional;
-import java.util.OptionalDouble;
-import java.util.OptionalInt;
 import java.util.Set;
-import java.util.function.Function;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import uk.co.kennah.mcp.gcp.GCSHorseReader;
+import uk.co.kennah.mcp.rating.RaceRatings;
+import uk.co.kennah.mcp.rating.RatingEvaluator;
+import uk.co.kennah.mcp.rating.RatingStrategies;
+import uk.co.kennah.mcp.rating.RatingStrategy;
+import uk.co.kennah.mcp.trace.Spans;
+import uk.co.kennah.mcp.trace.TraceSpan;
 
 public class Util {
     // Local record for temporary data holding
     private record HorseAverageRating(String name, double average) {}
 
     public static JsonArray getCachedRaceData(GCSHorseReader gcsReader) {
-        JsonElement jsonElement = gcsReader.readFileFromGCSAsJson();
+        JsonElement jsonElement = Spans.call("fetch", gcsReader::readFileFromGCSAsJson);
         if (jsonElement == null || !jsonElement.isJsonArray()) {
             // This case will be handled by the calling methods if they receive null.
             return null;
@@ -38,7 +43,7 @@ public class Util {
     public static String getOdds(String time, String place, GCSHorseReader gcsReader) {
         return Util.findRace(time, place, gcsReader)
                 .map(race -> {
-                    String odds = getOddsForRace(race);
+                    String odds = Spans.call("serialise", () -> getOddsForRace(race));
                     if (odds.isEmpty()) {
                         return "No runners found for the race at " + place + " at " + time;
                     }
@@ -73,11 +78,13 @@ public class Util {
         if (races == null) {
             return Optional.empty();
         }
-        return StreamSupport.stream(races.spliterator(), false)
-                .map(JsonElement::getAsJsonObject)
-                .filter(race -> race.get("place").getAsString().equalsIgnoreCase(place)
-                        && race.get("time").getAsString().equals(time))
-                .findFirst();
+        try (TraceSpan span = Spans.start("lookup")) {
+            return StreamSupport.stream(races.spliterator(), false)
+                    .map(JsonElement::getAsJsonObject)
+                    .filter(race -> race.get("place").getAsString().equalsIgnoreCase(place)
+                            && race.get("time").getAsString().equals(time))
+                    .findFirst();
+        }
     }
 
     public static double calculateAverageRating(JsonObject horse, Optional<Integer> limit) {
@@ -100,7 +107,7 @@ public class Util {
     public static String findHorseByAverageRating(String time, String place, GCSHorseReader gcsReader,
             Optional<Integer> limit, boolean findMax, String description, String failureMessage) {
         return Util.findRace(time, place, gcsReader)
-                .map(race -> {
+                .map(race -> Spans.call("compute", () -> {
                     Stream<HorseAverageRating> ratingsStream = StreamSupport
                             .stream(race.getAsJsonArray("horses").spliterator(), false)
                             .map(JsonElement::getAsJsonObject)
@@ -121,85 +128,67 @@ public class Util {
                             .map(horse -> description + " for the " + time + " at " + place + " is: " + horse.name()
                                     + " with an average rating of " + String.format("%.2f", horse.average()))
                             .orElse(failureMessage + " for the race at " + place + " at " + time);
-                })
+                }))
                 .orElse("Could not find the race at " + place + " at " + time);
     }
 
-    public static String findNap(GCSHorseReader gcsReader, Predicate<JsonObject> raceFilter, String successMessage,
-            String failureMessage) {
-        JsonArray races = getCachedRaceData(gcsReader);
-        if (races == null) {
-            return "Error: Race data is not available or in the expected format.";
-        }
-
-        // Local record for holding candidate horses
-        record NapCandidate(String horseName, String time, String place, double averageRating) {
-        }
-
-        Optional<NapCandidate> bestBet = StreamSupport.stream(races.spliterator(), false)
-                .map(JsonElement::getAsJsonObject)
-                .filter(race -> race.has("horses") && race.get("horses").isJsonArray())
-                .filter(raceFilter) // Apply the specific filter
-                .flatMap(race -> {
-                    String time = race.get("time").getAsString();
-                    String place = race.get("place").getAsString();
-                    return StreamSupport.stream(race.getAsJsonArray("horses").spliterator(), false)
-                            .map(JsonElement::getAsJsonObject)
-                            .filter(Util::isRunner)
-                            .map(horse -> {
-                                double average = Util.calculateAverageRating(horse, Optional.of(3));
-                                return new NapCandidate(horse.get("name").getAsString(), time, place, average);
-                            });
-                })
-                .filter(candidate -> candidate.averageRating() >= 0)
-                .max(Comparator.comparingDouble(NapCandidate::averageRating));
-
-        return bestBet
-                .map(nap -> String.format(successMessage,
-                        nap.horseName(), nap.time(), nap.place(), nap.averageRating()))
-                .orElse(failureMessage);
-    }
-
     /**
      * A generic helper method to calculate and format win percentages for a race
      * based on a given rating strategy.
      *
+     * @param strategy How each runner's rating is worked out from its form.
      * @param time The time of the race.
      * @param place The location of the race.
      * @param gcsReader The GCSReader to fetch race data.
-     * @param ratingStrategy A function that takes a horse JsonObject and returns an integer rating.
      * @return A formatted string with the win percentages, or an error message.
      */
-    private static String findRaceWinPercentages(String id, String time, String place, GCSHorseReader gcsReader, Function<JsonObject, Integer> ratingStrategy) {
-        // Local record for temporary data holding
-        record HorseRating(String name, int rating) {}
-
+    private static String findRaceWinPercentages(RatingStrategy strategy, String time, String place, GCSHorseReader gcsReader) {
         return Util.findRace(time, place, gcsReader)
                 .map(race -> {
-                    java.util.List<HorseRating> horseRatings = StreamSupport.stream(race.getAsJsonArray("horses").spliterator(), false)
-                        .map(JsonElement::getAsJsonObject)
-                        .filter(Util::isRunner)
-                        .map(horse -> {
-                            String horseName = horse.get("name").getAsString();
-                            if (!horse.has("past") || !horse.get("past").isJsonArray()) {
-                                return new HorseRating(horseName, 0);
-                            }
-                            return new HorseRating(horseName, ratingStrategy.apply(horse));
-                        })
-                        .collect(Collectors.toList());
-
-                    long totalRatingPool = horseRatings.stream().mapToLong(HorseRating::rating).sum();
+                    RaceRatings ratings = Spans.call("compute", () -> RatingEvaluator.evaluate(race, List.of(strategy)));
+                    long totalRatingPool = ratings.total(0);
 
                     if (totalRatingPool == 0) {
                         return "No rating data available to calculate win percentages for the race at " + place + " at " + time;
                     }
 
-                    return "Win percentages ("+ id +") for the " + time + " at " + place + ": " + horseRatings.stream().sorted(Comparator.comparing(HorseRating::rating).reversed()).map(hr -> String.format("%s: %.2f%%", hr.name(), (hr.rating() / (double) totalRatingPool) * 100)).collect(Collectors.joining(", "));
+                    return Spans.call("serialise", () -> "Win percentages ("+ strategy.description() +") for the " + time + " at " + place + ": " + IntStream.of(ratings.ranked(0)).mapToObj(runner -> String.format("%s: %.2f%%", ratings.runners().get(runner), (ratings.ratings()[runner][0] / (double) totalRatingPool) * 100)).collect(Collectors.joining(", ")));
+                })
+                .orElse("Could not find the race at " + place + " at " + time);
+    }
+
+    /**
+     * Works out the win percentages for a race under several rating strategies
+     * at once, reading each runner's form a single time.
+     *
+     * @param strategies The strategies to show, the runners are ordered by the first.
+     * @return One line per runner with a percentage for each strategy, or an error message.
+     */
+    public static String findRaceWinPercentages(String time, String place, GCSHorseReader gcsReader, List<RatingStrategy> strategies) {
+        return Util.findRace(time, place, gcsReader)
+                .map(race -> {
+                    RaceRatings ratings = Spans.call("compute", () -> RatingEvaluator.evaluate(race, strategies));
+                    long[] totals = IntStream.range(0, strategies.size()).mapToLong(ratings::total).toArray();
+                    if (LongStream.of(totals).allMatch(total -> total == 0)) {
+                        return "No rating data available to calculate win percentages for the race at " + place + " at " + time;
+                    }
+                    return Spans.call("serialise", () -> "Win percentages for the " + time + " at " + place + " ("
+                            + strategies.stream().map(RatingStrategy::description).collect(Collectors.joining(" | ")) + "):\n"
+                            + IntStream.of(ratings.ranked(0))
+                                    .mapToObj(runner -> ratings.runners().get(runner) + ": " + IntStream.range(0, totals.length)
+                                            .mapToObj(strategy -> totals[strategy] == 0 ? "n/a"
+                                                    : String.format("%.2f%%", ratings.ratings()[runner][strategy] / (double) totals[strategy] * 100))
+                                            .collect(Collectors.joining(" | ")))
+                                    .collect(Collectors.joining("\n")));
                 })
                 .orElse("Could not find the race at " + place + " at " + time);
     }
 
     public static String getNonRunners(JsonArray races) {
+        return String.join(", ", getNonRunnerList(races));
+    }
+
+    public static List<String> getNonRunnerList(JsonArray races) {
         return StreamSupport.stream(races.spliterator(), false)
                 .map(JsonElement::getAsJsonObject)
                 .filter(race -> race.has("time") && race.has("place") && race.has("horses") && race.get("horses").isJsonArray())
@@ -211,30 +200,30 @@ public class Util {
                             .filter(horse -> horse.has("odds") && !horse.get("odds").isJsonNull() && horse.get("odds").isJsonPrimitive() && "NR".equalsIgnoreCase(horse.get("odds").getAsString()))
                             .map(horse -> String.format("%s at %s: %s", time, place, horse.get("name").getAsString()));
                 })
-                .collect(Collectors.joining(", "));
+                .collect(Collectors.toList());
     }
 
     public static String findRaceWinPercentagesFromLastOne(String time, String place, GCSHorseReader gcsReader) {
-        return findRaceWinPercentages("latest run", time, place, gcsReader, horse -> (int) Util.getAverageFromLastPastRating(horse).orElse(0));
+        return findRaceWinPercentages(RatingStrategies.LAST_ONE, time, place, gcsReader);
     }
 
     public static String findRaceWinPercentagesFromLastThree(String time, String place, GCSHorseReader gcsReader) {
-        return findRaceWinPercentages("last 3 runs", time, place, gcsReader, horse -> (int) Util.getAverageFromThreePastRating(horse).orElse(0));
+        return findRaceWinPercentages(RatingStrategies.LAST_THREE, time, place, gcsReader);
     }
 
     public static String findRaceWinPercentagesFromBestEver(String time, String place, GCSHorseReader gcsReader) {
-        return findRaceWinPercentages("best run", time, place, gcsReader, horse -> Util.getMaxRating(horse).orElse(0));
+        return findRaceWinPercentages(RatingStrategies.BEST_EVER, time, place, gcsReader);
     }
 
     public static String findRaceWinPercentagesFromAll(String time, String place, GCSHorseReader gcsReader) {
-        return findRaceWinPercentages("all runs", time, place, gcsReader, horse -> (int) Util.getAverageFromAllPastRating(horse).orElse(0));
+        return findRaceWinPercentages(RatingStrategies.ALL_RUNS, time, place, gcsReader);
     }
 
     public static String findBestMostRecentRatedHorse(String time, String place, GCSHorseReader gcsReader) {
         // Local record for temporary data holding
         record HorseRecentRating(String name, int rating) {}
         return Util.findRace(time, place, gcsReader)
-                .map(race -> StreamSupport.stream(race.getAsJsonArray("horses").spliterator(), false)
+                .map(race -> Spans.call("compute", () -> StreamSupport.stream(race.getAsJsonArray("horses").spliterator(), false)
                         .map(JsonElement::getAsJsonObject)
                         .filter(Util::isRunner)
                         .map(horse -> {
@@ -249,7 +238,7 @@ public class Util {
                         .max(Comparator.comparingInt(HorseRecentRating::rating))
                         .map(top -> "Horse with best most recent rating for the " + time + " at " + place + " is: " + top.name()
                                 + " with a rating of " + top.rating())
-                        .orElse("No horses with a recent rating found for the race at " + place + " at " + time))
+                        .orElse("No horses with a recent rating found for the race at " + place + " at " + time)))
                 .orElse("Could not find the race at " + place + " at " + time);
     }
 
@@ -259,7 +248,7 @@ public class Util {
         record HorseRating(String name, int rating) {}
 
         return Util.findRace(time, place, gcsReader)
-                .map(race -> StreamSupport.stream(race.getAsJsonArray("horses").spliterator(), false)
+                .map(race -> Spans.call("compute", () -> StreamSupport.stream(race.getAsJsonArray("horses").spliterator(), false)
                         .map(JsonElement::getAsJsonObject)
                         .filter(Util::isRunner)
                         .filter(horse -> horse.has("past") && horse.get("past").isJsonArray())
@@ -269,11 +258,11 @@ public class Util {
                                 .map(form -> new HorseRating(horse.get("name").getAsString(), form.get("name").getAsInt())))
                         .max(Comparator.comparingInt(HorseRating::rating))
                         .map(top -> "Top Rated for the " + time + " at " + place + " is: " + top.name() + " with a rating of " + top.rating())
-                        .orElse("No rated horses found for the race at " + place + " at " + time))
+                        .orElse("No rated horses found for the race at " + place + " at " + time)))
                 .orElse("Could not find the race at " + place + " at " + time);
     }
 
-    private static boolean isRunner(JsonObject horse) {
+    public static boolean isRunner(JsonObject horse) {
         // A horse is a non-runner only if its odds are explicitly "NR".
         if (horse.has("odds")) {
             JsonElement oddsElement = horse.get("odds");
@@ -328,40 +317,6 @@ public class Util {
                                     .max(Comparator.comparing(form -> LocalDate.parse(form.get("date").getAsString(), DateTimeFormatter.ofPattern("dd/MM/yyyy"))));
     }
 
-    public static OptionalDouble getAverageFromLastPastRating(JsonObject horse){
-        return StreamSupport.stream(horse.getAsJsonArray("past").spliterator(), false)
-                                        .map(JsonElement::getAsJsonObject)
-                                        .limit(1)
-                                        .filter(form -> form.has("name") && form.get("name").isJsonPrimitive())
-                                        .mapToInt(form -> form.get("name").getAsInt())
-                                        .average();
-    }
-
-    public static OptionalDouble getAverageFromAllPastRating(JsonObject horse){
-        return StreamSupport.stream(horse.getAsJsonArray("past").spliterator(), false)
-                                        .map(JsonElement::getAsJsonObject)
-                                        .filter(form -> form.has("name") && form.get("name").isJsonPrimitive())
-                                        .mapToInt(form -> form.get("name").getAsInt())
-                                        .average();
-    }
-
-    public static OptionalDouble getAverageFromThreePastRating(JsonObject horse){
-        return StreamSupport.stream(horse.getAsJsonArray("past").spliterator(), false)
-                                        .map(JsonElement::getAsJsonObject)
-                                        .limit(3)
-                                        .filter(form -> form.has("name") && form.get("name").isJsonPrimitive())
-                                        .mapToInt(form -> form.get("name").getAsInt())
-                                        .average();
-    }
-
-    public static OptionalInt getMaxRating(JsonObject horse){
-        return StreamSupport.stream(horse.getAsJsonArray("past").spliterator(), false)
-                                        .map(JsonElement::getAsJsonObject)
-                                        .filter(form -> form.has("name") && form.get("name").isJsonPrimitive())
-                                        .mapToInt(form -> form.get("name").getAsInt())
-                                        .max();
-    }
-
     public static Optional<JsonObject> getSimpleHorseOptional(Optional<JsonObject> raceOptional, String horseName){
         return StreamSupport.stream(raceOptional.get().getAsJsonArray("horses").spliterator(), false)
                 .map(JsonElement::getAsJsonObject)
@@ -425,7 +380,7 @@ public class Util {
     public static String findAllRunners(String time, String place, GCSHorseReader gcsReader) {
         return Util.findRace(time, place, gcsReader)
                 .map(race -> {
-                    String runners = Util.getRunners(race);
+                    String runners = Spans.call("serialise", () -> Util.getRunners(race));
                     return runners.isEmpty() ? "No runners found for the race at " + place + " at " + time
                             : "Runners for the " + time + " at " + place + ": " + runners;
                 })
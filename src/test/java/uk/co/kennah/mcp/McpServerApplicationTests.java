@@ -8,14 +8,20 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.web.servlet.MockMvc;
 import uk.co.kennah.mcp.gcp.GCSHorseReader;
+import uk.co.kennah.mcp.gcp.LoadState;
+import uk.co.kennah.mcp.snapshot.RaceSnapshotService;
 
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest(properties = {
-		"spring.cache.type=none"
+		"spring.cache.type=none",
+		"spring.ai.mcp.server.stdio=false"
 })
 @AutoConfigureMockMvc
 class McpServerApplicationTests {
@@ -26,6 +32,9 @@ class McpServerApplicationTests {
 	@MockBean
 	private GCSHorseReader gcsReader;
 
+	@Autowired
+	private RaceSnapshotService snapshotService;
+
 	@Test
 	void getMeetingsEndpointShouldReturnMeetingList() throws Exception {
 		// Arrange: Define the mock data that the GCSReader should return.
@@ -46,7 +55,7 @@ class McpServerApplicationTests {
 
 	@Test
 	void getNapOfTheDayShouldReturnBestBet() throws Exception {
-		// Arrange: Define the mock data that the GCSReader should return.
+		// Arrange: Define the race data the snapshot should be loaded from.
 		String mockJsonData = """
             [
               {"time": "14:05", "place": "Ascot", "detail": "(CLASS 4) (3yo+)", "horses": [
@@ -59,7 +68,10 @@ class McpServerApplicationTests {
               ]}
             ]
             """;
-		when(gcsReader.readFileFromGCSAsJson()).thenReturn(JsonParser.parseString(mockJsonData));
+		// The nap is worked out from the runner columns of the current snapshot.
+		when(gcsReader.reloadFileFromGCSAsJson()).thenReturn(JsonParser.parseString(mockJsonData));
+		when(gcsReader.getLoadState()).thenReturn(LoadState.LOADING);
+		snapshotService.refresh();
 
 		// Act & Assert: Perform a GET request to the /nap-of-the-day endpoint and verify the response.
 		mockMvc.perform(get("/nap-of-the-day"))
@@ -67,4 +79,31 @@ class McpServerApplicationTests {
 				.andExpect(content().string("The nap of the day is GoodHorse in the 14:05 at Ascot, with a recent average rating of 100.00."));
 	}
 
+	@Test
+	void getMeetingsEndpointShouldAnswerNotModifiedForCurrentETag() throws Exception {
+		// Arrange: Load a snapshot so the endpoints have a version to validate against.
+		String mockJsonData = """
+            [
+                {"place": "Ascot", "time": "13:50", "horses": []},
+                {"place": "York", "time": "14:00", "horses": []}
+            ]
+            """;
+		when(gcsReader.reloadFileFromGCSAsJson()).thenReturn(JsonParser.parseString(mockJsonData));
+		when(gcsReader.readFileFromGCSAsJson()).thenReturn(JsonParser.parseString(mockJsonData));
+		when(gcsReader.getLoadState()).thenReturn(LoadState.LOADING);
+		snapshotService.refresh();
+
+		// Act & Assert: The first request gets a full body and an ETag, the revalidation gets a 304.
+		String etag = mockMvc.perform(get("/meetings"))
+				.andExpect(status().isOk())
+				.andExpect(header().exists("ETag"))
+				.andReturn().getResponse().getHeader("ETag");
+
+		mockMvc.perform(get("/meetings").header("If-None-Match", etag))
+				.andExpect(status().isNotModified());
+
+		// The 304 is answered without reading the race data again.
+		verify(gcsReader, times(1)).readFileFromGCSAsJson();
+	}
+
 }
@@ -0,0 +1,125 @@
+package uk.co.kennah.mcp.admin;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import uk.co.kennah.mcp.gcp.LoadState;
+import uk.co.kennah.mcp.limit.AdmissionControl;
+import uk.co.kennah.mcp.limit.LimitStats;
+
+/**
+ * Drives the admin endpoints through MockMvc, with the operations they
+ * trigger mocked, to check the token is enforced before anything is done.
+ */
+@ExtendWith(MockitoExtension.class)
+class AdminControllerTest {
+
+    private static final String TOKEN = "race-day";
+
+    @Mock
+    private RaceDataAdmin admin;
+
+    @Mock
+    private AdmissionControl admission;
+
+    @InjectMocks
+    private AdminController controller;
+
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(controller, "token", TOKEN);
+        mvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void aMissingOrWrongTokenIsRejectedBeforeAnythingIsDone() throws Exception {
+        mvc.perform(get("/admin/status")).andExpect(status().isUnauthorized());
+        mvc.perform(get("/admin/limits").header(AdminController.TOKEN_HEADER, "guess")).andExpect(status().isUnauthorized());
+        mvc.perform(post("/admin/reload")).andExpect(status().isUnauthorized());
+        mvc.perform(post("/admin/reload").header(AdminController.TOKEN_HEADER, TOKEN + " "))
+                .andExpect(status().isUnauthorized());
+        mvc.perform(post("/admin/cache/clear").header(AdminController.TOKEN_HEADER, "")).andExpect(status().isUnauthorized());
+
+        verifyNoInteractions(admin, admission);
+    }
+
+    @Test
+    void reloadStartsOneReloadAtATime() throws Exception {
+        when(admin.reload()).thenReturn(true, false);
+
+        mvc.perform(post("/admin/reload").header(AdminController.TOKEN_HEADER, TOKEN))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(true))
+                .andExpect(jsonPath("$.message").value("Reload started, see /admin/status for the outcome."));
+        mvc.perform(post("/admin/reload").header(AdminController.TOKEN_HEADER, TOKEN))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.accepted").value(false));
+    }
+
+    @Test
+    void cacheClearEvictsTheNamedCacheOrRefusesAnUnknownOne() throws Exception {
+        when(admin.clear("raceData")).thenReturn(List.of("raceData"));
+        when(admin.clear("odds")).thenThrow(new IllegalArgumentException("Unknown cache 'odds'"));
+
+        mvc.perform(post("/admin/cache/clear").param("name", "raceData").header(AdminController.TOKEN_HEADER, TOKEN))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.cleared[0]").value("raceData"))
+                .andExpect(jsonPath("$.message").value("Cleared raceData and started a reload."));
+        mvc.perform(post("/admin/cache/clear").param("name", "odds").header(AdminController.TOKEN_HEADER, TOKEN))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.accepted").value(false))
+                .andExpect(jsonPath("$.message").value("Unknown cache 'odds'"));
+
+        verify(admin).clear("raceData");
+    }
+
+    @Test
+    void statusAndLimitsReportWhatTheServerHolds() throws Exception {
+        when(admin.status()).thenReturn(new AdminStatus(LocalDate.of(2026, 10, 19), LoadState.LOADING, null, null, null,
+                null, null, List.of(), null, Map.of(), null, null));
+        when(admission.getStats()).thenReturn(new LimitStats(true, 12, Map.of(), Map.of(), 1, 0, 16, 64, 0.5, 3, 4));
+
+        mvc.perform(get("/admin/status").header(AdminController.TOKEN_HEADER, TOKEN))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.loadState.phase").value("LOADING"))
+                .andExpect(jsonPath("$.feeds").isEmpty());
+        mvc.perform(get("/admin/limits").header(AdminController.TOKEN_HEADER, TOKEN))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.admitted").value(12))
+                .andExpect(jsonPath("$.maxConcurrent").value(16));
+    }
+
+    @Test
+    void withoutATokenConfiguredOnlyTheReadOnlyEndpointsAnswer() throws Exception {
+        ReflectionTestUtils.setField(controller, "token", "");
+        when(admission.getStats()).thenReturn(new LimitStats(true, 0, Map.of(), Map.of(), 0, 0, 16, 64, 0, 0, 0));
+
+        mvc.perform(get("/admin/limits")).andExpect(status().isOk());
+        mvc.perform(post("/admin/reload")).andExpect(status().isForbidden());
+        mvc.perform(post("/admin/reload").header(AdminController.TOKEN_HEADER, "")).andExpect(status().isForbidden());
+        mvc.perform(post("/admin/cache/clear").param("name", "raceData")).andExpect(status().isForbidden());
+
+        verifyNoInteractions(admin);
+    }
+}
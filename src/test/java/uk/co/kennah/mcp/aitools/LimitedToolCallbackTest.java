@@ -0,0 +1,80 @@
+package uk.co.kennah.mcp.aitools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.model.ToolContext;
+import org.springframework.ai.mcp.McpToolUtils;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.definition.ToolDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.modelcontextprotocol.server.McpAsyncServerExchange;
+import io.modelcontextprotocol.server.McpSyncServerExchange;
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpServerSession;
+import uk.co.kennah.mcp.limit.AdmissionControl;
+import uk.co.kennah.mcp.limit.AdmissionRejectedException;
+
+class LimitedToolCallbackTest {
+
+    @Test
+    void agentsRunningTheSameClientEachGetTheirOwnLimits() {
+        AdmissionControl admission = new AdmissionControl();
+        ReflectionTestUtils.setField(admission, "enabled", true);
+        ReflectionTestUtils.setField(admission, "clientRate", 0.001);
+        ReflectionTestUtils.setField(admission, "clientBurst", 1);
+        ReflectionTestUtils.setField(admission, "toolRate", 0.001);
+        ReflectionTestUtils.setField(admission, "toolBurst", 1);
+        ReflectionTestUtils.setField(admission, "maxConcurrent", 4);
+        ReflectionTestUtils.setField(admission, "maxQueued", 0);
+        ReflectionTestUtils.setField(admission, "queueWaitMillis", 10L);
+        admission.init();
+        LimitedToolCallback callback = (LimitedToolCallback) LimitedToolCallback.wrap(admission, new Echo()).get(0);
+
+        // Each session has its own client info, even when the values are the same.
+        McpAsyncServerExchange first = session();
+        McpAsyncServerExchange second = session();
+
+        // The server makes a new exchange for every call, the session's client info stays the same.
+        assertEquals(callback.client(context(first)), callback.client(context(first)));
+        assertNotEquals(callback.client(context(first)), callback.client(context(second)));
+        assertEquals("claude-ai#", callback.client(context(first)).replaceAll("\\d", ""));
+
+        assertEquals("{}", callback.call("{}", context(first)));
+        assertThrows(AdmissionRejectedException.class, () -> callback.call("{}", context(first)));
+        assertEquals("{}", callback.call("{}", context(second)));
+    }
+
+    private static McpAsyncServerExchange session() {
+        return new McpAsyncServerExchange(mock(McpServerSession.class), new McpSchema.ClientCapabilities(null, null, null),
+                new McpSchema.Implementation("claude-ai", "1.0"));
+    }
+
+    private static ToolContext context(McpAsyncServerExchange session) {
+        return new ToolContext(Map.of(McpToolUtils.TOOL_CONTEXT_MCP_EXCHANGE_KEY, new McpSyncServerExchange(session)));
+    }
+
+    private static class Echo implements ToolCallback {
+
+        @Override
+        public ToolDefinition getToolDefinition() {
+            return ToolDefinition.builder().name("get_meetings").description("").inputSchema("{}").build();
+        }
+
+        @Override
+        public String call(String toolInput) {
+            return toolInput;
+        }
+
+        @Override
+        public String call(String toolInput, ToolContext toolContext) {
+            return toolInput;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package uk.co.kennah.mcp.aitools;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import io.modelcontextprotocol.server.McpServerFeatures.SyncResourceSpecification;
+import io.modelcontextprotocol.server.McpSyncServer;
+import io.modelcontextprotocol.spec.McpSchema;
+import io.modelcontextprotocol.spec.McpServerTransportProvider;
+import uk.co.kennah.mcp.gcp.GCSHorseReader;
+import uk.co.kennah.mcp.gcp.LoadState;
+import uk.co.kennah.mcp.snapshot.RaceKey;
+import uk.co.kennah.mcp.snapshot.RaceSnapshotChangedEvent;
+import uk.co.kennah.mcp.snapshot.RaceSnapshotService;
+
+class RaceResourcesTest {
+
+    private static final String CARD = """
+            [
+              {"time": "14:05", "place": "Newton Abbot", "horses": [
+                  {"name": "Good Horse", "odds": "2/1"},
+                  {"name": "Bad Horse", "odds": "NR"}
+              ]},
+              {"time": "15:00", "place": "York", "horses": [
+                  {"name": "Average Horse", "odds": "evens"}
+              ]}
+            ]
+            """;
+
+    private static final RaceKey NEWTON_ABBOT = new RaceKey("14:05", "Newton Abbot");
+
+    @Test
+    void theSnapshotListsEveryRaceWithItsUriAndVersion() {
+        JsonObject body = read(resources(loaded(null)), RaceResources.SNAPSHOT_URI);
+
+        assertThat(body.get("version").getAsLong()).isEqualTo(1);
+        assertThat(body.has("loadedAt")).isTrue();
+        assertThat(body.getAsJsonArray("races")).containsExactly(
+                JsonParser.parseString("""
+                        {"uri": "races://race/Newton%20Abbot/14%3A05", "time": "14:05", "place": "Newton Abbot", "version": 1}
+                        """),
+                JsonParser.parseString("""
+                        {"uri": "races://race/York/15%3A00", "time": "15:00", "place": "York", "version": 1}
+                        """));
+    }
+
+    @Test
+    void theNonRunnersAreTheDaysList() {
+        JsonObject body = read(resources(loaded(null)), RaceResources.NON_RUNNERS_URI);
+
+        assertThat(body).isEqualTo(JsonParser.parseString("""
+                {"version": 1, "nonRunners": ["14:05 at Newton Abbot: Bad Horse"]}
+                """));
+    }
+
+    @Test
+    void beforeTheFirstLoadTheSnapshotAndNonRunnersAreEmptyAtVersionZero() {
+        RaceResources resources = resources(new RaceSnapshotService());
+
+        assertThat(read(resources, RaceResources.SNAPSHOT_URI).get("version").getAsLong()).isZero();
+        assertThat(read(resources, RaceResources.SNAPSHOT_URI).getAsJsonArray("races")).isEmpty();
+        assertThat(read(resources, RaceResources.NON_RUNNERS_URI)).isEqualTo(JsonParser.parseString("""
+                {"version": 0, "nonRunners": []}
+                """));
+    }
+
+    @Test
+    void eachRaceIsRegisteredOnLoadAndServesItsRunners() {
+        McpSyncServer server = mock(McpSyncServer.class);
+        RaceSnapshotChangedEvent[] changed = new RaceSnapshotChangedEvent[1];
+        RaceSnapshotService snapshots = loaded(event -> changed[0] = (RaceSnapshotChangedEvent) event);
+        RaceResources resources = resources(snapshots);
+        ReflectionTestUtils.setField(resources, "mcpServer",
+                new StaticListableBeanFactory(Map.of("mcpSyncServer", server)).getBeanProvider(McpSyncServer.class));
+
+        resources.onApplicationEvent(changed[0]);
+
+        ArgumentCaptor<SyncResourceSpecification> added = ArgumentCaptor.forClass(SyncResourceSpecification.class);
+        verify(server, times(2)).addResource(added.capture());
+        SyncResourceSpecification race = added.getAllValues().get(0);
+        String uri = RaceResources.raceUri(NEWTON_ABBOT);
+        assertThat(race.resource().uri()).isEqualTo(uri);
+
+        JsonObject body = read(race, uri);
+        assertThat(body.get("version").getAsLong()).isEqualTo(1);
+        assertThat(body.getAsJsonObject("race").get("place").getAsString()).isEqualTo("Newton Abbot");
+        assertThat(body.getAsJsonObject("race").getAsJsonArray("horses")).hasSize(2);
+
+        // A race that is not in the snapshot being served has no version and no runners.
+        ReflectionTestUtils.setField(resources, "snapshotService", new RaceSnapshotService());
+        assertThat(read(race, uri)).isEqualTo(JsonParser.parseString("{\"version\": 0}"));
+    }
+
+    /**
+     * @return A snapshot service that has loaded {@link #CARD} once.
+     */
+    private static RaceSnapshotService loaded(ApplicationEventPublisher publisher) {
+        GCSHorseReader reader = mock(GCSHorseReader.class);
+        when(reader.reloadFileFromGCSAsJson()).thenReturn(JsonParser.parseString(CARD));
+        when(reader.getLoadState()).thenReturn(LoadState.LOADING);
+        RaceSnapshotService snapshots = new RaceSnapshotService();
+        ReflectionTestUtils.setField(snapshots, "gcsReader", reader);
+        ReflectionTestUtils.setField(snapshots, "eventPublisher", publisher != null ? publisher
+                : (ApplicationEventPublisher) event -> {
+                });
+        snapshots.refresh();
+        snapshots.shutdown();
+        return snapshots;
+    }
+
+    private static RaceResources resources(RaceSnapshotService snapshots) {
+        RaceResources resources = new RaceResources();
+        StaticListableBeanFactory none = new StaticListableBeanFactory();
+        ReflectionTestUtils.setField(resources, "snapshotService", snapshots);
+        ReflectionTestUtils.setField(resources, "mcpServer", none.getBeanProvider(McpSyncServer.class));
+        ReflectionTestUtils.setField(resources, "transportProvider", none.getBeanProvider(McpServerTransportProvider.class));
+        return resources;
+    }
+
+    private static JsonObject read(RaceResources resources, String uri) {
+        List<SyncResourceSpecification> specifications = resources.specifications();
+        return read(specifications.stream().filter(spec -> spec.resource().uri().equals(uri)).findFirst().orElseThrow(),
+                uri);
+    }
+
+    private static JsonObject read(SyncResourceSpecification specification, String uri) {
+        McpSchema.ReadResourceResult result = specification.readHandler().apply(null, new McpSchema.ReadResourceRequest(uri));
+        assertThat(result.contents()).hasSize(1);
+        McpSchema.TextResourceContents contents = (McpSchema.TextResourceContents) result.contents().get(0);
+        assertThat(contents.uri()).isEqualTo(uri);
+        assertThat(contents.mimeType()).isEqualTo("application/json");
+        return JsonParser.parseString(contents.text()).getAsJsonObject();
+    }
+}
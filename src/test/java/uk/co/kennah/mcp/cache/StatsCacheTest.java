@@ -0,0 +1,48 @@
+package uk.co.kennah.mcp.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+class StatsCacheTest {
+
+    @Test
+    void countsHitsMissesAndWritesThroughTheSyncPath() {
+        StatsCacheManager manager = new StatsCacheManager(new ConcurrentMapCacheManager());
+        Cache cache = manager.getCache("raceData");
+
+        assertEquals("card", cache.get("key", () -> "card"));
+        assertEquals("card", cache.get("key", () -> "not loaded again"));
+        assertEquals("card", cache.get("key").get());
+        cache.put("key", "new card");
+        cache.clear();
+        assertNull(cache.get("key"));
+
+        assertEquals(new StatsCache.Stats(2, 2, 0.5, 2, 1), manager.getCaches().get("raceData").getStats());
+    }
+
+    @Test
+    void onlyAFutureThatCompletedNormallyIsAHit() {
+        Cache delegate = mock(Cache.class);
+        when(delegate.getName()).thenReturn("raceData");
+        when(delegate.retrieve("done")).thenAnswer(invocation -> CompletableFuture.completedFuture("card"));
+        when(delegate.retrieve("loading")).thenAnswer(invocation -> new CompletableFuture<>());
+        when(delegate.retrieve("failed")).thenAnswer(invocation -> CompletableFuture.failedFuture(new IOException("GCS down")));
+        StatsCache cache = new StatsCache(delegate);
+
+        cache.retrieve("done");
+        cache.retrieve("loading");
+        cache.retrieve("failed");
+        cache.retrieve("absent");
+
+        assertEquals(new StatsCache.Stats(1, 3, 0.25, 0, 0), cache.getStats());
+    }
+}
@@ -0,0 +1,48 @@
+package uk.co.kennah.mcp.gcp;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the genuine read, parse and odds merge path against classpath fixtures
+ * in src/test/resources/races, with no GCS access at all.
+ */
+@SpringBootTest(properties = {
+		"race.source.type=classpath",
+		"spring.ai.mcp.server.stdio=false",
+		"spring.cloud.gcp.storage.enabled=false",
+		"gcs.file.name=sample_races.json",
+		"gcs.oddsfile.name=sample_odds.json"
+})
+@AutoConfigureMockMvc
+class GCSHorseReaderTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void oddsShouldBeMergedOntoTheRacecard() throws Exception {
+		// The odds file names are matched as-is, without apostrophes and in upper case.
+		mockMvc.perform(get("/get-odds").param("time", "14:05").param("place", "Ascot"))
+				.andExpect(status().isOk())
+				.andExpect(content().string("Odds for the 14:05 at Ascot: Good Horse: 2/1, Bad Horse: NR, O'Reilly: 9/2"));
+
+		mockMvc.perform(get("/get-odds").param("time", "15:00").param("place", "York"))
+				.andExpect(status().isOk())
+				.andExpect(content().string("Odds for the 15:00 at York: Average Horse: evens"));
+	}
+
+	@Test
+	void oddsWithoutAPriceShouldMarkANonRunner() throws Exception {
+		mockMvc.perform(get("/get-non-runners"))
+				.andExpect(status().isOk())
+				.andExpect(content().string("Today's non-runners are: 14:05 at Ascot: Bad Horse"));
+	}
+}
@@ -0,0 +1,98 @@
+package uk.co.kennah.mcp.gcp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.google.gson.JsonElement;
+
+import uk.co.kennah.mcp.snapshot.RaceSnapshotService;
+
+class LoadStateTest {
+
+    @Test
+    void keepsServingTheLastGoodCardWhileARetryIsDue(@TempDir Path directory) throws IOException {
+        copy("sample_races.json", directory);
+        copy("sample_odds.json", directory);
+        GCSHorseReader reader = reader(directory);
+
+        JsonElement good = reader.reloadFileFromGCSAsJson();
+        assertTrue(good.isJsonArray());
+        assertEquals(LoadState.Phase.READY, reader.getLoadState().phase());
+
+        Files.delete(directory.resolve("sample_races.json"));
+        assertSame(good, reader.reloadFileFromGCSAsJson());
+        LoadState stale = reader.getLoadState();
+        assertEquals(LoadState.Phase.STALE, stale.phase());
+        assertEquals(1, stale.failures());
+        assertNotNull(stale.retryAt());
+        assertSame(good, reader.reloadFileFromGCSAsJson());
+        assertEquals(2, reader.getLoadState().failures());
+
+        GCSHorseReader cold = reader(directory);
+        assertTrue(cold.reloadFileFromGCSAsJson().getAsJsonObject().has("error"));
+        assertEquals(LoadState.Phase.FAILED, cold.getLoadState().phase());
+
+        copy("sample_races.json", directory);
+        assertTrue(cold.reloadFileFromGCSAsJson().isJsonArray());
+        assertEquals(new LoadState(LoadState.Phase.READY, cold.getLoadState().lastSuccess(), 0, null), cold.getLoadState());
+    }
+
+    @Test
+    void aFailedColdReadThroughTheCacheIsRetried(@TempDir Path directory) throws IOException, InterruptedException {
+        copy("sample_odds.json", directory);
+        GCSHorseReader reader = reader(directory);
+        ReflectionTestUtils.setField(reader, "retryInitial", 100L);
+        RaceSnapshotService snapshots = new RaceSnapshotService();
+        ReflectionTestUtils.setField(snapshots, "gcsReader", reader);
+        ReflectionTestUtils.setField(snapshots, "eventPublisher", (ApplicationEventPublisher) event -> {
+        });
+        ReflectionTestUtils.setField(reader, "eventPublisher",
+                (ApplicationEventPublisher) event -> snapshots.onApplicationEvent((CardReadFailedEvent) event));
+        try {
+            assertTrue(reader.readFileFromGCSAsJson().getAsJsonObject().has("error"));
+            assertEquals(LoadState.Phase.FAILED, reader.getLoadState().phase());
+
+            // No refresh runs, only the retry the failed read scheduled.
+            copy("sample_races.json", directory);
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (snapshots.getCurrent().getVersion() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(1, snapshots.getCurrent().getVersion());
+            assertEquals(LoadState.Phase.READY, reader.getLoadState().phase());
+        } finally {
+            snapshots.shutdown();
+        }
+    }
+
+    @Test
+    void retryDelaysDoubleUpToTheCapWithJitter() {
+        assertEquals(1000, GCSHorseReader.retryDelayMillis(1, 2000, 60000, 0));
+        assertEquals(1999, GCSHorseReader.retryDelayMillis(1, 2000, 60000, 0.9999));
+        assertEquals(4000, GCSHorseReader.retryDelayMillis(3, 2000, 60000, 0));
+        assertEquals(30000, GCSHorseReader.retryDelayMillis(40, 2000, 60000, 0));
+        assertEquals(59999, GCSHorseReader.retryDelayMillis(40, 2000, 60000, 0.99999));
+    }
+
+    private static GCSHorseReader reader(Path directory) {
+        return ReaderFixture.reader(directory, "sample_races.json", "sample_odds.json");
+    }
+
+    private static void copy(String name, Path directory) throws IOException {
+        try (InputStream in = LoadStateTest.class.getResourceAsStream("/races/" + name)) {
+            Files.copy(in, directory.resolve(name));
+        }
+    }
+}
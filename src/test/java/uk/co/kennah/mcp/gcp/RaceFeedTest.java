@@ -0,0 +1,133 @@
+package uk.co.kennah.mcp.gcp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import uk.co.kennah.mcp.source.LocalDirectoryRaceDataSource;
+import uk.co.kennah.mcp.source.RaceDataSource;
+import uk.co.kennah.mcp.source.RaceObject;
+
+class RaceFeedTest {
+
+    @Test
+    void feedsAreListedByPriority() {
+        List<RaceFeed> feeds = RaceFeed.parse(RaceFeed.Kind.ODDS, "odds.json", "exchange=exchange.json, tote=tote.json",
+                "exchange");
+        assertEquals(List.of("exchange", "main", "tote"), feeds.stream().map(RaceFeed::name).toList());
+        assertEquals(List.of(0, 1, 2), feeds.stream().map(RaceFeed::priority).toList());
+        assertEquals("odds:exchange", feeds.get(0).key());
+
+        assertThrows(IllegalArgumentException.class, () -> RaceFeed.parse(RaceFeed.Kind.RACES, "a", "ire", null));
+        assertThrows(IllegalArgumentException.class, () -> RaceFeed.parse(RaceFeed.Kind.RACES, "a", "main=b", null));
+        assertThrows(IllegalArgumentException.class, () -> RaceFeed.parse(RaceFeed.Kind.ODDS, "a", "", "tote"));
+    }
+
+    @Test
+    void feedsAreMergedByPriorityAndASlowOrBrokenFeedIsLeftBehind(@TempDir Path directory) throws Exception {
+        write(directory, "uk.json", """
+                [{"time": "14:05", "place": "Ascot", "horses": [{"name": "Good Horse"}, {"name": "Bad Horse"}]}]""");
+        write(directory, "ire.json", """
+                [{"time": "14:05", "place": "Ascot", "horses": [{"name": "Copy"}]},
+                 {"time": "16:10", "place": "Leopardstown", "horses": [{"name": "Irish Horse"}]}]""");
+        write(directory, "fr.json", """
+                [{"time": "13:50", "place": "Longchamp", "horses": [{"name": "French Horse"}]}]""");
+        write(directory, "odds.json", """
+                [{"name": "Good Horse", "odds": "2/1"}, {"name": "Bad Horse", "odds": "3/1"}, {"name": "Irish Horse", "odds": "5/1"}]""");
+        write(directory, "exchange.json", """
+                [{"name": "Good Horse", "odds": "9/4"}]""");
+
+        CountDownLatch frenchFeed = new CountDownLatch(1);
+        GCSHorseReader reader = reader(directory, frenchFeed);
+
+        // The French feed hangs, the rest are merged without it.
+        JsonArray races = reader.reloadFileFromGCSAsJson().getAsJsonArray();
+        assertEquals(2, races.size());
+        JsonObject ascot = races.get(0).getAsJsonObject();
+        assertEquals("main", ascot.get("feed").getAsString());
+        assertEquals("Good Horse", horse(ascot, 0).get("name").getAsString());
+        assertEquals("9/4", horse(ascot, 0).get("odds").getAsString());
+        assertEquals("exchange", horse(ascot, 0).get("oddsFeed").getAsString());
+        assertEquals("3/1", horse(ascot, 1).get("odds").getAsString());
+        assertEquals("main", horse(ascot, 1).get("oddsFeed").getAsString());
+        assertEquals("ire", races.get(1).getAsJsonObject().get("feed").getAsString());
+        assertEquals(LoadState.Phase.READY, reader.getLoadState().phase());
+
+        // Once it answers, the next refresh picks it up; then the Irish feed breaks and its last read stands in.
+        frenchFeed.countDown();
+        waitForRead(reader, "fr");
+        Files.delete(directory.resolve("ire.json"));
+        races = reader.reloadFileFromGCSAsJson().getAsJsonArray();
+        assertEquals(3, races.size());
+        assertEquals("Leopardstown", races.get(1).getAsJsonObject().get("place").getAsString());
+        assertEquals("5/1", horse(races.get(1).getAsJsonObject(), 0).get("odds").getAsString());
+        assertEquals("fr", races.get(2).getAsJsonObject().get("feed").getAsString());
+
+        FeedStatus ire = reader.getFeedStatus().stream().filter(status -> status.feed().equals("ire")).findFirst().orElseThrow();
+        assertTrue(ire.error().contains("not found"));
+        assertFalse(ire.lastSuccess() == null);
+        assertNull(reader.getFeedStatus().get(0).error());
+    }
+
+    private static JsonObject horse(JsonObject race, int index) {
+        return race.getAsJsonArray("horses").get(index).getAsJsonObject();
+    }
+
+    private static void waitForRead(GCSHorseReader reader, String feed) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            if (reader.getFeedStatus().stream().anyMatch(status -> status.feed().equals(feed))) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private static GCSHorseReader reader(Path directory, CountDownLatch frenchFeed) {
+        LocalDirectoryRaceDataSource local = ReaderFixture.local(directory);
+        RaceDataSource source = new RaceDataSource() {
+            @Override
+            public Optional<RaceObject> find(String name) throws IOException {
+                if (name.equals("fr.json")) {
+                    try {
+                        frenchFeed.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return local.find(name);
+            }
+
+            @Override
+            public String describe() {
+                return local.describe();
+            }
+        };
+        GCSHorseReader reader = ReaderFixture.reader(source, "uk.json", "odds.json");
+        ReflectionTestUtils.setField(reader, "extraRaceFeeds", "ire=ire.json,fr=fr.json");
+        ReflectionTestUtils.setField(reader, "extraOddsFeeds", "exchange=exchange.json");
+        ReflectionTestUtils.setField(reader, "oddsPriority", "exchange");
+        ReflectionTestUtils.setField(reader, "feedTimeoutMillis", 300L);
+        return reader;
+    }
+
+    private static void write(Path directory, String name, String content) throws IOException {
+        Files.writeString(directory.resolve(name), content);
+    }
+}
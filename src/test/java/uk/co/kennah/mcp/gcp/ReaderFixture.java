@@ -0,0 +1,59 @@
+package uk.co.kennah.mcp.gcp;
+
+import java.nio.file.Path;
+
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import uk.co.kennah.mcp.snapshot.SnapshotArtifactReader;
+import uk.co.kennah.mcp.source.LocalDirectoryRaceDataSource;
+import uk.co.kennah.mcp.source.RaceDataSource;
+
+/**
+ * Builds a {@link GCSHorseReader} outside Spring, with every property at the
+ * default its {@code @Value} gives it, for tests that drive the reader
+ * directly. Tests change only the properties they are about.
+ */
+public final class ReaderFixture {
+
+    private ReaderFixture() {
+    }
+
+    /**
+     * @return A reader of the race and odds objects in a data source.
+     */
+    public static GCSHorseReader reader(RaceDataSource source, String file, String oddsFile) {
+        GCSHorseReader reader = new GCSHorseReader();
+        ReflectionTestUtils.setField(reader, "file", file);
+        ReflectionTestUtils.setField(reader, "oddsFile", oddsFile);
+        ReflectionTestUtils.setField(reader, "extraRaceFeeds", "");
+        ReflectionTestUtils.setField(reader, "extraOddsFeeds", "");
+        ReflectionTestUtils.setField(reader, "oddsPriority", "");
+        ReflectionTestUtils.setField(reader, "feedTimeoutMillis", 20000L);
+        ReflectionTestUtils.setField(reader, "dateFormat", "yyyy-MM-dd");
+        ReflectionTestUtils.setField(reader, "zone", "Europe/London");
+        ReflectionTestUtils.setField(reader, "compact", true);
+        ReflectionTestUtils.setField(reader, "retryInitial", 2000L);
+        ReflectionTestUtils.setField(reader, "retryMax", 60000L);
+        ReflectionTestUtils.setField(reader, "dataSource", source);
+        ReflectionTestUtils.setField(reader, "artifactReader",
+                new StaticListableBeanFactory().getBeanProvider(SnapshotArtifactReader.class));
+        ReflectionTestUtils.setField(reader, "eventPublisher", (ApplicationEventPublisher) event -> {
+        });
+        return reader;
+    }
+
+    /**
+     * @return A reader of the race and odds files in a local directory.
+     */
+    public static GCSHorseReader reader(Path directory, String file, String oddsFile) {
+        return reader(local(directory), file, oddsFile);
+    }
+
+    public static LocalDirectoryRaceDataSource local(Path directory) {
+        LocalDirectoryRaceDataSource source = new LocalDirectoryRaceDataSource();
+        ReflectionTestUtils.setField(source, "directory", directory.toString());
+        return source;
+    }
+}
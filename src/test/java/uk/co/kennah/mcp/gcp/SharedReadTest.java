@@ -0,0 +1,113 @@
+package uk.co.kennah.mcp.gcp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import uk.co.kennah.mcp.source.RaceDataSource;
+import uk.co.kennah.mcp.source.RaceObject;
+
+class SharedReadTest {
+
+    @Test
+    void loadsSharingOneReadEachMergeTheirOwnCard(@TempDir Path directory) throws Exception {
+        copy("sample_races.json", directory);
+        copy("sample_odds.json", directory);
+        RaceDataSource local = ReaderFixture.local(directory);
+        CountDownLatch racesRequested = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger racesReads = new AtomicInteger();
+        AtomicInteger oddsReads = new AtomicInteger();
+        RaceDataSource slow = new RaceDataSource() {
+            @Override
+            public Optional<RaceObject> find(String name) throws IOException {
+                if (name.equals("sample_races.json")) {
+                    racesReads.incrementAndGet();
+                    racesRequested.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                } else {
+                    oddsReads.incrementAndGet();
+                }
+                return local.find(name);
+            }
+
+            @Override
+            public String describe() {
+                return local.describe();
+            }
+        };
+        GCSHorseReader reader = ReaderFixture.reader(slow, "sample_races.json", "sample_odds.json");
+        // Compacting rebuilds the card, which would hide a shared tree.
+        ReflectionTestUtils.setField(reader, "compact", false);
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<JsonElement> reload = callers.submit(reader::reloadFileFromGCSAsJson);
+            assertTrue(racesRequested.await(10, TimeUnit.SECONDS));
+            Map<?, ?> inFlight = (Map<?, ?>) ReflectionTestUtils.getField(reader, "inFlight");
+            // Once the first load's odds have been read, only its races read is left running.
+            awaitUntil(() -> oddsReads.get() == 1 && inFlight.size() == 1);
+            Future<JsonElement> cold = callers.submit(reader::readFileFromGCSAsJson);
+            // The second load reads the odds itself after joining the races read.
+            awaitUntil(() -> oddsReads.get() == 2);
+            release.countDown();
+            JsonElement first = reload.get(10, TimeUnit.SECONDS);
+            JsonElement second = cold.get(10, TimeUnit.SECONDS);
+
+            assertEquals(1, racesReads.get());
+            assertNotSame(first, second);
+            assertEquals(first, second);
+            assertEquals("2/1", horse(first).get("odds").getAsString());
+
+            horse(first).addProperty("odds", "100/1");
+            assertEquals("2/1", horse(second).get("odds").getAsString());
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+            reader.shutdown();
+        }
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static JsonObject horse(JsonElement races) {
+        return races.getAsJsonArray().get(0).getAsJsonObject().getAsJsonArray("horses").get(0).getAsJsonObject();
+    }
+
+    private static void copy(String name, Path directory) throws IOException {
+        try (InputStream in = SharedReadTest.class.getResourceAsStream("/races/" + name)) {
+            Files.copy(in, directory.resolve(name));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package uk.co.kennah.mcp.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+class McpSessionLimitFilterTest {
+
+    private McpSessionLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new McpSessionLimitFilter();
+        ReflectionTestUtils.setField(filter, "sseEndpoint", "/sse");
+        ReflectionTestUtils.setField(filter, "maxSessions", 2);
+        ReflectionTestUtils.setField(filter, "maxSessionsPerClient", 1);
+        ReflectionTestUtils.setField(filter, "retryAfterSeconds", 5);
+    }
+
+    @Test
+    void sessionsAreLimitedAndReleasedWhenTheStreamCompletes() throws Exception {
+        MockHttpServletRequest first = sse("10.0.0.1");
+        assertEquals(200, open(first).getStatus());
+        assertEquals(429, open(sse("10.0.0.1")).getStatus());
+        assertEquals(200, open(sse("10.0.0.2")).getStatus());
+        MockHttpServletResponse full = open(sse("10.0.0.3"));
+        assertEquals(503, full.getStatus());
+        assertEquals("5", full.getHeader("Retry-After"));
+        assertEquals(2, filter.getActiveSessions());
+
+        first.getAsyncContext().complete();
+        assertEquals(1, filter.getActiveSessions());
+        assertEquals(200, open(sse("10.0.0.3")).getStatus());
+    }
+
+    @Test
+    void messagePostsAreNotCounted() throws Exception {
+        MockHttpServletRequest post = new MockHttpServletRequest("POST", "/mcp/message");
+        post.setServletPath("/mcp/message");
+        filter.doFilter(post, new MockHttpServletResponse(), new MockFilterChain());
+        assertEquals(0, filter.getActiveSessions());
+    }
+
+    private static MockHttpServletRequest sse(String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/sse");
+        request.setServletPath("/sse");
+        request.setRemoteAddr(client);
+        request.setAsyncSupported(true);
+        return request;
+    }
+
+    @Test
+    void keepAliveSkipsAStreamCommittedThroughItsWriter() throws Exception {
+        ReflectionTestUtils.setField(filter, "maxSessionsPerClient", 2);
+        MockHttpServletResponse written = open(sse("10.0.0.1"), new SseServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                request.startAsync();
+                response.getWriter().write(":open\n\n");
+                response.flushBuffer();
+            }
+        });
+        MockHttpServletResponse streamed = open(sse("10.0.0.2"), new SseServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                request.startAsync();
+                response.getOutputStream().flush();
+            }
+        });
+        assertTrue(written.isCommitted());
+
+        filter.keepAlive();
+
+        assertEquals(":open\n\n", written.getContentAsString());
+        assertEquals(":keep-alive\n\n", streamed.getContentAsString());
+        assertEquals(2, filter.getActiveSessions());
+    }
+
+    private MockHttpServletResponse open(MockHttpServletRequest request) throws Exception {
+        return open(request, new SseServlet());
+    }
+
+    private MockHttpServletResponse open(MockHttpServletRequest request, HttpServlet servlet) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain(servlet));
+        return response;
+    }
+
+    /** Stands in for the SSE transport, which leaves the request open in async mode. */
+    private static class SseServlet extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            request.startAsync();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package uk.co.kennah.mcp.jfr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import uk.co.kennah.mcp.gcp.GCSHorseReader;
+import uk.co.kennah.mcp.gcp.ReaderFixture;
+
+class RaceDataEventsTest {
+
+    @Test
+    void aReloadRecordsEachFetchParseAndTheOddsMerge(@TempDir Path directory) throws IOException {
+        copy("sample_races.json", directory);
+        copy("sample_odds.json", directory);
+        GCSHorseReader reader = ReaderFixture.reader(directory, "sample_races.json", "sample_odds.json");
+
+        Path dump = directory.resolve("reload.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(ObjectFetchEvent.class);
+            recording.enable(JsonParseEvent.class);
+            recording.enable(OddsMergeEvent.class);
+            recording.start();
+            assertTrue(reader.reloadFileFromGCSAsJson().isJsonArray());
+            recording.stop();
+            recording.dump(dump);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+
+        Map<String, RecordedEvent> fetches = byObject(events, "uk.co.kennah.mcp.ObjectFetch");
+        assertEquals(2, fetches.size());
+        for (String name : List.of("sample_races.json", "sample_odds.json")) {
+            RecordedEvent fetch = fetches.get(name);
+            assertEquals("local directory '" + directory + "'", fetch.getString("source"));
+            assertTrue(fetch.getBoolean("found"));
+            assertEquals(Files.size(directory.resolve(name)), fetch.getLong("bytes"));
+            assertEquals("NONE", fetch.getString("compression"));
+            assertNull(fetch.getString("error"));
+        }
+
+        Map<String, RecordedEvent> parses = byObject(events, "uk.co.kennah.mcp.JsonParse");
+        assertEquals(Files.size(directory.resolve("sample_races.json")), parses.get("sample_races.json").getLong("bytes"));
+        assertEquals(Files.size(directory.resolve("sample_odds.json")), parses.get("sample_odds.json").getLong("bytes"));
+
+        List<RecordedEvent> merges = named(events, "uk.co.kennah.mcp.OddsMerge");
+        assertEquals(1, merges.size());
+        RecordedEvent merge = merges.get(0);
+        assertEquals(4, merge.getInt("oddsEntries"));
+        assertEquals(4, merge.getInt("runners"));
+        assertEquals(4, merge.getInt("matched"));
+        assertEquals(0, merge.getInt("unmatched"));
+    }
+
+    @Test
+    void aMissingObjectIsRecordedAsNotFound(@TempDir Path directory) throws IOException {
+        copy("sample_odds.json", directory);
+        GCSHorseReader reader = ReaderFixture.reader(directory, "sample_races.json", "sample_odds.json");
+
+        Path dump = directory.resolve("reload.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(ObjectFetchEvent.class);
+            recording.start();
+            reader.reloadFileFromGCSAsJson();
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        RecordedEvent fetch = byObject(RecordingFile.readAllEvents(dump), "uk.co.kennah.mcp.ObjectFetch")
+                .get("sample_races.json");
+        assertFalse(fetch.getBoolean("found"));
+        assertEquals("not found", fetch.getString("error"));
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).toList();
+    }
+
+    private static Map<String, RecordedEvent> byObject(List<RecordedEvent> events, String name) {
+        return named(events, name).stream()
+                .collect(Collectors.toMap(event -> event.getString("object"), Function.identity()));
+    }
+
+    private static void copy(String name, Path directory) throws IOException {
+        try (InputStream in = RaceDataEventsTest.class.getResourceAsStream("/races/" + name)) {
+            Files.copy(in, directory.resolve(name));
+        }
+    }
+}
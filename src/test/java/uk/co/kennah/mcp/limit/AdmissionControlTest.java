@@ -0,0 +1,78 @@
+package uk.co.kennah.mcp.limit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class AdmissionControlTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void bucketAllowsABurstThenRefillsAtTheRate() {
+        TokenBucket bucket = new TokenBucket(2, 3, 0);
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(SECOND / 2, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(SECOND / 2));
+        assertTrue(bucket.tryAcquire(SECOND / 2) > 0);
+
+        bucket.refund();
+        assertEquals(0, bucket.tryAcquire(SECOND / 2));
+        assertTrue(bucket.isFull(2 * SECOND));
+    }
+
+    @Test
+    void limiterQueuesBrieflyThenTurnsCallsAway() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 0, 10);
+        assertNull(limiter.acquire());
+        assertEquals(Rejection.QUEUE_FULL, limiter.acquire());
+        limiter.release();
+
+        ConcurrencyLimiter queued = new ConcurrencyLimiter(1, 1, 10);
+        assertNull(queued.acquire());
+        assertEquals(Rejection.QUEUE_TIMEOUT, queued.acquire());
+        assertEquals(0, queued.getQueued());
+        queued.release();
+        assertEquals(0, queued.getInFlight());
+    }
+
+    @Test
+    void oneClientLoopingOnAToolDoesNotUseUpAnotherClientsShare() {
+        AdmissionControl admission = new AdmissionControl();
+        ReflectionTestUtils.setField(admission, "enabled", true);
+        ReflectionTestUtils.setField(admission, "clientRate", 0.001);
+        ReflectionTestUtils.setField(admission, "clientBurst", 3);
+        ReflectionTestUtils.setField(admission, "toolRate", 0.001);
+        ReflectionTestUtils.setField(admission, "toolBurst", 2);
+        ReflectionTestUtils.setField(admission, "maxConcurrent", 4);
+        ReflectionTestUtils.setField(admission, "maxQueued", 0);
+        ReflectionTestUtils.setField(admission, "queueWaitMillis", 10L);
+        admission.init();
+
+        admission.admit("greedy", "get_horse_form").close();
+        admission.admit("greedy", "get_horse_form").close();
+        AdmissionRejectedException tool = assertThrows(AdmissionRejectedException.class,
+                () -> admission.admit("greedy", "get_horse_form"));
+        assertEquals(Rejection.TOOL_RATE, tool.getReason());
+        assertTrue(tool.getRetryAfterSeconds() > 1);
+
+        // The refused call gave its client token back, so another tool still gets one.
+        admission.admit("greedy", "get_meetings").close();
+        assertEquals(Rejection.CLIENT_RATE, assertThrows(AdmissionRejectedException.class,
+                () -> admission.admit("greedy", "get_meetings")).getReason());
+        admission.admit("polite", "get_horse_form").close();
+
+        LimitStats stats = admission.getStats();
+        assertEquals(4, stats.admitted());
+        assertEquals(1, stats.rejected().get(Rejection.TOOL_RATE));
+        assertEquals(1, stats.rejected().get(Rejection.CLIENT_RATE));
+        assertEquals(1, stats.rejectedByTool().get("get_meetings"));
+        assertEquals(0, stats.inFlight());
+    }
+}
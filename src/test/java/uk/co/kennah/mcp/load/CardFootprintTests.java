@@ -0,0 +1,115 @@
+package uk.co.kennah.mcp.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import uk.co.kennah.mcp.snapshot.CompactCard;
+import uk.co.kennah.mcp.utils.HeapEstimate;
+
+/**
+ * Reports how much heap a full day's card takes as Gson parses it, as the
+ * shared tree the server now keeps, and as a {@link CompactCard}, both as
+ * estimated by {@link HeapEstimate} and as measured across a full GC.
+ * <p>
+ * Excluded from the normal build. Run it with:
+ * <pre>
+ * mvn -P load-test test -Dtest=CardFootprintTests -Dload.races=400 -Dload.runners=12 -Dload.form=10
+ * </pre>
+ * The report is written to {@code target/card-footprint.json}.
+ */
+@Tag("load")
+class CardFootprintTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(CardFootprintTests.class);
+
+    private static final int RACES = Integer.getInteger("load.races", 400);
+    private static final int RUNNERS = Integer.getInteger("load.runners", 12);
+    private static final int FORM_DEPTH = Integer.getInteger("load.form", 10);
+    private static final Path REPORT = Paths.get(System.getProperty("footprint.report", "target/card-footprint.json"));
+
+    @Test
+    void reportsRetainedHeapBeforeAndAfter(@TempDir Path directory) throws IOException {
+        Path racesFile = directory.resolve("races.json");
+        new SyntheticRaceDay(RACES, RUNNERS, FORM_DEPTH).write(racesFile, directory.resolve("odds.json"));
+        Supplier<JsonArray> parse = () -> {
+            try (Reader reader = Files.newBufferedReader(racesFile, StandardCharsets.UTF_8)) {
+                return JsonParser.parseReader(reader).getAsJsonArray();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+
+        JsonArray parsed = parse.get();
+        CompactCard card = CompactCard.encode(parsed);
+        JsonArray shared = card.toJson();
+        assertThat(shared).isEqualTo(parsed);
+
+        JsonObject report = new JsonObject();
+        report.addProperty("races", card.races());
+        report.addProperty("runners", card.runners());
+        report.addProperty("formLines", card.formLines());
+        report.addProperty("distinctStrings", card.distinctStrings());
+        report.addProperty("fileBytes", Files.size(racesFile));
+        JsonObject estimated = new JsonObject();
+        estimated.addProperty("parsedTree", HeapEstimate.of(parsed));
+        estimated.addProperty("sharedTree", HeapEstimate.of(shared));
+        estimated.addProperty("compactCard", card.estimatedBytes());
+        report.add("estimatedBytes", estimated);
+        parsed = null;
+        shared = null;
+
+        JsonObject measured = new JsonObject();
+        measured.addProperty("parsedTree", retained(parse));
+        measured.addProperty("sharedTree", retained(() -> CompactCard.encode(parse.get()).toJson()));
+        measured.addProperty("compactCard", retained(() -> CompactCard.encode(parse.get())));
+        report.add("measuredBytes", measured);
+
+        Files.createDirectories(REPORT.toAbsolutePath().getParent());
+        Files.writeString(REPORT, new GsonBuilder().setPrettyPrinting().create().toJson(report));
+        logger.info("Card footprint written to {}: {}", REPORT.toAbsolutePath(), report);
+
+        assertThat(estimated.get("sharedTree").getAsLong()).isLessThan(estimated.get("parsedTree").getAsLong());
+        assertThat(estimated.get("compactCard").getAsLong()).isLessThan(estimated.get("sharedTree").getAsLong());
+    }
+
+    /**
+     * @return The heap still in use after a full GC while the built value is
+     * held, less what was in use before it was built.
+     */
+    private static long retained(Supplier<?> build) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        settle(memory);
+        long before = memory.getHeapMemoryUsage().getUsed();
+        Object held = build.get();
+        settle(memory);
+        long after = memory.getHeapMemoryUsage().getUsed();
+        assertThat(held).isNotNull();
+        return after - before;
+    }
+
+    private static void settle(MemoryMXBean memory) {
+        for (int i = 0; i < 3; i++) {
+            memory.gc();
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package uk.co.kennah.mcp.load;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.google.gson.JsonObject;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives a realistic mix of REST endpoints and MCP tool calls against the
+ * app, loaded with a synthetic race day from a local directory (no GCS), and
+ * writes a JSON report with throughput, latency percentiles, GC pauses and
+ * the heap high-water mark.
+ * <p>
+ * Excluded from the normal build. Run it with:
+ * <pre>
+ * mvn -P load-test test -Dload.clients=64 -Dload.rate=1000 -Dload.duration=60 -Dload.races=120
+ * </pre>
+ * Requests are issued on a fixed schedule and latency is measured from the
+ * scheduled start, so a stalled server shows up in the percentiles instead
+ * of quietly lowering the request rate. MCP tools are invoked through the
+ * registered ToolCallbacks, the same dispatch path the MCP server uses,
+ * without a transport in between.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "race.source.type=local",
+        "spring.ai.mcp.server.stdio=false",
+        "spring.cloud.gcp.storage.enabled=false",
+        "gcs.file.name=races.json",
+        "gcs.oddsfile.name=odds.json",
+        // Tool calls are made without an MCP session and REST calls from one address, so the limits would only measure themselves.
+        "limit.enabled=false"
+})
+class LoadHarnessTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadHarnessTests.class);
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 16);
+    private static final int RATE = Integer.getInteger("load.rate", 200);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmup", 5);
+    private static final int DURATION_SECONDS = Integer.getInteger("load.duration", 20);
+    private static final int RACES = Integer.getInteger("load.races", 60);
+    private static final int RUNNERS = Integer.getInteger("load.runners", 12);
+    private static final int FORM_DEPTH = Integer.getInteger("load.form", 10);
+    private static final Path REPORT = Paths.get(System.getProperty("load.report", "target/load-report.json"));
+
+    private static SyntheticRaceDay raceDay;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private List<ToolCallback> toolCallbacks;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private record Operation(String name, int weight, Function<Random, Boolean> call) {}
+
+    @DynamicPropertySource
+    static void fixture(DynamicPropertyRegistry registry) throws IOException {
+        Path directory = Files.createTempDirectory("pluckier-load");
+        raceDay = new SyntheticRaceDay(RACES, RUNNERS, FORM_DEPTH);
+        raceDay.write(directory.resolve("races.json"), directory.resolve("odds.json"));
+        registry.add("race.source.local.directory", directory::toString);
+    }
+
+    @Test
+    void driveMixedLoad() throws Exception {
+        List<Operation> mix = mix();
+
+        logger.info("Warming up for {}s", WARMUP_SECONDS);
+        drive(mix, new LoadReport(), WARMUP_SECONDS);
+
+        LoadReport report = new LoadReport();
+        report.configure("clients", CLIENTS);
+        report.configure("targetRatePerSecond", RATE);
+        report.configure("durationSeconds", DURATION_SECONDS);
+        report.configure("races", RACES);
+        report.configure("runnersPerRace", RUNNERS);
+        report.configure("formDepth", FORM_DEPTH);
+
+        LoadReport.resetHeapPeaks();
+        JsonObject json;
+        try (GcMonitor gc = new GcMonitor()) {
+            HeapSampler heap = new HeapSampler();
+            heap.start();
+            long elapsed = drive(mix, report, DURATION_SECONDS);
+            heap.stop();
+            json = report.toJson(elapsed, gc, heap.getHighWater());
+        }
+        LoadReport.write(json, REPORT);
+        logger.info("Load report written to {}: {}", REPORT.toAbsolutePath(), json.getAsJsonObject("total"));
+
+        assertThat(json.getAsJsonObject("total").get("requests").getAsLong()).isPositive();
+    }
+
+    private long drive(List<Operation> mix, LoadReport report, int seconds) throws InterruptedException {
+        int totalWeight = mix.stream().mapToInt(Operation::weight).sum();
+        long interval = TimeUnit.SECONDS.toNanos(1) / RATE;
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        AtomicLong slots = new AtomicLong();
+
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        for (int i = 0; i < CLIENTS; i++) {
+            Random random = new Random(1000L + i);
+            clients.submit(() -> {
+                while (true) {
+                    long due = start + slots.getAndIncrement() * interval;
+                    if (due >= end) {
+                        return;
+                    }
+                    long wait;
+                    while ((wait = due - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    Operation operation = pick(mix, totalWeight, random);
+                    boolean ok;
+                    try {
+                        ok = operation.call().apply(random);
+                    } catch (RuntimeException e) {
+                        ok = false;
+                    }
+                    report.record(operation.name(), (System.nanoTime() - due) / 1000, ok);
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+        return System.nanoTime() - start;
+    }
+
+    private static Operation pick(List<Operation> mix, int totalWeight, Random random) {
+        int ticket = random.nextInt(totalWeight);
+        for (Operation operation : mix) {
+            ticket -= operation.weight();
+            if (ticket < 0) {
+                return operation;
+            }
+        }
+        return mix.get(mix.size() - 1);
+    }
+
+    private List<Operation> mix() {
+        Map<String, ToolCallback> tools = toolCallbacks.stream()
+                .collect(Collectors.toMap(tool -> tool.getToolDefinition().name(), Function.identity()));
+        List<Operation> mix = new ArrayList<>();
+
+        // Dashboards: mostly odds, runners and NR polling.
+        mix.add(rest("GET /get-odds", 12, random -> "/get-odds" + race(random)));
+        mix.add(rest("GET /all-runners", 6, random -> "/all-runners" + race(random)));
+        mix.add(rest("GET /get-non-runners", 6, random -> "/get-non-runners"));
+        mix.add(rest("GET /meetings", 3, random -> "/meetings"));
+        mix.add(rest("GET /top-rated", 4, random -> "/top-rated" + race(random)));
+        mix.add(rest("GET /race-win-percentages-from-last-three", 4,
+                random -> "/race-win-percentages-from-last-three" + race(random)));
+        mix.add(rest("GET /nap-of-the-day", 2, random -> "/nap-of-the-day"));
+
+        // Agents: form questions and the rating tools, usually several per race.
+        mix.add(tool(tools, "get_odds", 8, this::raceArgs));
+        mix.add(tool(tools, "get_race_win_percentages_from_last_one", 5, this::raceArgs));
+        mix.add(tool(tools, "get_race_win_percentages_from_last_three", 5, this::raceArgs));
+        mix.add(tool(tools, "get_race_win_percentages_from_best_ever", 5, this::raceArgs));
+        mix.add(tool(tools, "get_race_win_percentages_from_all", 5, this::raceArgs));
+        mix.add(tool(tools, "get_best_ever_rated", 4, this::raceArgs));
+        mix.add(tool(tools, "get_horse_form", 8, random -> {
+            SyntheticRaceDay.Race race = randomRace(random);
+            JsonObject args = raceArgs(race);
+            args.addProperty("horseName", race.horses().get(random.nextInt(race.horses().size())));
+            return args;
+        }));
+        mix.add(tool(tools, "find_horse_race", 4, random -> {
+            SyntheticRaceDay.Race race = randomRace(random);
+            JsonObject args = new JsonObject();
+            args.addProperty("horseName", race.horses().get(random.nextInt(race.horses().size())));
+            return args;
+        }));
+        mix.add(tool(tools, "get_non_runners", 3, random -> new JsonObject()));
+        mix.add(tool(tools, "get_uk_handicap_nap_of_the_day", 2, random -> new JsonObject()));
+        mix.add(tool(tools, "get_next_race", 2, random -> new JsonObject()));
+        return mix;
+    }
+
+    private Operation rest(String name, int weight, Function<Random, String> path) {
+        return new Operation(name, weight, random -> {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path.apply(random)))
+                    .timeout(Duration.ofSeconds(30))
+                    .GET()
+                    .build();
+            try {
+                return http.send(request, HttpResponse.BodyHandlers.ofString()).statusCode() == 200;
+            } catch (IOException e) {
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        });
+    }
+
+    private static Operation tool(Map<String, ToolCallback> tools, String name, int weight,
+            Function<Random, JsonObject> args) {
+        ToolCallback tool = tools.get(name);
+        assertThat(tool).as("tool %s", name).isNotNull();
+        return new Operation("tool " + name, weight, random -> {
+            String result = tool.call(args.apply(random).toString());
+            return result != null && !result.contains("Error:");
+        });
+    }
+
+    private JsonObject raceArgs(Random random) {
+        return raceArgs(randomRace(random));
+    }
+
+    private static JsonObject raceArgs(SyntheticRaceDay.Race race) {
+        JsonObject args = new JsonObject();
+        args.addProperty("time", race.time());
+        args.addProperty("place", race.place());
+        return args;
+    }
+
+    private static String race(Random random) {
+        SyntheticRaceDay.Race race = randomRace(random);
+        return "?time=" + encode(race.time()) + "&place=" + encode(race.place());
+    }
+
+    private static SyntheticRaceDay.Race randomRace(Random random) {
+        List<SyntheticRaceDay.Race> card = raceDay.getCard();
+        return card.get(random.nextInt(card.size()));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /** Samples used heap every 50ms, which catches peaks the pool MXBeans can miss across collections. */
+    private static final class HeapSampler {
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final AtomicLong highWater = new AtomicLong();
+        private final AtomicBoolean running = new AtomicBoolean(true);
+        private final Thread thread = new Thread(() -> {
+            while (running.get()) {
+                highWater.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+            }
+        }, "load-heap-sampler");
+
+        void start() {
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void stop() throws InterruptedException {
+            running.set(false);
+            thread.join();
+        }
+
+        long getHighWater() {
+            return highWater.get();
+        }
+    }
+}
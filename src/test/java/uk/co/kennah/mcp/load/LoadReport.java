@@ -0,0 +1,131 @@
+package uk.co.kennah.mcp.load;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+/**
+ * Collects latencies per operation and JVM figures during a run, and writes
+ * them as a JSON report that can be diffed between releases.
+ */
+class LoadReport {
+
+    private final Map<String, Samples> samples = new ConcurrentHashMap<>();
+    private final JsonObject configuration = new JsonObject();
+
+    /** A per-operation latency log. Appends are rare enough per operation that a lock is fine. */
+    private static final class Samples {
+        private long[] micros = new long[1024];
+        private int count;
+        private int errors;
+
+        synchronized void add(long latencyMicros, boolean ok) {
+            if (count == micros.length) {
+                micros = Arrays.copyOf(micros, count * 2);
+            }
+            micros[count++] = latencyMicros;
+            if (!ok) {
+                errors++;
+            }
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(micros, count);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    void configure(String name, Number value) {
+        configuration.addProperty(name, value);
+    }
+
+    void record(String operation, long latencyMicros, boolean ok) {
+        samples.computeIfAbsent(operation, k -> new Samples()).add(latencyMicros, ok);
+    }
+
+    JsonObject toJson(long elapsedNanos, GcMonitor gc, long heapHighWaterBytes) {
+        JsonObject report = new JsonObject();
+        report.addProperty("javaVersion", System.getProperty("java.version"));
+        report.addProperty("availableProcessors", Runtime.getRuntime().availableProcessors());
+        report.add("configuration", configuration);
+
+        long[] all = samples.values().stream().map(Samples::sorted).flatMapToLong(Arrays::stream).sorted().toArray();
+        int errors = samples.values().stream().mapToInt(s -> s.errors).sum();
+        double seconds = elapsedNanos / 1e9;
+        JsonObject totals = latencies(all);
+        totals.addProperty("errors", errors);
+        totals.addProperty("elapsedSeconds", seconds);
+        totals.addProperty("throughputPerSecond", all.length / seconds);
+        report.add("total", totals);
+
+        JsonObject operations = new JsonObject();
+        new TreeMap<>(samples).forEach((name, s) -> {
+            JsonObject op = latencies(s.sorted());
+            op.addProperty("errors", s.errors);
+            operations.add(name, op);
+        });
+        report.add("operations", operations);
+
+        JsonObject gcJson = new JsonObject();
+        gcJson.addProperty("collections", gc.getCount());
+        gcJson.addProperty("totalPauseMillis", gc.getTotalMillis());
+        gcJson.addProperty("maxPauseMillis", gc.getMaxMillis());
+        report.add("gc", gcJson);
+
+        JsonObject heap = new JsonObject();
+        heap.addProperty("sampledHighWaterBytes", heapHighWaterBytes);
+        heap.addProperty("poolPeakSumBytes", ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum());
+        heap.addProperty("maxBytes", Runtime.getRuntime().maxMemory());
+        report.add("heap", heap);
+        return report;
+    }
+
+    static void resetHeapPeaks() {
+        ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    static void write(JsonObject report, Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(report, out);
+        }
+    }
+
+    private static JsonObject latencies(long[] sorted) {
+        JsonObject json = new JsonObject();
+        json.addProperty("requests", sorted.length);
+        if (sorted.length > 0) {
+            json.addProperty("p50Micros", percentile(sorted, 50));
+            json.addProperty("p90Micros", percentile(sorted, 90));
+            json.addProperty("p99Micros", percentile(sorted, 99));
+            json.addProperty("p999Micros", percentile(sorted, 99.9));
+            json.addProperty("maxMicros", sorted[sorted.length - 1]);
+        }
+        return json;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,109 @@
+package uk.co.kennah.mcp.load;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Writes a synthetic race day (racecard plus odds file) of a configurable
+ * size, in the same shape as the files in the GCS bucket. The content is
+ * seeded so two runs of the same size are directly comparable.
+ */
+class SyntheticRaceDay {
+
+    private static final String[] PLACES = {
+            "Ascot", "York", "Newmarket", "Goodwood", "Cheltenham", "Epsom", "Sandown", "Kempton",
+            "Haydock", "Doncaster", "Leopardstown", "Curragh", "Punchestown", "Chantilly", "Longchamp", "Belmont" };
+    private static final String[] COUNTRIES = {
+            "UK", "UK", "UK", "UK", "UK", "UK", "UK", "UK", "UK", "UK", "IRE", "IRE", "IRE", "FR", "FR", "US" };
+    private static final String[] TYPES = { "Handicap", "Stakes", "Maiden", "Novice Hurdle", "Chase" };
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm");
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    record Race(String time, String place, List<String> horses) {}
+
+    private final int races;
+    private final int runners;
+    private final int formDepth;
+    private final List<Race> card = new ArrayList<>();
+
+    SyntheticRaceDay(int races, int runners, int formDepth) {
+        this.races = races;
+        this.runners = runners;
+        this.formDepth = formDepth;
+    }
+
+    List<Race> getCard() {
+        return card;
+    }
+
+    void write(Path racesFile, Path oddsFile) throws IOException {
+        Random random = new Random(42);
+        try (Writer out = Files.newBufferedWriter(racesFile, StandardCharsets.UTF_8);
+             JsonWriter json = new JsonWriter(out)) {
+            json.beginArray();
+            for (int r = 0; r < races; r++) {
+                int meeting = r % PLACES.length;
+                String place = PLACES[meeting];
+                String time = LocalTime.of(12, 0).plusMinutes(35L * (r / PLACES.length) + 5L * (meeting % 7)).format(TIME);
+                String type = TYPES[random.nextInt(TYPES.length)];
+                List<String> horses = new ArrayList<>();
+                json.beginObject();
+                json.name("time").value(time);
+                json.name("place").value(place);
+                json.name("country").value(COUNTRIES[meeting]);
+                json.name("detail").value(place + " " + type + " (CLASS " + (1 + random.nextInt(6)) + ") (3yo+)");
+                json.name("horses").beginArray();
+                for (int h = 0; h < runners; h++) {
+                    String name = "Runner " + r + "-" + h;
+                    horses.add(name);
+                    int ability = 40 + random.nextInt(80);
+                    json.beginObject();
+                    json.name("name").value(name);
+                    json.name("past").beginArray();
+                    LocalDate date = LocalDate.of(2025, 6, 1);
+                    for (int f = 0; f < formDepth; f++) {
+                        date = date.minusDays(7 + random.nextInt(60));
+                        json.beginObject();
+                        json.name("date").value(date.format(DATE));
+                        json.name("name").value(Math.max(0, ability + random.nextInt(21) - 10));
+                        json.endObject();
+                    }
+                    json.endArray();
+                    json.endObject();
+                }
+                json.endArray();
+                json.endObject();
+                card.add(new Race(time, place, horses));
+            }
+            json.endArray();
+        }
+
+        try (Writer out = Files.newBufferedWriter(oddsFile, StandardCharsets.UTF_8);
+             JsonWriter json = new JsonWriter(out)) {
+            json.beginArray();
+            for (Race race : card) {
+                for (String horse : race.horses()) {
+                    json.beginObject();
+                    json.name("name").value(horse);
+                    // Roughly one in twenty runners is a non-runner, which has no price.
+                    if (random.nextInt(20) != 0) {
+                        json.name("odds").value((1 + random.nextInt(20)) + "/" + (1 + random.nextInt(4)));
+                    }
+                    json.endObject();
+                }
+            }
+            json.endArray();
+        }
+    }
+}
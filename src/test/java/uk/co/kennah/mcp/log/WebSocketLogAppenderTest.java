@@ -0,0 +1,109 @@
+package uk.co.kennah.mcp.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import uk.co.kennah.mcp.aitools.TracingToolCallback;
+
+class WebSocketLogAppenderTest {
+
+    private final List<Message<?>> sent = new ArrayList<>();
+    private final LoggerContext context = new LoggerContext();
+    private WebSocketLogAppender appender;
+
+    @BeforeEach
+    void setUp() {
+        context.setMDCAdapter(new LogbackMDCAdapter());
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%-5level %logger - %msg%n");
+        encoder.start();
+
+        appender = new WebSocketLogAppender();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setReplaySize(3);
+        appender.start();
+        MessageChannel channel = (message, timeout) -> sent.add(message);
+        appender.setMessagingTemplate(new SimpMessagingTemplate(channel));
+    }
+
+    @Test
+    void replaysMatchingHistoryToTheNewSubscriberOnly() {
+        log(Level.INFO, "uk.co.kennah.mcp.A", "dropped from the buffer", null);
+        log(Level.WARN, "uk.co.kennah.mcp.A", "warning", null);
+        log(Level.INFO, "org.springframework.B", "spring", null);
+        log(Level.INFO, "uk.co.kennah.mcp.A", "info", null);
+        appender.subscribe("s1", "sub-0", LogFilter.ALL);
+
+        assertEquals(1, sent.size());
+        assertEquals("/user/s1/queue/logs", destination(0));
+        assertEquals("WARN  uk.co.kennah.mcp.A - warning\nINFO  org.springframework.B - spring\n"
+                + "INFO  uk.co.kennah.mcp.A - info\n", body(0));
+
+        sent.clear();
+        appender.subscribe("s2", "sub-0", LogFilter.from(Map.of("level", List.of("WARN"))));
+        assertEquals(1, sent.size());
+        assertEquals("/user/s2/queue/logs", destination(0));
+        assertEquals("WARN  uk.co.kennah.mcp.A - warning\n", body(0));
+    }
+
+    @Test
+    void sendsLiveLinesOnlyToSubscribersWhoseFilterMatches() {
+        appender.subscribe("all", "sub-0", LogFilter.ALL);
+        appender.subscribe("ours", "sub-0", LogFilter.from(Map.of("logger", List.of("uk.co.kennah, com.example"))));
+        appender.subscribe("tool", "sub-0", LogFilter.from(Map.of("tool", List.of("get_todays_races"))));
+
+        log(Level.INFO, "org.springframework.B", "spring", null);
+        log(Level.INFO, "uk.co.kennah.mcp.A", "answered", "get_todays_races");
+
+        assertEquals(4, sent.size());
+        assertEquals("/user/all/queue/logs", destination(0));
+        assertTrue(body(3).contains("answered"), body(3));
+        assertEquals(1, sent.stream().filter(m -> "/user/tool/queue/logs".equals(m.getHeaders().get("simpDestination")))
+                .count());
+
+        sent.clear();
+        appender.unsubscribe("all", "sub-1");
+        appender.unsubscribe("ours", null);
+        appender.unsubscribe("tool", "sub-0");
+        assertEquals(1, appender.getSubscriberCount());
+        log(Level.ERROR, "uk.co.kennah.mcp.A", "only the first subscriber is left", null);
+        assertEquals(1, sent.size());
+        assertEquals("/user/all/queue/logs", destination(0));
+    }
+
+    private void log(Level level, String loggerName, String message, String tool) {
+        Logger logger = context.getLogger(loggerName);
+        LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, level, message, null, null);
+        if (tool != null) {
+            event.setMDCPropertyMap(Map.of(TracingToolCallback.MDC_KEY, tool));
+        }
+        appender.doAppend(event);
+    }
+
+    private String destination(int index) {
+        return (String) sent.get(index).getHeaders().get("simpDestination");
+    }
+
+    private String body(int index) {
+        Object payload = sent.get(index).getPayload();
+        return payload instanceof byte[] bytes ? new String(bytes) : payload.toString();
+    }
+}
@@ -0,0 +1,83 @@
+package uk.co.kennah.mcp.query;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+
+import uk.co.kennah.mcp.snapshot.RaceSnapshot;
+import uk.co.kennah.mcp.snapshot.RaceSnapshotService;
+
+class FormVectorsTest {
+
+    private static final String RACES = """
+            [
+              {"time": "14:05", "place": "Ascot", "horses": [
+                {"name": "Improver", "past": [{"date": "20/01/2023", "name": 100}, {"date": "10/01/2023", "name": 98}, {"date": "01/01/2023", "name": 96}]},
+                {"name": "Fader", "past": [{"date": "05/01/2023", "name": 60}, {"date": "01/12/2022", "name": 70}, {"date": "01/11/2022", "name": 80}]},
+                {"name": "Unraced"}
+              ]},
+              {"time": "15:00", "place": "York", "horses": [
+                {"name": "Twin", "past": [{"date": "19/01/2023", "name": 101}, {"date": "09/01/2023", "name": 99}, {"date": "31/12/2022", "name": 97}]},
+                {"name": "Withdrawn Twin", "odds": "NR", "past": [{"date": "20/01/2023", "name": 100}, {"date": "10/01/2023", "name": 98}, {"date": "01/01/2023", "name": 96}]},
+                {"name": "Cousin", "past": [{"date": "15/01/2023", "name": 92}, {"date": "01/01/2023", "name": 90}]}
+              ]}
+            ]
+            """;
+
+    private RunnerColumns columns;
+    private RunnerStore store;
+
+    @BeforeEach
+    void setUp() {
+        JsonArray races = JsonParser.parseString(RACES).getAsJsonArray();
+        columns = RunnerColumns.from(1, races);
+        RaceSnapshot snapshot = mock(RaceSnapshot.class);
+        when(snapshot.getVersion()).thenReturn(1L);
+        when(snapshot.getRaces()).thenReturn(races);
+        RaceSnapshotService snapshotService = mock(RaceSnapshotService.class);
+        when(snapshotService.getCurrent()).thenReturn(snapshot);
+        store = new RunnerStore();
+        ReflectionTestUtils.setField(store, "snapshotService", snapshotService);
+    }
+
+    @Test
+    void formIsReducedToFiguresOncePerSnapshot() {
+        FormVectors vectors = columns.getFormVectors();
+        assertEquals(5, vectors.size());
+        assertEquals(-1, vectors.slots[2]);
+        assertEquals("ratings 100, 98, 96; trend +2.0 a run; peak 100; spread 1.6; 0 days since last run",
+                vectors.describe(vectors.slots[0]));
+        // Two runs, the missing third rating is the average.
+        assertEquals("ratings 92, 90, 91; trend +2.0 a run; peak 92; spread 1.0; 5 days since last run",
+                vectors.describe(vectors.slots[5]));
+        assertEquals("ratings 60, 70, 80; trend -10.0 a run; peak 80; spread 8.2; 15 days since last run",
+                vectors.describe(vectors.slots[1]));
+    }
+
+    @Test
+    void nearestRunnersAreFoundAcrossTheCard() {
+        FormVectors vectors = columns.getFormVectors();
+        int improver = vectors.slots[0];
+        int[] all = vectors.nearest(improver, 10, null);
+        assertArrayEquals(new int[] { vectors.slots[4], vectors.slots[3], vectors.slots[5], vectors.slots[1] }, all);
+        assertEquals(0, vectors.distance(improver, vectors.slots[4]), 1e-6);
+        assertArrayEquals(new int[] { vectors.slots[3] }, vectors.nearest(improver, 1, columns.nonRunners));
+
+        String similar = store.similar("improver", 2);
+        assertTrue(similar.startsWith("Runners in similar form to Improver in the 14:05 Ascot (ratings 100, 98, 96;"), similar);
+        assertTrue(similar.contains(String.format("%n1. Twin in the 15:00 York, distance ")), similar);
+        assertTrue(similar.contains(String.format("%n2. Cousin in the 15:00 York, distance ")), similar);
+        assertEquals("Could not find horse Nobody in today's races.", store.similar("Nobody", null));
+        assertEquals("No rated past runs to compare for Unraced.", store.similar("Unraced", null));
+        assertEquals("Error: Limit must be between 1 and 100", store.similar("Improver", 0));
+    }
+}
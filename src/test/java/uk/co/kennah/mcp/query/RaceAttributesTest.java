@@ -0,0 +1,102 @@
+package uk.co.kennah.mcp.query;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.BitSet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+
+import uk.co.kennah.mcp.snapshot.RaceSnapshot;
+import uk.co.kennah.mcp.snapshot.RaceSnapshotService;
+
+class RaceAttributesTest {
+
+    private static final String RACES = """
+            [
+              {"time": "14:05", "place": "Ascot", "detail": "Ascot Handicap (CLASS 4) (3yo+)", "country": "UK", "horses": [
+                {"name": "Good Horse", "past": [{"date": "02/01/2023", "name": 100}, {"date": "03/01/2023", "name": 98}]},
+                {"name": "Bad Horse", "odds": "NR", "past": [{"date": "01/01/2023", "name": 120}]}
+              ]},
+              {"time": "15:00", "place": "York", "detail": "York Stakes (CLASS 5) (4yo+)", "country": "UK", "horses": [
+                {"name": "Average Horse", "past": [{"date": "01/01/2023", "name": 75}]}
+              ]},
+              {"time": "15:30", "place": "Newton Abbot", "detail": "Novices' Handicap Chase (Class 3)", "country": "IRE", "horses": [
+                {"name": "Tied Horse", "past": [{"date": "01/01/2023", "name": 99}]},
+                {"name": "Later Tied Horse", "past": [{"date": "01/01/2023", "name": 99}]}
+              ]}
+            ]
+            """;
+
+    private RunnerColumns columns;
+    private RunnerStore store;
+
+    @BeforeEach
+    void setUp() {
+        JsonArray races = JsonParser.parseString(RACES).getAsJsonArray();
+        columns = RunnerColumns.from(1, races);
+        RaceSnapshot snapshot = mock(RaceSnapshot.class);
+        when(snapshot.getVersion()).thenReturn(1L);
+        when(snapshot.getRaces()).thenReturn(races);
+        RaceSnapshotService snapshotService = mock(RaceSnapshotService.class);
+        when(snapshotService.getCurrent()).thenReturn(snapshot);
+        store = new RunnerStore();
+        ReflectionTestUtils.setField(store, "snapshotService", snapshotService);
+    }
+
+    @Test
+    void racesAreClassifiedOnceIntoBitmaps() {
+        RaceAttributes attributes = columns.getAttributes();
+        assertEquals(3, attributes.raceCount());
+        assertEquals(2, attributes.counts().get("handicap"));
+        assertEquals(1, attributes.counts().get("class:3"));
+        assertEquals(2, attributes.counts().get("country:uk"));
+        assertEquals(1, attributes.counts().get("place:newton-abbot"));
+
+        assertEquals(races(0), attributes.select("handicap and country:UK"));
+        assertEquals(races(1, 2), attributes.select("not place:ascot"));
+        assertEquals(races(0, 2), attributes.select("(class:4 or chase) and not stakes"));
+        assertEquals(races(0, 1, 2), attributes.select(" "));
+        assertEquals(races(), attributes.select("maiden or place:kempton or class:7"));
+
+        assertThrows(IllegalArgumentException.class, () -> attributes.select("handicap and"));
+        assertThrows(IllegalArgumentException.class, () -> attributes.select("flat"));
+        assertThrows(IllegalArgumentException.class, () -> attributes.select("(chase"));
+    }
+
+    @Test
+    void napsLeaderboardsAndListingsUseTheSelectedRaces() {
+        // The non-runner rated 120 is skipped.
+        assertEquals("The handicap nap of the day is Good Horse in the 14:05 at Ascot, with a recent average rating of 99.00.",
+                store.nap("handicap", "The handicap nap of the day is %s in the %s at %s, with a recent average rating of %.2f.",
+                        "none"));
+        // The first of two equal runners wins.
+        assertEquals("Tied Horse", store.nap("country:ire", "%s", "none"));
+        assertEquals("none", store.nap("maiden", "%s", "none"));
+        assertTrue(store.nap("handicap or", "%s", "none").startsWith("Error: Expected a race attribute"));
+
+        String leaderboard = store.leaderboard("not stakes", 2);
+        assertEquals("Top rated runners in races matching 'not stakes', by average of the last 3 runs:"
+                + String.format("%n1. Good Horse in the 14:05 Ascot, 99.00%n2. Tied Horse in the 15:30 Newton Abbot, 99.00"),
+                leaderboard);
+
+        assertEquals("2 of 3 races: 14:05 Ascot, 15:00 York", store.races("country:uk"));
+        assertEquals("None of today's races match 'hurdle'.", store.races("hurdle"));
+    }
+
+    private static BitSet races(int... indexes) {
+        BitSet races = new BitSet();
+        for (int index : indexes) {
+            races.set(index);
+        }
+        return races;
+    }
+}
@@ -0,0 +1,96 @@
+package uk.co.kennah.mcp.query;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import uk.co.kennah.mcp.rating.RatingStrategies;
+import uk.co.kennah.mcp.rating.RatingStrategy;
+import uk.co.kennah.mcp.utils.Util;
+
+class RunnerQueryTest {
+
+    private JsonArray races;
+    private RunnerColumns columns;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        try (Reader reader = new InputStreamReader(getClass().getResourceAsStream("/races/sample_races.json"),
+                StandardCharsets.UTF_8)) {
+            races = JsonParser.parseReader(reader).getAsJsonArray();
+        }
+        JsonArray ascot = races.get(0).getAsJsonObject().getAsJsonArray("horses");
+        ascot.get(0).getAsJsonObject().addProperty("odds", "2/1");
+        ascot.get(1).getAsJsonObject().addProperty("odds", "NR");
+        columns = RunnerColumns.from(1, races);
+    }
+
+    @Test
+    void derivedColumnsMatchUtil() {
+        int row = 0;
+        for (var race : races) {
+            for (var horse : race.getAsJsonObject().getAsJsonArray("horses")) {
+                assertEquals(Util.calculateAverageRating(horse.getAsJsonObject(), Optional.of(3)), columns.last3[row], 1e-9);
+                assertEquals(best(horse.getAsJsonObject()), columns.best[row], 1e-9);
+                row++;
+            }
+        }
+        assertEquals(4, columns.size());
+        assertEquals(3.0, columns.odds[0], 1e-9);
+    }
+
+    @Test
+    void filtersSortsAndLimits() {
+        String result = new RunnerQuery(columns, "country = UK and handicap and runner and time < 15:00 and last3 > 60",
+                "best desc", 5, null, null).run();
+
+        assertTrue(result.startsWith("2 runners match:\n"
+                + "Good Horse (14:05 Ascot): last3=98, best=100\n"
+                + "O'Reilly (14:05 Ascot): last3=70, best=70\n"), result);
+    }
+
+    @Test
+    void aggregatesPerGroup() {
+        String result = new RunnerQuery(columns, "not nr", null, null, "count, avg(last3), max(form(1))", "place").run();
+
+        assertTrue(result.startsWith("3 runners match in 2 groups:\n"
+                + "Ascot: count=2, avg(last3)=84, max(form(1))=100\n"
+                + "York: count=1, avg(last3)=75, max(form(1))=75\n"), result);
+    }
+
+    @Test
+    void rejectsAnythingOutsideTheLanguage() {
+        IllegalArgumentException unknown = assertThrows(IllegalArgumentException.class,
+                () -> new RunnerQuery(columns, "exec(1) > 1", null, null, null, null));
+        assertTrue(unknown.getMessage().startsWith("Unknown field 'exec'"), unknown.getMessage());
+        assertThrows(IllegalArgumentException.class,
+                () -> new RunnerQuery(columns, "last3 >", null, null, null, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new RunnerQuery(columns, null, "best sideways", null, null, null));
+    }
+
+    /**
+     * @return The runner's best rating the way the rating strategies see it, non-runners included.
+     */
+    private static int best(JsonObject horse) {
+        RatingStrategy.Accumulator best = RatingStrategies.BEST_EVER.start();
+        int position = 0;
+        for (var form : horse.getAsJsonArray("past")) {
+            best.add(position++, form.getAsJsonObject().get("name").getAsInt());
+        }
+        return best.rating();
+    }
+}
@@ -0,0 +1,37 @@
+package uk.co.kennah.mcp.rating;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+class RatingEvaluatorTest {
+
+    @Test
+    void worksOutEveryStrategyInOnePassAndLeavesOutNonRunners() throws IOException {
+        JsonObject race;
+        try (Reader reader = new InputStreamReader(
+                RatingEvaluatorTest.class.getResourceAsStream("/races/sample_races.json"), StandardCharsets.UTF_8)) {
+            race = JsonParser.parseReader(reader).getAsJsonArray().get(0).getAsJsonObject();
+        }
+        race.getAsJsonArray("horses").get(2).getAsJsonObject().addProperty("odds", "NR");
+
+        RaceRatings ratings = RatingEvaluator.evaluate(race, RatingStrategies.ALL);
+
+        assertEquals(List.of("Good Horse", "Bad Horse"), ratings.runners());
+        // last one, last three, best ever, all, recency weighted
+        assertArrayEquals(new int[] { 100, 98, 100, 98, 98 }, ratings.ratings()[0]);
+        assertArrayEquals(new int[] { 50, 51, 52, 51, 50 }, ratings.ratings()[1]);
+        assertEquals(150, ratings.total(0));
+        assertArrayEquals(new int[] { 0, 1 }, ratings.ranked(2));
+    }
+}
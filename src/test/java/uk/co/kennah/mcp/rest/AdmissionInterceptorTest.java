@@ -0,0 +1,48 @@
+package uk.co.kennah.mcp.rest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+/**
+ * Runs against the real server, where Tomcat resolves the client from
+ * X-Forwarded-For, as it does behind a load balancer.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "race.source.type=classpath",
+        "spring.ai.mcp.server.stdio=false",
+        "gcs.oddsfile.name=sample_odds.json",
+        "spring.cloud.gcp.storage.enabled=false",
+        "limit.client.rate=0.001",
+        "limit.client.burst=1"
+})
+class AdmissionInterceptorTest {
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @Test
+    void callersBehindTheSameProxyHaveTheirOwnLimits() throws Exception {
+        assertEquals(200, meetings("203.0.113.7"));
+        assertEquals(429, meetings("203.0.113.7"));
+        assertEquals(200, meetings("198.51.100.23"));
+    }
+
+    private int meetings(String client) throws IOException, InterruptedException {
+        // Every request comes from the loopback address, the proxy, on behalf of the client.
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/meetings"))
+                .header("X-Forwarded-For", client)
+                .build();
+        return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
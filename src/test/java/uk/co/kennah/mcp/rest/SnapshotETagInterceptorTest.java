@@ -0,0 +1,90 @@
+package uk.co.kennah.mcp.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.method.HandlerMethod;
+
+import com.google.gson.JsonParser;
+
+import uk.co.kennah.mcp.gcp.GCSHorseReader;
+import uk.co.kennah.mcp.gcp.LoadState;
+import uk.co.kennah.mcp.snapshot.RaceSnapshotService;
+
+class SnapshotETagInterceptorTest {
+
+    private static final String ASCOT = """
+            [{"place": "Ascot", "time": "13:50", "horses": [{"name": "Good Horse", "odds": "2/1"}]}]
+            """;
+    private static final String YORK = """
+            [{"place": "York", "time": "14:00", "horses": [{"name": "Average Horse", "odds": "evens"}]}]
+            """;
+
+    @Test
+    void aRestartedServerOnlyAnswersNotModifiedForTheSameCard() throws Exception {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        assertThat(interceptor(ASCOT).preHandle(get("/meetings"), first, handler("getMeetings"))).isTrue();
+        String etag = first.getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull();
+
+        // Both servers are at snapshot version 1, but they hold different cards.
+        MockHttpServletRequest revalidate = get("/meetings");
+        revalidate.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse other = new MockHttpServletResponse();
+        assertThat(interceptor(YORK).preHandle(revalidate, other, handler("getMeetings"))).isTrue();
+        assertThat(other.getStatus()).isEqualTo(200);
+        assertThat(other.getHeader(HttpHeaders.ETAG)).isNotEqualTo(etag);
+
+        MockHttpServletResponse same = new MockHttpServletResponse();
+        assertThat(interceptor(ASCOT).preHandle(revalidate, same, handler("getMeetings"))).isFalse();
+        assertThat(same.getStatus()).isEqualTo(304);
+    }
+
+    @Test
+    void theNextRaceIsNeverValidated() throws Exception {
+        SnapshotETagInterceptor interceptor = interceptor(ASCOT);
+        MockHttpServletRequest request = get("/next-race");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "*");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(interceptor.preHandle(request, response, handler("getNextRace"))).isTrue();
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isNull();
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isNull();
+    }
+
+    /**
+     * @return An interceptor for a freshly started server that has loaded one card.
+     */
+    private static SnapshotETagInterceptor interceptor(String card) {
+        GCSHorseReader reader = mock(GCSHorseReader.class);
+        when(reader.reloadFileFromGCSAsJson()).thenReturn(JsonParser.parseString(card));
+        when(reader.getLoadState()).thenReturn(LoadState.LOADING);
+        RaceSnapshotService snapshots = new RaceSnapshotService();
+        ReflectionTestUtils.setField(snapshots, "gcsReader", reader);
+        ReflectionTestUtils.setField(snapshots, "eventPublisher", (ApplicationEventPublisher) event -> {
+        });
+        snapshots.refresh();
+        snapshots.shutdown();
+
+        SnapshotETagInterceptor interceptor = new SnapshotETagInterceptor();
+        ReflectionTestUtils.setField(interceptor, "snapshotService", snapshots);
+        ReflectionTestUtils.setField(interceptor, "maxAgeSeconds", 10L);
+        return interceptor;
+    }
+
+    private static HandlerMethod handler(String name) throws NoSuchMethodException {
+        return new HandlerMethod(new RacesInfoController(), RacesInfoController.class.getMethod(name));
+    }
+
+    private static MockHttpServletRequest get(String uri) {
+        return new MockHttpServletRequest("GET", uri);
+    }
+}
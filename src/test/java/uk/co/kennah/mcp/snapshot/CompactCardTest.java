@@ -0,0 +1,64 @@
+package uk.co.kennah.mcp.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import uk.co.kennah.mcp.utils.HeapEstimate;
+
+class CompactCardTest {
+
+    @Test
+    void givesBackAnEqualCardWithSharedValues() throws IOException {
+        JsonArray races;
+        try (Reader reader = new InputStreamReader(
+                CompactCardTest.class.getResourceAsStream("/races/sample_races.json"), StandardCharsets.UTF_8)) {
+            races = JsonParser.parseReader(reader).getAsJsonArray();
+        }
+        // Shapes the columns do not cover must survive as well.
+        JsonObject firstRunner = races.get(0).getAsJsonObject().getAsJsonArray("horses").get(0).getAsJsonObject();
+        firstRunner.add("odds", JsonNull.INSTANCE);
+        firstRunner.addProperty("jockey", "A Rider");
+        firstRunner.getAsJsonArray("past").get(0).getAsJsonObject().addProperty("name", 96.5);
+        races.get(1).getAsJsonObject().addProperty("distance", 8);
+        // Members in an order other than the usual one, and a column member of an unexpected type.
+        JsonObject reordered = new JsonObject();
+        reordered.addProperty("country", "IRE");
+        reordered.add("horses", new JsonArray());
+        reordered.addProperty("place", "Navan");
+        reordered.addProperty("time", 1405);
+        races.add(reordered);
+
+        CompactCard card = CompactCard.encode(races);
+        JsonArray rebuilt = card.toJson();
+
+        assertEquals(races, rebuilt);
+        // The same text, so members come back in their original order.
+        assertEquals(races.toString(), rebuilt.toString());
+        assertEquals(Integer.class, rating(rebuilt).getClass());
+        assertSame(country(rebuilt, 0), country(rebuilt, 1), "Both UK races should share one value");
+        assertTrue(HeapEstimate.of(rebuilt) < HeapEstimate.of(races));
+        assertTrue(card.estimatedBytes() < HeapEstimate.of(rebuilt));
+    }
+
+    private static Number rating(JsonArray races) {
+        JsonObject runner = races.get(1).getAsJsonObject().getAsJsonArray("horses").get(0).getAsJsonObject();
+        return runner.getAsJsonArray("past").get(0).getAsJsonObject().get("name").getAsNumber();
+    }
+
+    private static Object country(JsonArray races, int index) {
+        return races.get(index).getAsJsonObject().get("country");
+    }
+}
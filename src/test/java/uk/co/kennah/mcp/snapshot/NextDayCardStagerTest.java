@@ -0,0 +1,162 @@
+package uk.co.kennah.mcp.snapshot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import uk.co.kennah.mcp.gcp.GCSHorseReader;
+
+@ExtendWith(MockitoExtension.class)
+class NextDayCardStagerTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/London");
+    private static final String OBJECT = "races-tomorrow.json";
+
+    private static final String ONE_RACE = """
+            [{"time": "14:05", "place": "Ascot", "horses": [{"name": "Good Horse"}]}]
+            """;
+    private static final String TWO_RACES = """
+            [{"time": "14:05", "place": "Ascot", "horses": [{"name": "Good Horse"}]},
+             {"time": "15:00", "place": "York", "horses": [{"name": "Average Horse"}]}]
+            """;
+
+    @Mock
+    private GCSHorseReader gcsReader;
+
+    @Mock
+    private RaceSnapshotService snapshotService;
+
+    @InjectMocks
+    private NextDayCardStager stager;
+
+    private final LocalDate today = LocalDate.now(ZONE);
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(gcsReader.isDateTemplated()).thenReturn(true);
+        lenient().when(gcsReader.getZone()).thenReturn(ZONE);
+    }
+
+    @Test
+    void validateRejectsACardThatCannotGoLive() {
+        assertThat(NextDayCardStager.validate(card(ONE_RACE))).isEmpty();
+        assertThat(NextDayCardStager.validate(card("{\"error\": \"File not found\"}"))).containsExactly("File not found");
+        assertThat(NextDayCardStager.validate(card("[]"))).containsExactly("the card has no races");
+        assertThat(NextDayCardStager.validate(card("[{\"time\": \"2pm\", \"place\": \"Ascot\"}, 7]"))).containsExactly(
+                "the race at Ascot has an invalid time '2pm'", "entry 0 has no runners", "entry 1 is not a race");
+    }
+
+    @Test
+    void aRejectedCardIsReportedAndNotStaged() {
+        when(gcsReader.getCardDate()).thenReturn(today);
+        when(gcsReader.readCardForDate(eq(today.plusDays(1)), anyMap())).thenReturn(card("[]"));
+
+        stager.stageNextDay();
+
+        assertThat(stager.getStagedDate()).isNull();
+        assertThat(stager.getLastStagingError()).isEqualTo("Card for " + today.plusDays(1) + " is not usable: the card has no races");
+    }
+
+    @Test
+    void tomorrowIsStagedOnceAndAgainWhenItsObjectsAreReplaced() throws IOException {
+        LocalDate tomorrow = today.plusDays(1);
+        when(gcsReader.getCardDate()).thenReturn(today);
+        when(gcsReader.readCardForDate(eq(tomorrow), anyMap())).thenAnswer(read(1L, ONE_RACE))
+                .thenAnswer(read(2L, TWO_RACES));
+        when(gcsReader.findGenerations(tomorrow)).thenReturn(Map.of(OBJECT, 1L));
+
+        stager.stageNextDay();
+        stager.stageNextDay();
+
+        verify(gcsReader, times(1)).readCardForDate(eq(tomorrow), anyMap());
+        assertThat(stager.getStagedDate()).isEqualTo(tomorrow);
+        assertThat(stager.getStagedCard().races()).isEqualTo(1);
+
+        when(gcsReader.findGenerations(tomorrow)).thenReturn(Map.of(OBJECT, 2L));
+        stager.stageNextDay();
+        stager.stageNextDay();
+
+        verify(gcsReader, times(2)).readCardForDate(eq(tomorrow), anyMap());
+        assertThat(stager.getStagedCard().races()).isEqualTo(2);
+        assertThat(stager.getLastStagingError()).isNull();
+    }
+
+    @Test
+    void rollOverPromotesTheStagedCardOnce() throws IOException {
+        LocalDate yesterday = today.minusDays(1);
+        when(gcsReader.getCardDate()).thenReturn(yesterday);
+        when(gcsReader.readCardForDate(eq(today), anyMap())).thenAnswer(read(1L, ONE_RACE));
+        stager.stageNextDay();
+
+        stager.rollOver();
+
+        verify(snapshotService).promote(today, card(ONE_RACE));
+        assertThat(stager.getStagedDate()).isNull();
+        assertThat(stager.getStagedCard()).isNull();
+
+        // Run again while the promoted day is still ahead, as if it had fired twice, it does nothing.
+        when(gcsReader.getCardDate()).thenReturn(today.plusDays(1));
+        stager.rollOver();
+
+        verify(snapshotService, times(1)).promote(any(), any());
+        verify(snapshotService, never()).refresh();
+        verify(gcsReader, never()).setCardDate(any());
+    }
+
+    @Test
+    void rollOverReadsTheDayColdWhenNothingWasStaged() {
+        when(gcsReader.getCardDate()).thenReturn(today.minusDays(1));
+
+        stager.rollOver();
+
+        verify(gcsReader).setCardDate(today);
+        verify(snapshotService).refresh();
+        verify(snapshotService, never()).promote(any(), any());
+    }
+
+    @Test
+    void nothingIsStagedOrRolledOverWithAFixedObjectName() {
+        when(gcsReader.isDateTemplated()).thenReturn(false);
+
+        stager.stageNextDay();
+        stager.rollOver();
+
+        verifyNoInteractions(snapshotService);
+        verify(gcsReader, never()).getCardDate();
+    }
+
+    private static Answer<JsonElement> read(long generation, String races) {
+        return invocation -> {
+            Map<String, Long> generations = invocation.getArgument(1);
+            generations.put(OBJECT, generation);
+            return card(races);
+        };
+    }
+
+    private static JsonElement card(String json) {
+        return JsonParser.parseString(json);
+    }
+}
@@ -0,0 +1,120 @@
+package uk.co.kennah.mcp.snapshot;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Plain unit tests for the snapshot diff, which decides when MCP resource
+ * updates are sent.
+ */
+class RaceSnapshotDiffTest {
+
+    private static final String CARD = """
+            [
+              {"time": "14:05", "place": "Ascot", "horses": [
+                  {"name": "GoodHorse", "odds": "2/1"},
+                  {"name": "BadHorse", "odds": "%s"}
+              ]},
+              {"time": "15:00", "place": "York", "horses": [
+                  {"name": "AverageHorse", "odds": "5/1"}
+              ]}
+            ]
+            """;
+
+    private static JsonArray card(String badHorseOdds) {
+        return JsonParser.parseString(CARD.formatted(badHorseOdds)).getAsJsonArray();
+    }
+
+    @Test
+    void firstLoadAddsEveryRace() {
+        JsonArray races = card("10/1");
+
+        RaceSnapshotDiff diff = RaceSnapshotDiff.between(RaceSnapshot.EMPTY, races);
+        RaceSnapshot snapshot = RaceSnapshot.next(RaceSnapshot.EMPTY, races, diff);
+
+        assertThat(diff.addedRaces()).containsExactly(new RaceKey("14:05", "Ascot"), new RaceKey("15:00", "York"));
+        assertThat(snapshot.getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void identicalReloadKeepsTheSameSnapshot() {
+        JsonArray races = card("10/1");
+        RaceSnapshot first = RaceSnapshot.next(RaceSnapshot.EMPTY, races, RaceSnapshotDiff.between(RaceSnapshot.EMPTY, races));
+
+        JsonArray reloaded = card("10/1");
+        RaceSnapshotDiff diff = RaceSnapshotDiff.between(first, reloaded);
+
+        assertThat(diff.isEmpty()).isTrue();
+        assertThat(RaceSnapshot.next(first, reloaded, diff)).isSameAs(first);
+    }
+
+    @Test
+    void priceMoveOnlyTouchesThatRace() {
+        JsonArray races = card("10/1");
+        RaceSnapshot first = RaceSnapshot.next(RaceSnapshot.EMPTY, races, RaceSnapshotDiff.between(RaceSnapshot.EMPTY, races));
+
+        JsonArray moved = card("NR");
+        RaceSnapshotDiff diff = RaceSnapshotDiff.between(first, moved);
+        RaceSnapshot second = RaceSnapshot.next(first, moved, diff);
+
+        assertThat(diff.changedRaces()).containsExactly(new RaceKey("14:05", "Ascot"));
+        assertThat(diff.nonRunnersChanged()).isTrue();
+        assertThat(second.getVersion()).isEqualTo(2);
+        assertThat(second.getRaceVersion(new RaceKey("14:05", "Ascot"))).isEqualTo(2);
+        assertThat(second.getRaceVersion(new RaceKey("15:00", "York"))).isEqualTo(1);
+        assertThat(second.getNonRunners()).containsExactly("14:05 at Ascot: BadHorse");
+    }
+
+    @Test
+    void changesCarryOnlyTheRunnersThatMoved() {
+        JsonArray races = card("NR");
+        RaceSnapshot first = RaceSnapshot.next(RaceSnapshot.EMPTY, races, RaceSnapshotDiff.between(RaceSnapshot.EMPTY, races));
+
+        JsonArray moved = card("12/1");
+        RaceSnapshotDiff diff = RaceSnapshotDiff.between(first, moved);
+        RaceChanges changes = RaceChanges.between(first, RaceSnapshot.next(first, moved, diff), diff);
+
+        assertThat(changes.oddsByPlace()).containsOnlyKeys("Ascot");
+        assertThat(changes.oddsByPlace().get("Ascot"))
+                .containsExactly(new RaceChanges.OddsChange("14:05", "BadHorse", "NR", "12/1"));
+        assertThat(changes.newNonRunners()).isEmpty();
+        assertThat(changes.reinstated()).containsExactly("14:05 at Ascot: BadHorse");
+    }
+
+    @Test
+    void aRunnerTakenOffARaceStillOnTheCardIsReportedAsRemoved() {
+        JsonArray races = card("NR");
+        RaceSnapshot first = RaceSnapshot.next(RaceSnapshot.EMPTY, races, RaceSnapshotDiff.between(RaceSnapshot.EMPTY, races));
+
+        JsonArray trimmed = card("NR");
+        trimmed.get(0).getAsJsonObject().getAsJsonArray("horses").remove(1);
+        RaceSnapshotDiff diff = RaceSnapshotDiff.between(first, trimmed);
+        RaceChanges changes = RaceChanges.between(first, RaceSnapshot.next(first, trimmed, diff), diff);
+
+        assertThat(diff.changedRaces()).containsExactly(new RaceKey("14:05", "Ascot"));
+        assertThat(changes.isEmpty()).isFalse();
+        assertThat(changes.oddsByPlace()).isEmpty();
+        assertThat(changes.removedRunners()).containsExactly("14:05 at Ascot: BadHorse");
+        assertThat(changes.reinstated()).isEmpty();
+    }
+
+    @Test
+    void theNonRunnersOfARemovedRaceAreNotReinstated() {
+        JsonArray races = card("NR");
+        RaceSnapshot first = RaceSnapshot.next(RaceSnapshot.EMPTY, races, RaceSnapshotDiff.between(RaceSnapshot.EMPTY, races));
+
+        JsonArray abandoned = card("NR");
+        abandoned.remove(0);
+        RaceSnapshotDiff diff = RaceSnapshotDiff.between(first, abandoned);
+        RaceChanges changes = RaceChanges.between(first, RaceSnapshot.next(first, abandoned, diff), diff);
+
+        assertThat(diff.removedRaces()).containsExactly(new RaceKey("14:05", "Ascot"));
+        assertThat(diff.nonRunnersChanged()).isTrue();
+        assertThat(changes.reinstated()).isEmpty();
+        assertThat(changes.newNonRunners()).isEmpty();
+        assertThat(changes.removedRunners()).isEmpty();
+    }
+}
@@ -0,0 +1,85 @@
+package uk.co.kennah.mcp.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+
+import uk.co.kennah.mcp.source.LocalDirectoryRaceDataSource;
+
+class SnapshotArtifactTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 6, 17);
+
+    @Test
+    void roundTripsTheCardAndAggregates() throws IOException {
+        JsonArray races = sampleRaces();
+        SnapshotArtifact artifact = SnapshotArtifact.of(DATE, 7, 9, races);
+
+        SnapshotArtifact decoded = SnapshotArtifact.decode(ByteBuffer.wrap(artifact.encode()));
+
+        assertEquals(races, decoded.races());
+        assertEquals(races.toString(), decoded.races().toString());
+        assertEquals(DATE, decoded.cardDate());
+        assertEquals(7, decoded.racesGeneration());
+        assertEquals(9, decoded.oddsGeneration());
+        assertEquals(artifact.raceCount(), decoded.raceCount());
+        assertEquals(artifact.runnerCount(), decoded.runnerCount());
+        assertEquals(artifact.nonRunners(), decoded.nonRunners());
+    }
+
+    @Test
+    void rejectsCorruptAndForeignFiles() {
+        byte[] bytes = SnapshotArtifact.of(DATE, 1, 1, sampleRaces()).encode();
+        bytes[bytes.length - 3] ^= 0x5A;
+        IOException corrupt = assertThrows(IOException.class, () -> SnapshotArtifact.decode(ByteBuffer.wrap(bytes)));
+        assertEquals("Snapshot artifact checksum mismatch", corrupt.getMessage());
+
+        byte[] json = "[{\"time\":\"14:05\"}]".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> SnapshotArtifact.decode(ByteBuffer.wrap(json)));
+    }
+
+    @Test
+    void readerMapsWhatTheBuilderWroteToALocalDirectory(@TempDir Path directory) throws IOException {
+        LocalDirectoryRaceDataSource source = new LocalDirectoryRaceDataSource();
+        ReflectionTestUtils.setField(source, "directory", directory.toString());
+        JsonArray races = sampleRaces();
+        source.write("races-2025-06-17.snapshot", SnapshotArtifact.of(DATE, 1, 1, races).encode());
+
+        SnapshotArtifactReader reader = new SnapshotArtifactReader();
+        ReflectionTestUtils.setField(reader, "dataSource", source);
+        SnapshotArtifact first = reader.load("races-2025-06-17.snapshot", DATE);
+        assertEquals(races, first.races());
+        // Unchanged on disk, so the same card comes back without decoding again.
+        assertEquals(first, reader.load("races-2025-06-17.snapshot", DATE));
+
+        IOException wrongDay = assertThrows(IOException.class,
+                () -> reader.load("races-2025-06-17.snapshot", DATE.plusDays(1)));
+        assertEquals("Snapshot artifact 'races-2025-06-17.snapshot' is for 2025-06-17, not 2025-06-18",
+                wrongDay.getMessage());
+        assertEquals(List.of(), List.of(directory.toFile().list((dir, name) -> name.endsWith(".tmp"))));
+    }
+
+    private static JsonArray sampleRaces() {
+        try (Reader reader = new InputStreamReader(
+                SnapshotArtifactTest.class.getResourceAsStream("/races/sample_races.json"), StandardCharsets.UTF_8)) {
+            return JsonParser.parseReader(reader).getAsJsonArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package uk.co.kennah.mcp.source;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import com.google.gson.JsonObject;
+
+import uk.co.kennah.mcp.gcp.GCSHorseReader;
+import uk.co.kennah.mcp.gcp.ReaderFixture;
+
+class CompressionTest {
+
+    @Test
+    void contentEncodingWinsOverTheExtension() {
+        assertEquals(Compression.GZIP, Compression.of("todays.txt.gz", null));
+        assertEquals(Compression.ZSTD, Compression.of("odds.JSON.ZST", ""));
+        assertEquals(Compression.GZIP, Compression.of("todays.txt", "gzip"));
+        assertEquals(Compression.ZSTD, Compression.of("todays.txt.gz", "zstd"));
+        assertEquals(Compression.NONE, Compression.of("todays.txt", "identity"));
+    }
+
+    @Test
+    void compressedCardAndOddsAreDecodedOnTheWayIntoTheParser(@TempDir Path directory) throws IOException {
+        try (InputStream in = getClass().getResourceAsStream("/races/sample_races.json");
+                OutputStream out = new GZIPOutputStream(Files.newOutputStream(directory.resolve("races.json.gz")))) {
+            in.transferTo(out);
+        }
+        try (InputStream in = getClass().getResourceAsStream("/races/sample_odds.json");
+                OutputStream out = new ZstdOutputStream(Files.newOutputStream(directory.resolve("odds.json.zst")))) {
+            in.transferTo(out);
+        }
+        GCSHorseReader reader = ReaderFixture.reader(directory, "races.json.gz", "odds.json.zst");
+
+        JsonObject ascot = reader.reloadFileFromGCSAsJson().getAsJsonArray().get(0).getAsJsonObject();
+        assertEquals("2/1", ascot.getAsJsonArray("horses").get(0).getAsJsonObject().get("odds").getAsString());
+        assertEquals("NR", ascot.getAsJsonArray("horses").get(1).getAsJsonObject().get("odds").getAsString());
+    }
+}
@@ -0,0 +1,146 @@
+package uk.co.kennah.mcp.source;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.google.cloud.ReadChannel;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobId;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Storage;
+import com.google.cloud.storage.contrib.nio.testing.LocalStorageHelper;
+
+/**
+ * Runs ranged reads through {@link GcsRaceDataSource} against the in-memory
+ * Cloud Storage from google-cloud-nio, so the seeks, limits, generation match
+ * and checksum go through the real client. Each channel the client opens is
+ * watched to count the ranges, slow them down like a network and fail one.
+ */
+class RangedDownloadTest {
+
+    private static final int SIZE = 100_000;
+
+    private final byte[] content = new byte[SIZE];
+    private final AtomicInteger open = new AtomicInteger();
+    private final AtomicInteger mostOpen = new AtomicInteger();
+    private final AtomicInteger rangesRead = new AtomicInteger();
+    private final AtomicBoolean failOnce = new AtomicBoolean();
+    private final Set<Long> rangeLengths = ConcurrentHashMap.newKeySet();
+    private final Storage storage = spy(LocalStorageHelper.getOptions().getService());
+    private GcsRaceDataSource source;
+
+    RangedDownloadTest() throws IOException {
+        new Random(7).nextBytes(content);
+        // GCS always gives an object a generation, the in-memory store only keeps one it is given.
+        storage.create(BlobInfo.newBuilder(BlobId.of("bucket", "todays.txt", 1L)).build(), content);
+        doAnswer(call -> counting((ReadChannel) call.callRealMethod())).when(storage)
+                .reader(any(BlobId.class), any(Storage.BlobSourceOption[].class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        source.shutdown();
+    }
+
+    @Test
+    void rangesAreReadAtOnceAndReassembledInOrder() throws IOException {
+        source = source(Long.MAX_VALUE);
+        failOnce.set(true);
+
+        ByteBuffer read = source.find("todays.txt").orElseThrow().map();
+
+        assertTrue(read.isDirect());
+        assertEquals(ByteBuffer.wrap(content), read);
+        // 10 ranges of 10000 bytes, one of them tried twice.
+        assertEquals(11, rangesRead.get());
+        assertTrue(mostOpen.get() > 1, "ranges should be read concurrently");
+        // Each channel stops at the end of its range instead of reading on to the end of the object.
+        assertEquals(Set.of(10_000L), rangeLengths);
+    }
+
+    @Test
+    void largeObjectsAreReassembledInATemporaryFile() throws IOException {
+        source = source(50_000);
+
+        ByteBuffer read = source.find("todays.txt").orElseThrow().map();
+
+        assertTrue(read.isDirect());
+        assertEquals(ByteBuffer.wrap(content), read);
+    }
+
+    @Test
+    void aChecksumMismatchFailsTheRead() throws IOException {
+        // The store works the checksum out from the content, so report another one for the object.
+        doAnswer(call -> ((Blob) call.callRealMethod()).toBuilder().setCrc32c(RangedDownload.encode(12345)).build())
+                .when(storage).get(any(BlobId.class));
+        source = source(Long.MAX_VALUE);
+
+        IOException e = assertThrows(IOException.class, () -> source.find("todays.txt").orElseThrow().openStream());
+        assertTrue(e.getMessage().startsWith("CRC32C of 'todays.txt' is "));
+    }
+
+    private GcsRaceDataSource source(long maxDirectBytes) {
+        GcsRaceDataSource source = new GcsRaceDataSource();
+        ReflectionTestUtils.setField(source, "bucket", "bucket");
+        ReflectionTestUtils.setField(source, "storage", storage);
+        ReflectionTestUtils.setField(source, "ranged", true);
+        ReflectionTestUtils.setField(source, "rangedMinSize", 1L);
+        ReflectionTestUtils.setField(source, "chunkSize", 10_000);
+        ReflectionTestUtils.setField(source, "parallelism", 4);
+        ReflectionTestUtils.setField(source, "maxDirectBytes", maxDirectBytes);
+        source.init();
+        return source;
+    }
+
+    /**
+     * @return The channel the client opened for one range, counted, slowed
+     * down like a network stream and failing once if asked to. It stays the
+     * client's own channel, which the client relies on.
+     */
+    private ReadChannel counting(ReadChannel channel) throws IOException {
+        ReadChannel counted = spy(channel);
+        AtomicLong position = new AtomicLong();
+        AtomicBoolean started = new AtomicBoolean();
+        doAnswer(seek -> {
+            position.set(seek.getArgument(0));
+            return seek.callRealMethod();
+        }).when(counted).seek(anyLong());
+        doAnswer(read -> {
+            if (started.compareAndSet(false, true)) {
+                rangesRead.incrementAndGet();
+                mostOpen.accumulateAndGet(open.incrementAndGet(), Math::max);
+                Thread.sleep(20);
+                if (position.get() > 0 && failOnce.getAndSet(false)) {
+                    throw new IOException("connection reset");
+                }
+            }
+            return read.callRealMethod();
+        }).when(counted).read(any(ByteBuffer.class));
+        doAnswer(close -> {
+            rangeLengths.add(counted.limit() - position.get());
+            if (started.get()) {
+                open.decrementAndGet();
+            }
+            return close.callRealMethod();
+        }).when(counted).close();
+        return counted;
+    }
+}
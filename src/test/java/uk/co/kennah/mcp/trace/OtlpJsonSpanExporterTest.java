@@ -0,0 +1,79 @@
+package uk.co.kennah.mcp.trace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.MDC;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+
+class OtlpJsonSpanExporterTest {
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void tearDown() {
+        Spans.install(OpenTelemetry.noop().getTracer(Spans.INSTRUMENTATION_NAME));
+    }
+
+    @Test
+    void writesNestedSpansAsOtlpJsonAndTagsTheLogsWithTheTraceId() throws IOException {
+        Path file = dir.resolve("traces.jsonl");
+        SdkTracerProvider provider = SdkTracerProvider.builder()
+                .addSpanProcessor(SimpleSpanProcessor.create(OtlpJsonSpanExporter.toFile(file)))
+                .build();
+        Spans.install(provider.get(Spans.INSTRUMENTATION_NAME));
+
+        String traceId;
+        try (TraceSpan call = Spans.startCall("tool get_top_rated", SpanKind.SERVER).setAttribute("mcp.tool", "get_top_rated")) {
+            traceId = call.getTraceId();
+            assertEquals(traceId, MDC.get(TraceSpan.MDC_TRACE_ID));
+            assertEquals(42, (int) Spans.call("lookup", () -> 42));
+            try (TraceSpan read = Spans.start("read")) {
+                read.setError("not found");
+            }
+        }
+        assertNull(MDC.get(TraceSpan.MDC_TRACE_ID));
+        provider.shutdown().join(5, TimeUnit.SECONDS);
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(3, lines.size());
+        JsonObject lookup = span(lines.get(0));
+        JsonObject read = span(lines.get(1));
+        JsonObject call = span(lines.get(2));
+
+        assertEquals("tool get_top_rated", call.get("name").getAsString());
+        assertEquals(2, call.get("kind").getAsInt());
+        assertEquals(traceId, call.get("traceId").getAsString());
+        assertEquals("get_top_rated", call.getAsJsonArray("attributes").get(0).getAsJsonObject()
+                .getAsJsonObject("value").get("stringValue").getAsString());
+        assertEquals(call.get("spanId"), lookup.get("parentSpanId"));
+        assertEquals(call.get("spanId"), read.get("parentSpanId"));
+        assertEquals(2, read.getAsJsonObject("status").get("code").getAsInt());
+        assertNull(call.get("parentSpanId"));
+    }
+
+    private static JsonObject span(String line) {
+        JsonArray resourceSpans = JsonParser.parseString(line).getAsJsonObject().getAsJsonArray("resourceSpans");
+        JsonObject scopeSpans = resourceSpans.get(0).getAsJsonObject().getAsJsonArray("scopeSpans").get(0).getAsJsonObject();
+        assertEquals(Spans.INSTRUMENTATION_NAME, scopeSpans.getAsJsonObject("scope").get("name").getAsString());
+        return scopeSpans.getAsJsonArray("spans").get(0).getAsJsonObject();
+    }
+}